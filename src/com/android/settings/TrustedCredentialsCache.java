@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import android.content.Context;
+import android.net.http.SslCertificate;
+import android.security.KeyChain;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.TrustedCredentialsSettings.Tab;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A persistent cache of the parsed subjects of the CA certificates, keyed by tab, profile and
+ * alias. Each entry keeps the digest of the encoded certificate it was parsed from, so a changed
+ * certificate is parsed again.
+ */
+class TrustedCredentialsCache {
+
+    private static final String TAG = "TrustedCredentialsCache";
+
+    @VisibleForTesting
+    static final String FILE_NAME = "trusted_credentials_cache";
+    private static final int VERSION = 1;
+
+    // Guards the file, which is shared by the fragments of both tabs.
+    private static final Object sLock = new Object();
+
+    private final AtomicFile mFile;
+
+    TrustedCredentialsCache(Context context) {
+        mFile = new AtomicFile(new File(context.getCacheDir(), FILE_NAME));
+    }
+
+    /** Returns the cached entries of the tab keyed by alias, by profile id. */
+    SparseArray<Map<String, Entry>> read(Tab tab) {
+        synchronized (sLock) {
+            final Map<String, Map<String, Entry>> groups = readAll();
+            final SparseArray<Map<String, Entry>> entriesByProfileId = new SparseArray<>();
+            for (Map.Entry<String, Map<String, Entry>> group : groups.entrySet()) {
+                final int profileId = getProfileId(tab, group.getKey());
+                if (profileId >= 0) {
+                    entriesByProfileId.put(profileId, group.getValue());
+                }
+            }
+            return entriesByProfileId;
+        }
+    }
+
+    /** Replaces the cached entries of the tab for the profile. */
+    void write(Tab tab, int profileId, Map<String, Entry> entries) {
+        synchronized (sLock) {
+            final Map<String, Map<String, Entry>> groups = readAll();
+            groups.put(getGroupKey(tab, profileId), entries);
+            writeAll(groups);
+        }
+    }
+
+    /** Returns the digest of the encoded certificate, which identifies it in the cache. */
+    static byte[] digest(byte[] encodedCertificate) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(encodedCertificate);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String getGroupKey(Tab tab, int profileId) {
+        return tab.name() + "/" + profileId;
+    }
+
+    private static int getProfileId(Tab tab, String groupKey) {
+        final String prefix = tab.name() + "/";
+        if (!groupKey.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(groupKey.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Map<String, Map<String, Entry>> readAll() {
+        final Map<String, Map<String, Entry>> groups = new ArrayMap<>();
+        try (DataInputStream in = new DataInputStream(mFile.openRead())) {
+            if (in.readInt() != VERSION) {
+                return groups;
+            }
+            final int groupCount = in.readInt();
+            for (int i = 0; i < groupCount; i++) {
+                final String groupKey = in.readUTF();
+                final int entryCount = in.readInt();
+                final Map<String, Entry> entries = new ArrayMap<>(entryCount);
+                for (int j = 0; j < entryCount; j++) {
+                    final String alias = in.readUTF();
+                    final byte[] digest = new byte[in.readInt()];
+                    in.readFully(digest);
+                    final String subjectPrimary = in.readUTF();
+                    final String subjectSecondary = in.readUTF();
+                    final boolean deleted = in.readBoolean();
+                    entries.put(alias,
+                            new Entry(digest, subjectPrimary, subjectSecondary, deleted));
+                }
+                groups.put(groupKey, entries);
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing cached yet.
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to read the cache, parsing again", e);
+            groups.clear();
+        }
+        return groups;
+    }
+
+    private void writeAll(Map<String, Map<String, Entry>> groups) {
+        FileOutputStream stream = null;
+        try {
+            stream = mFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(VERSION);
+            out.writeInt(groups.size());
+            for (Map.Entry<String, Map<String, Entry>> group : groups.entrySet()) {
+                out.writeUTF(group.getKey());
+                out.writeInt(group.getValue().size());
+                for (Map.Entry<String, Entry> entry : group.getValue().entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().mDigest.length);
+                    out.write(entry.getValue().mDigest);
+                    out.writeUTF(entry.getValue().mSubjectPrimary);
+                    out.writeUTF(entry.getValue().mSubjectSecondary);
+                    out.writeBoolean(entry.getValue().mDeleted);
+                }
+            }
+            out.flush();
+            mFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write the cache", e);
+            if (stream != null) {
+                mFile.failWrite(stream);
+            }
+        }
+    }
+
+    /** The parsed subject of a certificate, and whether the certificate is deleted. */
+    static class Entry {
+        final byte[] mDigest;
+        final String mSubjectPrimary;
+        final String mSubjectSecondary;
+        final boolean mDeleted;
+
+        Entry(byte[] digest, String subjectPrimary, String subjectSecondary, boolean deleted) {
+            mDigest = digest;
+            mSubjectPrimary = subjectPrimary;
+            mSubjectSecondary = subjectSecondary;
+            mDeleted = deleted;
+        }
+
+        /** Parses the subject of the encoded certificate. */
+        static Entry parse(byte[] digest, byte[] encodedCertificate, boolean deleted) {
+            final X509Certificate certificate = KeyChain.toCertificate(encodedCertificate);
+            final SslCertificate.DName subject = new SslCertificate(certificate).getIssuedTo();
+            final String cn = subject.getCName();
+            final String o = subject.getOName();
+            final String ou = subject.getUName();
+            // if we have a O, use O as primary subject, secondary prefer CN over OU
+            // if we don't have an O, use CN as primary, empty secondary
+            // if we don't have O or CN, use DName as primary, empty secondary
+            if (!o.isEmpty()) {
+                return new Entry(digest, o, !cn.isEmpty() ? cn : ou, deleted);
+            } else if (!cn.isEmpty()) {
+                return new Entry(digest, cn, "", deleted);
+            } else {
+                return new Entry(digest, subject.getDName(), "", deleted);
+            }
+        }
+
+        /** Returns true if the entry was parsed from the certificate of the digest. */
+        boolean matches(byte[] digest) {
+            return Arrays.equals(mDigest, digest);
+        }
+
+        /** Returns the entry with the deleted state updated. */
+        Entry withDeleted(boolean deleted) {
+            return deleted == mDeleted
+                    ? this : new Entry(mDigest, mSubjectPrimary, mSubjectSecondary, deleted);
+        }
+    }
+}
@@ -33,7 +33,6 @@ import android.content.pm.UserInfo;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
 import android.graphics.drawable.Drawable;
-import android.net.http.SslCertificate;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Parcelable;
@@ -43,6 +42,7 @@ import android.os.UserManager;
 import android.security.IKeyChainService;
 import android.security.KeyChain;
 import android.security.KeyChain.KeyChainConnection;
+import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
@@ -69,12 +69,17 @@ import com.android.internal.widget.LockPatternUtils;
 import com.android.settings.TrustedCredentialsSettings.Tab;
 import com.android.settingslib.core.lifecycle.ObservableFragment;
 
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.IntConsumer;
 
 /**
@@ -96,6 +101,7 @@ public class TrustedCredentialsFragment extends ObservableFragment
     private static final String SAVED_CONFIRMED_CREDENTIAL_USERS = "ConfirmedCredentialUsers";
     private static final String SAVED_CONFIRMING_CREDENTIAL_USER = "ConfirmingCredentialUser";
     private static final int REQUEST_CONFIRM_CREDENTIALS = 1;
+    private static final int MAX_PARSER_THREADS = 4;
 
     private GroupAdapter mGroupAdapter;
     private AliasOperation mAliasOperation;
@@ -434,7 +440,8 @@ public class TrustedCredentialsFragment extends ObservableFragment
             holder.mSubjectSecondaryView.setText(certHolder.mSubjectSecondary);
             if (mTab.mSwitch) {
                 holder.mSwitch.setChecked(!certHolder.mDeleted);
-                holder.mSwitch.setEnabled(!mUserManager.hasUserRestriction(
+                // The holders shown while loading may be replaced, so toggle them once loaded.
+                holder.mSwitch.setEnabled(!mData.isLoading() && !mUserManager.hasUserRestriction(
                         UserManager.DISALLOW_CONFIG_CREDENTIALS,
                         new UserHandle(certHolder.mProfileId)));
                 holder.mSwitch.setVisibility(View.VISIBLE);
@@ -642,16 +649,19 @@ public class TrustedCredentialsFragment extends ObservableFragment
                 new SparseArray<>();
         private final Tab mTab;
         private final GroupAdapter mAdapter;
+        private int mLoadingCount;
 
         private AdapterData(Tab tab, GroupAdapter adapter) {
             mAdapter = adapter;
             mTab = tab;
         }
 
-        private class AliasLoader extends AsyncTask<Void, Integer, SparseArray<List<CertHolder>>> {
+        private class AliasLoader
+                extends AsyncTask<Void, LoadProgress, SparseArray<List<CertHolder>>> {
             private ProgressBar mProgressBar;
             private View mContentView;
             private Context mContext;
+            private boolean mShowingCachedCerts;
 
             AliasLoader() {
                 mContext = getActivity();
@@ -669,6 +679,7 @@ public class TrustedCredentialsFragment extends ObservableFragment
 
             @Override
             protected void onPreExecute() {
+                mLoadingCount++;
                 mProgressBar = mFragmentView.findViewById(R.id.progress);
                 mContentView = mFragmentView.findViewById(R.id.content);
                 mProgressBar.setVisibility(View.VISIBLE);
@@ -677,11 +688,27 @@ public class TrustedCredentialsFragment extends ObservableFragment
 
             @Override
             protected SparseArray<List<CertHolder>> doInBackground(Void... params) {
+                TrustedCredentialsCache cache = new TrustedCredentialsCache(mContext);
+                SparseArray<Map<String, TrustedCredentialsCache.Entry>> cachedEntriesByProfileId =
+                        cache.read(mTab);
+                List<UserHandle> profiles = mUserManager.getUserProfiles();
+                // Show the subjects parsed last time while the certificates are reloaded.
+                SparseArray<List<CertHolder>> cachedCertHolders =
+                        getCachedCertHolders(profiles, cachedEntriesByProfileId);
+                if (cachedCertHolders != null) {
+                    publishProgress(new LoadProgress(cachedCertHolders));
+                }
+
                 SparseArray<List<CertHolder>> certHoldersByProfile =
                         new SparseArray<>();
+                // Parsing is CPU bound, so it runs on a pool while the next certificates are
+                // fetched from KeyChain.
+                ExecutorService parser = Executors.newFixedThreadPool(
+                        Math.min(MAX_PARSER_THREADS, Runtime.getRuntime().availableProcessors()));
                 try {
+                    SparseArray<List<PendingCert>> pendingCertsByProfileId =
+                            new SparseArray<>(profiles.size());
                     synchronized (mKeyChainConnectionByProfileId) {
-                        List<UserHandle> profiles = mUserManager.getUserProfiles();
                         // First we get all aliases for all profiles in order to show progress
                         // correctly. Otherwise this could all be in a single loop.
                         SparseArray<List<String>> aliasesByProfileId =
@@ -716,56 +743,157 @@ public class TrustedCredentialsFragment extends ObservableFragment
                                             profileId);
                             if (shouldSkipProfile(profile) || aliases == null
                                     || keyChainConnection == null) {
-                                certHoldersByProfile.put(profileId, new ArrayList<>(0));
                                 continue;
                             }
                             IKeyChainService service = keyChainConnection.getService();
-                            List<CertHolder> certHolders = new ArrayList<>(max);
+                            Map<String, TrustedCredentialsCache.Entry> cachedEntries =
+                                    cachedEntriesByProfileId.get(profileId);
+                            List<PendingCert> pendingCerts = new ArrayList<>(aliases.size());
                             for (String alias : aliases) {
                                 byte[] encodedCertificate = service.getEncodedCaCertificate(alias,
                                         true);
-                                X509Certificate cert = KeyChain.toCertificate(encodedCertificate);
-                                certHolders.add(new CertHolder(service, mAdapter,
-                                        mTab, alias, cert, profileId));
-                                publishProgress(++progress, max);
+                                if (encodedCertificate == null) {
+                                    Log.w(TAG, "No certificate for alias " + alias);
+                                    continue;
+                                }
+                                boolean deleted = isDeleted(service, alias);
+                                byte[] digest = TrustedCredentialsCache.digest(encodedCertificate);
+                                TrustedCredentialsCache.Entry cachedEntry =
+                                        cachedEntries == null ? null : cachedEntries.get(alias);
+                                Future<TrustedCredentialsCache.Entry> entry;
+                                if (cachedEntry != null && cachedEntry.matches(digest)) {
+                                    entry = CompletableFuture.completedFuture(
+                                            cachedEntry.withDeleted(deleted));
+                                } else {
+                                    entry = parser.submit(() -> TrustedCredentialsCache.Entry
+                                            .parse(digest, encodedCertificate, deleted));
+                                }
+                                pendingCerts.add(
+                                        new PendingCert(alias, encodedCertificate, entry));
+                                publishProgress(new LoadProgress(++progress, max));
                             }
-                            Collections.sort(certHolders);
-                            certHoldersByProfile.put(profileId, certHolders);
+                            pendingCertsByProfileId.put(profileId, pendingCerts);
+                        }
+                    }
+                    for (UserHandle profile : profiles) {
+                        int profileId = profile.getIdentifier();
+                        List<PendingCert> pendingCerts = pendingCertsByProfileId.get(profileId);
+                        if (pendingCerts == null) {
+                            certHoldersByProfile.put(profileId, new ArrayList<>(0));
+                            continue;
+                        }
+                        List<CertHolder> certHolders = new ArrayList<>(pendingCerts.size());
+                        Map<String, TrustedCredentialsCache.Entry> entries =
+                                new ArrayMap<>(pendingCerts.size());
+                        for (PendingCert pendingCert : pendingCerts) {
+                            TrustedCredentialsCache.Entry entry;
+                            try {
+                                entry = pendingCert.mEntry.get();
+                            } catch (ExecutionException e) {
+                                Log.w(TAG, "Failed to parse certificate " + pendingCert.mAlias,
+                                        e.getCause());
+                                continue;
+                            }
+                            certHolders.add(new CertHolder(mAdapter, mTab, pendingCert.mAlias,
+                                    pendingCert.mEncodedCertificate, entry, profileId));
+                            entries.put(pendingCert.mAlias, entry);
+                        }
+                        Collections.sort(certHolders);
+                        certHoldersByProfile.put(profileId, certHolders);
+                        if (!isCancelled()) {
+                            cache.write(mTab, profileId, entries);
                         }
-                        return certHoldersByProfile;
                     }
+                    return certHoldersByProfile;
                 } catch (RemoteException e) {
                     Log.e(TAG, "Remote exception while loading aliases.", e);
                     return new SparseArray<>();
                 } catch (InterruptedException e) {
                     Log.e(TAG, "InterruptedException while loading aliases.", e);
                     return new SparseArray<>();
+                } finally {
+                    parser.shutdownNow();
+                }
+            }
+
+            /**
+             * Returns the cert holders of the cached subjects, or null if a profile to show has
+             * not been cached yet.
+             */
+            private SparseArray<List<CertHolder>> getCachedCertHolders(List<UserHandle> profiles,
+                    SparseArray<Map<String, TrustedCredentialsCache.Entry>> entriesByProfileId) {
+                SparseArray<List<CertHolder>> certHoldersByProfile =
+                        new SparseArray<>(profiles.size());
+                for (UserHandle profile : profiles) {
+                    int profileId = profile.getIdentifier();
+                    if (shouldSkipProfile(profile)) {
+                        certHoldersByProfile.put(profileId, new ArrayList<>(0));
+                        continue;
+                    }
+                    Map<String, TrustedCredentialsCache.Entry> entries =
+                            entriesByProfileId.get(profileId);
+                    if (entries == null) {
+                        return null;
+                    }
+                    List<CertHolder> certHolders = new ArrayList<>(entries.size());
+                    for (Map.Entry<String, TrustedCredentialsCache.Entry> entry
+                            : entries.entrySet()) {
+                        certHolders.add(new CertHolder(mAdapter, mTab, entry.getKey(),
+                                null /* encodedCert */, entry.getValue(), profileId));
+                    }
+                    Collections.sort(certHolders);
+                    certHoldersByProfile.put(profileId, certHolders);
+                }
+                return certHoldersByProfile;
+            }
+
+            private boolean isDeleted(IKeyChainService service, String alias) {
+                try {
+                    return mTab.deleted(service, alias);
+                } catch (RemoteException e) {
+                    Log.e(TAG, "Remote exception while checking if alias " + alias
+                            + " is deleted.", e);
+                    return false;
                 }
             }
 
             @Override
-            protected void onProgressUpdate(Integer... progressAndMax) {
-                int progress = progressAndMax[0];
-                int max = progressAndMax[1];
-                if (max != mProgressBar.getMax()) {
-                    mProgressBar.setMax(max);
+            protected void onProgressUpdate(LoadProgress... values) {
+                LoadProgress loadProgress = values[0];
+                if (loadProgress.mCertHoldersByProfileId != null) {
+                    setCertHolders(loadProgress.mCertHoldersByProfileId);
+                    mShowingCachedCerts = true;
+                    mProgressBar.setVisibility(View.GONE);
+                    mContentView.setVisibility(View.VISIBLE);
+                    return;
+                }
+                if (mShowingCachedCerts) {
+                    return;
+                }
+                if (loadProgress.mMax != mProgressBar.getMax()) {
+                    mProgressBar.setMax(loadProgress.mMax);
                 }
-                mProgressBar.setProgress(progress);
+                mProgressBar.setProgress(loadProgress.mProgress);
             }
 
             @Override
             protected void onPostExecute(SparseArray<List<CertHolder>> certHolders) {
+                mLoadingCount--;
+                setCertHolders(certHolders);
+                mProgressBar.setVisibility(View.GONE);
+                mContentView.setVisibility(View.VISIBLE);
+                mProgressBar.setProgress(0);
+                mAliasLoaders.remove(this);
+                showTrustAllCaDialogIfNeeded();
+            }
+
+            private void setCertHolders(SparseArray<List<CertHolder>> certHolders) {
                 mCertHoldersByUserId.clear();
                 int n = certHolders.size();
                 for (int i = 0; i < n; ++i) {
                     mCertHoldersByUserId.put(certHolders.keyAt(i), certHolders.valueAt(i));
                 }
                 mAdapter.notifyDataSetChanged();
-                mProgressBar.setVisibility(View.GONE);
-                mContentView.setVisibility(View.VISIBLE);
-                mProgressBar.setProgress(0);
-                mAliasLoaders.remove(this);
-                showTrustAllCaDialogIfNeeded();
             }
 
             private boolean isUserTabAndTrustAllCertMode() {
@@ -798,6 +926,18 @@ public class TrustedCredentialsFragment extends ObservableFragment
             }
         }
 
+        /** Returns whether an {@link AliasLoader} may still replace the cert holders. */
+        private boolean isLoading() {
+            return mLoadingCount > 0;
+        }
+
+        /** Returns the cert holder currently held for the alias of the given one, if any. */
+        private CertHolder getCertHolder(CertHolder certHolder) {
+            List<CertHolder> certs = mCertHoldersByUserId.get(certHolder.mProfileId);
+            int index = certs == null ? -1 : certs.indexOf(certHolder);
+            return index < 0 ? null : certs.get(index);
+        }
+
         public void remove(CertHolder certHolder) {
             if (mCertHoldersByUserId != null) {
                 List<CertHolder> certs = mCertHoldersByUserId.get(certHolder.mProfileId);
@@ -808,64 +948,65 @@ public class TrustedCredentialsFragment extends ObservableFragment
         }
     }
 
+    /** The progress of an {@link AdapterData.AliasLoader}, or the cert holders it has cached. */
+    private static class LoadProgress {
+        final int mProgress;
+        final int mMax;
+        final SparseArray<List<CertHolder>> mCertHoldersByProfileId;
+
+        LoadProgress(int progress, int max) {
+            mProgress = progress;
+            mMax = max;
+            mCertHoldersByProfileId = null;
+        }
+
+        LoadProgress(SparseArray<List<CertHolder>> certHoldersByProfileId) {
+            mProgress = 0;
+            mMax = 0;
+            mCertHoldersByProfileId = certHoldersByProfileId;
+        }
+    }
+
+    /** A fetched certificate whose subject may still be being parsed. */
+    private static class PendingCert {
+        final String mAlias;
+        final byte[] mEncodedCertificate;
+        final Future<TrustedCredentialsCache.Entry> mEntry;
+
+        PendingCert(String alias, byte[] encodedCertificate,
+                Future<TrustedCredentialsCache.Entry> entry) {
+            mAlias = alias;
+            mEncodedCertificate = encodedCertificate;
+            mEntry = entry;
+        }
+    }
+
     /* package */ static class CertHolder implements Comparable<CertHolder> {
         public int mProfileId;
-        private final IKeyChainService mService;
         private final GroupAdapter mAdapter;
         private final Tab mTab;
         private final String mAlias;
-        private final X509Certificate mX509Cert;
+        // Null until the certificate is fetched, when the holder is created from the cache.
+        private final byte[] mEncodedCert;
 
-        private final SslCertificate mSslCert;
         private final String mSubjectPrimary;
         private final String mSubjectSecondary;
         private boolean mDeleted;
 
-        private CertHolder(IKeyChainService service,
-                GroupAdapter adapter,
+        private CertHolder(GroupAdapter adapter,
                 Tab tab,
                 String alias,
-                X509Certificate x509Cert,
+                byte[] encodedCert,
+                TrustedCredentialsCache.Entry entry,
                 int profileId) {
             mProfileId = profileId;
-            mService = service;
             mAdapter = adapter;
             mTab = tab;
             mAlias = alias;
-            mX509Cert = x509Cert;
-
-            mSslCert = new SslCertificate(x509Cert);
-
-            String cn = mSslCert.getIssuedTo().getCName();
-            String o = mSslCert.getIssuedTo().getOName();
-            String ou = mSslCert.getIssuedTo().getUName();
-            // if we have a O, use O as primary subject, secondary prefer CN over OU
-            // if we don't have an O, use CN as primary, empty secondary
-            // if we don't have O or CN, use DName as primary, empty secondary
-            if (!o.isEmpty()) {
-                if (!cn.isEmpty()) {
-                    mSubjectPrimary = o;
-                    mSubjectSecondary = cn;
-                } else {
-                    mSubjectPrimary = o;
-                    mSubjectSecondary = ou;
-                }
-            } else {
-                if (!cn.isEmpty()) {
-                    mSubjectPrimary = cn;
-                    mSubjectSecondary = "";
-                } else {
-                    mSubjectPrimary = mSslCert.getIssuedTo().getDName();
-                    mSubjectSecondary = "";
-                }
-            }
-            try {
-                mDeleted = mTab.deleted(mService, mAlias);
-            } catch (RemoteException e) {
-                Log.e(TAG, "Remote exception while checking if alias " + mAlias + " is deleted.",
-                        e);
-                mDeleted = false;
-            }
+            mEncodedCert = encodedCert;
+            mSubjectPrimary = entry.mSubjectPrimary;
+            mSubjectSecondary = entry.mSubjectSecondary;
+            mDeleted = entry.mDeleted;
         }
 
         @Override
@@ -939,6 +1080,11 @@ public class TrustedCredentialsFragment extends ObservableFragment
             synchronized (mKeyChainConnectionByProfileId) {
                 KeyChainConnection keyChainConnection = mKeyChainConnectionByProfileId.get(
                         certHolder.mProfileId);
+                if (keyChainConnection == null) {
+                    // The list is showing cached certificates and KeyChain is not bound yet.
+                    Log.w(TAG, "No KeyChain connection for user " + certHolder.mProfileId);
+                    return null;
+                }
                 IKeyChainService service = keyChainConnection.getService();
                 List<String> chain = service.getCaCertificateChainAliases(certHolder.mAlias, true);
                 certificates = new ArrayList<>(chain.size());
@@ -977,9 +1123,11 @@ public class TrustedCredentialsFragment extends ObservableFragment
 
     private class AliasOperation extends AsyncTask<Void, Void, Boolean> {
         private final CertHolder mCertHolder;
+        private final boolean mDeleted;
 
         private AliasOperation(CertHolder certHolder) {
             mCertHolder = certHolder;
+            mDeleted = certHolder.mDeleted;
             mAliasOperation = this;
         }
 
@@ -989,17 +1137,22 @@ public class TrustedCredentialsFragment extends ObservableFragment
                 synchronized (mKeyChainConnectionByProfileId) {
                     KeyChainConnection keyChainConnection = mKeyChainConnectionByProfileId.get(
                             mCertHolder.mProfileId);
+                    if (keyChainConnection == null) {
+                        Log.w(TAG, "No KeyChain connection for user " + mCertHolder.mProfileId);
+                        return false;
+                    }
                     IKeyChainService service = keyChainConnection.getService();
-                    if (mCertHolder.mDeleted) {
-                        byte[] bytes = mCertHolder.mX509Cert.getEncoded();
+                    if (mDeleted) {
+                        byte[] bytes = mCertHolder.mEncodedCert != null
+                                ? mCertHolder.mEncodedCert
+                                : service.getEncodedCaCertificate(mCertHolder.mAlias, true);
                         service.installCaCertificate(bytes);
                         return true;
                     } else {
                         return service.deleteCaCertificate(mCertHolder.mAlias);
                     }
                 }
-            } catch (CertificateEncodingException | SecurityException | IllegalStateException
-                    | RemoteException e) {
+            } catch (SecurityException | IllegalStateException | RemoteException e) {
                 Log.w(TAG, "Error while toggling alias " + mCertHolder.mAlias, e);
                 return false;
             }
@@ -1008,11 +1161,21 @@ public class TrustedCredentialsFragment extends ObservableFragment
         @Override
         protected void onPostExecute(Boolean ok) {
             if (ok) {
+                // The list may have been reloaded meanwhile, so update the holder of the alias
+                // shown now rather than the one the operation started from.
+                AdapterData data = mCertHolder.mAdapter.mData;
                 if (mCertHolder.mTab.mSwitch) {
-                    mCertHolder.mDeleted = !mCertHolder.mDeleted;
+                    CertHolder certHolder = data.getCertHolder(mCertHolder);
+                    if (certHolder != null) {
+                        certHolder.mDeleted = !mDeleted;
+                    }
                 } else {
                     mCertHolder.mAdapter.remove(mCertHolder);
                 }
+                if (data.isLoading()) {
+                    // The pending list may have been read before the operation, so read it again.
+                    mCertHolder.mAdapter.load();
+                }
                 mCertHolder.mAdapter.notifyDataSetChanged();
             } else {
                 // bail, reload to reset to known state
@@ -19,7 +19,6 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.FeatureFlags;
 import android.content.pm.FeatureFlagsImpl;
 import android.content.pm.PackageManager;
-import android.content.pm.PackageManager.ApplicationInfoFlags;
 import android.content.pm.UserInfo;
 import android.os.AsyncTask;
 import android.os.UserHandle;
@@ -28,13 +27,12 @@ import android.os.UserManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
-import java.util.List;
-
 public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
 
     protected final PackageManager mPm;
     protected final UserManager mUm;
     protected final FeatureFlags mFf;
+    private final InstalledAppsSnapshot mSnapshot;
 
     @VisibleForTesting
     AppCounter(@NonNull Context context, @NonNull PackageManager packageManager,
@@ -42,6 +40,7 @@ public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
         mPm = packageManager;
         mUm = context.getSystemService(UserManager.class);
         mFf = featureFlags;
+        mSnapshot = InstalledAppsSnapshot.getInstance(context);
     }
 
     public AppCounter(@NonNull Context context, @NonNull PackageManager packageManager) {
@@ -56,14 +55,7 @@ public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
                     | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
                     | (mFf.archiving() ? PackageManager.MATCH_ARCHIVED_PACKAGES : 0)
                     | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0);
-            ApplicationInfoFlags infoFlags = ApplicationInfoFlags.of(flags);
-            final List<ApplicationInfo> list =
-                    mPm.getInstalledApplicationsAsUser(infoFlags, user.id);
-            for (ApplicationInfo info : list) {
-                if (includeInCount(info)) {
-                    count++;
-                }
-            }
+            count += mSnapshot.count(user.id, flags, this::includeInCount);
         }
         return count;
     }
@@ -16,6 +16,7 @@
 
 package com.android.settings.applications;
 
+import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.UserInfo;
@@ -35,25 +36,23 @@ import java.util.List;
 public abstract class AppLister extends AsyncTask<Void, Void, List<UserAppInfo>> {
     protected final PackageManager mPm;
     protected final UserManager mUm;
+    private final InstalledAppsSnapshot mSnapshot;
 
-    public AppLister(PackageManager packageManager, UserManager userManager) {
+    public AppLister(Context context, PackageManager packageManager, UserManager userManager) {
         mPm = packageManager;
         mUm = userManager;
+        mSnapshot = InstalledAppsSnapshot.getInstance(context);
     }
 
     @Override
     protected List<UserAppInfo> doInBackground(Void... params) {
         final List<UserAppInfo> result = new ArrayList<>();
         for (UserInfo user : mUm.getProfiles(UserHandle.myUserId())) {
-            final List<ApplicationInfo> list =
-                    mPm.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
-                            | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
-                            | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0),
-                            user.id);
-            for (ApplicationInfo info : list) {
-                if (includeInCount(info)) {
-                    result.add(new UserAppInfo(user, info));
-                }
+            final long flags = PackageManager.GET_DISABLED_COMPONENTS
+                    | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
+                    | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0);
+            for (ApplicationInfo info : mSnapshot.filter(user.id, flags, this::includeInCount)) {
+                result.add(new UserAppInfo(user, info));
             }
         }
         return result;
@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.AppOpsManager;
+import android.app.AppOpsManager.PackageOps;
+import android.content.Context;
+import android.content.pm.ChangedPackages;
+import android.content.pm.IPackageManager;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ParceledListSlice;
+import android.os.RemoteException;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshot of the app-op permission state of the packages of each user, shared by the
+ * {@link AppStateAppOpsBridge}s of the special app access screens.
+ *
+ * <p>Permission names are interned to int ids. The package info of a package, the packages
+ * requesting or holding a permission and the app-op modes are looked up once and reused by all
+ * the screens. Packages reported by {@link IPackageManager#getChangedPackages} are looked up
+ * again on the next access, and an app-op change only reloads the modes of the changed package.
+ */
+class AppOpsPermissionSnapshot {
+
+    private static final String TAG = "AppOpsPermissionSnapshot";
+
+    private static AppOpsPermissionSnapshot sInstance;
+
+    private final IPackageManager mIPackageManager;
+    private final AppOpsManager mAppOpsManager;
+    private final Map<String, Integer> mPermissionIds = new ArrayMap<>();
+    private final List<String> mPermissionNames = new ArrayList<>();
+    private final SparseArray<UserState> mUserStates = new SparseArray<>();
+    // Keyed by the op codes, as the bridges read the mode of the first of their op codes.
+    private final Map<String, OpModes> mOpModes = new ArrayMap<>();
+    private final SparseBooleanArray mWatchedOps = new SparseBooleanArray();
+    private final AppOpsManager.OnOpChangedInternalListener mOpChangedListener =
+            new AppOpsManager.OnOpChangedInternalListener() {
+                @Override
+                public void onOpChanged(int op, String packageName) {
+                    onAppOpChanged(op, packageName);
+                }
+            };
+
+    @VisibleForTesting
+    AppOpsPermissionSnapshot(IPackageManager packageManager, AppOpsManager appOpsManager) {
+        mIPackageManager = packageManager;
+        mAppOpsManager = appOpsManager;
+    }
+
+    /**
+     * Returns the snapshot shared by the bridges of the process. The app-op modes are read
+     * through the {@link AppOpsManager} of the application context, so the snapshot does not
+     * keep any screen alive. A snapshot of another package manager is replaced.
+     */
+    static synchronized AppOpsPermissionSnapshot getInstance(Context context,
+            IPackageManager packageManager) {
+        if (sInstance == null || sInstance.mIPackageManager != packageManager) {
+            if (sInstance != null) {
+                sInstance.stopWatchingOps();
+            }
+            final Context appContext = context.getApplicationContext();
+            final AppOpsManager appOpsManager = (AppOpsManager) (appContext != null
+                    ? appContext : context).getSystemService(Context.APP_OPS_SERVICE);
+            sInstance = new AppOpsPermissionSnapshot(packageManager, appOpsManager);
+        }
+        return sInstance;
+    }
+
+    /** Returns the ids of the permission names, interning the names which are not known yet. */
+    synchronized int[] getPermissionIds(String[] permissions) {
+        final int count = permissions != null ? permissions.length : 0;
+        final int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = getPermissionId(permissions[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the package info of a package, with its requested permissions, or null if the
+     * package is not installed.
+     */
+    synchronized PackageState getPackageState(String packageName, int userId)
+            throws RemoteException {
+        final UserState userState = getUserState(userId);
+        PackageState packageState = userState.mPackages.get(packageName);
+        if (packageState == null) {
+            final PackageInfo packageInfo = mIPackageManager.getPackageInfo(packageName,
+                    PackageManager.GET_PERMISSIONS | PackageManager.MATCH_ANY_USER, userId);
+            if (packageInfo == null) {
+                return null;
+            }
+            packageState = newPackageState(packageInfo);
+            userState.mPackages.put(packageName, packageState);
+        }
+        return packageState;
+    }
+
+    /** Returns whether a package is available for the user. */
+    synchronized boolean isPackageAvailable(String packageName, int userId)
+            throws RemoteException {
+        final UserState userState = getUserState(userId);
+        Boolean available = userState.mAvailable.get(packageName);
+        if (available == null) {
+            available = mIPackageManager.isPackageAvailable(packageName, userId);
+            userState.mAvailable.put(packageName, available);
+        }
+        return available;
+    }
+
+    /** Returns the packages of the user which request any of the permissions. */
+    synchronized Set<String> getRequestingPackages(int[] permissionIds, int userId)
+            throws RemoteException {
+        final UserState userState = getUserState(userId);
+        final Set<String> packages = new ArraySet<>();
+        for (int permissionId : permissionIds) {
+            Set<String> requesting = userState.mRequestingPackages.get(permissionId);
+            if (requesting == null) {
+                requesting = new ArraySet<>();
+                final String[] packageNames = mIPackageManager.getAppOpPermissionPackages(
+                        mPermissionNames.get(permissionId), userId);
+                if (packageNames != null) {
+                    requesting.addAll(Arrays.asList(packageNames));
+                }
+                userState.mRequestingPackages.put(permissionId, requesting);
+            }
+            packages.addAll(requesting);
+        }
+        return packages;
+    }
+
+    /** Returns the packages of the user which are granted any of the permissions. */
+    synchronized Map<String, PackageInfo> getHoldingPackages(int[] permissionIds, int userId)
+            throws RemoteException {
+        final UserState userState = getUserState(userId);
+        final Map<String, PackageInfo> packages = new ArrayMap<>();
+        for (int permissionId : permissionIds) {
+            Map<String, PackageInfo> holding = userState.mHoldingPackages.get(permissionId);
+            if (holding == null) {
+                holding = new ArrayMap<>();
+                @SuppressWarnings("unchecked") final ParceledListSlice<PackageInfo> slice =
+                        mIPackageManager.getPackagesHoldingPermissions(
+                                new String[] {mPermissionNames.get(permissionId)}, 0, userId);
+                final List<PackageInfo> packageInfos = slice != null ? slice.getList() : null;
+                final int packageInfoCount = packageInfos != null ? packageInfos.size() : 0;
+                for (int i = 0; i < packageInfoCount; i++) {
+                    holding.put(packageInfos.get(i).packageName, packageInfos.get(i));
+                }
+                userState.mHoldingPackages.put(permissionId, holding);
+            }
+            packages.putAll(holding);
+        }
+        return packages;
+    }
+
+    /**
+     * Returns the mode of the first recorded op of the op codes for each package, keyed by
+     * package name and then by uid. Packages without any recorded op are left out.
+     */
+    synchronized Map<String, SparseIntArray> getOpModes(int[] opCodes) {
+        final String key = Arrays.toString(opCodes);
+        OpModes opModes = mOpModes.get(key);
+        if (opModes == null) {
+            opModes = new OpModes(opCodes);
+            mOpModes.put(key, opModes);
+            for (int opCode : opCodes) {
+                if (!mWatchedOps.get(opCode)) {
+                    mWatchedOps.put(opCode, true);
+                    mAppOpsManager.startWatchingMode(opCode, null, mOpChangedListener);
+                }
+            }
+            loadOpModes(opModes);
+        } else if (opModes.mReloadAll) {
+            loadOpModes(opModes);
+        } else {
+            for (String packageName : opModes.mChangedPackages) {
+                if (!reloadOpModes(opModes, packageName)) {
+                    loadOpModes(opModes);
+                    break;
+                }
+            }
+        }
+        opModes.mChangedPackages.clear();
+        opModes.mReloadAll = false;
+        return new ArrayMap<>(opModes.mModes);
+    }
+
+    private void loadOpModes(OpModes opModes) {
+        opModes.mModes.clear();
+        final List<PackageOps> packageOps = mAppOpsManager.getPackagesForOps(opModes.mOpCodes);
+        final int packageOpsCount = packageOps != null ? packageOps.size() : 0;
+        for (int i = 0; i < packageOpsCount; i++) {
+            final PackageOps packageOp = packageOps.get(i);
+            if (packageOp.getOps().size() < 1) {
+                Log.w(TAG, "No AppOps permission exists for package " + packageOp.getPackageName());
+                continue;
+            }
+            SparseIntArray modes = opModes.mModes.get(packageOp.getPackageName());
+            if (modes == null) {
+                modes = new SparseIntArray();
+                opModes.mModes.put(packageOp.getPackageName(), modes);
+            }
+            modes.put(packageOp.getUid(), packageOp.getOps().get(0).getMode());
+        }
+    }
+
+    /**
+     * Reloads the modes of a package for the uids it is known with. Returns false when the
+     * package has no known uid, so all the modes need to be loaded again.
+     */
+    private boolean reloadOpModes(OpModes opModes, String packageName) {
+        final SparseIntArray oldModes = opModes.mModes.get(packageName);
+        if (oldModes == null) {
+            return false;
+        }
+        final SparseIntArray modes = new SparseIntArray();
+        for (int i = 0; i < oldModes.size(); i++) {
+            final int uid = oldModes.keyAt(i);
+            final List<PackageOps> ops =
+                    mAppOpsManager.getOpsForPackage(uid, packageName, opModes.mOpCodes);
+            if (ops != null && ops.size() > 0 && ops.get(0).getOps().size() > 0) {
+                modes.put(uid, ops.get(0).getOps().get(0).getMode());
+            }
+        }
+        // Replaced rather than updated, as the callers keep the maps returned before.
+        if (modes.size() > 0) {
+            opModes.mModes.put(packageName, modes);
+        } else {
+            opModes.mModes.remove(packageName);
+        }
+        return true;
+    }
+
+    @VisibleForTesting
+    synchronized void onAppOpChanged(int op, String packageName) {
+        for (OpModes opModes : mOpModes.values()) {
+            if (!opModes.hasOpCode(op)) {
+                continue;
+            }
+            if (packageName == null) {
+                opModes.mReloadAll = true;
+            } else {
+                opModes.mChangedPackages.add(packageName);
+            }
+        }
+    }
+
+    /** Stops watching the app-op modes, so the app ops service drops the listener. */
+    @VisibleForTesting
+    synchronized void stopWatchingOps() {
+        if (mWatchedOps.size() > 0) {
+            mAppOpsManager.stopWatchingMode(mOpChangedListener);
+            mWatchedOps.clear();
+        }
+        // Modes are no longer kept up to date, so they are loaded again if the snapshot is used.
+        mOpModes.clear();
+    }
+
+    private UserState getUserState(int userId) throws RemoteException {
+        UserState userState = mUserStates.get(userId);
+        final boolean isNewUser = userState == null;
+        if (isNewUser) {
+            userState = new UserState();
+            mUserStates.put(userId, userState);
+        }
+        final ChangedPackages changedPackages =
+                mIPackageManager.getChangedPackages(userState.mSequenceNumber, userId);
+        if (changedPackages == null) {
+            return userState;
+        }
+        userState.mSequenceNumber = changedPackages.getSequenceNumber();
+        if (isNewUser) {
+            // Nothing is known about the packages of the user yet, only the modes may be stale.
+            for (OpModes opModes : mOpModes.values()) {
+                opModes.mReloadAll = true;
+            }
+            return userState;
+        }
+        for (String packageName : changedPackages.getPackageNames()) {
+            onPackageChanged(userState, packageName, userId);
+        }
+        return userState;
+    }
+
+    /** Forgets the package, and updates it in the permission lookups done so far. */
+    private void onPackageChanged(UserState userState, String packageName, int userId)
+            throws RemoteException {
+        userState.mPackages.remove(packageName);
+        userState.mAvailable.remove(packageName);
+        for (OpModes opModes : mOpModes.values()) {
+            opModes.mChangedPackages.add(packageName);
+        }
+        if (userState.mRequestingPackages.size() == 0
+                && userState.mHoldingPackages.size() == 0) {
+            return;
+        }
+
+        final PackageInfo packageInfo = mIPackageManager.getPackageInfo(packageName,
+                PackageManager.GET_PERMISSIONS, userId);
+        final PackageState packageState =
+                packageInfo != null ? newPackageState(packageInfo) : null;
+        for (int i = 0; i < userState.mRequestingPackages.size(); i++) {
+            final int[] permissionId = {userState.mRequestingPackages.keyAt(i)};
+            if (packageState != null && packageState.requestsAny(permissionId)) {
+                userState.mRequestingPackages.valueAt(i).add(packageName);
+            } else {
+                userState.mRequestingPackages.valueAt(i).remove(packageName);
+            }
+        }
+        for (int i = 0; i < userState.mHoldingPackages.size(); i++) {
+            final int[] permissionId = {userState.mHoldingPackages.keyAt(i)};
+            if (packageState != null && packageState.isGrantedAny(permissionId)) {
+                userState.mHoldingPackages.valueAt(i).put(packageName, packageInfo);
+            } else {
+                userState.mHoldingPackages.valueAt(i).remove(packageName);
+            }
+        }
+    }
+
+    private PackageState newPackageState(PackageInfo packageInfo) {
+        return new PackageState(packageInfo, getPermissionIds(packageInfo.requestedPermissions));
+    }
+
+    private int getPermissionId(String permission) {
+        Integer id = mPermissionIds.get(permission);
+        if (id == null) {
+            id = mPermissionNames.size();
+            mPermissionIds.put(permission, id);
+            mPermissionNames.add(permission);
+        }
+        return id;
+    }
+
+    /** Package info of a package, with its requested permissions interned. */
+    static class PackageState {
+        final PackageInfo mPackageInfo;
+        // Same order as PackageInfo#requestedPermissions.
+        private final int[] mRequestedPermissionIds;
+
+        PackageState(PackageInfo packageInfo, int[] requestedPermissionIds) {
+            mPackageInfo = packageInfo;
+            mRequestedPermissionIds = requestedPermissionIds;
+        }
+
+        /** Returns whether the package requests any of the permissions. */
+        boolean requestsAny(int[] permissionIds) {
+            for (int requestedId : mRequestedPermissionIds) {
+                if (contains(permissionIds, requestedId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Returns whether the package is granted any of the permissions at install time. */
+        boolean isGrantedAny(int[] permissionIds) {
+            final int[] flags = mPackageInfo.requestedPermissionsFlags;
+            for (int i = 0; i < mRequestedPermissionIds.length; i++) {
+                if (contains(permissionIds, mRequestedPermissionIds[i]) && flags != null
+                        && (flags[i] & PackageInfo.REQUESTED_PERMISSION_GRANTED) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean contains(int[] ids, int id) {
+            for (int i : ids) {
+                if (i == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class UserState {
+        int mSequenceNumber;
+        final Map<String, PackageState> mPackages = new ArrayMap<>();
+        final Map<String, Boolean> mAvailable = new ArrayMap<>();
+        final SparseArray<Set<String>> mRequestingPackages = new SparseArray<>();
+        final SparseArray<Map<String, PackageInfo>> mHoldingPackages = new SparseArray<>();
+    }
+
+    private static class OpModes {
+        final int[] mOpCodes;
+        final Map<String, SparseIntArray> mModes = new ArrayMap<>();
+        final Set<String> mChangedPackages = new ArraySet<>();
+        boolean mReloadAll;
+
+        OpModes(int[] opCodes) {
+            mOpCodes = opCodes;
+        }
+
+        boolean hasOpCode(int op) {
+            for (int opCode : mOpCodes) {
+                if (opCode == op) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
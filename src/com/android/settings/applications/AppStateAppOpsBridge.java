@@ -21,13 +21,13 @@ import android.app.AppOpsManager.PackageOps;
 import android.content.Context;
 import android.content.pm.IPackageManager;
 import android.content.pm.PackageInfo;
-import android.content.pm.PackageManager;
 import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.util.ArrayMap;
 import android.util.Log;
 import android.util.SparseArray;
+import android.util.SparseIntArray;
 
 import androidx.annotation.VisibleForTesting;
 
@@ -35,8 +35,8 @@ import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
 
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /*
@@ -47,13 +47,15 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
 
     private static final String TAG = "AppStateAppOpsBridge";
 
-    private final IPackageManager mIPackageManager;
     private final UserManager mUserManager;
     private final List<UserHandle> mProfiles;
     private final AppOpsManager mAppOpsManager;
     private final Context mContext;
     private final int[] mAppOpsOpCodes;
     private final String[] mPermissions;
+    @VisibleForTesting
+    final AppOpsPermissionSnapshot mSnapshot;
+    private final int[] mPermissionIds;
 
     public AppStateAppOpsBridge(Context context, ApplicationsState appState, Callback callback,
             int appOpsOpCode, String[] permissions) {
@@ -78,12 +80,13 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
             int[] appOpsOpCodes, String[] permissions, IPackageManager packageManager) {
         super(appState, callback);
         mContext = context;
-        mIPackageManager = packageManager;
         mUserManager = UserManager.get(context);
         mProfiles = mUserManager.getUserProfiles();
         mAppOpsManager = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
         mAppOpsOpCodes = appOpsOpCodes;
         mPermissions = permissions;
+        mSnapshot = AppOpsPermissionSnapshot.getInstance(context, packageManager);
+        mPermissionIds = mSnapshot.getPermissionIds(permissions);
     }
 
     private boolean isThisUserAProfileOfCurrentUser(final int userId) {
@@ -98,40 +101,20 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
 
     protected abstract void updateExtraInfo(AppEntry app, String pkg, int uid);
 
-    private boolean doesAnyPermissionMatch(String permissionToMatch, String[] permissions) {
-        for (String permission : permissions) {
-            if (permissionToMatch.equals(permission)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     public PermissionState getPermissionInfo(String pkg, int uid) {
         PermissionState permissionState = new PermissionState(pkg, new UserHandle(UserHandle
                 .getUserId(uid)));
         try {
-            permissionState.packageInfo = mIPackageManager.getPackageInfo(pkg,
-                    PackageManager.GET_PERMISSIONS | PackageManager.MATCH_ANY_USER,
-                    permissionState.userHandle.getIdentifier());
-            if (permissionState.packageInfo != null) {
+            final AppOpsPermissionSnapshot.PackageState packageState = mSnapshot.getPackageState(
+                    pkg, permissionState.userHandle.getIdentifier());
+            if (packageState != null) {
+                permissionState.packageInfo = packageState.mPackageInfo;
                 // Check static permission state (whatever that is declared in package manifest)
-                String[] requestedPermissions = permissionState.packageInfo.requestedPermissions;
-                int[] permissionFlags = permissionState.packageInfo.requestedPermissionsFlags;
-                if (requestedPermissions != null) {
-                    for (int i = 0; i < requestedPermissions.length; i++) {
-                        if (doesAnyPermissionMatch(requestedPermissions[i], mPermissions)) {
-                            permissionState.permissionDeclared = true;
-                            if ((permissionFlags[i] & PackageInfo.REQUESTED_PERMISSION_GRANTED)
-                                    != 0) {
-                                permissionState.staticPermissionGranted = true;
-                                break;
-                            }
-                        }
-                    }
-                }
+                permissionState.permissionDeclared = packageState.requestsAny(mPermissionIds);
+                permissionState.staticPermissionGranted =
+                        packageState.isGrantedAny(mPermissionIds);
             }
-            // Check app op state.
+            // Check app op state, which is not cached so that a mode just set is shown.
             List<PackageOps> ops = mAppOpsManager.getOpsForPackage(uid, pkg, mAppOpsOpCodes);
             if (ops != null && ops.size() > 0 && ops.get(0).getOps().size() > 0) {
                 permissionState.appOpMode = ops.get(0).getOps().get(0).getMode();
@@ -176,14 +159,8 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
             SparseArray<ArrayMap<String, PermissionState>> entries = new SparseArray<>();
             for (final UserHandle profile : mProfiles) {
                 final int profileId = profile.getIdentifier();
-                final Set<String> packagesSet = new HashSet<>();
-                for (String permission : mPermissions) {
-                    final String[] pkgs = mIPackageManager.getAppOpPermissionPackages(
-                            permission, profileId);
-                    if (pkgs != null) {
-                        packagesSet.addAll(Arrays.asList(pkgs));
-                    }
-                }
+                final Set<String> packagesSet =
+                        mSnapshot.getRequestingPackages(mPermissionIds, profileId);
                 if (packagesSet.isEmpty()) {
                     // No packages are requesting permission as specified by mPermissions.
                     continue;
@@ -192,7 +169,7 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
                 final ArrayMap<String, PermissionState> entriesForProfile = new ArrayMap<>();
                 entries.put(profileId, entriesForProfile);
                 for (final String packageName : packagesSet) {
-                    final boolean isAvailable = mIPackageManager.isPackageAvailable(packageName,
+                    final boolean isAvailable = mSnapshot.isPackageAvailable(packageName,
                             profileId);
                     if (!shouldIgnorePackage(packageName) && isAvailable) {
                         final PermissionState newEntry = new PermissionState(packageName, profile);
@@ -229,13 +206,9 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
                 if (entriesForProfile == null) {
                     continue;
                 }
-                @SuppressWarnings("unchecked") final List<PackageInfo> packageInfos =
-                        mIPackageManager
-                                .getPackagesHoldingPermissions(mPermissions, 0,
-                                        profileId).getList();
-                final int packageInfoCount = packageInfos != null ? packageInfos.size() : 0;
-                for (int i = 0; i < packageInfoCount; i++) {
-                    final PackageInfo packageInfo = packageInfos.get(i);
+                final Map<String, PackageInfo> packageInfos =
+                        mSnapshot.getHoldingPackages(mPermissionIds, profileId);
+                for (PackageInfo packageInfo : packageInfos.values()) {
                     final PermissionState pe = entriesForProfile.get(packageInfo.packageName);
                     if (pe != null) {
                         pe.packageInfo = packageInfo;
@@ -259,34 +232,31 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
         }
 
         // Find out which packages have been granted permission from AppOps.
-        final List<AppOpsManager.PackageOps> packageOps = mAppOpsManager.getPackagesForOps(
-                mAppOpsOpCodes);
-        final int packageOpsCount = packageOps != null ? packageOps.size() : 0;
-        for (int i = 0; i < packageOpsCount; i++) {
-            final AppOpsManager.PackageOps packageOp = packageOps.get(i);
-            final int userId = UserHandle.getUserId(packageOp.getUid());
-            if (!isThisUserAProfileOfCurrentUser(userId)) {
-                // This AppOp does not belong to any of this user's profiles.
-                continue;
-            }
-
-            final ArrayMap<String, PermissionState> entriesForProfile = entries.get(userId);
-            if (entriesForProfile == null) {
-                continue;
-            }
-            final PermissionState pe = entriesForProfile.get(packageOp.getPackageName());
-            if (pe == null) {
-                Log.w(TAG, "AppOp permission exists for package " + packageOp.getPackageName()
-                        + " of user " + userId + " but package doesn't exist or did not request "
-                        + Arrays.toString(mPermissions) + " access");
-                continue;
-            }
+        final Map<String, SparseIntArray> opModes = mSnapshot.getOpModes(mAppOpsOpCodes);
+        for (Map.Entry<String, SparseIntArray> packageModes : opModes.entrySet()) {
+            final String packageName = packageModes.getKey();
+            final SparseIntArray modes = packageModes.getValue();
+            for (int i = 0; i < modes.size(); i++) {
+                final int userId = UserHandle.getUserId(modes.keyAt(i));
+                if (!isThisUserAProfileOfCurrentUser(userId)) {
+                    // This AppOp does not belong to any of this user's profiles.
+                    continue;
+                }
 
-            if (packageOp.getOps().size() < 1) {
-                Log.w(TAG, "No AppOps permission exists for package " + packageOp.getPackageName());
-                continue;
+                final ArrayMap<String, PermissionState> entriesForProfile =
+                        entries.get(userId);
+                if (entriesForProfile == null) {
+                    continue;
+                }
+                final PermissionState pe = entriesForProfile.get(packageName);
+                if (pe == null) {
+                    Log.w(TAG, "AppOp permission exists for package " + packageName
+                            + " of user " + userId + " but package doesn't exist or did not "
+                            + "request " + Arrays.toString(mPermissions) + " access");
+                    continue;
+                }
+                pe.appOpMode = modes.valueAt(i);
             }
-            pe.appOpMode = packageOp.getOps().get(0).getMode();
         }
     }
 
@@ -23,12 +23,14 @@ import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.format.DateUtils;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 import android.widget.CompoundButton;
 
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.notification.NotificationBackend;
+import com.android.settings.notification.NotificationBackend.BlockState;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
 import com.android.settingslib.applications.ApplicationsState.AppFilter;
@@ -38,6 +40,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Connects the info provided by ApplicationsState and UsageStatsManager.
@@ -51,6 +54,7 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     private IUsageStatsManager mUsageStatsManager;
     protected List<Integer> mUserIds;
     private NotificationBackend mBackend;
+    private final NotificationsSentRollup mNotificationsSentRollup;
     private static final int DAYS_TO_CHECK = 7;
 
     public AppStateNotificationBridge(Context context, ApplicationsState appState,
@@ -60,6 +64,8 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         mContext = context;
         mUsageStatsManager = usageStatsManager;
         mBackend = backend;
+        mNotificationsSentRollup =
+                new NotificationsSentRollup(context, usageStatsManager, DAYS_TO_CHECK);
         mUserIds = new ArrayList<>();
         mUserIds.add(mContext.getUserId());
         int workUserId = Utils.getManagedProfileId(userManager, mContext.getUserId());
@@ -79,18 +85,55 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         }
 
         final Map<String, NotificationsSentState> map = getAggregatedUsageEvents();
+        final Map<String, BlockState> blockStates = getBlockStates(apps);
         for (AppEntry entry : apps) {
-            NotificationsSentState stats =
-                    map.get(getKey(UserHandle.getUserId(entry.info.uid), entry.info.packageName));
+            final String key = getKey(UserHandle.getUserId(entry.info.uid), entry.info.packageName);
+            NotificationsSentState stats = map.get(key);
             if (stats == null) {
                 stats = new NotificationsSentState();
             }
             calculateAvgSentCounts(stats);
-            addBlockStatus(entry, stats);
+            final BlockState blockState = blockStates.get(key);
+            if (blockState != null) {
+                stats.blocked = blockState.banned;
+                stats.blockable = blockState.blockable;
+            } else {
+                addBlockStatus(entry, stats);
+            }
             entry.extraInfo = stats;
         }
     }
 
+    /**
+     * Loads the block state of all the apps with one call per user, keyed by
+     * {@link #getKey(int, String)}.
+     */
+    private Map<String, BlockState> getBlockStates(List<AppEntry> apps) {
+        final Map<Integer, Set<String>> packagesByUser = new ArrayMap<>();
+        for (AppEntry entry : apps) {
+            final int userId = UserHandle.getUserId(entry.info.uid);
+            Set<String> packageNames = packagesByUser.get(userId);
+            if (packageNames == null) {
+                packageNames = new ArraySet<>();
+                packagesByUser.put(userId, packageNames);
+            }
+            packageNames.add(entry.info.packageName);
+        }
+
+        final Map<String, BlockState> blockStates = new ArrayMap<>();
+        for (Map.Entry<Integer, Set<String>> user : packagesByUser.entrySet()) {
+            final Map<String, BlockState> userStates =
+                    mBackend.getBlockStates(mContext, user.getKey(), user.getValue());
+            if (userStates == null) {
+                continue;
+            }
+            for (Map.Entry<String, BlockState> state : userStates.entrySet()) {
+                blockStates.put(getKey(user.getKey(), state.getKey()), state.getValue());
+            }
+        }
+        return blockStates;
+    }
+
     @Override
     protected void updateExtraInfo(AppEntry entry, String pkg, int uid) {
         NotificationsSentState stats = getAggregatedUsageEvents(
@@ -137,40 +180,7 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     }
 
     protected Map<String, NotificationsSentState> getAggregatedUsageEvents() {
-        ArrayMap<String, NotificationsSentState> aggregatedStats = new ArrayMap<>();
-
-        long now = System.currentTimeMillis();
-        long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
-        for (int userId : mUserIds) {
-            UsageEvents events = null;
-            try {
-                events = mUsageStatsManager.queryEventsForUser(
-                        startTime, now, userId, mContext.getPackageName());
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-            if (events != null) {
-                UsageEvents.Event event = new UsageEvents.Event();
-                while (events.hasNextEvent()) {
-                    events.getNextEvent(event);
-                    NotificationsSentState stats =
-                            aggregatedStats.get(getKey(userId, event.getPackageName()));
-                    if (stats == null) {
-                        stats = new NotificationsSentState();
-                        aggregatedStats.put(getKey(userId, event.getPackageName()), stats);
-                    }
-
-                    if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                        if (event.getTimeStamp() > stats.lastSent) {
-                            stats.lastSent = event.getTimeStamp();
-                        }
-                        stats.sentCount++;
-                    }
-
-                }
-            }
-        }
-        return aggregatedStats;
+        return mNotificationsSentRollup.getNotificationsSent(mUserIds);
     }
 
     protected NotificationsSentState getAggregatedUsageEvents(int userId, String pkg) {
@@ -53,6 +53,7 @@ import androidx.preference.PreferenceCategory;
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.deviceinfo.StorageWizardMoveConfirm;
+import com.android.settings.deviceinfo.storage.StorageCacheHelper;
 import com.android.settings.fuelgauge.datasaver.DynamicDenylistManager;
 import com.android.settingslib.RestrictedLockUtils;
 import com.android.settingslib.applications.AppUtils;
@@ -395,12 +396,18 @@ public class AppStorageSettings extends AppInfoWithHeader
                 .setButton1Icon(R.drawable.ic_settings_delete);
         if (result == OP_SUCCESSFUL) {
             Log.i(TAG, "Cleared user data for package : " + packageName);
+            removeCachedPackageStats();
             updateSize();
         } else {
             mButtonsPref.setButton1Enabled(true);
         }
     }
 
+    private void removeCachedPackageStats() {
+        // The storage page caches the package sizes until the package is updated.
+        new StorageCacheHelper(getContext(), mUserId).removePackageStats(mPackageName);
+    }
+
     private void refreshGrantedUriPermissions() {
         // Clear UI first (in case the activity has been resumed)
         removeUriPermissionsFromUi();
@@ -599,6 +606,7 @@ public class AppStorageSettings extends AppInfoWithHeader
                     break;
                 case MSG_CLEAR_CACHE:
                     mCacheCleared = true;
+                    removeCachedPackageStats();
                     // Refresh size info
                     updateSize();
                     break;
@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.ApplicationInfoFlags;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+import android.util.LongSparseArray;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.internal.annotations.GuardedBy;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A snapshot of the installed applications of each user, shared by the {@link AppCounter} and
+ * {@link AppLister} tasks so the screens running several of them list the packages only once.
+ *
+ * <p>The applications of a user are listed on first use for each set of flags, then kept up to
+ * date one package at a time from the package broadcasts. Every change bumps the generation of
+ * the snapshot, so a list racing with a change is not kept.
+ *
+ * <p>Broadcasts can be deferred or missed, so before a list is used the changes reported by
+ * {@link PackageManager#getChangedPackages(int)} are applied, and a list older than
+ * {@link #MAX_AGE_MS} is listed again. A list is therefore at most that old for the changes
+ * which are neither broadcast nor reported, such as those of the other users.
+ */
+public class InstalledAppsSnapshot {
+
+    @VisibleForTesting
+    static final long MAX_AGE_MS = 60000;
+
+    private static InstalledAppsSnapshot sInstance;
+
+    private final Context mContext;
+    private final PackageManager mPm;
+    private final Object mLock = new Object();
+    // The installed applications, by flags, by user id.
+    @GuardedBy("mLock")
+    private final SparseArray<LongSparseArray<AppList>> mAppsByUserId = new SparseArray<>();
+    @GuardedBy("mLock")
+    private long mGeneration;
+    // The sequence number of the package changes already applied.
+    @GuardedBy("mLock")
+    private int mSequenceNumber;
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final String action = intent.getAction();
+            if (Intent.ACTION_USER_REMOVED.equals(action)) {
+                onUserRemoved(intent.getIntExtra(Intent.EXTRA_USER_HANDLE, UserHandle.USER_NULL));
+                return;
+            }
+            if (Intent.ACTION_PACKAGES_SUSPENDED.equals(action)
+                    || Intent.ACTION_PACKAGES_UNSUSPENDED.equals(action)) {
+                final String[] packageNames =
+                        intent.getStringArrayExtra(Intent.EXTRA_CHANGED_PACKAGE_LIST);
+                if (packageNames != null) {
+                    ThreadUtils.postOnBackgroundThread(() -> {
+                        for (String packageName : packageNames) {
+                            onPackageChanged(packageName);
+                        }
+                    });
+                }
+                return;
+            }
+            final Uri data = intent.getData();
+            if (data == null) {
+                return;
+            }
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())
+                    && intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) {
+                // Followed by ACTION_PACKAGE_ADDED for the new version.
+                return;
+            }
+            final String packageName = data.getSchemeSpecificPart();
+            ThreadUtils.postOnBackgroundThread(() -> onPackageChanged(packageName));
+        }
+    };
+
+    /**
+     * Returns the snapshot of the process, listing the applications through the package manager
+     * of the application context.
+     */
+    public static synchronized InstalledAppsSnapshot getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            final Context snapshotContext = appContext != null ? appContext : context;
+            sInstance = new InstalledAppsSnapshot(snapshotContext,
+                    snapshotContext.getPackageManager());
+            sInstance.register();
+        }
+        return sInstance;
+    }
+
+    /** Replaces the snapshot of the process, or drops it if {@code snapshot} is null. */
+    @VisibleForTesting
+    public static synchronized void setInstance(InstalledAppsSnapshot snapshot) {
+        if (sInstance != null) {
+            sInstance.unregister();
+        }
+        sInstance = snapshot;
+    }
+
+    @VisibleForTesting
+    InstalledAppsSnapshot(Context context, PackageManager packageManager) {
+        mContext = context;
+        mPm = packageManager;
+    }
+
+    /** Returns the generation of the snapshot, bumped on every package change. */
+    public long getGeneration() {
+        synchronized (mLock) {
+            return mGeneration;
+        }
+    }
+
+    /** Counts the installed applications of the user matching the predicate, in a single pass. */
+    @WorkerThread
+    public int count(int userId, long flags, @NonNull Predicate<ApplicationInfo> predicate) {
+        int count = 0;
+        for (ApplicationInfo info : getApps(userId, flags).values()) {
+            if (predicate.test(info)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Returns the installed applications of the user matching the predicate, in a single pass. */
+    @WorkerThread
+    public List<ApplicationInfo> filter(int userId, long flags,
+            @NonNull Predicate<ApplicationInfo> predicate) {
+        final List<ApplicationInfo> result = new ArrayList<>();
+        for (ApplicationInfo info : getApps(userId, flags).values()) {
+            if (predicate.test(info)) {
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
+    private ArrayMap<String, ApplicationInfo> getApps(int userId, long flags) {
+        applyChangedPackages();
+        final long generation;
+        synchronized (mLock) {
+            final LongSparseArray<AppList> appsByFlags = mAppsByUserId.get(userId);
+            final AppList apps = appsByFlags != null ? appsByFlags.get(flags) : null;
+            if (apps != null
+                    && SystemClock.elapsedRealtime() - apps.mListedTime < MAX_AGE_MS) {
+                return apps.mApps;
+            }
+            generation = mGeneration;
+        }
+        final long listedTime = SystemClock.elapsedRealtime();
+        final List<ApplicationInfo> list =
+                mPm.getInstalledApplicationsAsUser(ApplicationInfoFlags.of(flags), userId);
+        final ArrayMap<String, ApplicationInfo> apps = new ArrayMap<>(list.size());
+        for (ApplicationInfo info : list) {
+            apps.put(info.packageName, info);
+        }
+        synchronized (mLock) {
+            // If a package changed while listing, the list may miss the change. It is used for
+            // this call only.
+            if (generation == mGeneration) {
+                LongSparseArray<AppList> appsByFlags = mAppsByUserId.get(userId);
+                if (appsByFlags == null) {
+                    appsByFlags = new LongSparseArray<>();
+                    mAppsByUserId.put(userId, appsByFlags);
+                }
+                appsByFlags.put(flags, new AppList(apps, listedTime));
+            }
+        }
+        return apps;
+    }
+
+    /** Applies the package changes reported since the last check, broadcast or not. */
+    private void applyChangedPackages() {
+        final int sequenceNumber;
+        synchronized (mLock) {
+            sequenceNumber = mSequenceNumber;
+        }
+        final ChangedPackages changedPackages = mPm.getChangedPackages(sequenceNumber);
+        if (changedPackages == null) {
+            return;
+        }
+        synchronized (mLock) {
+            mSequenceNumber = Math.max(mSequenceNumber, changedPackages.getSequenceNumber());
+        }
+        for (String packageName : changedPackages.getPackageNames()) {
+            onPackageChanged(packageName);
+        }
+    }
+
+    @VisibleForTesting
+    @WorkerThread
+    void onPackageChanged(String packageName) {
+        final List<Integer> userIds = new ArrayList<>();
+        final List<Long> flagsList = new ArrayList<>();
+        synchronized (mLock) {
+            mGeneration++;
+            for (int i = 0; i < mAppsByUserId.size(); i++) {
+                final LongSparseArray<AppList> appsByFlags = mAppsByUserId.valueAt(i);
+                for (int j = 0; j < appsByFlags.size(); j++) {
+                    userIds.add(mAppsByUserId.keyAt(i));
+                    flagsList.add(appsByFlags.keyAt(j));
+                }
+            }
+        }
+        // Every list is checked, as the lists of an admin user also hold the apps installed for
+        // the other users only.
+        for (int i = 0; i < userIds.size(); i++) {
+            final int userId = userIds.get(i);
+            final long flags = flagsList.get(i);
+            ApplicationInfo info;
+            try {
+                info = mPm.getApplicationInfoAsUser(packageName,
+                        ApplicationInfoFlags.of(flags), userId);
+            } catch (PackageManager.NameNotFoundException e) {
+                info = null;
+            }
+            synchronized (mLock) {
+                final LongSparseArray<AppList> appsByFlags = mAppsByUserId.get(userId);
+                final AppList apps = appsByFlags != null ? appsByFlags.get(flags) : null;
+                if (apps == null) {
+                    continue;
+                }
+                final ArrayMap<String, ApplicationInfo> updated = new ArrayMap<>(apps.mApps);
+                if (info != null) {
+                    updated.put(packageName, info);
+                } else {
+                    updated.remove(packageName);
+                }
+                appsByFlags.put(flags, new AppList(updated, apps.mListedTime));
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void onUserRemoved(int userId) {
+        synchronized (mLock) {
+            mGeneration++;
+            mAppsByUserId.remove(userId);
+        }
+    }
+
+    private void register() {
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        mContext.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, filter,
+                null /* broadcastPermission */, null /* scheduler */);
+        final IntentFilter otherFilter = new IntentFilter();
+        otherFilter.addAction(Intent.ACTION_PACKAGES_SUSPENDED);
+        otherFilter.addAction(Intent.ACTION_PACKAGES_UNSUSPENDED);
+        otherFilter.addAction(Intent.ACTION_USER_REMOVED);
+        mContext.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, otherFilter,
+                null /* broadcastPermission */, null /* scheduler */);
+    }
+
+    private void unregister() {
+        try {
+            mContext.unregisterReceiver(mPackageReceiver);
+        } catch (IllegalArgumentException e) {
+            // The context no longer has the receiver, nothing to do.
+        }
+    }
+
+    /** The applications of a user by package name. Replaced rather than modified. */
+    private static class AppList {
+        final ArrayMap<String, ApplicationInfo> mApps;
+        final long mListedTime;
+
+        AppList(ArrayMap<String, ApplicationInfo> apps, long listedTime) {
+            mApps = apps;
+            mListedTime = listedTime;
+        }
+    }
+}
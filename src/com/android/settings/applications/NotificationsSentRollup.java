@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.usage.IUsageStatsManager;
+import android.app.usage.UsageEvents;
+import android.content.Context;
+import android.os.RemoteException;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.applications.AppStateNotificationBridge.NotificationsSentState;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily totals of the notifications sent by each package, for the last days including today.
+ *
+ * <p>The totals of past days are persisted, so only the usage events of today, and of the days
+ * which are not rolled up yet, are read again when the totals are requested.
+ */
+class NotificationsSentRollup {
+
+    private static final String TAG = "NotificationsSentRollup";
+
+    @VisibleForTesting
+    static final String FILE_NAME = "notifications_sent_rollup";
+    private static final int VERSION = 1;
+
+    // Guards the file, which is shared by all the instances.
+    private static final Object sLock = new Object();
+
+    private final Context mContext;
+    private final IUsageStatsManager mUsageStatsManager;
+    private final int mDays;
+    private final AtomicFile mFile;
+
+    NotificationsSentRollup(Context context, IUsageStatsManager usageStatsManager, int days) {
+        mContext = context;
+        mUsageStatsManager = usageStatsManager;
+        mDays = days;
+        mFile = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Returns the notifications sent by the packages of the users, keyed by
+     * {@link AppStateNotificationBridge#getKey(int, String)}.
+     */
+    Map<String, NotificationsSentState> getNotificationsSent(List<Integer> userIds) {
+        final long now = System.currentTimeMillis();
+        final ZoneId zone = ZoneId.systemDefault();
+        final long today = toEpochDay(now, zone);
+        final long firstDay = today - mDays + 1;
+
+        final Map<String, NotificationsSentState> aggregatedStats = new ArrayMap<>();
+        synchronized (sLock) {
+            // userId -> epoch day -> package -> count of the day.
+            final Map<Integer, Map<Long, Map<String, DayCount>>> rollup = read();
+            // Drop the users which were removed, such as a deleted work profile.
+            boolean changed = rollup.keySet().retainAll(userIds);
+            for (int userId : userIds) {
+                Map<Long, Map<String, DayCount>> days = rollup.get(userId);
+                if (days == null) {
+                    days = new ArrayMap<>();
+                    rollup.put(userId, days);
+                }
+                changed |= days.keySet().removeIf(day -> day < firstDay);
+
+                long firstMissingDay = firstDay;
+                while (firstMissingDay < today && days.containsKey(firstMissingDay)) {
+                    firstMissingDay++;
+                }
+                final Map<Long, Map<String, DayCount>> queriedDays =
+                        queryDays(userId, firstMissingDay, today, now, zone);
+                if (queriedDays == null) {
+                    // Nothing is rolled up from a failed query, the days are queried next time.
+                    for (long day = firstDay; day < firstMissingDay; day++) {
+                        addCounts(aggregatedStats, userId, days.get(day));
+                    }
+                    continue;
+                }
+                for (Map.Entry<Long, Map<String, DayCount>> entry : queriedDays.entrySet()) {
+                    if (entry.getKey() < today) {
+                        // Only complete days are rolled up.
+                        days.put(entry.getKey(), entry.getValue());
+                        changed = true;
+                    }
+                }
+
+                for (long day = firstDay; day <= today; day++) {
+                    final Map<String, DayCount> counts =
+                            day < firstMissingDay ? days.get(day) : queriedDays.get(day);
+                    if (counts != null) {
+                        addCounts(aggregatedStats, userId, counts);
+                    }
+                }
+            }
+            if (changed) {
+                write(rollup);
+            }
+        }
+        return aggregatedStats;
+    }
+
+    /**
+     * Counts the notification events from the start of {@code firstDay} to {@code now}, by day.
+     * Every day of the range gets an entry, even without events. Returns {@code null} if the
+     * events couldn't be queried.
+     */
+    @Nullable
+    private Map<Long, Map<String, DayCount>> queryDays(int userId, long firstDay, long today,
+            long now, ZoneId zone) {
+        final long startTime = toStartOfDay(firstDay, zone);
+        final UsageEvents events;
+        try {
+            events = mUsageStatsManager.queryEventsForUser(
+                    startTime, now, userId, mContext.getPackageName());
+        } catch (RemoteException e) {
+            Log.w(TAG, "Failed to query the usage events of user " + userId, e);
+            return null;
+        }
+        if (events == null) {
+            return null;
+        }
+
+        final Map<Long, Map<String, DayCount>> days = new ArrayMap<>();
+        for (long day = firstDay; day <= today; day++) {
+            days.put(day, new ArrayMap<>());
+        }
+
+        final UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            if (event.getEventType() != UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
+                continue;
+            }
+            // Events are expected within the queried range, clamp the others into it.
+            final long day = Math.min(Math.max(toEpochDay(event.getTimeStamp(), zone), firstDay),
+                    today);
+            final Map<String, DayCount> counts = days.get(day);
+            DayCount count = counts.get(event.getPackageName());
+            if (count == null) {
+                count = new DayCount();
+                counts.put(event.getPackageName(), count);
+            }
+            count.mSentCount++;
+            count.mLastSent = Math.max(count.mLastSent, event.getTimeStamp());
+        }
+        return days;
+    }
+
+    private static void addCounts(Map<String, NotificationsSentState> aggregatedStats,
+            int userId, Map<String, DayCount> counts) {
+        for (Map.Entry<String, DayCount> entry : counts.entrySet()) {
+            final String key = AppStateNotificationBridge.getKey(userId, entry.getKey());
+            NotificationsSentState stats = aggregatedStats.get(key);
+            if (stats == null) {
+                stats = new NotificationsSentState();
+                aggregatedStats.put(key, stats);
+            }
+            stats.sentCount += entry.getValue().mSentCount;
+            stats.lastSent = Math.max(stats.lastSent, entry.getValue().mLastSent);
+        }
+    }
+
+    private Map<Integer, Map<Long, Map<String, DayCount>>> read() {
+        final Map<Integer, Map<Long, Map<String, DayCount>>> rollup = new ArrayMap<>();
+        try (DataInputStream in = new DataInputStream(mFile.openRead())) {
+            if (in.readInt() != VERSION) {
+                return rollup;
+            }
+            final int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                final int userId = in.readInt();
+                final int dayCount = in.readInt();
+                final Map<Long, Map<String, DayCount>> days = new ArrayMap<>(dayCount);
+                for (int j = 0; j < dayCount; j++) {
+                    final long day = in.readLong();
+                    final int packageCount = in.readInt();
+                    final Map<String, DayCount> counts = new ArrayMap<>(packageCount);
+                    for (int k = 0; k < packageCount; k++) {
+                        final String packageName = in.readUTF();
+                        final DayCount count = new DayCount();
+                        count.mSentCount = in.readInt();
+                        count.mLastSent = in.readLong();
+                        counts.put(packageName, count);
+                    }
+                    days.put(day, counts);
+                }
+                rollup.put(userId, days);
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing rolled up yet.
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read the rollup, counting again", e);
+            rollup.clear();
+        }
+        return rollup;
+    }
+
+    private void write(Map<Integer, Map<Long, Map<String, DayCount>>> rollup) {
+        FileOutputStream stream = null;
+        try {
+            stream = mFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(VERSION);
+            out.writeInt(rollup.size());
+            for (Map.Entry<Integer, Map<Long, Map<String, DayCount>>> user : rollup.entrySet()) {
+                out.writeInt(user.getKey());
+                out.writeInt(user.getValue().size());
+                for (Map.Entry<Long, Map<String, DayCount>> day : user.getValue().entrySet()) {
+                    out.writeLong(day.getKey());
+                    out.writeInt(day.getValue().size());
+                    for (Map.Entry<String, DayCount> count : day.getValue().entrySet()) {
+                        out.writeUTF(count.getKey());
+                        out.writeInt(count.getValue().mSentCount);
+                        out.writeLong(count.getValue().mLastSent);
+                    }
+                }
+            }
+            out.flush();
+            mFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write the rollup", e);
+            if (stream != null) {
+                mFile.failWrite(stream);
+            }
+        }
+    }
+
+    private static long toEpochDay(long timeMillis, ZoneId zone) {
+        return Instant.ofEpochMilli(timeMillis).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    private static long toStartOfDay(long epochDay, ZoneId zone) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private static class DayCount {
+        int mSentCount;
+        long mLastSent;
+    }
+}
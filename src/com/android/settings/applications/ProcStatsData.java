@@ -25,10 +25,13 @@ import android.os.ServiceManager;
 import android.os.SystemClock;
 import android.text.format.Formatter;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 import android.util.LongSparseArray;
 import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.android.internal.app.ProcessMap;
@@ -55,7 +58,7 @@ public class ProcStatsData {
 
     private static final boolean DEBUG = ProcessStatsUi.DEBUG;
 
-    private static ProcessStats sStatsXfer;
+    private static LongSparseArray<LoadedStats> sStatsXfer;
 
     private PackageManager mPm;
     private Context mContext;
@@ -63,6 +66,10 @@ public class ProcStatsData {
 
     private IProcessStats mProcessStats;
     private ProcessStats mStats;
+    // The stats read for each duration, so switching back to a duration does not read them again.
+    private LongSparseArray<LoadedStats> mLoadedStats = new LongSparseArray<>();
+    private LoadedStats mLoaded;
+    private TotalMemoryUseCollection mTotalMem;
 
     private boolean mUseUss;
     private long mDuration;
@@ -76,19 +83,24 @@ public class ProcStatsData {
     private ArrayList<ProcStatsPackageEntry> pkgEntries;
 
     public ProcStatsData(Context context, boolean useXfer) {
+        this(context, IProcessStats.Stub.asInterface(
+                ServiceManager.getService(ProcessStats.SERVICE_NAME)), useXfer);
+    }
+
+    @VisibleForTesting
+    ProcStatsData(Context context, IProcessStats processStats, boolean useXfer) {
         mContext = context;
         mPm = context.getPackageManager();
-        mProcessStats = IProcessStats.Stub.asInterface(
-                ServiceManager.getService(ProcessStats.SERVICE_NAME));
+        mProcessStats = processStats;
         mMemStates = ProcessStats.ALL_MEM_ADJ;
         mStates = ProcessStats.BACKGROUND_PROC_STATES;
-        if (useXfer) {
-            mStats = sStatsXfer;
+        if (useXfer && sStatsXfer != null) {
+            mLoadedStats = sStatsXfer;
         }
     }
 
     public void xferStats() {
-        sStatsXfer = mStats;
+        sStatsXfer = mLoadedStats;
     }
 
     public int getMemState() {
@@ -119,10 +131,52 @@ public class ProcStatsData {
         return mDuration;
     }
 
+    /**
+     * Returns the package entries, which are computed on the first call after
+     * {@link #refreshStats(boolean)}.
+     */
     public List<ProcStatsPackageEntry> getEntries() {
+        if (pkgEntries == null) {
+            pkgEntries = createEntries(/* uids= */ null);
+        }
         return pkgEntries;
     }
 
+    /**
+     * Returns the number of package entries. Unless the entries are already computed, only the
+     * target package of each process is evaluated, once for the stats of the duration.
+     */
+    public int getEntryCount() {
+        if (pkgEntries != null) {
+            return pkgEntries.size();
+        }
+        if (mLoaded.mEntryCount < 0) {
+            mLoaded.mEntryCount = countEntries();
+        }
+        return mLoaded.mEntryCount;
+    }
+
+    /**
+     * Returns the package entry with a process of the uid, or null if the uid did not run. As in
+     * {@link #getEntries()}, the entry groups every process targeting the same package.
+     *
+     * <p>Unless the entries are already computed or the zRAM has to be distributed across all
+     * processes, only the processes of the uids running a package of the uid are computed.
+     */
+    @WorkerThread
+    public ProcStatsPackageEntry getPackageEntry(int uid) {
+        final List<ProcStatsPackageEntry> entries = pkgEntries == null && !shouldDistributeZRam()
+                ? createEntries(getUidsSharingPackages(uid)) : getEntries();
+        for (ProcStatsPackageEntry pkgEntry : entries) {
+            for (ProcStatsEntry entry : pkgEntry.getEntries()) {
+                if (entry.getUid() == uid) {
+                    return pkgEntry;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Refreshes the stats.
      *
@@ -130,41 +184,105 @@ public class ProcStatsData {
      */
     @WorkerThread
     public void refreshStats(boolean forceLoad) {
-        if (mStats == null || forceLoad) {
-            load();
+        if (forceLoad) {
+            // The stats of every duration end now, so none of them can be reused.
+            mLoadedStats.clear();
+        }
+        LoadedStats loaded = mLoadedStats.get(mDuration);
+        if (loaded == null) {
+            loaded = load();
+            if (loaded.mReadError == null) {
+                mLoadedStats.put(mDuration, loaded);
+            }
         }
+        mLoaded = loaded;
+        mStats = loaded.mStats;
 
-        pkgEntries = new ArrayList<>();
+        if (loaded.mMemInfo == null) {
+            long now = SystemClock.uptimeMillis();
 
-        long now = SystemClock.uptimeMillis();
+            loaded.mMemTotalTime = DumpUtils.dumpSingleTime(null, null,
+                    mStats.mMemFactorDurations, mStats.mMemFactor, mStats.mStartTime, now);
 
-        memTotalTime = DumpUtils.dumpSingleTime(null, null, mStats.mMemFactorDurations,
-                mStats.mMemFactor, mStats.mStartTime, now);
+            loaded.mTotalMem = new ProcessStats.TotalMemoryUseCollection(
+                    ProcessStats.ALL_SCREEN_ADJ, mMemStates);
+            mStats.computeTotalMemoryUse(loaded.mTotalMem, now);
 
-        ProcessStats.TotalMemoryUseCollection totalMem = new ProcessStats.TotalMemoryUseCollection(
-                ProcessStats.ALL_SCREEN_ADJ, mMemStates);
-        mStats.computeTotalMemoryUse(totalMem, now);
+            loaded.mMemInfo = new MemInfo(mContext, loaded.mTotalMem, loaded.mMemTotalTime);
+        }
+        memTotalTime = loaded.mMemTotalTime;
+        mTotalMem = loaded.mTotalMem;
+        mMemInfo = loaded.mMemInfo;
 
-        mMemInfo = new MemInfo(mContext, totalMem, memTotalTime);
+        // Computed on demand, as the memory summary does not need them.
+        pkgEntries = null;
+    }
 
+    /**
+     * Creates the package entries of the processes of {@code uids}, or of all the processes with
+     * the entry of the OS if {@code uids} is null.
+     */
+    private ArrayList<ProcStatsPackageEntry> createEntries(SparseBooleanArray uids) {
         ProcessDataCollection bgTotals = new ProcessDataCollection(
                 ProcessStats.ALL_SCREEN_ADJ, mMemStates, mStates);
         ProcessDataCollection runTotals = new ProcessDataCollection(
                 ProcessStats.ALL_SCREEN_ADJ, mMemStates, ProcessStats.NON_CACHED_PROC_STATES);
 
-        createPkgMap(getProcs(bgTotals, runTotals), bgTotals, runTotals);
-        if (totalMem.sysMemZRamWeight > 0 && !totalMem.hasSwappedOutPss) {
-            distributeZRam(totalMem.sysMemZRamWeight);
+        ArrayList<ProcStatsPackageEntry> entries =
+                createPkgMap(getProcs(bgTotals, runTotals, uids), bgTotals, runTotals);
+        if (uids != null) {
+            return entries;
+        }
+        if (shouldDistributeZRam()) {
+            distributeZRam(entries, mTotalMem.sysMemZRamWeight);
         }
 
-        ProcStatsPackageEntry osPkg = createOsEntry(bgTotals, runTotals, totalMem,
+        ProcStatsPackageEntry osPkg = createOsEntry(bgTotals, runTotals, mTotalMem,
                 mMemInfo.baseCacheRam);
-        pkgEntries.add(osPkg);
+        entries.add(osPkg);
+        return entries;
+    }
+
+    private int countEntries() {
+        ProcessDataCollection bgTotals = new ProcessDataCollection(
+                ProcessStats.ALL_SCREEN_ADJ, mMemStates, mStates);
+        ProcessDataCollection runTotals = new ProcessDataCollection(
+                ProcessStats.ALL_SCREEN_ADJ, mMemStates, ProcessStats.NON_CACHED_PROC_STATES);
+
+        // Same grouping as createPkgMap(), without building the package entries.
+        ArraySet<String> packages = new ArraySet<>();
+        for (ProcStatsEntry proc : getProcs(bgTotals, runTotals, /* uids= */ null)) {
+            proc.evaluateTargetPackage(mPm, mStats, bgTotals, runTotals, sEntryCompare, mUseUss);
+            packages.add(proc.mBestTargetPackage);
+        }
+        // Plus the entry of the OS.
+        return packages.size() + 1;
+    }
+
+    /**
+     * Returns the uid and the uids running one of its packages, such as the uids of the other
+     * users. The processes grouped with the processes of the uid are all among them.
+     */
+    private SparseBooleanArray getUidsSharingPackages(int uid) {
+        final SparseBooleanArray uids = new SparseBooleanArray();
+        uids.put(uid, true);
+        for (int ipkg = 0, N = mStats.mPackages.getMap().size(); ipkg < N; ipkg++) {
+            final SparseArray<LongSparseArray<ProcessStats.PackageState>> pkgUids = mStats.mPackages
+                    .getMap().valueAt(ipkg);
+            if (pkgUids.indexOfKey(uid) < 0) {
+                continue;
+            }
+            for (int iu = 0; iu < pkgUids.size(); iu++) {
+                uids.put(pkgUids.keyAt(iu), true);
+            }
+        }
+        return uids;
     }
 
-    private void createPkgMap(ArrayList<ProcStatsEntry> procEntries, ProcessDataCollection bgTotals,
-            ProcessDataCollection runTotals) {
+    private ArrayList<ProcStatsPackageEntry> createPkgMap(ArrayList<ProcStatsEntry> procEntries,
+            ProcessDataCollection bgTotals, ProcessDataCollection runTotals) {
         // Combine processes into packages.
+        ArrayList<ProcStatsPackageEntry> entries = new ArrayList<>();
         ArrayMap<String, ProcStatsPackageEntry> pkgMap = new ArrayMap<>();
         for (int i = procEntries.size() - 1; i >= 0; i--) {
             ProcStatsEntry proc = procEntries.get(i);
@@ -173,13 +291,19 @@ public class ProcStatsData {
             if (pkg == null) {
                 pkg = new ProcStatsPackageEntry(proc.mBestTargetPackage, memTotalTime);
                 pkgMap.put(proc.mBestTargetPackage, pkg);
-                pkgEntries.add(pkg);
+                entries.add(pkg);
             }
             pkg.addEntry(proc);
         }
+        return entries;
+    }
+
+    private boolean shouldDistributeZRam() {
+        return mTotalMem.sysMemZRamWeight > 0 && !mTotalMem.hasSwappedOutPss;
     }
 
-    private void distributeZRam(double zramWeight) {
+    private void distributeZRam(ArrayList<ProcStatsPackageEntry> pkgEntries,
+            double zramWeight) {
         // Distribute kernel's Z-Ram across processes, based on how much they have been running.
         // The idea is that the memory used by the kernel for this is not really the kernel's
         // responsibility, but that of whoever got swapped in to it...  and we will take how
@@ -257,7 +381,7 @@ public class ProcStatsData {
     }
 
     private ArrayList<ProcStatsEntry> getProcs(ProcessDataCollection bgTotals,
-            ProcessDataCollection runTotals) {
+            ProcessDataCollection runTotals, SparseBooleanArray onlyUids) {
         final ArrayList<ProcStatsEntry> procEntries = new ArrayList<>();
         if (DEBUG) Log.d(TAG, "-------------------- PULLING PROCESSES");
 
@@ -266,6 +390,9 @@ public class ProcStatsData {
             final SparseArray<LongSparseArray<ProcessStats.PackageState>> pkgUids = mStats.mPackages
                     .getMap().valueAt(ipkg);
             for (int iu = 0; iu < pkgUids.size(); iu++) {
+                if (onlyUids != null && !onlyUids.get(pkgUids.keyAt(iu))) {
+                    continue;
+                }
                 final LongSparseArray<ProcessStats.PackageState> vpkgs = pkgUids.valueAt(iu);
                 for (int iv = 0; iv < vpkgs.size(); iv++) {
                     final ProcessStats.PackageState st = vpkgs.valueAt(iv);
@@ -307,6 +434,9 @@ public class ProcStatsData {
             SparseArray<LongSparseArray<ProcessStats.PackageState>> uids = mStats.mPackages.getMap()
                     .valueAt(ip);
             for (int iu = 0; iu < uids.size(); iu++) {
+                if (onlyUids != null && !onlyUids.get(uids.keyAt(iu))) {
+                    continue;
+                }
                 LongSparseArray<ProcessStats.PackageState> vpkgs = uids.valueAt(iu);
                 for (int iv = 0; iv < vpkgs.size(); iv++) {
                     ProcessStats.PackageState ps = vpkgs.valueAt(iv);
@@ -333,21 +463,40 @@ public class ProcStatsData {
         return procEntries;
     }
 
-    private void load() {
+    private LoadedStats load() {
+        ProcessStats stats = new ProcessStats(false);
         try {
             ParcelFileDescriptor pfd = mProcessStats.getStatsOverTime(mDuration);
-            mStats = new ProcessStats(false);
             InputStream is = new ParcelFileDescriptor.AutoCloseInputStream(pfd);
-            mStats.read(is);
+            stats.read(is);
             try {
                 is.close();
             } catch (IOException e) {
             }
-            if (mStats.mReadError != null) {
-                Log.w(TAG, "Failure reading process stats: " + mStats.mReadError);
+            if (stats.mReadError != null) {
+                Log.w(TAG, "Failure reading process stats: " + stats.mReadError);
             }
+            return new LoadedStats(stats, stats.mReadError);
         } catch (RemoteException e) {
             Log.e(TAG, "RemoteException:", e);
+            return new LoadedStats(stats, e.toString());
+        }
+    }
+
+    /** The stats read for a duration, with their memory summary once computed. */
+    private static class LoadedStats {
+        final ProcessStats mStats;
+        // Set if the stats could not be read, in which case they are read again next time.
+        final String mReadError;
+
+        long mMemTotalTime;
+        TotalMemoryUseCollection mTotalMem;
+        MemInfo mMemInfo;
+        int mEntryCount = -1;
+
+        LoadedStats(ProcessStats stats, String readError) {
+            mStats = stats;
+            mReadError = readError;
         }
     }
 
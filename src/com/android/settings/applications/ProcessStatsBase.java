@@ -119,6 +119,7 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         mDurationIndex = position;
         mStatsManager.setDuration(sDurations[position]);
+        mStatsManager.refreshStats(false);
         refreshUi();
     }
 
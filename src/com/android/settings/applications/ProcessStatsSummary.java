@@ -98,7 +98,7 @@ public class ProcessStatsSummary extends ProcessStatsBase implements OnPreferenc
         mAverageUsed.setSummary(Utils.formatPercentage((long) usedRam, (long) totalRam));
         mFree.setSummary(freeString);
         String durationString = getString(sDurationLabels[mDurationIndex]);
-        int numApps = mStatsManager.getEntries().size();
+        int numApps = mStatsManager.getEntryCount();
         MessageFormat msgFormat = new MessageFormat(
                 getResources().getString(R.string.memory_usage_apps_summary), Locale.getDefault());
         Map<String, Object> arguments = new HashMap<>();
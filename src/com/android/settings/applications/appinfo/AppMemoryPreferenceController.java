@@ -28,7 +28,6 @@ import androidx.preference.PreferenceScreen;
 import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.applications.ProcStatsData;
-import com.android.settings.applications.ProcStatsEntry;
 import com.android.settings.applications.ProcStatsPackageEntry;
 import com.android.settings.applications.ProcessStatsBase;
 import com.android.settings.core.BasePreferenceController;
@@ -64,15 +63,12 @@ public class AppMemoryPreferenceController extends BasePreferenceController
                 mStatsManager.setDuration(ProcessStatsBase.sDurations[0]);
             }
             mStatsManager.refreshStats(true);
-            for (ProcStatsPackageEntry pkgEntry : mStatsManager.getEntries()) {
-                for (ProcStatsEntry entry : pkgEntry.getEntries()) {
-                    if (entry.getUid() == packageInfo.applicationInfo.uid) {
-                        pkgEntry.updateMetrics();
-                        return pkgEntry;
-                    }
-                }
+            final ProcStatsPackageEntry pkgEntry =
+                    mStatsManager.getPackageEntry(packageInfo.applicationInfo.uid);
+            if (pkgEntry != null) {
+                pkgEntry.updateMetrics();
             }
-            return null;
+            return pkgEntry;
         }
 
         @Override
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+
+/**
+ * Search index over the labels of an app list.
+ *
+ * <p>Labels are normalized once, on the first search after the list is rebuilt: they are
+ * decomposed, stripped of accents and lower cased, so that "resume" matches "Résumé". A query
+ * that extends the previous one only scans the previous matches. Matches at the start of the
+ * label or of a word are listed before the other matches, each group in list order.
+ */
+class AppSearchIndex {
+
+    private static final int MATCH_NONE = 0;
+    private static final int MATCH_WORD_START = 1;
+    private static final int MATCH_SUBSTRING = 2;
+
+    private final ArrayList<AppEntry> mEntries;
+
+    private char[][] mLabels;
+    private int[] mMatches;
+    private int[] mNextMatches;
+    private byte[] mMatchKinds;
+    private int mMatchCount;
+    private char[] mQuery = new char[16];
+    private int mQueryLength;
+    private char[] mLastQuery = new char[16];
+    private int mLastQueryLength = -1;
+
+    AppSearchIndex(ArrayList<AppEntry> entries) {
+        mEntries = entries;
+    }
+
+    /** Returns whether this index was built for the given list. */
+    boolean isFor(ArrayList<AppEntry> entries) {
+        return mEntries == entries;
+    }
+
+    /** Returns the entries whose label contains the query, best matches first. */
+    @WorkerThread
+    synchronized ArrayList<AppEntry> filter(CharSequence query) {
+        ensureIndexed();
+        normalizeQuery(query);
+
+        final int[] candidates;
+        final int candidateCount;
+        if (extendsLastQuery()) {
+            candidates = mMatches;
+            candidateCount = mMatchCount;
+        } else {
+            candidates = null;
+            candidateCount = mLabels.length;
+        }
+
+        int wordStartCount = 0;
+        int matchCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            final int index = candidates != null ? candidates[i] : i;
+            final int match = match(mLabels[index]);
+            if (match == MATCH_NONE) {
+                continue;
+            }
+            mNextMatches[matchCount++] = index;
+            mMatchKinds[index] = (byte) match;
+            if (match == MATCH_WORD_START) {
+                wordStartCount++;
+            }
+        }
+        final int[] matches = mNextMatches;
+        mNextMatches = mMatches;
+        mMatches = matches;
+        mMatchCount = matchCount;
+        saveLastQuery();
+
+        final ArrayList<AppEntry> result = new ArrayList<>(matchCount);
+        if (wordStartCount == 0 || wordStartCount == matchCount) {
+            for (int i = 0; i < matchCount; i++) {
+                result.add(mEntries.get(matches[i]));
+            }
+            return result;
+        }
+        for (int pass = MATCH_WORD_START; pass <= MATCH_SUBSTRING; pass++) {
+            for (int i = 0; i < matchCount; i++) {
+                final int index = matches[i];
+                if (mMatchKinds[index] == pass) {
+                    result.add(mEntries.get(index));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void ensureIndexed() {
+        if (mLabels != null) {
+            return;
+        }
+        final int size = mEntries.size();
+        mLabels = new char[size][];
+        for (int i = 0; i < size; i++) {
+            mLabels[i] = normalize(mEntries.get(i).label);
+        }
+        mMatches = new int[size];
+        mNextMatches = new int[size];
+        mMatchKinds = new byte[size];
+    }
+
+    private int match(char[] label) {
+        final int last = label.length - mQueryLength;
+        boolean found = false;
+        for (int start = 0; start <= last; start++) {
+            if (!regionMatches(label, start)) {
+                continue;
+            }
+            if (start == 0 || !Character.isLetterOrDigit(label[start - 1])) {
+                return MATCH_WORD_START;
+            }
+            found = true;
+        }
+        return found ? MATCH_SUBSTRING : MATCH_NONE;
+    }
+
+    private boolean regionMatches(char[] label, int start) {
+        for (int i = 0; i < mQueryLength; i++) {
+            if (label[start + i] != mQuery[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean extendsLastQuery() {
+        if (mLastQueryLength < 0 || mLastQueryLength > mQueryLength) {
+            return false;
+        }
+        for (int i = 0; i < mLastQueryLength; i++) {
+            if (mLastQuery[i] != mQuery[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void saveLastQuery() {
+        if (mLastQuery.length < mQueryLength) {
+            mLastQuery = new char[mQuery.length];
+        }
+        System.arraycopy(mQuery, 0, mLastQuery, 0, mQueryLength);
+        mLastQueryLength = mQueryLength;
+    }
+
+    /**
+     * Normalizes the query into {@link #mQuery}. Plain ASCII queries, which is what the keyboard
+     * produces most of the time, are folded in place without creating any string.
+     */
+    private void normalizeQuery(CharSequence query) {
+        final int length = query.length();
+        for (int i = 0; i < length; i++) {
+            if (query.charAt(i) >= 0x80) {
+                final char[] normalized = normalize(query);
+                ensureQueryCapacity(normalized.length);
+                System.arraycopy(normalized, 0, mQuery, 0, normalized.length);
+                mQueryLength = normalized.length;
+                return;
+            }
+        }
+        ensureQueryCapacity(length);
+        for (int i = 0; i < length; i++) {
+            mQuery[i] = Character.toLowerCase(query.charAt(i));
+        }
+        mQueryLength = length;
+    }
+
+    private void ensureQueryCapacity(int capacity) {
+        if (mQuery.length < capacity) {
+            mQuery = new char[Math.max(capacity, mQuery.length * 2)];
+        }
+    }
+
+    /** Decomposes the text, drops the combining marks and lower cases what is left. */
+    static char[] normalize(CharSequence text) {
+        if (text == null) {
+            return new char[0];
+        }
+        final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        final char[] result = new char[decomposed.length()];
+        int length = 0;
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            result[length++] = Character.toLowerCase(c);
+        }
+        if (length == result.length) {
+            return result;
+        }
+        final char[] trimmed = new char[length];
+        System.arraycopy(result, 0, trimmed, 0, length);
+        return trimmed;
+    }
+}
@@ -1227,6 +1227,7 @@ public class ManageApplications extends InstrumentedFragment
         private boolean mHasReceivedLoadEntries;
         private boolean mHasReceivedBridgeCallback;
         private SearchFilter mSearchFilter;
+        private volatile AppSearchIndex mSearchIndex;
         private PowerAllowlistBackend mBackend;
 
         // This is to remember and restore the last scroll position when this
@@ -1572,6 +1573,7 @@ public class ManageApplications extends InstrumentedFragment
             }
             mEntries = entries;
             mOriginalEntries = entries;
+            mSearchIndex = new AppSearchIndex(entries);
             notifyDataSetChanged();
             if (getItemCount() == 0) {
                 mLoadingViewController.showEmpty(false /* animate */);
@@ -1950,16 +1952,17 @@ public class ManageApplications extends InstrumentedFragment
             @WorkerThread
             @Override
             protected FilterResults performFiltering(CharSequence query) {
+                final ArrayList<ApplicationsState.AppEntry> originalEntries = mOriginalEntries;
                 final ArrayList<ApplicationsState.AppEntry> matchedEntries;
                 if (TextUtils.isEmpty(query)) {
-                    matchedEntries = mOriginalEntries;
+                    matchedEntries = originalEntries;
                 } else {
-                    matchedEntries = new ArrayList<>();
-                    for (ApplicationsState.AppEntry entry : mOriginalEntries) {
-                        if (entry.label.toLowerCase().contains(query.toString().toLowerCase())) {
-                            matchedEntries.add(entry);
-                        }
+                    AppSearchIndex searchIndex = mSearchIndex;
+                    if (searchIndex == null || !searchIndex.isFor(originalEntries)) {
+                        searchIndex = new AppSearchIndex(originalEntries);
+                        mSearchIndex = searchIndex;
                     }
+                    matchedEntries = searchIndex.filter(query);
                 }
                 final FilterResults results = new FilterResults();
                 results.values = matchedEntries;
@@ -415,6 +415,19 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     public interface UiBlocker {
     }
 
+    /**
+     * Used for {@link BasePreferenceController} to declare that {@link #getAvailabilityStatus()}
+     * can be called on a background thread, concurrently with the other controllers of the
+     * screen and with itself. Such a controller only reads state which is safe to read from any
+     * thread, and doesn't lazily initialize fields while checking its availability.
+     *
+     * The availability of the controllers of a dashboard which implement this may be evaluated
+     * in parallel, the availability of the other controllers is always evaluated on the main
+     * thread.
+     */
+    public interface ThreadSafeAvailability {
+    }
+
     /**
      * Set the metrics category of the parent fragment.
      *
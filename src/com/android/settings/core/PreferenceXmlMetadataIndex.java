@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_APPEND;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_CONTROLLER;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_FOR_WORK;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_HIGHLIGHTABLE_MENU_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_ICON;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEYWORDS;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_PREF_TYPE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_SEARCHABLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_SUMMARY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_TITLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_UNAVAILABLE_SLICE_SUBTITLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_USER_RESTRICTION;
+import static com.android.settings.core.PreferenceXmlParserUtils.PREF_SCREEN_TAG;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.util.SparseArray;
+import android.util.TypedValue;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.internal.util.ArrayUtils;
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The metadata of the preference screen XML resources, which is generated at build time by
+ * gen_preference_metadata_index.py.
+ *
+ * <p>The string and boolean attributes are kept as literal values or resource ids, so they are
+ * resolved with the current configuration when the metadata is extracted. The screens which
+ * can't be indexed exactly at build time are not in the index, and the screens which resolve to
+ * a configuration specific XML file or to a runtime resource overlay are not served from the
+ * index. Both are parsed at runtime.
+ */
+final class PreferenceXmlMetadataIndex {
+
+    private static SparseArray<Screen> sScreens;
+
+    private PreferenceXmlMetadataIndex() {}
+
+    /**
+     * Extracts the metadata of the XML resource from the index, the same as {@link
+     * PreferenceXmlParserUtils#extractMetadata}.
+     *
+     * @return the metadata list, or null if the XML resource is not indexed.
+     */
+    @Nullable
+    static List<Bundle> extractMetadata(Context context, int xmlResId, int flags) {
+        final Screen screen = getScreens().get(xmlResId);
+        if (screen == null || !isIndexedXmlFile(context, xmlResId, screen.mName)) {
+            return null;
+        }
+        final boolean hasPrefScreenFlag = hasFlag(flags, MetadataFlag.FLAG_INCLUDE_PREF_SCREEN);
+        final List<Bundle> metadata = new ArrayList<>();
+        for (Node node : screen.mNodes.get()) {
+            if (!hasPrefScreenFlag && TextUtils.equals(PREF_SCREEN_TAG, node.mType)) {
+                continue;
+            }
+            metadata.add(node.toBundle(context, flags, hasPrefScreenFlag));
+        }
+        return metadata;
+    }
+
+    /** Returns the XML resource ids of all the indexed preference screens. */
+    @VisibleForTesting
+    static int[] getIndexedXmlResIds() {
+        final SparseArray<Screen> screens = getScreens();
+        final int[] xmlResIds = new int[screens.size()];
+        for (int i = 0; i < xmlResIds.length; i++) {
+            xmlResIds[i] = screens.keyAt(i);
+        }
+        return xmlResIds;
+    }
+
+    // Whether the XML resource is resolved to the default XML file which is indexed, rather than
+    // a variant for the current configuration.
+    private static boolean isIndexedXmlFile(Context context, int xmlResId, String name) {
+        final TypedValue value = new TypedValue();
+        try {
+            context.getResources().getValue(xmlResId, value, /* resolveRefs= */ true);
+        } catch (Resources.NotFoundException e) {
+            return false;
+        }
+        return value.string != null
+                && value.string.toString().endsWith("/xml/" + name + ".xml")
+                && isFromBaseApk(context, value);
+    }
+
+    // An overlay XML file has the same path as the indexed one, so check which APK it comes from.
+    private static boolean isFromBaseApk(Context context, TypedValue value) {
+        final ApplicationInfo info = context.getApplicationInfo();
+        if (ArrayUtils.isEmpty(info.resourceDirs) && ArrayUtils.isEmpty(info.overlayPaths)) {
+            return true;
+        }
+        return TextUtils.equals(
+                context.getAssets().getCookieName(value.assetCookie), info.sourceDir);
+    }
+
+    private static synchronized SparseArray<Screen> getScreens() {
+        if (sScreens == null) {
+            final SparseArray<Screen> screens = new SparseArray<>();
+            PreferenceXmlMetadataIndexData.registerAll(
+                    (xmlResId, name, nodes) -> screens.put(xmlResId, new Screen(name, nodes)));
+            sScreens = screens;
+        }
+        return sScreens;
+    }
+
+    /** Creates a {@link Node}, used by the generated index only. */
+    static Node node(
+            String type,
+            Object key,
+            Object controller,
+            Object title,
+            Object summary,
+            int icon,
+            Object keywords,
+            Object searchable,
+            boolean appended,
+            Object unavailableSliceSubtitle,
+            Object forWork,
+            Object highlightableMenuKey,
+            Object userRestriction) {
+        return new Node(
+                type,
+                key,
+                controller,
+                title,
+                summary,
+                icon,
+                keywords,
+                searchable,
+                appended,
+                unavailableSliceSubtitle,
+                forWork,
+                highlightableMenuKey,
+                userRestriction);
+    }
+
+    private static boolean hasFlag(int flags, @MetadataFlag int flag) {
+        return (flags & flag) != 0;
+    }
+
+    /** Receives the indexed XML resources, used by the generated index only. */
+    interface Registry {
+        /** Registers the nodes of the XML resource res/xml/{@code name}.xml. */
+        void register(int xmlResId, String name, Supplier<Node[]> nodes);
+    }
+
+    private static final class Screen {
+        final String mName;
+        final Supplier<Node[]> mNodes;
+
+        Screen(String name, Supplier<Node[]> nodes) {
+            mName = name;
+            mNodes = nodes;
+        }
+    }
+
+    /**
+     * The metadata of a preference node. The string values are either a literal {@link String} or
+     * a string resource id, and the boolean values are either a {@link Boolean} or a bool resource
+     * id. A null value means the attribute is not set.
+     */
+    static final class Node {
+        final String mType;
+        private final Object mKey;
+        private final Object mController;
+        private final Object mTitle;
+        private final Object mSummary;
+        private final int mIcon;
+        private final Object mKeywords;
+        private final Object mSearchable;
+        private final boolean mAppended;
+        private final Object mUnavailableSliceSubtitle;
+        private final Object mForWork;
+        private final Object mHighlightableMenuKey;
+        private final Object mUserRestriction;
+
+        private Node(
+                String type,
+                Object key,
+                Object controller,
+                Object title,
+                Object summary,
+                int icon,
+                Object keywords,
+                Object searchable,
+                boolean appended,
+                Object unavailableSliceSubtitle,
+                Object forWork,
+                Object highlightableMenuKey,
+                Object userRestriction) {
+            mType = type;
+            mKey = key;
+            mController = controller;
+            mTitle = title;
+            mSummary = summary;
+            mIcon = icon;
+            mKeywords = keywords;
+            mSearchable = searchable;
+            mAppended = appended;
+            mUnavailableSliceSubtitle = unavailableSliceSubtitle;
+            mForWork = forWork;
+            mHighlightableMenuKey = highlightableMenuKey;
+            mUserRestriction = userRestriction;
+        }
+
+        private Bundle toBundle(Context context, int flags, boolean hasPrefScreenFlag) {
+            final Bundle bundle = new Bundle();
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_TYPE)) {
+                bundle.putString(METADATA_PREF_TYPE, mType);
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_KEY)) {
+                bundle.putString(METADATA_KEY, getString(context, mKey));
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_CONTROLLER)) {
+                bundle.putString(METADATA_CONTROLLER, getString(context, mController));
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_TITLE)) {
+                bundle.putString(METADATA_TITLE, getString(context, mTitle));
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_SUMMARY)) {
+                bundle.putString(METADATA_SUMMARY, getString(context, mSummary));
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_ICON)) {
+                bundle.putInt(METADATA_ICON, mIcon);
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_KEYWORDS)) {
+                bundle.putString(METADATA_KEYWORDS, getString(context, mKeywords));
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_SEARCHABLE)) {
+                bundle.putBoolean(
+                        METADATA_SEARCHABLE,
+                        getBoolean(context, mSearchable, /* defaultValue= */ true));
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_APPEND) && hasPrefScreenFlag) {
+                bundle.putBoolean(METADATA_APPEND, mAppended);
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE)) {
+                bundle.putString(
+                        METADATA_UNAVAILABLE_SLICE_SUBTITLE,
+                        getString(context, mUnavailableSliceSubtitle));
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_FOR_WORK)) {
+                bundle.putBoolean(
+                        METADATA_FOR_WORK,
+                        getBoolean(context, mForWork, /* defaultValue= */ false));
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_HIGHLIGHTABLE_MENU_KEY)) {
+                bundle.putString(
+                        METADATA_HIGHLIGHTABLE_MENU_KEY, getString(context, mHighlightableMenuKey));
+            }
+            if (hasFlag(flags, MetadataFlag.FLAG_NEED_USER_RESTRICTION)) {
+                bundle.putString(METADATA_USER_RESTRICTION, getString(context, mUserRestriction));
+            }
+            return bundle;
+        }
+
+        private static String getString(Context context, Object value) {
+            if (value instanceof Integer) {
+                return context.getString((Integer) value);
+            }
+            return (String) value;
+        }
+
+        private static boolean getBoolean(Context context, Object value, boolean defaultValue) {
+            if (value instanceof Integer) {
+                return context.getResources().getBoolean((Integer) value);
+            }
+            return value != null ? (Boolean) value : defaultValue;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import android.util.Log;
 import android.util.Xml;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
 
@@ -110,12 +111,34 @@ public class PreferenceXmlParserUtils {
     /**
      * Extracts metadata from preference xml and put them into a {@link Bundle}.
      *
+     * <p>The metadata is served from the prebuilt {@link PreferenceXmlMetadataIndex} if the xml is
+     * indexed, otherwise the xml is parsed.
+     *
      * @param xmlResId xml res id of a preference screen
      * @param flags    Should be one or more of {@link MetadataFlag}.
      */
     @NonNull
     public static List<Bundle> extractMetadata(Context context, @XmlRes int xmlResId, int flags)
             throws IOException, XmlPullParserException {
+        if (xmlResId <= 0) {
+            Log.d(TAG, xmlResId + " is invalid.");
+            return new ArrayList<>();
+        }
+        final List<Bundle> indexedMetadata =
+                PreferenceXmlMetadataIndex.extractMetadata(context, xmlResId, flags);
+        if (indexedMetadata != null) {
+            return indexedMetadata;
+        }
+        return extractMetadataFromXml(context, xmlResId, flags);
+    }
+
+    /**
+     * Same as {@link #extractMetadata(Context, int, int)}, but always parses the xml.
+     */
+    @VisibleForTesting
+    @NonNull
+    static List<Bundle> extractMetadataFromXml(Context context, @XmlRes int xmlResId, int flags)
+            throws IOException, XmlPullParserException {
         final List<Bundle> metadata = new ArrayList<>();
         if (xmlResId <= 0) {
             Log.d(TAG, xmlResId + " is invalid.");
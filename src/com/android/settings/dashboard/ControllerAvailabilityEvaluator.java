@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.dashboard;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.BasePreferenceController;
+import com.android.settingslib.core.AbstractPreferenceController;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Evaluates the availability of the preference controllers of a dashboard.
+ *
+ * <p>{@link BasePreferenceController#isAvailable()} often makes binder calls. When a screen has
+ * enough controllers declaring {@link BasePreferenceController.ThreadSafeAvailability}, those are
+ * evaluated concurrently on a process-wide pool, and the caller waits for the slowest one instead
+ * of the sum of all. Other controllers are evaluated on the calling thread, as they always were.
+ * A controller which fails or doesn't finish in time on the pool is evaluated again on the
+ * calling thread, so its exception surfaces as before.
+ *
+ * <p>Each evaluation is a trace section named after the controller, and the controllers slower
+ * than a frame are logged.
+ */
+class ControllerAvailabilityEvaluator {
+
+    private static final String TAG = "ControllerAvailability";
+
+    @VisibleForTesting
+    static final int THREAD_COUNT = 4;
+    @VisibleForTesting
+    static final int PARALLEL_THRESHOLD = 4;
+    // How long the caller waits for all the controllers evaluated on the pool.
+    @VisibleForTesting
+    static final long MAX_WAIT_MS = 200;
+
+    private static final long KEEP_ALIVE_MS = 30000;
+    @VisibleForTesting
+    static final long SLOW_CONTROLLER_THRESHOLD_MS = 16;
+
+    private static ControllerAvailabilityEvaluator sInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    static synchronized ControllerAvailabilityEvaluator getInstance() {
+        if (sInstance == null) {
+            sInstance = new ControllerAvailabilityEvaluator();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ControllerAvailabilityEvaluator() {
+        mExecutor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, KEEP_ALIVE_MS,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the availability of every controller.
+     *
+     * @param pageId the metrics category of the screen, reported with the slow controllers
+     */
+    @MainThread
+    Map<AbstractPreferenceController, Boolean> evaluate(
+            Collection<? extends AbstractPreferenceController> controllers, int pageId) {
+        int threadSafeCount = 0;
+        for (AbstractPreferenceController controller : controllers) {
+            if (isThreadSafe(controller)) {
+                threadSafeCount++;
+            }
+        }
+        final boolean parallel = threadSafeCount >= PARALLEL_THRESHOLD;
+
+        final Map<AbstractPreferenceController, Boolean> availability =
+                new ArrayMap<>(controllers.size());
+        final Map<AbstractPreferenceController, Future<Boolean>> futures = new ArrayMap<>();
+        for (AbstractPreferenceController controller : controllers) {
+            if (parallel && isThreadSafe(controller)) {
+                futures.put(controller,
+                        mExecutor.submit(() -> isAvailable(controller, pageId)));
+            }
+        }
+        for (AbstractPreferenceController controller : controllers) {
+            if (!futures.containsKey(controller)) {
+                availability.put(controller, isAvailable(controller, pageId));
+            }
+        }
+
+        boolean interrupted = false;
+        final long deadline = SystemClock.elapsedRealtime() + MAX_WAIT_MS;
+        for (Map.Entry<AbstractPreferenceController, Future<Boolean>> entry : futures.entrySet()) {
+            final AbstractPreferenceController controller = entry.getKey();
+            final Future<Boolean> future = entry.getValue();
+            Boolean available = null;
+            try {
+                if (!interrupted) {
+                    available = future.get(Math.max(0, deadline - SystemClock.elapsedRealtime()),
+                            TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Failed to evaluate " + controller.getClass().getSimpleName()
+                        + " in background", e.getCause());
+            } catch (TimeoutException e) {
+                Log.w(TAG, "Timed out evaluating " + controller.getClass().getSimpleName()
+                        + " in background");
+            }
+            if (available == null) {
+                // A running evaluation is left to finish, the controller is thread safe.
+                future.cancel(false /* mayInterruptIfRunning */);
+                available = isAvailable(controller, pageId);
+            }
+            availability.put(controller, available);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return availability;
+    }
+
+    private static boolean isThreadSafe(AbstractPreferenceController controller) {
+        return controller instanceof BasePreferenceController
+                && controller instanceof BasePreferenceController.ThreadSafeAvailability;
+    }
+
+    private static boolean isAvailable(AbstractPreferenceController controller, int pageId) {
+        final String name = controller.getClass().getSimpleName();
+        final long startTime = SystemClock.elapsedRealtime();
+        Trace.beginSection("isAvailable " + name);
+        try {
+            return controller.isAvailable();
+        } finally {
+            Trace.endSection();
+            final long latency = SystemClock.elapsedRealtime() - startTime;
+            if (latency >= SLOW_CONTROLLER_THRESHOLD_MS) {
+                Log.w(TAG, "Slow availability check in " + name + " on page " + pageId + ": "
+                        + latency + "ms");
+            }
+        }
+    }
+}
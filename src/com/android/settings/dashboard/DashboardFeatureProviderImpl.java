@@ -74,13 +74,14 @@ import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.drawer.TileUtils;
 import com.android.settingslib.utils.ThreadUtils;
-import com.android.settingslib.widget.AdaptiveIcon;
 
 import com.google.common.collect.Iterables;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Impl for {@code DashboardFeatureProvider}.
@@ -243,6 +244,12 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
                 return uri;
             }
 
+            @Override
+            public void onChange(boolean selfChange) {
+                DynamicTextCache.get().expire(uri);
+                super.onChange(selfChange);
+            }
+
             @Override
             public void onDataChanged() {
                 switch (method) {
@@ -268,28 +275,24 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
         }
         if (tile.getMetaData() != null && tile.getMetaData().containsKey(
                 META_DATA_PREFERENCE_TITLE_URI)) {
-            // Set a placeholder title before starting to fetch real title, this is necessary
-            // to avoid preference height change.
-            if (preference.getTitle() == null) {
-                preference.setTitle(R.string.summary_placeholder);
-            }
-
             final Uri uri = TileUtils.getCompleteUri(tile, META_DATA_PREFERENCE_TITLE_URI,
                     METHOD_GET_DYNAMIC_TITLE);
+            // Show the last known title, or a placeholder, before starting to fetch the real
+            // title. This is necessary to avoid preference height change.
+            final String cachedTitle = DynamicTextCache.get().getText(uri);
+            if (cachedTitle != null) {
+                preference.setTitle(cachedTitle);
+            } else if (preference.getTitle() == null) {
+                preference.setTitle(R.string.summary_placeholder);
+            }
             return createDynamicDataObserver(METHOD_GET_DYNAMIC_TITLE, uri, preference);
         }
         return null;
     }
 
     private void refreshTitle(Uri uri, Preference preference, DynamicDataObserver observer) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            final String titleFromUri = TileUtils.getTextFromUri(
-                    mContext, uri, providerMap, META_DATA_PREFERENCE_TITLE);
-            if (!TextUtils.equals(titleFromUri, preference.getTitle())) {
-                observer.post(() -> preference.setTitle(titleFromUri));
-            }
-        });
+        refreshText(uri, META_DATA_PREFERENCE_TITLE, observer, preference::getTitle,
+                preference::setTitle);
     }
 
     private DynamicDataObserver bindSummaryAndGetObserver(Preference preference, Tile tile) {
@@ -298,30 +301,54 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
             preference.setSummary(summary);
         } else if (tile.getMetaData() != null
                 && tile.getMetaData().containsKey(META_DATA_PREFERENCE_SUMMARY_URI)) {
-            // Set a placeholder summary before starting to fetch real summary, this is necessary
-            // to avoid preference height change.
-            if (preference.getSummary() == null) {
-                preference.setSummary(R.string.summary_placeholder);
-            }
-
             final Uri uri = TileUtils.getCompleteUri(tile, META_DATA_PREFERENCE_SUMMARY_URI,
                     METHOD_GET_DYNAMIC_SUMMARY);
+            // Show the last known summary, or a placeholder, before starting to fetch the real
+            // summary. This is necessary to avoid preference height change.
+            final String cachedSummary = DynamicTextCache.get().getText(uri);
+            if (cachedSummary != null) {
+                preference.setSummary(cachedSummary);
+            } else if (preference.getSummary() == null) {
+                preference.setSummary(R.string.summary_placeholder);
+            }
             return createDynamicDataObserver(METHOD_GET_DYNAMIC_SUMMARY, uri, preference);
         }
         return null;
     }
 
     private void refreshSummary(Uri uri, Preference preference, DynamicDataObserver observer) {
+        refreshText(uri, META_DATA_PREFERENCE_SUMMARY, observer, preference::getSummary,
+                preference::setSummary);
+    }
+
+    /**
+     * Loads the text from the uri unless the cached one is still fresh, and updates the
+     * preference in place when it differs.
+     */
+    private void refreshText(Uri uri, String metaDataKey, DynamicDataObserver observer,
+            Supplier<CharSequence> getter, Consumer<CharSequence> setter) {
+        final DynamicTextCache textCache = DynamicTextCache.get();
+        final String freshText = textCache.getFreshText(uri);
+        if (freshText != null) {
+            observer.post(() -> updateText(freshText, getter, setter));
+            return;
+        }
         ThreadUtils.postOnBackgroundThread(() -> {
             final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            final String summaryFromUri = TileUtils.getTextFromUri(
-                    mContext, uri, providerMap, META_DATA_PREFERENCE_SUMMARY);
-            if (!TextUtils.equals(summaryFromUri, preference.getSummary())) {
-                observer.post(() -> preference.setSummary(summaryFromUri));
-            }
+            final String textFromUri = TileUtils.getTextFromUri(
+                    mContext, uri, providerMap, metaDataKey);
+            textCache.putText(uri, textFromUri);
+            observer.post(() -> updateText(textFromUri, getter, setter));
         });
     }
 
+    private static void updateText(String text, Supplier<CharSequence> getter,
+            Consumer<CharSequence> setter) {
+        if (!TextUtils.equals(text, getter.get())) {
+            setter.accept(text);
+        }
+    }
+
     private DynamicDataObserver bindSwitchAndGetObserver(Preference preference, Tile tile) {
         if (!tile.hasSwitch()) {
             return null;
@@ -435,7 +462,30 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
 
     private void setPreferenceIcon(Preference preference, Tile tile, boolean forceRoundedIcon,
             String iconPackage, Icon icon) {
-        Drawable iconDrawable = icon.loadDrawable(preference.getContext());
+        final Context context = preference.getContext();
+        final boolean rounded = forceRoundedIcon
+                && !TextUtils.equals(tile.getCategory(), CategoryKey.CATEGORY_HOMEPAGE)
+                && !TextUtils.equals(mContext.getPackageName(), iconPackage);
+        if (!TileIconCache.isCacheable(icon)) {
+            applyPreferenceIcon(preference, tile, iconPackage,
+                    TileIconCache.createIcon(mContext, context, icon, tile, rounded));
+            return;
+        }
+        final TileIconCache iconCache = TileIconCache.get(mContext);
+        final TileIconCache.IconKey key = new TileIconCache.IconKey(context, icon, tile, rounded);
+        final Drawable cachedIcon = iconCache.getIcon(context, key, tile);
+        if (cachedIcon != null) {
+            applyPreferenceIcon(preference, tile, iconPackage, cachedIcon);
+            return;
+        }
+        // Reserve the icon space to avoid preference padding change.
+        preference.setIconSpaceReserved(true);
+        iconCache.loadIcon(context, key, icon, tile,
+                drawable -> applyPreferenceIcon(preference, tile, iconPackage, drawable));
+    }
+
+    private void applyPreferenceIcon(Preference preference, Tile tile, String iconPackage,
+            Drawable iconDrawable) {
         if (iconDrawable == null) {
             Log.w(TAG, "Set null preference icon for: " + iconPackage);
             preference.setIcon(null);
@@ -443,10 +493,6 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
         }
         if (TextUtils.equals(tile.getCategory(), CategoryKey.CATEGORY_HOMEPAGE)) {
             iconDrawable.setTint(Utils.getHomepageIconColor(preference.getContext()));
-        } else if (forceRoundedIcon && !TextUtils.equals(mContext.getPackageName(), iconPackage)) {
-            iconDrawable = new AdaptiveIcon(mContext, iconDrawable,
-                    R.dimen.dashboard_tile_foreground_image_inset);
-            ((AdaptiveIcon) iconDrawable).setBackgroundColor(mContext, tile);
         }
         preference.setIcon(iconDrawable);
     }
@@ -59,12 +59,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Base fragment for dashboard style UI containing a list of static and dynamic setting items.
@@ -74,7 +73,6 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         BasePreferenceController.UiBlockListener {
     public static final String CATEGORY = "category";
     private static final String TAG = "DashboardFragment";
-    private static final long TIMEOUT_MILLIS = 50L;
 
     @VisibleForTesting
     final ArrayMap<String, List<DynamicDataObserver>> mDashboardTilePrefKeys = new ArrayMap<>();
@@ -87,6 +85,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardFeatureProvider mDashboardFeatureProvider;
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
+    // Availability evaluated between onStart and the end of onResume, so the passes of one resume
+    // cycle don't query the same controllers again.
+    private final Map<AbstractPreferenceController, Boolean> mAvailabilityCache =
+            new ArrayMap<>();
+    private boolean mCachingAvailability;
     private List<String> mSuppressInjectedTileKeys;
 
     @Override
@@ -153,6 +156,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         if (!keys.isEmpty()) {
             mBlockerController = new UiBlockerController(keys);
             mBlockerController.start(() -> {
+                mAvailabilityCache.clear();
                 updatePreferenceVisibility(mPreferenceControllers);
                 baseControllers.forEach(controller -> controller.setUiBlockerFinished(true));
             });
@@ -215,6 +219,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onStart() {
         super.onStart();
+        mAvailabilityCache.clear();
+        mCachingAvailability = true;
         final DashboardCategory category =
                 mDashboardFeatureProvider.getTilesForCategory(getCategoryKey());
         if (category == null) {
@@ -240,6 +246,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     public void onResume() {
         super.onResume();
         updatePreferenceStates();
+        mCachingAvailability = false;
+        mAvailabilityCache.clear();
     }
 
     @Override
@@ -392,9 +400,13 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         final PreferenceScreen screen = getPreferenceScreen();
         Collection<List<AbstractPreferenceController>> controllerLists =
                 mPreferenceControllers.values();
+        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+        controllerLists.forEach(controllers::addAll);
+        final Map<AbstractPreferenceController, Boolean> availability =
+                getAvailability(controllers);
         for (List<AbstractPreferenceController> controllerList : controllerLists) {
             for (AbstractPreferenceController controller : controllerList) {
-                if (!controller.isAvailable()) {
+                if (!isAvailable(controller, availability)) {
                     continue;
                 }
 
@@ -450,19 +462,19 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         if (screen == null || mPreferenceControllers == null) {
             return;
         }
-        for (List<AbstractPreferenceController> controllerList : mPreferenceControllers.values()) {
-            for (AbstractPreferenceController controller : controllerList) {
-                final String key = controller.getPreferenceKey();
-                final Preference preference = findPreference(key);
-                if (preference == null) {
-                    continue;
-                }
-                final boolean available = controller.isAvailable();
-                if (available) {
-                    controller.updateState(preference);
-                }
-                preference.setVisible(available);
+        mAvailabilityCache.clear();
+        final Map<AbstractPreferenceController, Preference> preferences =
+                findControllerPreferences(mPreferenceControllers.values());
+        final Map<AbstractPreferenceController, Boolean> availability =
+                getAvailability(preferences.keySet());
+        for (Map.Entry<AbstractPreferenceController, Preference> entry : preferences.entrySet()) {
+            final AbstractPreferenceController controller = entry.getKey();
+            final Preference preference = entry.getValue();
+            final boolean available = isAvailable(controller, availability);
+            if (available) {
+                controller.updateState(preference);
             }
+            preference.setVisible(available);
         }
     }
 
@@ -475,23 +487,66 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         }
 
         final boolean visible = mBlockerController.isBlockerFinished();
-        for (List<AbstractPreferenceController> controllerList :
-                preferenceControllers.values()) {
+        final Map<AbstractPreferenceController, Preference> preferences =
+                findControllerPreferences(preferenceControllers.values());
+        final Map<AbstractPreferenceController, Boolean> availability = visible
+                ? getAvailability(preferences.keySet()) : Collections.emptyMap();
+        for (Map.Entry<AbstractPreferenceController, Preference> entry : preferences.entrySet()) {
+            final AbstractPreferenceController controller = entry.getKey();
+            final Preference preference = entry.getValue();
+            if (controller instanceof BasePreferenceController.UiBlocker) {
+                final boolean prefVisible =
+                        ((BasePreferenceController) controller).getSavedPrefVisibility();
+                preference.setVisible(
+                        visible && isAvailable(controller, availability) && prefVisible);
+            } else {
+                preference.setVisible(visible && isAvailable(controller, availability));
+            }
+        }
+    }
+
+    private Map<AbstractPreferenceController, Preference> findControllerPreferences(
+            Collection<List<AbstractPreferenceController>> controllerLists) {
+        final Map<AbstractPreferenceController, Preference> preferences = new LinkedHashMap<>();
+        for (List<AbstractPreferenceController> controllerList : controllerLists) {
             for (AbstractPreferenceController controller : controllerList) {
-                final String key = controller.getPreferenceKey();
-                final Preference preference = findPreference(key);
-                if (preference == null) {
-                    continue;
-                }
-                if (controller instanceof BasePreferenceController.UiBlocker) {
-                    final boolean prefVisible =
-                            ((BasePreferenceController) controller).getSavedPrefVisibility();
-                    preference.setVisible(visible && controller.isAvailable() && prefVisible);
-                } else {
-                    preference.setVisible(visible && controller.isAvailable());
+                final Preference preference = findPreference(controller.getPreferenceKey());
+                if (preference != null) {
+                    preferences.put(controller, preference);
                 }
             }
         }
+        return preferences;
+    }
+
+    /**
+     * Evaluates the availability of all the controllers at once, so a refresh doesn't query the
+     * controllers one after another on the main thread. Within a resume cycle, controllers that
+     * were already evaluated are served from {@link #mAvailabilityCache}.
+     */
+    private Map<AbstractPreferenceController, Boolean> getAvailability(
+            Collection<AbstractPreferenceController> controllers) {
+        if (!mCachingAvailability) {
+            return ControllerAvailabilityEvaluator.getInstance().evaluate(
+                    controllers, getMetricsCategory());
+        }
+        final List<AbstractPreferenceController> uncached = new ArrayList<>();
+        for (AbstractPreferenceController controller : controllers) {
+            if (!mAvailabilityCache.containsKey(controller)) {
+                uncached.add(controller);
+            }
+        }
+        if (!uncached.isEmpty()) {
+            mAvailabilityCache.putAll(ControllerAvailabilityEvaluator.getInstance().evaluate(
+                    uncached, getMetricsCategory()));
+        }
+        return mAvailabilityCache;
+    }
+
+    private static boolean isAvailable(AbstractPreferenceController controller,
+            Map<AbstractPreferenceController, Boolean> availability) {
+        final Boolean available = availability.get(controller);
+        return available != null ? available : controller.isAvailable();
     }
 
     /**
@@ -514,9 +569,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         // Create a list to track which tiles are to be removed.
         final Map<String, List<DynamicDataObserver>> remove = new ArrayMap(mDashboardTilePrefKeys);
 
-        // Install dashboard tiles and collect pending observers.
+        // Install dashboard tiles. Dynamic data is loaded by the observers and updates the
+        // preferences in place when it arrives.
         final boolean forceRoundedIcons = shouldForceRoundedIcon();
-        final List<DynamicDataObserver> pendingObservers = new ArrayList<>();
 
         // Move group tiles to the beginning of the list to ensure they are created before the
         // other tiles.
@@ -554,9 +609,6 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 registerDynamicDataObservers(observers);
                 mDashboardTilePrefKeys.put(key, observers);
             }
-            if (observers != null) {
-                pendingObservers.addAll(observers);
-            }
             remove.remove(key);
         }
 
@@ -570,20 +622,6 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             }
             unregisterDynamicDataObservers(entry.getValue());
         }
-
-        // Wait for pending observers to update UI.
-        if (!pendingObservers.isEmpty()) {
-            final CountDownLatch mainLatch = new CountDownLatch(1);
-            new Thread(() -> {
-                pendingObservers.forEach(observer ->
-                        awaitObserverLatch(observer.getCountDownLatch()));
-                mainLatch.countDown();
-            }).start();
-            Log.d(tag, "Start waiting observers");
-            awaitObserverLatch(mainLatch);
-            Log.d(tag, "Stop waiting observers");
-            pendingObservers.forEach(DynamicDataObserver::updateUi);
-        }
     }
 
     @Override
@@ -646,12 +684,4 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             resolver.unregisterContentObserver(observer);
         });
     }
-
-    private void awaitObserverLatch(CountDownLatch latch) {
-        try {
-            latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            // Do nothing
-        }
-    }
 }
@@ -22,20 +22,13 @@ import android.os.Looper;
 
 import com.android.settingslib.utils.ThreadUtils;
 
-import java.util.concurrent.CountDownLatch;
-
 /**
  * Observer for updating injected dynamic data.
  */
 public abstract class DynamicDataObserver extends ContentObserver {
 
-    private Runnable mUpdateRunnable;
-    private CountDownLatch mCountDownLatch;
-    private boolean mUpdateDelegated;
-
     protected DynamicDataObserver() {
         super(new Handler(Looper.getMainLooper()));
-        mCountDownLatch = new CountDownLatch(1);
         // Load data for the first time
         onDataChanged();
     }
@@ -46,30 +39,13 @@ public abstract class DynamicDataObserver extends ContentObserver {
     /** Called when data changes. */
     public abstract void onDataChanged();
 
-    /** Calls the runnable to update UI */
-    public synchronized void updateUi() {
-        mUpdateDelegated = true;
-        if (mUpdateRunnable != null) {
-            mUpdateRunnable.run();
-        }
-    }
-
-    /** Returns the count-down latch */
-    public CountDownLatch getCountDownLatch() {
-        return mCountDownLatch;
-    }
-
     @Override
     public void onChange(boolean selfChange) {
         onDataChanged();
     }
 
-    protected synchronized void post(Runnable runnable) {
-        if (mUpdateDelegated) {
-            ThreadUtils.postOnMainThread(runnable);
-        } else {
-            mUpdateRunnable = runnable;
-            mCountDownLatch.countDown();
-        }
+    /** Posts the runnable updating the UI to the main thread. */
+    protected void post(Runnable runnable) {
+        ThreadUtils.postOnMainThread(runnable);
     }
 }
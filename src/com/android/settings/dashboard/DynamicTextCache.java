@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.dashboard;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Map;
+
+/**
+ * Process wide cache of the dynamic titles and summaries of injected tiles, keyed by the uri
+ * they are loaded from.
+ *
+ * <p>A cached text is shown as soon as a tile is bound, even once expired, and is replaced when
+ * the provider answers. Texts younger than {@link #TTL_MILLIS} are not queried again.
+ */
+public class DynamicTextCache {
+
+    @VisibleForTesting
+    static final long TTL_MILLIS = 30_000L;
+
+    private static final DynamicTextCache sInstance = new DynamicTextCache();
+
+    private final Map<Uri, Entry> mEntries = new ArrayMap<>();
+
+    public static DynamicTextCache get() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    DynamicTextCache() {
+    }
+
+    /** Returns the last text loaded from the uri, or {@code null} if there is none. */
+    @Nullable
+    public synchronized String getText(Uri uri) {
+        final Entry entry = mEntries.get(uri);
+        return entry != null ? entry.mText : null;
+    }
+
+    /** Returns the text loaded from the uri within the TTL, or {@code null} if there is none. */
+    @Nullable
+    public synchronized String getFreshText(Uri uri) {
+        final Entry entry = mEntries.get(uri);
+        if (entry == null || SystemClock.elapsedRealtime() - entry.mLoadTime > TTL_MILLIS) {
+            return null;
+        }
+        return entry.mText;
+    }
+
+    /** Saves the text loaded from the uri. Failed loads, returning {@code null}, are ignored. */
+    public synchronized void putText(Uri uri, @Nullable String text) {
+        if (text == null) {
+            return;
+        }
+        mEntries.put(uri, new Entry(text, SystemClock.elapsedRealtime()));
+    }
+
+    /** Marks the text of the uri as expired, keeping it for display until reloaded. */
+    public synchronized void expire(Uri uri) {
+        final Entry entry = mEntries.get(uri);
+        if (entry != null) {
+            mEntries.put(uri,
+                    new Entry(entry.mText, SystemClock.elapsedRealtime() - TTL_MILLIS - 1));
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mEntries.clear();
+    }
+
+    private static class Entry {
+        final String mText;
+        final long mLoadTime;
+
+        Entry(String text, long loadTime) {
+            mText = text;
+            mLoadTime = loadTime;
+        }
+    }
+}
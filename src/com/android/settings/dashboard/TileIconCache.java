@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON_BACKGROUND_ARGB;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON_BACKGROUND_HINT;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Configuration;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.R;
+import com.android.settingslib.drawer.Tile;
+import com.android.settingslib.utils.ThreadUtils;
+import com.android.settingslib.widget.AdaptiveIcon;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Process wide cache of the drawables of injected tile icons.
+ *
+ * <p>Resource icons are decoded on a background thread and kept as a
+ * {@link Drawable.ConstantState}. Every preference gets its own copy of the decoded drawable,
+ * wrapped in {@link AdaptiveIcon} with the background of the tile when needed. Entries of a
+ * package are dropped when the package is changed, replaced or removed.
+ */
+public class TileIconCache {
+
+    private static final String TAG = "TileIconCache";
+    private static final String DATA_SCHEME_PKG = "package";
+
+    private static TileIconCache sInstance;
+
+    private final Context mContext;
+    private final Map<IconKey, Drawable.ConstantState> mIcons = new ArrayMap<>();
+    private final Map<IconKey, List<PendingLoad>> mPendingLoads = new ArrayMap<>();
+    // Bumped on every invalidation, so icons decoded before it are delivered but not cached.
+    private int mGeneration;
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (intent.getData() != null) {
+                invalidate(intent.getData().getSchemeSpecificPart());
+            }
+        }
+    };
+
+    public static synchronized TileIconCache get(Context context) {
+        if (sInstance == null) {
+            sInstance = new TileIconCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    TileIconCache(Context context) {
+        mContext = context;
+        final IntentFilter filter = new IntentFilter(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme(DATA_SCHEME_PKG);
+        mContext.registerReceiver(mPackageReceiver, filter);
+    }
+
+    /**
+     * Returns whether the icon can be served from this cache. Only resource icons are cached,
+     * the other icon types already hold their content and are cheap to load.
+     */
+    static boolean isCacheable(Icon icon) {
+        return icon.getType() == Icon.TYPE_RESOURCE;
+    }
+
+    /**
+     * Returns a new copy of the cached drawable of the given key, using the resources of the
+     * context, or {@code null} if the icon has not been decoded yet.
+     */
+    @Nullable
+    public Drawable getIcon(Context context, IconKey key, Tile tile) {
+        final Drawable.ConstantState state;
+        synchronized (mIcons) {
+            state = mIcons.get(key);
+        }
+        return state != null ? newIcon(context, state, tile, key.mRounded) : null;
+    }
+
+    /**
+     * Decodes the icon on a background thread and delivers a copy of it, using the resources of
+     * the context, to the callback on the main thread. Concurrent loads of the same key are
+     * decoded once. The callback receives {@code null} if the icon cannot be loaded.
+     */
+    @MainThread
+    public void loadIcon(Context context, IconKey key, Icon icon, Tile tile,
+            Consumer<Drawable> callback) {
+        final int generation;
+        synchronized (mIcons) {
+            generation = mGeneration;
+            List<PendingLoad> loads = mPendingLoads.get(key);
+            if (loads != null) {
+                loads.add(new PendingLoad(context, icon, tile, callback));
+                return;
+            }
+            loads = new ArrayList<>();
+            loads.add(new PendingLoad(context, icon, tile, callback));
+            mPendingLoads.put(key, loads);
+        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final Drawable drawable = loadDrawable(context, icon);
+            final Drawable.ConstantState state =
+                    drawable != null ? drawable.getConstantState() : null;
+            final List<PendingLoad> loads;
+            synchronized (mIcons) {
+                loads = mPendingLoads.remove(key);
+                if (state != null && generation == mGeneration) {
+                    mIcons.put(key, state);
+                }
+            }
+            if (drawable != null && state == null) {
+                // Drawables without constant state cannot be copied, nor cached. The first
+                // callback gets the decoded one, the others decode their own.
+                for (int i = 1; i < loads.size(); i++) {
+                    final PendingLoad load = loads.get(i);
+                    final Drawable copy = createIcon(mContext, load.mContext, load.mIcon,
+                            load.mTile, key.mRounded);
+                    ThreadUtils.postOnMainThread(() -> load.mCallback.accept(copy));
+                }
+                final PendingLoad first = loads.get(0);
+                ThreadUtils.postOnMainThread(() -> first.mCallback.accept(
+                        wrapIcon(mContext, drawable, first.mTile, key.mRounded)));
+                return;
+            }
+            ThreadUtils.postOnMainThread(() -> {
+                for (PendingLoad load : loads) {
+                    load.mCallback.accept(state != null
+                            ? newIcon(load.mContext, state, load.mTile, key.mRounded) : null);
+                }
+            });
+        });
+    }
+
+    /** Drops the icons of the given package. */
+    public void invalidate(String packageName) {
+        synchronized (mIcons) {
+            mGeneration++;
+            final Iterator<IconKey> iterator = mIcons.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (TextUtils.equals(iterator.next().mPackageName, packageName)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void clear() {
+        synchronized (mIcons) {
+            mGeneration++;
+            mIcons.clear();
+        }
+    }
+
+    /**
+     * Loads the drawable of the icon and wraps it in an {@link AdaptiveIcon} if {@code rounded}.
+     * Returns {@code null} if the icon cannot be loaded.
+     */
+    @Nullable
+    static Drawable createIcon(Context appContext, Context context, Icon icon, Tile tile,
+            boolean rounded) {
+        final Drawable drawable = loadDrawable(context, icon);
+        return drawable != null ? wrapIcon(appContext, drawable, tile, rounded) : null;
+    }
+
+    private Drawable newIcon(Context context, Drawable.ConstantState state, Tile tile,
+            boolean rounded) {
+        return wrapIcon(mContext, state.newDrawable(context.getResources()).mutate(), tile,
+                rounded);
+    }
+
+    @Nullable
+    private static Drawable loadDrawable(Context context, Icon icon) {
+        final Drawable drawable = icon.loadDrawable(context);
+        if (drawable == null) {
+            Log.w(TAG, "Failed to load icon " + icon);
+        }
+        return drawable;
+    }
+
+    private static Drawable wrapIcon(Context appContext, Drawable drawable, Tile tile,
+            boolean rounded) {
+        if (!rounded) {
+            return drawable;
+        }
+        final AdaptiveIcon adaptiveIcon = new AdaptiveIcon(appContext, drawable,
+                R.dimen.dashboard_tile_foreground_image_inset);
+        adaptiveIcon.setBackgroundColor(appContext, tile);
+        return adaptiveIcon;
+    }
+
+    private static class PendingLoad {
+        final Context mContext;
+        final Icon mIcon;
+        final Tile mTile;
+        final Consumer<Drawable> mCallback;
+
+        PendingLoad(Context context, Icon icon, Tile tile, Consumer<Drawable> callback) {
+            mContext = context;
+            mIcon = icon;
+            mTile = tile;
+            mCallback = callback;
+        }
+    }
+
+    /** Identifies a decoded tile icon. */
+    public static class IconKey {
+        private final String mPackageName;
+        private final int mResId;
+        private final boolean mTinted;
+        private final boolean mRounded;
+        private final int mNightMode;
+        private final int mBackgroundHint;
+        private final int mBackgroundArgb;
+
+        IconKey(Context context, Icon icon, Tile tile, boolean rounded) {
+            mPackageName = icon.getResPackage();
+            mResId = icon.getResId();
+            mTinted = tile.isIconTintable(context);
+            mRounded = rounded;
+            mNightMode = context.getResources().getConfiguration().uiMode
+                    & Configuration.UI_MODE_NIGHT_MASK;
+            final Bundle metaData = rounded ? tile.getMetaData() : null;
+            mBackgroundHint = metaData != null
+                    ? metaData.getInt(META_DATA_PREFERENCE_ICON_BACKGROUND_HINT, 0) : 0;
+            mBackgroundArgb = metaData != null
+                    ? metaData.getInt(META_DATA_PREFERENCE_ICON_BACKGROUND_ARGB, 0) : 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IconKey)) {
+                return false;
+            }
+            final IconKey other = (IconKey) o;
+            return mResId == other.mResId
+                    && mTinted == other.mTinted
+                    && mRounded == other.mRounded
+                    && mNightMode == other.mNightMode
+                    && mBackgroundHint == other.mBackgroundHint
+                    && mBackgroundArgb == other.mBackgroundArgb
+                    && TextUtils.equals(mPackageName, other.mPackageName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mPackageName, mResId, mTinted, mRounded, mNightMode,
+                    mBackgroundHint, mBackgroundArgb);
+        }
+    }
+}
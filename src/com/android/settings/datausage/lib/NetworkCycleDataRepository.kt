@@ -69,22 +69,38 @@ class NetworkCycleDataRepository(
         }
 
     override suspend fun queryChartData(startTime: Long, endTime: Long): NetworkCycleChartData? {
-        val usage = networkStatsRepository.querySummaryForDevice(startTime, endTime)
+        val history = queryHistory(startTime, endTime)
+        val usage = history?.usageBetween(startTime, endTime)
+            ?: networkStatsRepository.querySummaryForDevice(startTime, endTime)
         if (usage > 0L) {
+            val dailyRanges = bucketRange(
+                startTime = startTime,
+                endTime = endTime,
+                step = NetworkCycleChartData.BUCKET_DURATION.inWholeMilliseconds,
+            )
             return NetworkCycleChartData(
                 total = NetworkUsageData(startTime, endTime, usage),
-                dailyUsage = bucketRange(
-                    startTime = startTime,
-                    endTime = endTime,
-                    step = NetworkCycleChartData.BUCKET_DURATION.inWholeMilliseconds,
-                ).queryUsage(),
+                dailyUsage = history?.fold(dailyRanges) ?: dailyRanges.asyncMap { queryUsage(it) },
             )
         }
         return null
     }
 
-    private suspend fun List<Range<Long>>.queryUsage(): List<NetworkUsageData> =
-        asyncMap { queryUsage(it) }
+    /**
+     * Queries the usage of all the ranges from one history covering them, falling back to one
+     * summary query per range if the history is not available.
+     */
+    private suspend fun List<Range<Long>>.queryUsage(): List<NetworkUsageData> {
+        if (isEmpty()) return emptyList()
+        val history = queryHistory(minOf { it.lower }, maxOf { it.upper })
+            ?: return asyncMap { queryUsage(it) }
+        return history.fold(this)
+    }
+
+    private fun queryHistory(startTime: Long, endTime: Long): NetworkUsageHistory? =
+        NetworkUsageHistory.Cache.getOrLoad(networkTemplate, startTime, endTime) {
+            networkStatsRepository.queryHistoryForDevice(startTime, endTime)
+        }
 
     fun queryUsage(range: Range<Long>) = NetworkUsageData(
         startTime = range.lower,
@@ -54,6 +54,14 @@ class NetworkStatsRepository(context: Context, private val template: NetworkTemp
         0
     }
 
+    /** Queries the device usage history between [startTime] and [endTime] in one call. */
+    fun queryHistoryForDevice(startTime: Long, endTime: Long): NetworkUsageHistory? = try {
+        networkStatsManager.queryDetailsForDevice(template, startTime, endTime).convertToHistory()
+    } catch (e: Exception) {
+        Log.e(TAG, "Exception queryDetailsForDevice", e)
+        null
+    }
+
     fun queryBuckets(startTime: Long, endTime: Long): List<Bucket> = try {
         networkStatsManager.querySummary(template, startTime, endTime).convertToBuckets()
     } catch (e: Exception) {
@@ -63,6 +71,7 @@ class NetworkStatsRepository(context: Context, private val template: NetworkTemp
 
     companion object {
         private const val TAG = "NetworkStatsRepository"
+        private const val INITIAL_HISTORY_CAPACITY = 64
 
         val AllTimeRange = Range(Long.MIN_VALUE, Long.MAX_VALUE)
 
@@ -81,6 +90,30 @@ class NetworkStatsRepository(context: Context, private val template: NetworkTemp
             buckets
         }
 
+        private fun NetworkStats.convertToHistory(): NetworkUsageHistory = use {
+            var startTimes = LongArray(INITIAL_HISTORY_CAPACITY)
+            var endTimes = LongArray(INITIAL_HISTORY_CAPACITY)
+            var bytes = LongArray(INITIAL_HISTORY_CAPACITY)
+            var size = 0
+            val bucket = NetworkStats.Bucket()
+            while (getNextBucket(bucket)) {
+                if (size == startTimes.size) {
+                    startTimes = startTimes.copyOf(size * 2)
+                    endTimes = endTimes.copyOf(size * 2)
+                    bytes = bytes.copyOf(size * 2)
+                }
+                startTimes[size] = bucket.startTimeStamp
+                endTimes[size] = bucket.endTimeStamp
+                bytes[size] = bucket.bytes
+                size++
+            }
+            NetworkUsageHistory(
+                startTimes = startTimes.copyOf(size),
+                endTimes = endTimes.copyOf(size),
+                bytes = bytes.copyOf(size),
+            )
+        }
+
         private fun NetworkStats.aggregate(): NetworkUsageData? = use {
             var startTime = Long.MAX_VALUE
             var endTime = Long.MIN_VALUE
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.net.NetworkTemplate
+import android.os.SystemClock
+import android.util.Range
+import androidx.annotation.VisibleForTesting
+
+/**
+ * Device usage history returned by a single history query, stored as parallel arrays of
+ * buckets sorted by start time.
+ */
+class NetworkUsageHistory(
+    private val startTimes: LongArray,
+    private val endTimes: LongArray,
+    private val bytes: LongArray,
+) {
+    init {
+        require(startTimes.size == endTimes.size && startTimes.size == bytes.size)
+    }
+
+    val size: Int
+        get() = startTimes.size
+
+    /** Returns the usage between [startTime] and [endTime]. */
+    fun usageBetween(startTime: Long, endTime: Long): Long =
+        fold(listOf(Range(startTime, endTime))).first().usage
+
+    /**
+     * Folds the history buckets into the given [ranges] in one pass.
+     *
+     * Buckets which partially overlap a range are interpolated linearly, the same as
+     * NetworkStatsHistory does for summary queries. The result keeps the order of [ranges].
+     */
+    fun fold(ranges: List<Range<Long>>): List<NetworkUsageData> {
+        val usage = LongArray(ranges.size)
+        var first = 0
+        for (index in ranges.indices.sortedBy { ranges[it].lower }) {
+            val range = ranges[index]
+            while (first < size && endTimes[first] <= range.lower) first++
+            var total = 0L
+            var i = first
+            while (i < size && startTimes[i] < range.upper) {
+                total += overlapBytes(i, range.lower, range.upper)
+                i++
+            }
+            usage[index] = total
+        }
+        return ranges.mapIndexed { index, range ->
+            NetworkUsageData(startTime = range.lower, endTime = range.upper, usage = usage[index])
+        }
+    }
+
+    private fun overlapBytes(index: Int, startTime: Long, endTime: Long): Long {
+        val bucketStart = startTimes[index]
+        val bucketEnd = endTimes[index]
+        if (bucketStart >= startTime && bucketEnd <= endTime) return bytes[index]
+        val overlap = minOf(bucketEnd, endTime) - maxOf(bucketStart, startTime)
+        val duration = bucketEnd - bucketStart
+        if (overlap <= 0 || duration <= 0) return 0
+        return (bytes[index].toDouble() * overlap / duration).toLong()
+    }
+
+    /**
+     * Process wide cache of history per [NetworkTemplate] and time range.
+     *
+     * The cycle spinner and the usage chart are backed by different repository instances, so
+     * the cache is shared between them. A cached history is reused for any range it covers, and
+     * expires after [MAX_AGE_MILLIS] since the current cycle keeps growing. Histories of
+     * different ranges of a template are kept side by side, up to [MAX_ENTRIES] in total.
+     */
+    object Cache {
+        private const val MAX_AGE_MILLIS = 60_000L
+        private const val MAX_ENTRIES = 4
+
+        private class Entry(
+            val template: NetworkTemplate,
+            val timeRange: Range<Long>,
+            val history: NetworkUsageHistory,
+            val loadTime: Long,
+        )
+
+        private val entries = ArrayDeque<Entry>()
+
+        /**
+         * Returns the cached history of [template] covering the given range, or loads it with
+         * [load] when there is none. Failed loads are not cached.
+         */
+        fun getOrLoad(
+            template: NetworkTemplate,
+            startTime: Long,
+            endTime: Long,
+            load: () -> NetworkUsageHistory?,
+        ): NetworkUsageHistory? {
+            get(template, startTime, endTime)?.let { return it }
+            val history = load() ?: return null
+            synchronized(entries) {
+                // Only drop the histories the new one covers, a wider one still serves other
+                // ranges, e.g. the chart next to the current cycle.
+                entries.removeAll {
+                    it.template == template &&
+                        it.timeRange.lower >= startTime &&
+                        it.timeRange.upper <= endTime
+                }
+                entries.addFirst(
+                    Entry(
+                        template = template,
+                        timeRange = Range(startTime, endTime),
+                        history = history,
+                        loadTime = SystemClock.elapsedRealtime(),
+                    )
+                )
+                while (entries.size > MAX_ENTRIES) entries.removeLast()
+            }
+            return history
+        }
+
+        private fun get(template: NetworkTemplate, startTime: Long, endTime: Long) =
+            synchronized(entries) {
+                val now = SystemClock.elapsedRealtime()
+                entries.removeAll { now - it.loadTime > MAX_AGE_MILLIS }
+                entries.firstOrNull {
+                    it.template == template &&
+                        it.timeRange.lower <= startTime &&
+                        it.timeRange.upper >= endTime
+                }?.history
+            }
+
+        @VisibleForTesting
+        fun clear() = synchronized(entries) { entries.clear() }
+    }
+}
@@ -24,6 +24,7 @@ import static android.content.pm.ApplicationInfo.CATEGORY_VIDEO;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.UserInfo;
@@ -39,12 +40,18 @@ import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
 
+import com.android.settings.deviceinfo.storage.StorageCacheHelper.PackageStorageCache;
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * StorageAsyncLoader is a Loader which loads categorized app information and external stats for all
@@ -54,6 +61,11 @@ public class StorageAsyncLoader
         extends AsyncLoaderCompat<SparseArray<StorageAsyncLoader.StorageResult>> {
     private UserManager mUserManager;
     private static final String TAG = "StorageAsyncLoader";
+    private static final int THREAD_COUNT = 4;
+    private static final long KEEP_ALIVE_MS = 30000;
+
+    // Shared by all the loads, the threads exit once idle.
+    private static ThreadPoolExecutor sExecutor;
 
     private String mUuid;
     private StorageStatsSource mStatsManager;
@@ -83,51 +95,116 @@ public class StorageAsyncLoader
         Collections.sort(infos,
                 (userInfo, otherUser) -> Integer.compare(userInfo.id, otherUser.id));
 
+        final SparseArray<List<AppStats>> appStats = getAppStatsForUsers(infos);
         for (UserInfo info : infos) {
-            final StorageResult result = getAppsAndGamesSize(info.id);
-            final Bundle media = new Bundle();
-            media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
-                    + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
-            result.imagesSize = getFilesSize(info.id, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.videosSize = getFilesSize(info.id, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.audioSize = getFilesSize(info.id, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-
-            final Bundle documentsAndOtherQueryArgs = new Bundle();
-            documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
-                    + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
-            result.documentsAndOtherSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    documentsAndOtherQueryArgs);
-
-            final Bundle trashQueryArgs = new Bundle();
-            trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
-            result.trashSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    trashQueryArgs);
-
+            final StorageResult result = getAppsAndGamesSize(info.id, appStats.get(info.id));
+            final Context perUserContext = getPerUserContext(info.id);
+            if (perUserContext != null && !loadFilesSizeGrouped(perUserContext, result)) {
+                loadFilesSize(perUserContext, result);
+            }
             results.put(info.id, result);
         }
         return results;
     }
 
-    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
-        final Context perUserContext;
+    /**
+     * Loads the sizes of the media files of the user with a single query grouped by media type.
+     *
+     * @return false if the query is not supported, and the sizes are not loaded.
+     */
+    private boolean loadFilesSizeGrouped(Context perUserContext, StorageResult result) {
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_INCLUDE);
+        // The trashed files are all counted in the trash, the other files are only counted if
+        // they have a mime type, which is the same as querying the media collections.
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MIME_TYPE + " IS NOT NULL OR " + MediaColumns.IS_TRASHED + "=1");
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_GROUP_BY,
+                FileColumns.MEDIA_TYPE + ", " + MediaColumns.IS_TRASHED);
+
+        try (Cursor cursor = perUserContext.getContentResolver().query(
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                new String[] {FileColumns.MEDIA_TYPE, MediaColumns.IS_TRASHED,
+                        "sum(" + MediaColumns.SIZE + ")"},
+                queryArgs,
+                null /* cancellationSignal */)) {
+            if (cursor == null) {
+                return false;
+            }
+            result.imagesSize = 0L;
+            result.videosSize = 0L;
+            result.audioSize = 0L;
+            result.documentsAndOtherSize = 0L;
+            result.trashSize = 0L;
+            while (cursor.moveToNext()) {
+                final long size = cursor.getLong(2);
+                if (cursor.getInt(1) != 0) {
+                    result.trashSize += size;
+                    continue;
+                }
+                switch (cursor.getInt(0)) {
+                    case FileColumns.MEDIA_TYPE_IMAGE:
+                        result.imagesSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_VIDEO:
+                        result.videosSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_AUDIO:
+                        result.audioSize += size;
+                        break;
+                    default:
+                        result.documentsAndOtherSize += size;
+                        break;
+                }
+            }
+            return true;
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            Log.w(TAG, "Grouped query is not supported, query each media type", e);
+            return false;
+        }
+    }
+
+    private void loadFilesSize(Context perUserContext, StorageResult result) {
+        final Bundle media = new Bundle();
+        media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
+                + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
+        result.imagesSize = getFilesSize(perUserContext,
+                MediaStore.Images.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.videosSize = getFilesSize(perUserContext,
+                MediaStore.Video.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.audioSize = getFilesSize(perUserContext,
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+
+        final Bundle documentsAndOtherQueryArgs = new Bundle();
+        documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
+                + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
+                + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
+                + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
+        result.documentsAndOtherSize = getFilesSize(perUserContext,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                documentsAndOtherQueryArgs);
+
+        final Bundle trashQueryArgs = new Bundle();
+        trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
+        result.trashSize = getFilesSize(perUserContext,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                trashQueryArgs);
+    }
+
+    private Context getPerUserContext(int userId) {
         try {
-            perUserContext = getContext().createPackageContextAsUser(
+            return getContext().createPackageContextAsUser(
                 getContext().getApplicationContext().getPackageName(),
                 0 /* flags= */,
                 UserHandle.of(userId));
         } catch (NameNotFoundException e) {
             Log.e(TAG, "Not able to get Context for user ID " + userId);
-            return 0L;
+            return null;
         }
+    }
 
+    private long getFilesSize(Context perUserContext, Uri uri, Bundle queryArgs) {
         try (Cursor cursor = perUserContext.getContentResolver().query(
                 uri,
                 new String[] {"sum(" + MediaColumns.SIZE + ")"},
@@ -140,28 +217,103 @@ public class StorageAsyncLoader
         }
     }
 
-    private StorageResult getAppsAndGamesSize(int userId) {
+    /**
+     * Loads the storage stats of the installed packages of all the users in parallel. The cached
+     * stats are used for the packages which are not updated since they were cached.
+     */
+    private SparseArray<List<AppStats>> getAppStatsForUsers(List<UserInfo> infos) {
         Log.d(TAG, "Loading apps");
-        final List<ApplicationInfo> applicationInfos =
-                mPackageManager.getInstalledApplicationsAsUser(0, userId);
-        final StorageResult result = new StorageResult();
-        final UserHandle myUser = UserHandle.of(userId);
-        for (int i = 0, size = applicationInfos.size(); i < size; i++) {
-            final ApplicationInfo app = applicationInfos.get(i);
-
-            StorageStatsSource.AppStorageStats stats;
-            try {
-                stats = mStatsManager.getStatsForPackage(mUuid, app.packageName, myUser);
-            } catch (NameNotFoundException | IOException e) {
-                // This may happen if the package was removed during our calculation.
-                Log.w(TAG, "App unexpectedly not found", e);
-                continue;
+        final long now = System.currentTimeMillis();
+        final ThreadPoolExecutor executor = getExecutor();
+        final SparseArray<List<CompletableFuture<AppStats>>> futures = new SparseArray<>();
+        int cachedCount = 0;
+        for (UserInfo info : infos) {
+            final StorageCacheHelper cacheHelper =
+                    new StorageCacheHelper(getContext(), info.id);
+            final UserHandle user = UserHandle.of(info.id);
+            final List<PackageInfo> packageInfos =
+                    mPackageManager.getInstalledPackagesAsUser(0, info.id);
+            final List<CompletableFuture<AppStats>> userFutures =
+                    new ArrayList<>(packageInfos.size());
+            for (PackageInfo packageInfo : packageInfos) {
+                if (packageInfo.applicationInfo == null) {
+                    continue;
+                }
+                final PackageStorageCache cachedStats =
+                        cacheHelper.retrievePackageStats(mUuid, packageInfo, now);
+                if (cachedStats != null) {
+                    cachedCount++;
+                    userFutures.add(CompletableFuture.completedFuture(
+                            new AppStats(packageInfo.applicationInfo, cachedStats)));
+                } else {
+                    userFutures.add(CompletableFuture.supplyAsync(
+                            () -> loadAppStats(packageInfo, user, now), executor));
+                }
+            }
+            futures.put(info.id, userFutures);
+        }
+
+        final SparseArray<List<AppStats>> appStats = new SparseArray<>();
+        for (int i = 0; i < futures.size(); i++) {
+            final List<AppStats> userAppStats = new ArrayList<>();
+            final List<PackageStorageCache> userCache = new ArrayList<>();
+            for (CompletableFuture<AppStats> future : futures.valueAt(i)) {
+                final AppStats stats = future.join();
+                if (stats != null) {
+                    userAppStats.add(stats);
+                    userCache.add(stats.mStats);
+                }
             }
+            new StorageCacheHelper(getContext(), futures.keyAt(i))
+                    .cachePackageStats(mUuid, userCache);
+            appStats.put(futures.keyAt(i), userAppStats);
+        }
+        Log.d(TAG, "Loaded apps, " + cachedCount + " from cache");
+        return appStats;
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, KEEP_ALIVE_MS,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+            sExecutor.allowCoreThreadTimeOut(true);
+        }
+        return sExecutor;
+    }
 
-            final long dataSize = stats.getDataBytes();
-            final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
-            final long cacheBytes = stats.getCacheBytes();
-            long blamedSize = dataSize + stats.getCodeBytes();
+    private AppStats loadAppStats(PackageInfo packageInfo, UserHandle user, long now) {
+        final ApplicationInfo app = packageInfo.applicationInfo;
+        final StorageStatsSource.AppStorageStats stats;
+        try {
+            stats = mStatsManager.getStatsForPackage(mUuid, packageInfo.packageName, user);
+        } catch (NameNotFoundException | IOException e) {
+            // This may happen if the package was removed during our calculation.
+            Log.w(TAG, "App unexpectedly not found", e);
+            return null;
+        }
+
+        final PackageStorageCache cache = new PackageStorageCache();
+        cache.packageName = packageInfo.packageName;
+        cache.versionCode = packageInfo.getLongVersionCode();
+        cache.lastUpdateTime = packageInfo.lastUpdateTime;
+        cache.timestamp = now;
+        cache.codeBytes = stats.getCodeBytes();
+        cache.dataBytes = stats.getDataBytes();
+        cache.cacheBytes = stats.getCacheBytes();
+        cache.cacheQuotaBytes = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
+        return new AppStats(app, cache);
+    }
+
+    private StorageResult getAppsAndGamesSize(int userId, List<AppStats> appStats) {
+        final StorageResult result = new StorageResult();
+        for (int i = 0, size = appStats.size(); i < size; i++) {
+            final ApplicationInfo app = appStats.get(i).mApp;
+            final PackageStorageCache stats = appStats.get(i).mStats;
+
+            final long dataSize = stats.dataBytes;
+            final long cacheQuota = stats.cacheQuotaBytes;
+            final long cacheBytes = stats.cacheBytes;
+            long blamedSize = dataSize + stats.codeBytes;
             // Technically, we could overages as freeable on the storage settings screen.
             // If the app is using more cache than its quota, we would accidentally subtract the
             // overage from the system size (because it shows up as unused) during our attribution.
@@ -173,7 +325,7 @@ public class StorageAsyncLoader
             // Code bytes may share between different profiles. To know all the duplicate code size
             // and we can get a reasonable system size in StorageItemPreferenceController.
             if (mSeenPackages.contains(app.packageName)) {
-                result.duplicateCodeSize += stats.getCodeBytes();
+                result.duplicateCodeSize += stats.codeBytes;
             } else {
                 mSeenPackages.add(app.packageName);
             }
@@ -231,6 +383,16 @@ public class StorageAsyncLoader
         public StorageStatsSource.ExternalStorageStats externalStats;
     }
 
+    private static class AppStats {
+        final ApplicationInfo mApp;
+        final PackageStorageCache mStats;
+
+        AppStats(ApplicationInfo app, PackageStorageCache stats) {
+            mApp = app;
+            mStats = stats;
+        }
+    }
+
     /**
      * ResultHandler defines a destination of data which can handle a result from
      * {@link StorageAsyncLoader}.
@@ -18,13 +18,25 @@ package com.android.settings.deviceinfo.storage;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.pm.PackageInfo;
+import android.util.Log;
+
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * A utility class to cache and restore the storage size information.
  */
 public class StorageCacheHelper {
 
+    private static final String TAG = "StorageCacheHelper";
     private static final String SHARED_PREFERENCE_NAME = "StorageCache";
+    private static final String PACKAGE_SHARED_PREFERENCE_NAME = "StoragePackageCache";
+    // Data and cache bytes change without a package update, so they are loaded again once the
+    // cached stats are older than this.
+    private static final long PACKAGE_STATS_MAX_AGE_MS = 10 * 60 * 1000;
+    private static final String PACKAGE_STATS_SEPARATOR = ",";
+    private static final String INTERNAL_VOLUME_UUID = "internal";
     private static final String TOTAL_SIZE_KEY = "total_size_key";
     private static final String TOTAL_USED_SIZE_KEY = "total_used_size_key";
     private static final String IMAGES_SIZE_KEY = "images_size_key";
@@ -38,10 +50,13 @@ public class StorageCacheHelper {
     private static final String USED_SIZE_KEY = "used_size_key";
 
     private final SharedPreferences mSharedPreferences;
+    private final SharedPreferences mPackageSharedPreferences;
 
     public StorageCacheHelper(Context context, int userId) {
         String sharedPrefName = SHARED_PREFERENCE_NAME + userId;
         mSharedPreferences = context.getSharedPreferences(sharedPrefName, Context.MODE_PRIVATE);
+        mPackageSharedPreferences = context.getSharedPreferences(
+                PACKAGE_SHARED_PREFERENCE_NAME + userId, Context.MODE_PRIVATE);
     }
 
     /**
@@ -112,6 +127,124 @@ public class StorageCacheHelper {
         return result;
     }
 
+    /**
+     * Returns the cached storage stats of the package on the volume, or null if there is none or
+     * it's outdated, i.e. the package was updated since or the stats are too old.
+     *
+     * @param uuid the volume uuid, null for the internal storage.
+     * @param now the current time in milliseconds.
+     */
+    public PackageStorageCache retrievePackageStats(String uuid, PackageInfo packageInfo,
+            long now) {
+        final String value = mPackageSharedPreferences.getString(
+                getPackageStatsKey(uuid, packageInfo.packageName), null /* defValue */);
+        if (value == null) {
+            return null;
+        }
+        final PackageStorageCache stats;
+        try {
+            stats = PackageStorageCache.parse(packageInfo.packageName, value);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            Log.w(TAG, "Invalid cached package stats: " + value, e);
+            return null;
+        }
+        if (stats.versionCode != packageInfo.getLongVersionCode()
+                || stats.lastUpdateTime != packageInfo.lastUpdateTime
+                || now < stats.timestamp
+                || now - stats.timestamp > PACKAGE_STATS_MAX_AGE_MS) {
+            return null;
+        }
+        return stats;
+    }
+
+    /**
+     * Replaces the cached storage stats of the packages on the volume, the packages which are not
+     * in {@code stats} are removed from the cache.
+     *
+     * @param uuid the volume uuid, null for the internal storage.
+     */
+    public void cachePackageStats(String uuid, Collection<PackageStorageCache> stats) {
+        final SharedPreferences.Editor editor = mPackageSharedPreferences.edit();
+        final String prefix = getPackageStatsKey(uuid, "" /* packageName */);
+        for (Map.Entry<String, ?> entry : mPackageSharedPreferences.getAll().entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                editor.remove(entry.getKey());
+            }
+        }
+        for (PackageStorageCache packageStats : stats) {
+            editor.putString(getPackageStatsKey(uuid, packageStats.packageName),
+                    packageStats.toString());
+        }
+        editor.apply();
+    }
+
+    /**
+     * Removes the cached storage stats of the package on all the volumes. Called when the data or
+     * cache of the package is cleared, which doesn't change the package version.
+     */
+    public void removePackageStats(String packageName) {
+        final SharedPreferences.Editor editor = mPackageSharedPreferences.edit();
+        final String suffix = "/" + packageName;
+        for (String key : mPackageSharedPreferences.getAll().keySet()) {
+            if (key.endsWith(suffix)) {
+                editor.remove(key);
+            }
+        }
+        editor.apply();
+    }
+
+    /**
+     * Removes all the cached storage stats of the packages.
+     */
+    public void clearPackageStats() {
+        mPackageSharedPreferences.edit().clear().apply();
+    }
+
+    private static String getPackageStatsKey(String uuid, String packageName) {
+        return (uuid == null ? INTERNAL_VOLUME_UUID : uuid) + "/" + packageName;
+    }
+
+    /**
+     * The cached storage stats of a package, which are valid for the package version.
+     */
+    public static class PackageStorageCache {
+        public String packageName;
+        public long versionCode;
+        public long lastUpdateTime;
+        // The time when the stats were loaded, in milliseconds.
+        public long timestamp;
+        public long codeBytes;
+        public long dataBytes;
+        public long cacheBytes;
+        public long cacheQuotaBytes;
+
+        static PackageStorageCache parse(String packageName, String value) {
+            final String[] parts = value.split(PACKAGE_STATS_SEPARATOR);
+            final PackageStorageCache stats = new PackageStorageCache();
+            stats.packageName = packageName;
+            stats.versionCode = Long.parseLong(parts[0]);
+            stats.lastUpdateTime = Long.parseLong(parts[1]);
+            stats.timestamp = Long.parseLong(parts[2]);
+            stats.codeBytes = Long.parseLong(parts[3]);
+            stats.dataBytes = Long.parseLong(parts[4]);
+            stats.cacheBytes = Long.parseLong(parts[5]);
+            stats.cacheQuotaBytes = Long.parseLong(parts[6]);
+            return stats;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(PACKAGE_STATS_SEPARATOR,
+                    String.valueOf(versionCode),
+                    String.valueOf(lastUpdateTime),
+                    String.valueOf(timestamp),
+                    String.valueOf(codeBytes),
+                    String.valueOf(dataBytes),
+                    String.valueOf(cacheBytes),
+                    String.valueOf(cacheQuotaBytes));
+        }
+    }
+
     /**
      *  All the cached data about the file size information.
      */
@@ -523,26 +523,37 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
     /** Used for {@link AppBatteryPreferenceController}. */
     public static List<BatteryDiffEntry> getAppBatteryUsageData(Context context) {
         final long start = System.currentTimeMillis();
+        final long lastFullChargeTime = DatabaseUtils.getLastFullChargeTime(context);
+        // Reuses the materialized hourly slots and only loads the history after them.
+        final List<BatteryUsageSlot> batteryUsageSlots =
+                DatabaseUtils.getBatteryUsageSlots(
+                        context, Calendar.getInstance(), lastFullChargeTime);
+        final long materializedEndTimestamp =
+                batteryUsageSlots.stream()
+                        .mapToLong(BatteryUsageSlot::getEndTimestamp)
+                        .max()
+                        .orElse(0L);
         final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap =
-                DatabaseUtils.getHistoryMapSinceLastFullCharge(context, Calendar.getInstance());
-        if (batteryHistoryMap == null || batteryHistoryMap.isEmpty()) {
+                DatabaseUtils.getHistoryMapSinceLatestRecordBeforeQueryTimestamp(
+                        context,
+                        Calendar.getInstance(),
+                        materializedEndTimestamp,
+                        lastFullChargeTime);
+        if (batteryUsageSlots.isEmpty()
+                && (batteryHistoryMap == null || batteryHistoryMap.isEmpty())) {
             return null;
         }
         Log.d(
                 TAG,
                 String.format(
-                        "getBatterySinceLastFullChargeUsageData() size=%d time=%d/ms",
-                        batteryHistoryMap.size(), (System.currentTimeMillis() - start)));
-
-        final Map<Integer, Map<Integer, BatteryDiffData>> batteryUsageData =
-                DataProcessor.getBatteryUsageData(context, batteryHistoryMap);
-        if (batteryUsageData == null) {
-            return null;
-        }
-        BatteryDiffData allBatteryDiffData =
-                batteryUsageData
-                        .get(BatteryChartViewModel.SELECTED_INDEX_ALL)
-                        .get(BatteryChartViewModel.SELECTED_INDEX_ALL);
+                        "getBatterySinceLastFullChargeUsageData() slots=%d size=%d time=%d/ms",
+                        batteryUsageSlots.size(),
+                        batteryHistoryMap == null ? 0 : batteryHistoryMap.size(),
+                        (System.currentTimeMillis() - start)));
+
+        final BatteryDiffData allBatteryDiffData =
+                DataProcessor.getAccumulatedBatteryUsageData(
+                        context, batteryUsageSlots, batteryHistoryMap);
         return allBatteryDiffData == null ? null : allBatteryDiffData.getAppDiffEntryList();
     }
 
@@ -33,7 +33,6 @@ import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.util.ArraySet;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.HapticFeedbackConstants;
@@ -55,9 +54,9 @@ import com.android.settings.R;
 import com.android.settingslib.Utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
 
 /** A widget component to draw chart graph. */
 public class BatteryChartView extends AppCompatImageView implements View.OnClickListener {
@@ -76,10 +75,15 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private final Rect mIndent = new Rect();
     private final Rect[] mPercentageBounds = new Rect[] {new Rect(), new Rect(), new Rect()};
     private final List<Rect> mAxisLabelsBounds = new ArrayList<>();
-    private final Set<Integer> mLabelDrawnIndexes = new ArraySet<>();
     private final int mLayoutDirection =
             getContext().getResources().getConfiguration().getLayoutDirection();
 
+    // The axis labels display areas, and whether each of them is drawn.
+    private Rect[] mAxisLabelDisplayAreas = new Rect[0];
+    private boolean[] mAxisLabelShown = new boolean[0];
+    // Whether the axis label of each index is drawn, to highlight its vertical divider.
+    private boolean[] mLabelDrawnIndexes = new boolean[0];
+
     private BatteryChartViewModel mViewModel;
     private int mHoveredIndex = BatteryChartViewModel.SELECTED_INDEX_INVALID;
     private int mDividerWidth;
@@ -105,8 +109,14 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private Paint mTextPaint;
     private AccessibilityNodeProvider mAccessibilityNodeProvider;
     private BatteryChartView.OnSelectListener mOnSelectListener;
+    private int mAxisLabelsMaxTop;
+    // The text bounds only change with the companion text paint or the view model.
+    private boolean mTextBoundsMeasured;
+    // The slots, axis labels and trapezoid shapes only change with the view model or the size.
+    private boolean mChartLayoutDirty = true;
 
     @VisibleForTesting TrapezoidSlot[] mTrapezoidSlots;
+    @VisibleForTesting Path[] mTrapezoidPaths;
     // Records the location to calculate selected index.
     @VisibleForTesting float mTouchUpEventX = Float.MIN_VALUE;
 
@@ -141,6 +151,8 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         mViewModel = viewModel;
         initializeAxisLabelsBounds();
         initializeTrapezoidSlots(viewModel.size() - 1);
+        mTextBoundsMeasured = false;
+        mChartLayoutDirty = true;
         setClickable(hasAnyValidTrapezoid(viewModel));
         requestLayout();
     }
@@ -160,6 +172,8 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         } else {
             mTextPaint = null;
         }
+        mTextBoundsMeasured = false;
+        mChartLayoutDirty = true;
         requestLayout();
     }
 
@@ -168,13 +182,8 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         // Measures text bounds and updates indent configuration.
         if (mTextPaint != null) {
-            mTextPaint.setTextAlign(Paint.Align.LEFT);
-            for (int index = 0; index < mPercentages.length; index++) {
-                mTextPaint.getTextBounds(
-                        mPercentages[index],
-                        0,
-                        mPercentages[index].length(),
-                        mPercentageBounds[index]);
+            if (!mTextBoundsMeasured) {
+                measureTextBounds();
             }
             // Updates the indent configurations.
             mIndent.top = mPercentageBounds[0].height() + mTransomViewHeight;
@@ -186,13 +195,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             }
 
             if (mViewModel != null) {
-                int maxTop = 0;
-                for (int index = 0; index < mViewModel.size(); index++) {
-                    final String text = mViewModel.getText(index);
-                    mTextPaint.getTextBounds(text, 0, text.length(), mAxisLabelsBounds.get(index));
-                    maxTop = Math.max(maxTop, -mAxisLabelsBounds.get(index).top);
-                }
-                mIndent.bottom = maxTop + round(mTextPadding * 2f);
+                mIndent.bottom = mAxisLabelsMaxTop + round(mTextPadding * 2f);
             }
             Log.d(TAG, "setIndent:" + mPercentageBounds[0]);
         } else {
@@ -200,9 +203,21 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (changed || mChartLayoutDirty) {
+            updateChartLayout();
+        }
+    }
+
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
+        if (mChartLayoutDirty) {
+            // Drawn before the layout pass picked up the latest view model.
+            updateChartLayout();
+        }
         // Before mLevels initialized, the count of trapezoids is unknown. Only draws the
         // horizontal percentages and dividers.
         drawHorizontalDividers(canvas);
@@ -326,6 +341,10 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
             mTrapezoidSlots[index] = new TrapezoidSlot();
         }
+        mTrapezoidPaths = new Path[count];
+        for (int index = 0; index < mTrapezoidPaths.length; index++) {
+            mTrapezoidPaths[index] = new Path();
+        }
     }
 
     private void initializeColors(Context context) {
@@ -431,73 +450,115 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
-    private void drawVerticalDividers(Canvas canvas) {
+    private void measureTextBounds() {
+        mTextPaint.setTextAlign(Paint.Align.LEFT);
+        for (int index = 0; index < mPercentages.length; index++) {
+            mTextPaint.getTextBounds(
+                    mPercentages[index], 0, mPercentages[index].length(), mPercentageBounds[index]);
+        }
+        mAxisLabelsMaxTop = 0;
+        if (mViewModel != null) {
+            for (int index = 0; index < mViewModel.size(); index++) {
+                final String text = mViewModel.getText(index);
+                mTextPaint.getTextBounds(text, 0, text.length(), mAxisLabelsBounds.get(index));
+                mAxisLabelsMaxTop = Math.max(mAxisLabelsMaxTop, -mAxisLabelsBounds.get(index).top);
+            }
+        }
+        mTextBoundsMeasured = true;
+    }
+
+    /**
+     * Computes the trapezoid slots, the axis labels to draw and the trapezoid shapes once per view
+     * model or size, so hover and selection redraws reuse them.
+     */
+    private void updateChartLayout() {
+        mChartLayoutDirty = false;
+        if (mViewModel == null) {
+            return;
+        }
+        final float unitWidth = getUnitWidth();
+        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
+        float startX = mDividerWidth * .5f + mIndent.left;
+        for (int index = 0; index < mTrapezoidSlots.length; index++) {
+            final float nextX = startX + mDividerWidth + unitWidth;
+            final int trapezoidIndex = isRTL() ? mTrapezoidSlots.length - index - 1 : index;
+            mTrapezoidSlots[trapezoidIndex].mLeft = round(startX + trapezoidSlotOffset);
+            mTrapezoidSlots[trapezoidIndex].mRight = round(nextX - trapezoidSlotOffset);
+            startX = nextX;
+        }
+        updateAxisLabels(unitWidth);
+        updateTrapezoidPaths();
+    }
+
+    private float getUnitWidth() {
         final int width = getWidth() - abs(mIndent.width());
+        final float dividerSpace = (mTrapezoidSlots.length + 1) * mDividerWidth;
+        return (width - dividerSpace) / (float) mTrapezoidSlots.length;
+    }
+
+    private float getTrapezoidBottom() {
+        return getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth - mTrapezoidVOffset;
+    }
+
+    private void drawVerticalDividers(Canvas canvas) {
         final int dividerCount = mTrapezoidSlots.length + 1;
-        final float dividerSpace = dividerCount * mDividerWidth;
-        final float unitWidth = (width - dividerSpace) / (float) mTrapezoidSlots.length;
+        final float unitWidth = getUnitWidth();
         final float bottomY = getHeight() - mIndent.bottom;
         final float startY = bottomY - mDividerHeight;
-        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
         // Draws the axis label slot information.
-        if (mViewModel != null) {
-            final float baselineY = getHeight() - mTextPadding;
-            Rect[] axisLabelDisplayAreas;
-            switch (mViewModel.axisLabelPosition()) {
-                case CENTER_OF_TRAPEZOIDS:
-                    axisLabelDisplayAreas =
-                            getAxisLabelDisplayAreas(
-                                    /* size= */ mViewModel.size() - 1,
-                                    /* baselineX= */ mIndent.left + mDividerWidth + unitWidth * .5f,
-                                    /* offsetX= */ mDividerWidth + unitWidth,
-                                    baselineY,
-                                    /* shiftFirstAndLast= */ false);
-                    break;
-                case BETWEEN_TRAPEZOIDS:
-                default:
-                    axisLabelDisplayAreas =
-                            getAxisLabelDisplayAreas(
-                                    /* size= */ mViewModel.size(),
-                                    /* baselineX= */ mIndent.left + mDividerWidth * .5f,
-                                    /* offsetX= */ mDividerWidth + unitWidth,
-                                    baselineY,
-                                    /* shiftFirstAndLast= */ true);
-                    break;
-            }
-            drawAxisLabels(canvas, axisLabelDisplayAreas, baselineY);
-        }
+        drawAxisLabels(canvas);
         // Draws each vertical dividers.
         float startX = mDividerWidth * .5f + mIndent.left;
         for (int index = 0; index < dividerCount; index++) {
             float dividerY = bottomY;
             if (mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
-                    && mLabelDrawnIndexes.contains(index)) {
+                    && mLabelDrawnIndexes[index]) {
                 mDividerPaint.setColor(mTrapezoidSolidColor);
                 dividerY += mDividerHeight / 4f;
             } else {
                 mDividerPaint.setColor(DIVIDER_COLOR);
             }
             canvas.drawLine(startX, startY, startX, dividerY, mDividerPaint);
-            final float nextX = startX + mDividerWidth + unitWidth;
-            // Updates the trapezoid slots for drawing.
-            if (index < mTrapezoidSlots.length) {
-                final int trapezoidIndex = isRTL() ? mTrapezoidSlots.length - index - 1 : index;
-                mTrapezoidSlots[trapezoidIndex].mLeft = round(startX + trapezoidSlotOffset);
-                mTrapezoidSlots[trapezoidIndex].mRight = round(nextX - trapezoidSlotOffset);
-            }
-            startX = nextX;
+            startX += mDividerWidth + unitWidth;
         }
     }
 
-    /** Gets all the axis label texts displaying area positions if they are shown. */
-    private Rect[] getAxisLabelDisplayAreas(
-            final int size,
+    private void updateAxisLabels(final float unitWidth) {
+        final float baselineY = getHeight() - mTextPadding;
+        switch (mViewModel.axisLabelPosition()) {
+            case CENTER_OF_TRAPEZOIDS:
+                updateAxisLabelDisplayAreas(
+                        /* baselineX= */ mIndent.left + mDividerWidth + unitWidth * .5f,
+                        /* offsetX= */ mDividerWidth + unitWidth,
+                        baselineY,
+                        /* shiftFirstAndLast= */ false);
+                break;
+            case BETWEEN_TRAPEZOIDS:
+            default:
+                updateAxisLabelDisplayAreas(
+                        /* baselineX= */ mIndent.left + mDividerWidth * .5f,
+                        /* offsetX= */ mDividerWidth + unitWidth,
+                        baselineY,
+                        /* shiftFirstAndLast= */ true);
+                break;
+        }
+        Arrays.fill(mAxisLabelShown, false);
+        Arrays.fill(mLabelDrawnIndexes, false);
+        final int lastIndex = mAxisLabelDisplayAreas.length - 1;
+        // Suppose first and last labels are always able to draw.
+        showAxisLabel(0);
+        showAxisLabel(lastIndex);
+        showAxisLabelsBetweenStartIndexAndEndIndex(0, lastIndex);
+    }
+
+    /** Updates all the axis label texts displaying area positions if they are shown. */
+    private void updateAxisLabelDisplayAreas(
             final float baselineX,
             final float offsetX,
             final float baselineY,
             final boolean shiftFirstAndLast) {
-        final Rect[] result = new Rect[size];
-        for (int index = 0; index < result.length; index++) {
+        final int size = mAxisLabelDisplayAreas.length;
+        for (int index = 0; index < size; index++) {
             final float width = mAxisLabelsBounds.get(index).width();
             float middle = baselineX + index * offsetX;
             if (shiftFirstAndLast) {
@@ -512,124 +573,104 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             final float right = left + width;
             final float top = baselineY + mAxisLabelsBounds.get(index).top;
             final float bottom = top + mAxisLabelsBounds.get(index).height();
-            result[index] = new Rect(round(left), round(top), round(right), round(bottom));
+            mAxisLabelDisplayAreas[index].set(
+                    round(left), round(top), round(right), round(bottom));
         }
-        return result;
-    }
-
-    private void drawAxisLabels(Canvas canvas, final Rect[] displayAreas, final float baselineY) {
-        final int lastIndex = displayAreas.length - 1;
-        mLabelDrawnIndexes.clear();
-        // Suppose first and last labels are always able to draw.
-        drawAxisLabelText(canvas, 0, displayAreas[0], baselineY);
-        mLabelDrawnIndexes.add(0);
-        drawAxisLabelText(canvas, lastIndex, displayAreas[lastIndex], baselineY);
-        mLabelDrawnIndexes.add(lastIndex);
-        drawAxisLabelsBetweenStartIndexAndEndIndex(canvas, displayAreas, 0, lastIndex, baselineY);
     }
 
     /**
-     * Recursively draws axis labels between the start index and the end index. If the inner number
-     * can be exactly divided into 2 parts, check and draw the middle index label and then
-     * recursively draw the 2 parts. Otherwise, divide into 3 parts. Check and draw the middle two
-     * labels and then recursively draw the 3 parts. If there are any overlaps, skip drawing and go
-     * back to the uplevel of the recursion.
+     * Recursively selects axis labels between the start index and the end index. If the inner
+     * number can be exactly divided into 2 parts, check and show the middle index label and then
+     * recursively select the 2 parts. Otherwise, divide into 3 parts. Check and show the middle two
+     * labels and then recursively select the 3 parts. If there are any overlaps, skip showing and
+     * go back to the uplevel of the recursion.
      */
-    private void drawAxisLabelsBetweenStartIndexAndEndIndex(
-            Canvas canvas,
-            final Rect[] displayAreas,
-            final int startIndex,
-            final int endIndex,
-            final float baselineY) {
+    private void showAxisLabelsBetweenStartIndexAndEndIndex(
+            final int startIndex, final int endIndex) {
         if (endIndex - startIndex <= 1) {
             return;
         }
         if ((endIndex - startIndex) % 2 == 0) {
             int middleIndex = (startIndex + endIndex) / 2;
-            if (hasOverlap(displayAreas, startIndex, middleIndex)
-                    || hasOverlap(displayAreas, middleIndex, endIndex)) {
+            if (hasOverlap(startIndex, middleIndex) || hasOverlap(middleIndex, endIndex)) {
                 return;
             }
-            drawAxisLabelText(canvas, middleIndex, displayAreas[middleIndex], baselineY);
-            mLabelDrawnIndexes.add(middleIndex);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, startIndex, middleIndex, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex, endIndex, baselineY);
+            showAxisLabel(middleIndex);
+            showAxisLabelsBetweenStartIndexAndEndIndex(startIndex, middleIndex);
+            showAxisLabelsBetweenStartIndexAndEndIndex(middleIndex, endIndex);
         } else {
             int middleIndex1 = startIndex + round((endIndex - startIndex) / 3f);
             int middleIndex2 = startIndex + round((endIndex - startIndex) * 2 / 3f);
-            if (hasOverlap(displayAreas, startIndex, middleIndex1)
-                    || hasOverlap(displayAreas, middleIndex1, middleIndex2)
-                    || hasOverlap(displayAreas, middleIndex2, endIndex)) {
+            if (hasOverlap(startIndex, middleIndex1)
+                    || hasOverlap(middleIndex1, middleIndex2)
+                    || hasOverlap(middleIndex2, endIndex)) {
                 return;
             }
-            drawAxisLabelText(canvas, middleIndex1, displayAreas[middleIndex1], baselineY);
-            mLabelDrawnIndexes.add(middleIndex1);
-            drawAxisLabelText(canvas, middleIndex2, displayAreas[middleIndex2], baselineY);
-            mLabelDrawnIndexes.add(middleIndex2);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, startIndex, middleIndex1, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex1, middleIndex2, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex2, endIndex, baselineY);
+            showAxisLabel(middleIndex1);
+            showAxisLabel(middleIndex2);
+            showAxisLabelsBetweenStartIndexAndEndIndex(startIndex, middleIndex1);
+            showAxisLabelsBetweenStartIndexAndEndIndex(middleIndex1, middleIndex2);
+            showAxisLabelsBetweenStartIndexAndEndIndex(middleIndex2, endIndex);
         }
     }
 
-    private boolean hasOverlap(
-            final Rect[] displayAreas, final int leftIndex, final int rightIndex) {
-        return displayAreas[leftIndex].right + mTextPadding * 2.3f > displayAreas[rightIndex].left;
+    private void showAxisLabel(int index) {
+        mAxisLabelShown[index] = true;
+        mLabelDrawnIndexes[index] = true;
+        mLabelDrawnIndexes[getAxisLabelTextIndex(index)] = true;
+    }
+
+    private boolean hasOverlap(final int leftIndex, final int rightIndex) {
+        return mAxisLabelDisplayAreas[leftIndex].right + mTextPadding * 2.3f
+                > mAxisLabelDisplayAreas[rightIndex].left;
     }
 
     private boolean isRTL() {
         return mLayoutDirection == View.LAYOUT_DIRECTION_RTL;
     }
 
+    private int getAxisLabelTextIndex(int index) {
+        // Reverse the sort of axis labels for RTL
+        if (!isRTL()) {
+            return index;
+        }
+        return mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
+                ? mViewModel.size() - index - 1 // for hourly
+                : mViewModel.size() - index - 2; // for daily
+    }
+
+    private void drawAxisLabels(Canvas canvas) {
+        final float baselineY = getHeight() - mTextPadding;
+        for (int index = 0; index < mAxisLabelDisplayAreas.length; index++) {
+            if (mAxisLabelShown[index]) {
+                drawAxisLabelText(canvas, index, mAxisLabelDisplayAreas[index], baselineY);
+            }
+        }
+    }
+
     private void drawAxisLabelText(
             Canvas canvas, int index, final Rect displayArea, final float baselineY) {
         mTextPaint.setColor(mTrapezoidSolidColor);
         mTextPaint.setTextAlign(Paint.Align.CENTER);
-        // Reverse the sort of axis labels for RTL
-        if (isRTL()) {
-            index =
-                    mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
-                            ? mViewModel.size() - index - 1 // for hourly
-                            : mViewModel.size() - index - 2; // for daily
-        }
-        canvas.drawText(mViewModel.getText(index), displayArea.centerX(), baselineY, mTextPaint);
-        mLabelDrawnIndexes.add(index);
+        canvas.drawText(
+                mViewModel.getText(getAxisLabelTextIndex(index)),
+                displayArea.centerX(),
+                baselineY,
+                mTextPaint);
     }
 
-    private void drawTrapezoids(Canvas canvas) {
-        // Ignores invalid trapezoid data.
-        if (mViewModel == null) {
-            return;
-        }
-        final float trapezoidBottom =
-                getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth - mTrapezoidVOffset;
+    private void updateTrapezoidPaths() {
+        final float trapezoidBottom = getTrapezoidBottom();
         final float availableSpace =
                 trapezoidBottom - mDividerWidth * .5f - mIndent.top - mTrapezoidVOffset;
         final float unitHeight = availableSpace / 100f;
-        // Draws all trapezoid shapes into the canvas.
-        final Path trapezoidPath = new Path();
-        Path trapezoidCurvePath = null;
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
+            final Path trapezoidPath = mTrapezoidPaths[index];
+            trapezoidPath.reset();
             // Not draws the trapezoid for corner or not initialization cases.
             if (!isValidToDraw(mViewModel, index)) {
                 continue;
             }
-            // Configures the trapezoid paint color.
-            final int trapezoidColor =
-                    (mViewModel.selectedIndex() == index
-                                    || mViewModel.selectedIndex()
-                                            == BatteryChartViewModel.SELECTED_INDEX_ALL)
-                            ? mTrapezoidSolidColor
-                            : mTrapezoidColor;
-            final boolean isHoverState =
-                    mHoveredIndex == index && isValidToDraw(mViewModel, mHoveredIndex);
-            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
-
             float leftTop =
                     round(
                             trapezoidBottom
@@ -644,7 +685,6 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                 leftTop = rightTop;
                 rightTop = temp;
             }
-            trapezoidPath.reset();
             trapezoidPath.moveTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, rightTop);
@@ -652,8 +692,31 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             // A tricky way to make the trapezoid shape drawing the rounded corner.
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
-            // Draws the trapezoid shape into canvas.
-            canvas.drawPath(trapezoidPath, mTrapezoidPaint);
+        }
+    }
+
+    private void drawTrapezoids(Canvas canvas) {
+        // Ignores invalid trapezoid data.
+        if (mViewModel == null) {
+            return;
+        }
+        // Draws all the precomputed trapezoid shapes into the canvas.
+        for (int index = 0; index < mTrapezoidSlots.length; index++) {
+            // Not draws the trapezoid for corner or not initialization cases.
+            if (!isValidToDraw(mViewModel, index)) {
+                continue;
+            }
+            // Configures the trapezoid paint color.
+            final int trapezoidColor =
+                    (mViewModel.selectedIndex() == index
+                                    || mViewModel.selectedIndex()
+                                            == BatteryChartViewModel.SELECTED_INDEX_ALL)
+                            ? mTrapezoidSolidColor
+                            : mTrapezoidColor;
+            final boolean isHoverState =
+                    mHoveredIndex == index && isValidToDraw(mViewModel, mHoveredIndex);
+            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
+            canvas.drawPath(mTrapezoidPaths[index], mTrapezoidPaint);
         }
     }
 
@@ -672,8 +735,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         mTransomLinePaint.setColor(mTransomLineDefaultColor);
         final int width = getWidth() - abs(mIndent.width());
         final float transomOffset = mTrapezoidHOffset + mDividerWidth * .5f + mTransomPadding;
-        final float trapezoidBottom =
-                getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth - mTrapezoidVOffset;
+        final float trapezoidBottom = getTrapezoidBottom();
         canvas.drawLine(
                 mIndent.left + transomOffset,
                 mTransomTop,
@@ -730,6 +792,16 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         for (int i = 0; i < mViewModel.size(); i++) {
             mAxisLabelsBounds.add(new Rect());
         }
+        final int displayAreaCount =
+                mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
+                        ? mViewModel.size()
+                        : mViewModel.size() - 1;
+        mAxisLabelDisplayAreas = new Rect[displayAreaCount];
+        for (int i = 0; i < displayAreaCount; i++) {
+            mAxisLabelDisplayAreas[i] = new Rect();
+        }
+        mAxisLabelShown = new boolean[displayAreaCount];
+        mLabelDrawnIndexes = new boolean[mViewModel.size()];
     }
 
     private static boolean isTrapezoidValid(
@@ -767,6 +839,8 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     }
 
     private class BatteryChartAccessibilityNodeProvider extends AccessibilityNodeProvider {
+        private final Rect mBounds = new Rect();
+
         @Override
         public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
             if (virtualViewId == AccessibilityNodeProvider.HOST_VIEW_ID) {
@@ -789,12 +863,12 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             childInfo.setText(mViewModel.getFullText(index));
             childInfo.setContentDescription(mViewModel.getFullText(index));
 
-            final Rect bounds = new Rect();
-            getBoundsOnScreen(bounds, true);
-            final int hostLeft = bounds.left;
-            bounds.left = round(hostLeft + mTrapezoidSlots[index].mLeft);
-            bounds.right = round(hostLeft + mTrapezoidSlots[index].mRight);
-            childInfo.setBoundsInScreen(bounds);
+            // The bounds are copied into the node info.
+            getBoundsOnScreen(mBounds, true);
+            final int hostLeft = mBounds.left;
+            mBounds.left = round(hostLeft + mTrapezoidSlots[index].mLeft);
+            mBounds.right = round(hostLeft + mTrapezoidSlots[index].mRight);
+            childInfo.setBoundsInScreen(mBounds);
             return childInfo;
         }
 
@@ -127,6 +127,33 @@ public class BatteryHistEntry {
         mBatteryHealth = deviceBatteryState.getBatteryHealth();
     }
 
+    BatteryHistEntry(BatteryHistoryColumns columns, int row) {
+        mUid = columns.mUids[row];
+        mUserId = columns.mUserIds[row];
+        mPackageName = columns.mPackageNames[row];
+        mTimestamp = columns.mTimestamps[row];
+        mConsumerType = columns.mConsumerTypes[row];
+        mAppLabel = columns.mAppLabels[row];
+        mIsHidden = columns.mIsHidden[row];
+        mBootTimestamp = columns.mBootTimestamps[row];
+        mZoneId = columns.mZoneIds[row];
+        mTotalPower = columns.mTotalPowers[row];
+        mConsumePower = columns.mConsumePowers[row];
+        mForegroundUsageConsumePower = columns.mForegroundUsageConsumePowers[row];
+        mForegroundServiceUsageConsumePower = columns.mForegroundServiceUsageConsumePowers[row];
+        mBackgroundUsageConsumePower = columns.mBackgroundUsageConsumePowers[row];
+        mCachedUsageConsumePower = columns.mCachedUsageConsumePowers[row];
+        mPercentOfTotal = columns.mPercentOfTotals[row];
+        mForegroundUsageTimeInMs = columns.mForegroundUsageTimesInMs[row];
+        mForegroundServiceUsageTimeInMs = columns.mForegroundServiceUsageTimesInMs[row];
+        mBackgroundUsageTimeInMs = columns.mBackgroundUsageTimesInMs[row];
+        mDrainType = columns.mDrainTypes[row];
+        mBatteryLevel = columns.mBatteryLevels[row];
+        mBatteryStatus = columns.mBatteryStatuses[row];
+        mBatteryHealth = columns.mBatteryHealths[row];
+        mIsValidEntry = columns.hasAllColumns();
+    }
+
     private BatteryHistEntry(
             BatteryHistEntry fromEntry,
             long bootTimestamp,
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.database.Cursor;
+import android.util.ArrayMap;
+import android.util.LongSparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.settings.fuelgauge.BatteryUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact struct-of-arrays view of the battery states loaded from a {@link Cursor}.
+ *
+ * <p>The cursor is walked in a single pass with the column indices resolved once, and the
+ * repeated strings (package names, app labels and zone IDs) are shared between rows. The {@link
+ * BatteryHistEntry} objects are only created for the timestamps which are requested.
+ */
+public final class BatteryHistoryColumns {
+    private static final BatteryHistoryColumns EMPTY = new BatteryHistoryColumns(0);
+
+    private final int mSize;
+    private boolean mHasAllColumns = true;
+    private boolean mIsOrderedByTimestamp = true;
+
+    final long[] mTimestamps;
+    final long[] mUids;
+    final long[] mUserIds;
+    final int[] mConsumerTypes;
+    final String[] mPackageNames;
+    final String[] mAppLabels;
+    final String[] mZoneIds;
+    final boolean[] mIsHidden;
+    final long[] mBootTimestamps;
+    final double[] mTotalPowers;
+    final double[] mConsumePowers;
+    final double[] mForegroundUsageConsumePowers;
+    final double[] mForegroundServiceUsageConsumePowers;
+    final double[] mBackgroundUsageConsumePowers;
+    final double[] mCachedUsageConsumePowers;
+    final double[] mPercentOfTotals;
+    final long[] mForegroundUsageTimesInMs;
+    final long[] mForegroundServiceUsageTimesInMs;
+    final long[] mBackgroundUsageTimesInMs;
+    final int[] mDrainTypes;
+    final int[] mBatteryLevels;
+    final int[] mBatteryStatuses;
+    final int[] mBatteryHealths;
+
+    // The [start, end) row range of each timestamp if the rows are ordered by timestamp.
+    private final LongSparseArray<int[]> mRowRanges = new LongSparseArray<>();
+    private final List<Long> mDistinctTimestamps = new ArrayList<>();
+
+    private BatteryHistoryColumns(int size) {
+        mSize = size;
+        mTimestamps = new long[size];
+        mUids = new long[size];
+        mUserIds = new long[size];
+        mConsumerTypes = new int[size];
+        mPackageNames = new String[size];
+        mAppLabels = new String[size];
+        mZoneIds = new String[size];
+        mIsHidden = new boolean[size];
+        mBootTimestamps = new long[size];
+        mTotalPowers = new double[size];
+        mConsumePowers = new double[size];
+        mForegroundUsageConsumePowers = new double[size];
+        mForegroundServiceUsageConsumePowers = new double[size];
+        mBackgroundUsageConsumePowers = new double[size];
+        mCachedUsageConsumePowers = new double[size];
+        mPercentOfTotals = new double[size];
+        mForegroundUsageTimesInMs = new long[size];
+        mForegroundServiceUsageTimesInMs = new long[size];
+        mBackgroundUsageTimesInMs = new long[size];
+        mDrainTypes = new int[size];
+        mBatteryLevels = new int[size];
+        mBatteryStatuses = new int[size];
+        mBatteryHealths = new int[size];
+    }
+
+    /** Returns an empty {@link BatteryHistoryColumns}. */
+    public static BatteryHistoryColumns empty() {
+        return EMPTY;
+    }
+
+    /** Loads all rows of the {@link Cursor} into a new {@link BatteryHistoryColumns}. */
+    public static BatteryHistoryColumns load(@Nullable Cursor cursor) {
+        if (cursor == null || cursor.getCount() <= 0) {
+            return EMPTY;
+        }
+        final BatteryHistoryColumns columns = new BatteryHistoryColumns(cursor.getCount());
+        final int uidIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_UID);
+        final int userIdIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_USER_ID);
+        final int packageNameIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_PACKAGE_NAME);
+        final int timestampIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_TIMESTAMP);
+        final int consumerTypeIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_CONSUMER_TYPE);
+        final int batteryInformationIndex =
+                cursor.getColumnIndex(BatteryHistEntry.KEY_BATTERY_INFORMATION);
+        columns.mHasAllColumns =
+                uidIndex >= 0
+                        && userIdIndex >= 0
+                        && packageNameIndex >= 0
+                        && timestampIndex >= 0
+                        && consumerTypeIndex >= 0;
+        final Map<String, String> stringPool = new ArrayMap<>();
+        final BatteryInformation defaultInstance = BatteryInformation.getDefaultInstance();
+
+        int row = 0;
+        cursor.moveToPosition(-1);
+        while (row < columns.mSize && cursor.moveToNext()) {
+            columns.mUids[row] = uidIndex >= 0 ? cursor.getLong(uidIndex) : 0L;
+            columns.mUserIds[row] = userIdIndex >= 0 ? cursor.getLong(userIdIndex) : 0L;
+            columns.mPackageNames[row] =
+                    packageNameIndex >= 0
+                            ? share(stringPool, cursor.getString(packageNameIndex))
+                            : null;
+            columns.mTimestamps[row] = timestampIndex >= 0 ? cursor.getLong(timestampIndex) : 0L;
+            columns.mConsumerTypes[row] =
+                    consumerTypeIndex >= 0 ? cursor.getInt(consumerTypeIndex) : 0;
+            final BatteryInformation batteryInformation =
+                    batteryInformationIndex >= 0
+                            ? BatteryUtils.parseProtoFromBytes(
+                                    cursor.getBlob(batteryInformationIndex), defaultInstance)
+                            : defaultInstance;
+            columns.setBatteryInformation(row, batteryInformation, stringPool);
+            row++;
+        }
+        columns.buildRowRanges();
+        return columns;
+    }
+
+    /** Returns the number of rows. */
+    public int size() {
+        return mSize;
+    }
+
+    /** Whether there is no row. */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /** Whether all the required columns exist in the loaded {@link Cursor}. */
+    public boolean hasAllColumns() {
+        return mHasAllColumns;
+    }
+
+    /** Returns the timestamp of the row. */
+    public long getTimestamp(int row) {
+        return mTimestamps[row];
+    }
+
+    /** Returns the package name of the row. */
+    public String getPackageName(int row) {
+        return mPackageNames[row];
+    }
+
+    /** Returns the consumed power of the row. */
+    public double getConsumePower(int row) {
+        return mConsumePowers[row];
+    }
+
+    /** Returns the battery level of the row. */
+    public int getBatteryLevel(int row) {
+        return mBatteryLevels[row];
+    }
+
+    /** Returns all the distinct timestamps in ascending order. */
+    public List<Long> getDistinctTimestamps() {
+        return Collections.unmodifiableList(mDistinctTimestamps);
+    }
+
+    /** Creates the {@link BatteryHistEntry} map of the rows recorded at the timestamp. */
+    @NonNull
+    public Map<String, BatteryHistEntry> getEntryMap(long timestamp) {
+        final Map<String, BatteryHistEntry> entryMap = new ArrayMap<>();
+        if (mIsOrderedByTimestamp) {
+            final int[] range = mRowRanges.get(timestamp);
+            if (range != null) {
+                for (int row = range[0]; row < range[1]; row++) {
+                    addEntry(entryMap, row);
+                }
+            }
+            return entryMap;
+        }
+        for (int row = 0; row < mSize; row++) {
+            if (mTimestamps[row] == timestamp) {
+                addEntry(entryMap, row);
+            }
+        }
+        return entryMap;
+    }
+
+    /** Creates the full battery history map keyed by timestamp and {@link BatteryHistEntry} key. */
+    @NonNull
+    public Map<Long, Map<String, BatteryHistEntry>> toHistoryMap() {
+        final Map<Long, Map<String, BatteryHistEntry>> resultMap = new ArrayMap<>();
+        for (Long timestamp : mDistinctTimestamps) {
+            resultMap.put(timestamp, getEntryMap(timestamp));
+        }
+        return resultMap;
+    }
+
+    private void addEntry(Map<String, BatteryHistEntry> entryMap, int row) {
+        final BatteryHistEntry entry = new BatteryHistEntry(this, row);
+        entryMap.put(entry.getKey(), entry);
+    }
+
+    private void setBatteryInformation(
+            int row, BatteryInformation batteryInformation, Map<String, String> stringPool) {
+        mAppLabels[row] = share(stringPool, batteryInformation.getAppLabel());
+        mZoneIds[row] = share(stringPool, batteryInformation.getZoneId());
+        mIsHidden[row] = batteryInformation.getIsHidden();
+        mBootTimestamps[row] = batteryInformation.getBootTimestamp();
+        mTotalPowers[row] = batteryInformation.getTotalPower();
+        mConsumePowers[row] = batteryInformation.getConsumePower();
+        mForegroundUsageConsumePowers[row] = batteryInformation.getForegroundUsageConsumePower();
+        mForegroundServiceUsageConsumePowers[row] =
+                batteryInformation.getForegroundServiceUsageConsumePower();
+        mBackgroundUsageConsumePowers[row] = batteryInformation.getBackgroundUsageConsumePower();
+        mCachedUsageConsumePowers[row] = batteryInformation.getCachedUsageConsumePower();
+        mPercentOfTotals[row] = batteryInformation.getPercentOfTotal();
+        mForegroundUsageTimesInMs[row] = batteryInformation.getForegroundUsageTimeInMs();
+        mForegroundServiceUsageTimesInMs[row] =
+                batteryInformation.getForegroundServiceUsageTimeInMs();
+        mBackgroundUsageTimesInMs[row] = batteryInformation.getBackgroundUsageTimeInMs();
+        mDrainTypes[row] = batteryInformation.getDrainType();
+        final DeviceBatteryState deviceBatteryState = batteryInformation.getDeviceBatteryState();
+        mBatteryLevels[row] = deviceBatteryState.getBatteryLevel();
+        mBatteryStatuses[row] = deviceBatteryState.getBatteryStatus();
+        mBatteryHealths[row] = deviceBatteryState.getBatteryHealth();
+    }
+
+    private void buildRowRanges() {
+        int start = 0;
+        for (int row = 1; row <= mSize; row++) {
+            if (row < mSize && mTimestamps[row] == mTimestamps[start]) {
+                continue;
+            }
+            final long timestamp = mTimestamps[start];
+            if (mRowRanges.get(timestamp) != null
+                    || (row < mSize && mTimestamps[row] < timestamp)) {
+                // The rows are not ordered by timestamp, falls back to scan all rows.
+                mIsOrderedByTimestamp = false;
+            }
+            if (mRowRanges.get(timestamp) == null) {
+                mRowRanges.put(timestamp, new int[] {start, row});
+                mDistinctTimestamps.add(timestamp);
+            }
+            start = row;
+        }
+        if (!mIsOrderedByTimestamp) {
+            mRowRanges.clear();
+            Collections.sort(mDistinctTimestamps);
+        }
+    }
+
+    private static String share(Map<String, String> stringPool, String value) {
+        if (value == null) {
+            return null;
+        }
+        final String sharedValue = stringPool.putIfAbsent(value, value);
+        return sharedValue != null ? sharedValue : value;
+    }
+}
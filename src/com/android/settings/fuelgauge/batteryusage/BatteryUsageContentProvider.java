@@ -21,6 +21,12 @@ import android.content.ContentValues;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Binder;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -39,11 +45,15 @@ import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotDao;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
 import com.android.settingslib.fuelgauge.BatteryUtils;
 
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
 /** {@link ContentProvider} class to fetch battery usage data. */
 public class BatteryUsageContentProvider extends ContentProvider {
@@ -62,6 +72,8 @@ public class BatteryUsageContentProvider extends ContentProvider {
     private static final int BATTERY_STATE_LATEST_TIMESTAMP_CODE = 6;
     private static final int BATTERY_USAGE_SLOT_CODE = 7;
 
+    private static final String BATTERY_DATA_PERMISSION = "com.android.settings.BATTERY_DATA";
+
     private static final List<Integer> ALL_BATTERY_EVENT_TYPES =
             Arrays.stream(BatteryEventType.values()).map(type -> type.getNumber()).toList();
     private static final UriMatcher sUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
@@ -188,6 +200,82 @@ public class BatteryUsageContentProvider extends ContentProvider {
         return uri;
     }
 
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        if (!DatabaseUtils.METHOD_BULK_INSERT_PROTOS.equals(method)
+                || arg == null
+                || extras == null) {
+            return super.call(method, arg, extras);
+        }
+        // Unlike query() and insert(), call() is not guarded by the provider permission.
+        if (!UserHandle.isSameApp(Binder.getCallingUid(), Process.myUid())) {
+            getContext().enforceCallingPermission(BATTERY_DATA_PERMISSION, method);
+        }
+        final Uri uri = Uri.parse(arg);
+        final long timestamp = mClock.millis();
+        final int count;
+        try {
+            count = bulkInsertProtos(uri, extras.getByteArray(DatabaseUtils.EXTRA_PROTOS));
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e;
+            }
+            Log.e(TAG, "call() " + method + " into:" + uri + " error:", e);
+            return null;
+        }
+        Log.d(
+                TAG,
+                String.format(
+                        "bulkInsertProtos() %d rows into %s in %d/ms",
+                        count, uri.getLastPathSegment(), mClock.millis() - timestamp));
+        final Bundle result = new Bundle();
+        result.putInt(DatabaseUtils.EXTRA_COUNT, count);
+        return result;
+    }
+
+    /**
+     * Streams the rows of the app usage event, battery event and battery usage slot tables as
+     * length-prefixed protos, for the same URIs and query parameters as {@link #query}.
+     */
+    @Nullable
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode)
+            throws FileNotFoundException {
+        if (!"r".equals(mode)) {
+            throw new FileNotFoundException("unsupported mode: " + mode);
+        }
+        final Function<Cursor, byte[]> converter;
+        switch (sUriMatcher.match(uri)) {
+            case APP_USAGE_EVENT_CODE:
+                converter = cursor -> ConvertUtils.convertToAppUsageEvent(cursor).toByteArray();
+                break;
+            case BATTERY_EVENT_CODE:
+                converter = cursor -> ConvertUtils.convertToBatteryEvent(cursor).toByteArray();
+                break;
+            case BATTERY_USAGE_SLOT_CODE:
+                // The column already holds the serialized proto.
+                converter =
+                        cursor ->
+                                cursor.getBlob(
+                                        cursor.getColumnIndexOrThrow(
+                                                BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT));
+                break;
+            default:
+                throw new FileNotFoundException("unsupported URI: " + uri);
+        }
+        final ParcelFileDescriptor[] pipe;
+        try {
+            // A reliable pipe lets the reader tell a failed write from the end of the rows.
+            pipe = ParcelFileDescriptor.createReliablePipe();
+        } catch (IOException e) {
+            throw new FileNotFoundException("fail to create pipe: " + e);
+        }
+        final Cursor cursor = query(uri, null, null, null, null);
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> writeRows(pipe[1], cursor, converter));
+        return pipe[0];
+    }
+
     @Override
     public int delete(@NonNull Uri uri, @Nullable String s, @Nullable String[] strings) {
         throw new UnsupportedOperationException("unsupported!");
@@ -202,6 +290,71 @@ public class BatteryUsageContentProvider extends ContentProvider {
         throw new UnsupportedOperationException("unsupported!");
     }
 
+    private int bulkInsertProtos(Uri uri, byte[] protos) throws IOException {
+        switch (sUriMatcher.match(uri)) {
+            case APP_USAGE_EVENT_CODE:
+                final List<AppUsageEventEntity> appUsageEvents = new ArrayList<>();
+                for (AppUsageEvent event :
+                        ProtoStreamUtils.parseAll(protos, AppUsageEvent.parser())) {
+                    appUsageEvents.add(
+                            AppUsageEventEntity.create(
+                                    ConvertUtils.convertAppUsageEventToContentValues(event)));
+                }
+                mAppUsageEventDao.insertAll(appUsageEvents);
+                return appUsageEvents.size();
+            case BATTERY_EVENT_CODE:
+                final List<BatteryEventEntity> batteryEvents = new ArrayList<>();
+                for (BatteryEvent event :
+                        ProtoStreamUtils.parseAll(protos, BatteryEvent.parser())) {
+                    batteryEvents.add(
+                            BatteryEventEntity.create(
+                                    ConvertUtils.convertBatteryEventToContentValues(event)));
+                }
+                mBatteryEventDao.insertAll(batteryEvents);
+                return batteryEvents.size();
+            case BATTERY_USAGE_SLOT_CODE:
+                final List<BatteryUsageSlotEntity> batteryUsageSlots = new ArrayList<>();
+                for (BatteryUsageSlot slot :
+                        ProtoStreamUtils.parseAll(protos, BatteryUsageSlot.parser())) {
+                    batteryUsageSlots.add(
+                            BatteryUsageSlotEntity.create(
+                                    ConvertUtils.convertBatteryUsageSlotToContentValues(slot)));
+                }
+                mBatteryUsageSlotDao.insertAll(batteryUsageSlots);
+                return batteryUsageSlots.size();
+            default:
+                throw new IllegalArgumentException("unsupported URI: " + uri);
+        }
+    }
+
+    @VisibleForTesting
+    static void writeRows(
+            ParcelFileDescriptor output, Cursor cursor, Function<Cursor, byte[]> converter) {
+        String error = null;
+        if (cursor != null) {
+            try (cursor) {
+                final int count =
+                        ProtoStreamUtils.writeAll(
+                                new FileOutputStream(output.getFileDescriptor()),
+                                cursor,
+                                converter);
+                Log.d(TAG, "writeRows() " + count + " rows");
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "writeRows() error:", e);
+                error = e.toString();
+            }
+        }
+        try {
+            if (error == null) {
+                output.close();
+            } else {
+                output.closeWithError(error);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "writeRows() fail to close pipe:", e);
+        }
+    }
+
     private Cursor getLastFullChargeTimestamp(Uri uri) {
         final long timestamp = mClock.millis();
         Cursor cursor = null;
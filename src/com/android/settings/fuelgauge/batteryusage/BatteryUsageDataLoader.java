@@ -122,6 +122,10 @@ public final class BatteryUsageDataLoader {
                         handler,
                         /* isFromPeriodJob= */ true,
                         batteryDiffDataMap -> {
+                            if (batteryDiffDataMap == null) {
+                                Log.w(TAG, "preprocessBatteryUsageSlots() failed to process");
+                                return;
+                            }
                             DatabaseUtils.sendBatteryUsageSlotData(
                                     context,
                                     ConvertUtils.convertToBatteryUsageSlotList(batteryDiffDataMap));
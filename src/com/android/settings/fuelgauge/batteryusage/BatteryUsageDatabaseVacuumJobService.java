@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.R;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/** A JobService to compact the battery usage database while the device is idle. */
+public class BatteryUsageDatabaseVacuumJobService extends JobService {
+    private static final String TAG = "BatteryUsageVacuumJob";
+
+    @VisibleForTesting static final long VACUUM_FREQUENCY_MS = TimeUnit.DAYS.toMillis(1);
+
+    /** Schedules the periodic vacuum job if it is not scheduled yet. */
+    public static void scheduleVacuum(Context context) {
+        final JobScheduler jobScheduler = context.getSystemService(JobScheduler.class);
+        if (jobScheduler == null) {
+            Log.w(TAG, "cannot schedule vacuum job without JobScheduler");
+            return;
+        }
+
+        final ComponentName component =
+                new ComponentName(context, BatteryUsageDatabaseVacuumJobService.class);
+        final JobInfo.Builder jobBuilder =
+                new JobInfo.Builder(R.integer.job_battery_usage_database_vacuum, component)
+                        .setPeriodic(VACUUM_FREQUENCY_MS)
+                        .setRequiresDeviceIdle(true)
+                        .setRequiresCharging(true)
+                        .setPersisted(true);
+        final JobInfo pending =
+                jobScheduler.getPendingJob(R.integer.job_battery_usage_database_vacuum);
+
+        // Don't schedule it if it already exists, to keep the period across reboots.
+        if (pending == null
+                && jobScheduler.schedule(jobBuilder.build()) != JobScheduler.RESULT_SUCCESS) {
+            Log.i(TAG, "Battery usage database vacuum job schedule failed.");
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        final Context context = getApplicationContext();
+        ThreadUtils.postOnBackgroundThread(
+                () -> {
+                    try {
+                        final long startTime = System.currentTimeMillis();
+                        BatteryStateDatabase.getInstance(context).compact();
+                        Log.d(TAG, String.format("compact() in %d/ms",
+                                System.currentTimeMillis() - startTime));
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "compact() failed", e);
+                    }
+                    jobFinished(params, /* wantsReschedule= */ false);
+                });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return false;
+    }
+}
@@ -105,5 +105,6 @@ public final class BootBroadcastReceiver extends BroadcastReceiver {
 
     private static void refreshJobs(Context context) {
         PeriodicJobManager.getInstance(context).refreshJob(/* fromBoot= */ true);
+        BatteryUsageDatabaseVacuumJobService.scheduleVacuum(context);
     }
 }
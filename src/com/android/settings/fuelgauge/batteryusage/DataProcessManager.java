@@ -18,13 +18,13 @@ package com.android.settings.fuelgauge.batteryusage;
 
 import android.app.usage.UsageEvents;
 import android.content.Context;
-import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.Pair;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -32,11 +32,23 @@ import androidx.annotation.Nullable;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.settings.Utils;
 
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Manages the async tasks to process battery and app usage data.
@@ -68,14 +80,34 @@ import java.util.Set;
  *
  * If there is no battery level data, the 4th async task will be started only and the usage map
  * callback function will be applied directly to show the app list on the UI.
+ *
+ * <p>The hourly slots which are already materialized as {@link BatteryUsageSlot} in the database
+ * are reused directly, only the remaining slots are computed from the battery history data. For
+ * the period job, only the newly computed slots are returned to be materialized.
+ *
+ * <p>The tasks run as the stages of a pipeline on a shared bounded executor, the independent
+ * loading stages run in parallel and the dependent stages only start after their inputs are ready.
+ * The requests for the same time window share one in-flight pipeline, and the pipeline is
+ * cancelled by {@link #cancel} when no caller is waiting for it. The stage timings of the recent
+ * pipelines are recorded in the dump output.
  */
 public class DataProcessManager {
     private static final String TAG = "DataProcessManager";
     private static final List<BatteryEventType> POWER_CONNECTION_EVENTS =
             List.of(BatteryEventType.POWER_CONNECTED, BatteryEventType.POWER_DISCONNECTED);
+    private static final int PIPELINE_THREAD_COUNT = 3;
+    private static final long PIPELINE_THREAD_KEEP_ALIVE_SECONDS = 10L;
+    private static final int MAX_PIPELINE_RECORDS = 10;
+    private static final Executor PIPELINE_EXECUTOR = createPipelineExecutor();
+
+    // The in-flight pipelines keyed by the request key of the time window.
+    private static final Map<String, DataProcessManager> sInFlightManagers = new ArrayMap<>();
+    // The stage timings of the recent pipelines for dumping.
+    private static final Deque<String> sPipelineRecords = new ArrayDeque<>();
 
     // For testing only.
     @VisibleForTesting static Map<Long, Map<String, BatteryHistEntry>> sFakeBatteryHistoryMap;
+    @VisibleForTesting static Executor sTestExecutor;
 
     // Raw start timestamp with round to the nearest hour.
     private final long mRawStartTimestamp;
@@ -89,12 +121,21 @@ public class DataProcessManager {
     private final List<BatteryUsageSlot> mBatteryUsageSlotList = new ArrayList<>();
     private final List<BatteryLevelData.PeriodBatteryLevelData> mHourlyBatteryLevelsPerDay;
     private final Map<Long, Map<String, BatteryHistEntry>> mBatteryHistoryMap;
-
-    private boolean mIsCurrentBatteryHistoryLoaded = false;
-    private boolean mIsCurrentAppUsageLoaded = false;
-    private boolean mIsDatabaseAppUsageLoaded = false;
-    private boolean mIsBatteryEventLoaded = false;
-    private boolean mIsBatteryUsageSlotLoaded = false;
+    private final List<Pair<Handler, OnBatteryDiffDataMapLoadedListener>> mCallbacks =
+            new ArrayList<>();
+    private final Map<String, Long> mStageTimings =
+            Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private volatile boolean mIsCurrentBatteryHistoryLoaded = false;
+    private volatile boolean mIsCurrentAppUsageLoaded = false;
+    private volatile boolean mIsDatabaseAppUsageLoaded = false;
+    private volatile boolean mIsBatteryEventLoaded = false;
+    private volatile boolean mIsCancelled = false;
+    private boolean mIsFromPeriodJob = false;
+    private boolean mIsFinished = false;
+    private long mPipelineStartTime;
+    private String mRequestKey;
+    private CompletableFuture<Map<Long, BatteryDiffData>> mResultFuture;
     // Used to identify whether screen-on time data should be shown in the UI.
     private boolean mShowScreenOnTime = true;
     private Set<String> mSystemAppsPackageNames = null;
@@ -115,8 +156,11 @@ public class DataProcessManager {
      * complete and generate the final callback.
      */
     public interface OnBatteryDiffDataMapLoadedListener {
-        /** The callback function when all the data is processed. */
-        void onBatteryDiffDataMapLoaded(Map<Long, BatteryDiffData> batteryDiffDataMap);
+        /**
+         * The callback function when all the data is processed. The map is {@code null} if the
+         * processing failed.
+         */
+        void onBatteryDiffDataMapLoaded(@Nullable Map<Long, BatteryDiffData> batteryDiffDataMap);
     }
 
     /** Constructor when there exists battery level data. */
@@ -163,28 +207,60 @@ public class DataProcessManager {
 
     /** Starts the async tasks to load battery history data and app usage data. */
     public void start(boolean isFromPeriodJob) {
+        mIsFromPeriodJob = isFromPeriodJob;
+        mRequestKey = getRequestKey();
+        synchronized (sInFlightManagers) {
+            // Joins the in-flight pipeline of the same time window instead of starting a new one.
+            final DataProcessManager inFlightManager = sInFlightManagers.get(mRequestKey);
+            if (inFlightManager != null
+                    && inFlightManager.addCallback(mHandler, mCallbackFunction)) {
+                Log.d(TAG, "coalesce into the in-flight pipeline: " + mRequestKey);
+                return;
+            }
+            sInFlightManagers.put(mRequestKey, this);
+        }
+        addCallback(mHandler, mCallbackFunction);
+        mPipelineStartTime = System.currentTimeMillis();
         // If we have battery level data, load the battery history map and app usage simultaneously.
         if (mHourlyBatteryLevelsPerDay != null) {
-            if (isFromPeriodJob) {
-                mIsCurrentBatteryHistoryLoaded = true;
-                mIsCurrentAppUsageLoaded = true;
-                mIsBatteryUsageSlotLoaded = true;
-            } else {
-                // Loads the latest battery history data from the service.
-                loadCurrentBatteryHistoryMap();
-                // Loads the latest app usage list from the service.
-                loadCurrentAppUsageList();
-                // Loads existing battery usage slots from database.
-                loadBatteryUsageSlotList();
-            }
-            // Loads app usage list from database.
-            loadDatabaseAppUsageList();
-            // Loads the battery event list from database.
-            loadPowerConnectionBatteryEventList();
+            startPipeline();
         } else {
             // If there is no battery level data, only load the battery history data from service
             // and show it as the app list directly.
-            loadAndApplyBatteryMapFromServiceOnly();
+            mResultFuture =
+                    runStage(
+                            "loadAndApplyBatteryMapFromServiceOnly",
+                            this::loadBatteryMapFromServiceOnly);
+        }
+        mResultFuture.whenComplete(this::onPipelineCompleted);
+    }
+
+    /**
+     * Removes the callback function from all the in-flight pipelines, the pipeline is cancelled if
+     * there is no other callback function waiting for it.
+     */
+    public static void cancel(@Nullable OnBatteryDiffDataMapLoadedListener callbackFunction) {
+        if (callbackFunction == null) {
+            return;
+        }
+        final List<DataProcessManager> inFlightManagers;
+        synchronized (sInFlightManagers) {
+            inFlightManagers = new ArrayList<>(sInFlightManagers.values());
+        }
+        for (DataProcessManager inFlightManager : inFlightManagers) {
+            inFlightManager.removeCallback(callbackFunction);
+        }
+    }
+
+    /** Dumps the stage timings of the recent pipelines. */
+    public static void dump(PrintWriter writer) {
+        writer.println("\nBattery DataProcessManager pipelines:");
+        synchronized (sPipelineRecords) {
+            if (sPipelineRecords.isEmpty()) {
+                writer.println("\tnothing to dump");
+                return;
+            }
+            sPipelineRecords.forEach(record -> writer.println("\t" + record));
         }
     }
 
@@ -224,255 +300,199 @@ public class DataProcessManager {
         return mShowScreenOnTime;
     }
 
-    private void loadCurrentBatteryHistoryMap() {
-        new AsyncTask<Void, Void, Map<String, BatteryHistEntry>>() {
-            @Override
-            protected Map<String, BatteryHistEntry> doInBackground(Void... voids) {
-                final long startTime = System.currentTimeMillis();
-                // Loads the current battery usage data from the battery stats service.
-                final Map<String, BatteryHistEntry> currentBatteryHistoryMap =
-                        DataProcessor.getCurrentBatteryHistoryMapFromStatsService(mContext);
-                Log.d(
-                        TAG,
-                        String.format(
-                                "execute loadCurrentBatteryHistoryMap size=%d in %d/ms",
-                                currentBatteryHistoryMap.size(),
-                                (System.currentTimeMillis() - startTime)));
-                return currentBatteryHistoryMap;
-            }
-
-            @Override
-            protected void onPostExecute(
-                    final Map<String, BatteryHistEntry> currentBatteryHistoryMap) {
-                if (mBatteryHistoryMap != null) {
-                    // Replaces the placeholder in mBatteryHistoryMap.
-                    for (Map.Entry<Long, Map<String, BatteryHistEntry>> mapEntry :
-                            mBatteryHistoryMap.entrySet()) {
-                        if (mapEntry.getValue()
-                                .containsKey(
-                                        DataProcessor.CURRENT_TIME_BATTERY_HISTORY_PLACEHOLDER)) {
-                            mapEntry.setValue(currentBatteryHistoryMap);
-                        }
-                    }
-                }
-                mIsCurrentBatteryHistoryLoaded = true;
-                tryToGenerateFinalDataAndApplyCallback();
-            }
-        }.execute();
+    @VisibleForTesting
+    boolean isCancelled() {
+        return mIsCancelled;
     }
 
-    private void loadCurrentAppUsageList() {
-        new AsyncTask<Void, Void, List<AppUsageEvent>>() {
-            @Override
-            protected List<AppUsageEvent> doInBackground(Void... voids) {
-                if (!shouldLoadAppUsageData()) {
-                    Log.d(TAG, "not loadCurrentAppUsageList");
-                    return null;
-                }
-                final long startTime = System.currentTimeMillis();
-                // Loads the current battery usage data from the battery stats service.
-                final int currentUserId = getCurrentUserId();
-                final int workProfileUserId = getWorkProfileUserId();
-                final UsageEvents usageEventsForCurrentUser =
-                        DataProcessor.getAppUsageEventsForUser(
-                                mContext, currentUserId, mRawStartTimestamp);
-                // If fail to load usage events for current user, return null directly and screen-on
-                // time will not be shown in the UI.
-                if (usageEventsForCurrentUser == null) {
-                    Log.w(TAG, "usageEventsForCurrentUser is null");
-                    return null;
-                }
-                UsageEvents usageEventsForWorkProfile = null;
-                if (workProfileUserId != Integer.MIN_VALUE) {
-                    usageEventsForWorkProfile =
-                            DataProcessor.getAppUsageEventsForUser(
-                                    mContext, workProfileUserId, mRawStartTimestamp);
-                } else {
-                    Log.d(TAG, "there is no work profile");
-                }
-
-                final Map<Long, UsageEvents> usageEventsMap = new ArrayMap<>();
-                usageEventsMap.put(Long.valueOf(currentUserId), usageEventsForCurrentUser);
-                if (usageEventsForWorkProfile != null) {
-                    Log.d(TAG, "usageEventsForWorkProfile is null");
-                    usageEventsMap.put(Long.valueOf(workProfileUserId), usageEventsForWorkProfile);
-                }
+    @VisibleForTesting
+    Map<String, Long> getStageTimings() {
+        return mStageTimings;
+    }
 
-                final List<AppUsageEvent> appUsageEventList =
-                        DataProcessor.generateAppUsageEventListFromUsageEvents(
-                                mContext, usageEventsMap);
-                Log.d(
-                        TAG,
-                        String.format(
-                                "execute loadCurrentAppUsageList size=%d in %d/ms",
-                                appUsageEventList.size(),
-                                (System.currentTimeMillis() - startTime)));
-                return appUsageEventList;
-            }
+    private void startPipeline() {
+        // The battery history and app usage data from services are not required by period job.
+        final CompletableFuture<Map<String, BatteryHistEntry>> currentBatteryHistoryFuture;
+        final CompletableFuture<List<AppUsageEvent>> currentAppUsageFuture;
+        if (mIsFromPeriodJob) {
+            mIsCurrentBatteryHistoryLoaded = true;
+            mIsCurrentAppUsageLoaded = true;
+            currentBatteryHistoryFuture = CompletableFuture.completedFuture(null);
+            currentAppUsageFuture = CompletableFuture.completedFuture(null);
+        } else {
+            // Loads the latest battery history data from the service.
+            currentBatteryHistoryFuture =
+                    runStage("loadCurrentBatteryHistoryMap", this::loadCurrentBatteryHistoryMap);
+            // Loads the latest app usage list from the service.
+            currentAppUsageFuture =
+                    runStage("loadCurrentAppUsageList", this::loadCurrentAppUsageList);
+        }
+        // Loads existing battery usage slots from database, only the slots which are not
+        // materialized yet will be computed from the battery history data.
+        final CompletableFuture<List<BatteryUsageSlot>> batteryUsageSlotFuture =
+                runStage("loadBatteryUsageSlotList", this::loadBatteryUsageSlotList);
+        // Loads app usage list from database.
+        final CompletableFuture<List<AppUsageEvent>> databaseAppUsageFuture =
+                runStage("loadDatabaseAppUsageList", this::loadDatabaseAppUsageList);
+        // Loads the battery event list from database.
+        final CompletableFuture<List<BatteryEvent>> batteryEventFuture =
+                runStage(
+                        "loadPowerConnectionBatteryEventList",
+                        this::loadPowerConnectionBatteryEventList);
+
+        // Generates the intermediate app usage result after all app usage data is loaded.
+        final CompletableFuture<Void> appUsageFuture =
+                CompletableFuture.allOf(
+                                currentAppUsageFuture, databaseAppUsageFuture, batteryEventFuture)
+                        .thenApplyAsync(
+                                unused ->
+                                        runStageNow(
+                                                "processAppUsageData",
+                                                () ->
+                                                        processAppUsageData(
+                                                                currentAppUsageFuture.join(),
+                                                                databaseAppUsageFuture.join(),
+                                                                batteryEventFuture.join())),
+                                getExecutor());
+        // Combines all the data to generate the final data used for UI rendering.
+        mResultFuture =
+                CompletableFuture.allOf(
+                                currentBatteryHistoryFuture, appUsageFuture, batteryUsageSlotFuture)
+                        .thenApplyAsync(
+                                unused ->
+                                        runStageNow(
+                                                "generateFinalData",
+                                                () ->
+                                                        generateFinalData(
+                                                                currentBatteryHistoryFuture.join(),
+                                                                batteryUsageSlotFuture.join())),
+                                getExecutor());
+    }
 
-            @Override
-            protected void onPostExecute(final List<AppUsageEvent> currentAppUsageList) {
-                if (currentAppUsageList == null || currentAppUsageList.isEmpty()) {
-                    Log.d(TAG, "currentAppUsageList is null or empty");
-                } else {
-                    mAppUsageEventList.addAll(currentAppUsageList);
-                }
-                mIsCurrentAppUsageLoaded = true;
-                tryToProcessAppUsageData();
-            }
-        }.execute();
+    private Map<String, BatteryHistEntry> loadCurrentBatteryHistoryMap() {
+        // Loads the current battery usage data from the battery stats service.
+        final Map<String, BatteryHistEntry> currentBatteryHistoryMap =
+                DataProcessor.getCurrentBatteryHistoryMapFromStatsService(mContext);
+        Log.d(
+                TAG,
+                String.format(
+                        "execute loadCurrentBatteryHistoryMap size=%d",
+                        currentBatteryHistoryMap.size()));
+        mIsCurrentBatteryHistoryLoaded = true;
+        return currentBatteryHistoryMap;
     }
 
-    private void loadDatabaseAppUsageList() {
-        new AsyncTask<Void, Void, List<AppUsageEvent>>() {
-            @Override
-            protected List<AppUsageEvent> doInBackground(Void... voids) {
-                if (!shouldLoadAppUsageData()) {
-                    Log.d(TAG, "not loadDatabaseAppUsageList");
-                    return null;
-                }
-                final long startTime = System.currentTimeMillis();
-                // Loads the app usage data from the database.
-                final List<AppUsageEvent> appUsageEventList =
-                        DatabaseUtils.getAppUsageEventForUsers(
-                                mContext,
-                                Calendar.getInstance(),
-                                getCurrentUserIds(),
-                                mRawStartTimestamp);
-                Log.d(
-                        TAG,
-                        String.format(
-                                "execute loadDatabaseAppUsageList size=%d in %d/ms",
-                                appUsageEventList.size(),
-                                (System.currentTimeMillis() - startTime)));
-                return appUsageEventList;
-            }
+    private List<AppUsageEvent> loadCurrentAppUsageList() {
+        mIsCurrentAppUsageLoaded = true;
+        if (!shouldLoadAppUsageData()) {
+            Log.d(TAG, "not loadCurrentAppUsageList");
+            return null;
+        }
+        // Loads the current battery usage data from the battery stats service.
+        final int currentUserId = getCurrentUserId();
+        final int workProfileUserId = getWorkProfileUserId();
+        final UsageEvents usageEventsForCurrentUser =
+                DataProcessor.getAppUsageEventsForUser(mContext, currentUserId, mRawStartTimestamp);
+        // If fail to load usage events for current user, return null directly and screen-on time
+        // will not be shown in the UI.
+        if (usageEventsForCurrentUser == null) {
+            Log.w(TAG, "usageEventsForCurrentUser is null");
+            return null;
+        }
+        UsageEvents usageEventsForWorkProfile = null;
+        if (workProfileUserId != Integer.MIN_VALUE) {
+            usageEventsForWorkProfile =
+                    DataProcessor.getAppUsageEventsForUser(
+                            mContext, workProfileUserId, mRawStartTimestamp);
+        } else {
+            Log.d(TAG, "there is no work profile");
+        }
 
-            @Override
-            protected void onPostExecute(final List<AppUsageEvent> databaseAppUsageList) {
-                if (databaseAppUsageList == null || databaseAppUsageList.isEmpty()) {
-                    Log.d(TAG, "databaseAppUsageList is null or empty");
-                } else {
-                    mAppUsageEventList.addAll(databaseAppUsageList);
-                }
-                mIsDatabaseAppUsageLoaded = true;
-                tryToProcessAppUsageData();
-            }
-        }.execute();
-    }
-
-    private void loadPowerConnectionBatteryEventList() {
-        new AsyncTask<Void, Void, List<BatteryEvent>>() {
-            @Override
-            protected List<BatteryEvent> doInBackground(Void... voids) {
-                final long startTime = System.currentTimeMillis();
-                // Loads the battery event data from the database.
-                final List<BatteryEvent> batteryEventList =
-                        DatabaseUtils.getBatteryEvents(
-                                mContext,
-                                Calendar.getInstance(),
-                                mRawStartTimestamp,
-                                POWER_CONNECTION_EVENTS);
-                Log.d(
-                        TAG,
-                        String.format(
-                                "execute loadPowerConnectionBatteryEventList size=%d in %d/ms",
-                                batteryEventList.size(), (System.currentTimeMillis() - startTime)));
-                return batteryEventList;
-            }
+        final Map<Long, UsageEvents> usageEventsMap = new ArrayMap<>();
+        usageEventsMap.put(Long.valueOf(currentUserId), usageEventsForCurrentUser);
+        if (usageEventsForWorkProfile != null) {
+            Log.d(TAG, "usageEventsForWorkProfile is null");
+            usageEventsMap.put(Long.valueOf(workProfileUserId), usageEventsForWorkProfile);
+        }
 
-            @Override
-            protected void onPostExecute(final List<BatteryEvent> batteryEventList) {
-                if (batteryEventList == null || batteryEventList.isEmpty()) {
-                    Log.d(TAG, "batteryEventList is null or empty");
-                } else {
-                    mBatteryEventList.clear();
-                    mBatteryEventList.addAll(batteryEventList);
-                }
-                mIsBatteryEventLoaded = true;
-                tryToProcessAppUsageData();
-            }
-        }.execute();
-    }
-
-    private void loadBatteryUsageSlotList() {
-        new AsyncTask<Void, Void, List<BatteryUsageSlot>>() {
-            @Override
-            protected List<BatteryUsageSlot> doInBackground(Void... voids) {
-                final long startTime = System.currentTimeMillis();
-                // Loads the battery usage slot data from the database.
-                final List<BatteryUsageSlot> batteryUsageSlotList =
-                        DatabaseUtils.getBatteryUsageSlots(
-                                mContext, Calendar.getInstance(), mLastFullChargeTimestamp);
-                Log.d(
-                        TAG,
-                        String.format(
-                                "execute loadBatteryUsageSlotList size=%d in %d/ms",
-                                batteryUsageSlotList.size(),
-                                (System.currentTimeMillis() - startTime)));
-                return batteryUsageSlotList;
-            }
+        final List<AppUsageEvent> appUsageEventList =
+                DataProcessor.generateAppUsageEventListFromUsageEvents(mContext, usageEventsMap);
+        Log.d(TAG, "execute loadCurrentAppUsageList size=" + appUsageEventList.size());
+        return appUsageEventList;
+    }
 
-            @Override
-            protected void onPostExecute(final List<BatteryUsageSlot> batteryUsageSlotList) {
-                if (batteryUsageSlotList == null || batteryUsageSlotList.isEmpty()) {
-                    Log.d(TAG, "batteryUsageSlotList is null or empty");
-                } else {
-                    mBatteryUsageSlotList.clear();
-                    mBatteryUsageSlotList.addAll(batteryUsageSlotList);
-                }
-                mIsBatteryUsageSlotLoaded = true;
-                tryToGenerateFinalDataAndApplyCallback();
-            }
-        }.execute();
-    }
-
-    private void loadAndApplyBatteryMapFromServiceOnly() {
-        new AsyncTask<Void, Void, Map<Long, BatteryDiffData>>() {
-            @Override
-            protected Map<Long, BatteryDiffData> doInBackground(Void... voids) {
-                final long startTime = System.currentTimeMillis();
-                final Map<Long, BatteryDiffData> batteryDiffDataMap =
-                        DataProcessor.getBatteryDiffDataMapFromStatsService(
-                                mContext,
-                                mRawStartTimestamp,
-                                getSystemAppsPackageNames(),
-                                getSystemAppsUids());
-                Log.d(
-                        TAG,
-                        String.format(
-                                "execute loadAndApplyBatteryMapFromServiceOnly size=%d in %d/ms",
-                                batteryDiffDataMap.size(),
-                                (System.currentTimeMillis() - startTime)));
-                return batteryDiffDataMap;
-            }
+    private List<AppUsageEvent> loadDatabaseAppUsageList() {
+        mIsDatabaseAppUsageLoaded = true;
+        if (!shouldLoadAppUsageData()) {
+            Log.d(TAG, "not loadDatabaseAppUsageList");
+            return null;
+        }
+        // Loads the app usage data from the database.
+        final List<AppUsageEvent> appUsageEventList =
+                DatabaseUtils.getAppUsageEventForUsers(
+                        mContext, Calendar.getInstance(), getCurrentUserIds(), mRawStartTimestamp);
+        Log.d(TAG, "execute loadDatabaseAppUsageList size=" + appUsageEventList.size());
+        return appUsageEventList;
+    }
 
-            @Override
-            protected void onPostExecute(final Map<Long, BatteryDiffData> batteryDiffDataMap) {
-                // Post results back to main thread to refresh UI.
-                if (mHandler != null && mCallbackFunction != null) {
-                    mHandler.post(
-                            () -> {
-                                mCallbackFunction.onBatteryDiffDataMapLoaded(batteryDiffDataMap);
-                            });
-                }
-            }
-        }.execute();
+    private List<BatteryEvent> loadPowerConnectionBatteryEventList() {
+        // Loads the battery event data from the database.
+        final List<BatteryEvent> batteryEventList =
+                DatabaseUtils.getBatteryEvents(
+                        mContext,
+                        Calendar.getInstance(),
+                        mRawStartTimestamp,
+                        POWER_CONNECTION_EVENTS);
+        Log.d(TAG, "execute loadPowerConnectionBatteryEventList size=" + batteryEventList.size());
+        mIsBatteryEventLoaded = true;
+        return batteryEventList;
     }
 
-    private void tryToProcessAppUsageData() {
-        // Ignore processing the data if any required data is not loaded.
-        if (!mIsCurrentAppUsageLoaded || !mIsDatabaseAppUsageLoaded || !mIsBatteryEventLoaded) {
-            return;
-        }
-        processAppUsageData();
-        tryToGenerateFinalDataAndApplyCallback();
+    private List<BatteryUsageSlot> loadBatteryUsageSlotList() {
+        // Loads the battery usage slot data from the database.
+        final List<BatteryUsageSlot> batteryUsageSlotList =
+                DatabaseUtils.getBatteryUsageSlots(
+                        mContext, Calendar.getInstance(), mLastFullChargeTimestamp);
+        Log.d(TAG, "execute loadBatteryUsageSlotList size=" + batteryUsageSlotList.size());
+        return batteryUsageSlotList;
     }
 
-    private void processAppUsageData() {
+    private Map<Long, BatteryDiffData> loadBatteryMapFromServiceOnly() {
+        final Map<Long, BatteryDiffData> batteryDiffDataMap =
+                DataProcessor.getBatteryDiffDataMapFromStatsService(
+                        mContext,
+                        mRawStartTimestamp,
+                        getSystemAppsPackageNames(),
+                        getSystemAppsUids());
+        Log.d(
+                TAG,
+                "execute loadAndApplyBatteryMapFromServiceOnly size=" + batteryDiffDataMap.size());
+        return batteryDiffDataMap;
+    }
+
+    private Void processAppUsageData(
+            @Nullable final List<AppUsageEvent> currentAppUsageList,
+            @Nullable final List<AppUsageEvent> databaseAppUsageList,
+            @Nullable final List<BatteryEvent> batteryEventList) {
+        if (currentAppUsageList == null || currentAppUsageList.isEmpty()) {
+            Log.d(TAG, "currentAppUsageList is null or empty");
+        } else {
+            mAppUsageEventList.addAll(currentAppUsageList);
+        }
+        if (databaseAppUsageList == null || databaseAppUsageList.isEmpty()) {
+            Log.d(TAG, "databaseAppUsageList is null or empty");
+        } else {
+            mAppUsageEventList.addAll(databaseAppUsageList);
+        }
+        if (batteryEventList == null || batteryEventList.isEmpty()) {
+            Log.d(TAG, "batteryEventList is null or empty");
+        } else {
+            mBatteryEventList.clear();
+            mBatteryEventList.addAll(batteryEventList);
+        }
         // If there is no screen-on time data, no need to process.
         if (!mShowScreenOnTime) {
-            return;
+            return null;
         }
         // Generates the indexed AppUsagePeriod list data for each corresponding time slot for
         // further use.
@@ -482,63 +502,176 @@ public class DataProcessManager {
                         mHourlyBatteryLevelsPerDay,
                         mAppUsageEventList,
                         mBatteryEventList);
+        return null;
     }
 
-    private void tryToGenerateFinalDataAndApplyCallback() {
-        // Ignore processing the data if any required data is not loaded.
-        if (!mIsCurrentBatteryHistoryLoaded
-                || !mIsCurrentAppUsageLoaded
-                || !mIsDatabaseAppUsageLoaded
-                || !mIsBatteryEventLoaded
-                || !mIsBatteryUsageSlotLoaded) {
+    private Map<Long, BatteryDiffData> generateFinalData(
+            @Nullable final Map<String, BatteryHistEntry> currentBatteryHistoryMap,
+            @Nullable final List<BatteryUsageSlot> batteryUsageSlotList) {
+        if (currentBatteryHistoryMap != null && mBatteryHistoryMap != null) {
+            // Replaces the placeholder in mBatteryHistoryMap.
+            for (Map.Entry<Long, Map<String, BatteryHistEntry>> mapEntry :
+                    mBatteryHistoryMap.entrySet()) {
+                if (mapEntry.getValue()
+                        .containsKey(DataProcessor.CURRENT_TIME_BATTERY_HISTORY_PLACEHOLDER)) {
+                    mapEntry.setValue(currentBatteryHistoryMap);
+                }
+            }
+        }
+        if (batteryUsageSlotList == null || batteryUsageSlotList.isEmpty()) {
+            Log.d(TAG, "batteryUsageSlotList is null or empty");
+        } else {
+            mBatteryUsageSlotList.clear();
+            mBatteryUsageSlotList.addAll(batteryUsageSlotList);
+        }
+
+        final Map<Long, BatteryDiffData> materializedDiffDataMap = new ArrayMap<>();
+        for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
+            materializedDiffDataMap.put(
+                    batteryUsageSlot.getStartTimestamp(),
+                    ConvertUtils.convertToBatteryDiffData(
+                            mContext,
+                            batteryUsageSlot,
+                            getSystemAppsPackageNames(),
+                            getSystemAppsUids()));
+        }
+        final Map<Long, BatteryDiffData> computedDiffDataMap =
+                DataProcessor.getBatteryDiffDataMap(
+                        mContext,
+                        mHourlyBatteryLevelsPerDay,
+                        mBatteryHistoryMap,
+                        mAppUsagePeriodMap,
+                        materializedDiffDataMap,
+                        getSystemAppsPackageNames(),
+                        getSystemAppsUids());
+        final Map<Long, BatteryDiffData> foldedDiffDataMap = new ArrayMap<>();
+        for (Map.Entry<Long, BatteryDiffData> entry : computedDiffDataMap.entrySet()) {
+            if (materializedDiffDataMap.get(entry.getKey()) != entry.getValue()) {
+                foldedDiffDataMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+        final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
+        // Only the newly folded slots need to be materialized for the period job.
+        if (!mIsFromPeriodJob) {
+            batteryDiffDataMap.putAll(materializedDiffDataMap);
+        }
+        batteryDiffDataMap.putAll(foldedDiffDataMap);
+        Log.d(
+                TAG,
+                String.format(
+                        "execute generateFinalData size=%d folded=%d",
+                        batteryDiffDataMap.size(), foldedDiffDataMap.size()));
+        return batteryDiffDataMap;
+    }
+
+    private <T> CompletableFuture<T> runStage(String stageName, Supplier<T> stage) {
+        return CompletableFuture.supplyAsync(() -> runStageNow(stageName, stage), getExecutor());
+    }
+
+    private <T> T runStageNow(String stageName, Supplier<T> stage) {
+        if (mIsCancelled) {
+            throw new CancellationException("cancelled before " + stageName);
+        }
+        final long startTime = System.currentTimeMillis();
+        final T result = stage.get();
+        final long elapsedTime = System.currentTimeMillis() - startTime;
+        mStageTimings.put(stageName, elapsedTime);
+        Log.d(TAG, String.format("execute %s in %d/ms", stageName, elapsedTime));
+        return result;
+    }
+
+    private void onPipelineCompleted(
+            @Nullable Map<Long, BatteryDiffData> batteryDiffDataMap, @Nullable Throwable error) {
+        final List<Pair<Handler, OnBatteryDiffDataMapLoadedListener>> callbacks;
+        synchronized (this) {
+            mIsFinished = true;
+            callbacks = new ArrayList<>(mCallbacks);
+            mCallbacks.clear();
+        }
+        synchronized (sInFlightManagers) {
+            sInFlightManagers.remove(mRequestKey, this);
+        }
+        final String status = mIsCancelled ? "cancelled" : error != null ? "failed" : "done";
+        addPipelineRecord(
+                String.format(
+                        "%s %s key=%s total=%d/ms stages=%s",
+                        ConvertUtils.utcToLocalTimeForLogging(mPipelineStartTime),
+                        status,
+                        mRequestKey,
+                        System.currentTimeMillis() - mPipelineStartTime,
+                        mStageTimings));
+        if (error != null) {
+            if (mIsCancelled) {
+                Log.d(TAG, "pipeline is cancelled: " + mRequestKey);
+                return;
+            }
+            // Still notify the callers, so they don't wait for the data forever.
+            Log.e(TAG, "pipeline is failed: " + mRequestKey, error);
+        }
+        final Map<Long, BatteryDiffData> result = error == null ? batteryDiffDataMap : null;
+        // Post results back to main thread to refresh UI.
+        for (Pair<Handler, OnBatteryDiffDataMapLoadedListener> callback : callbacks) {
+            callback.first.post(() -> callback.second.onBatteryDiffDataMapLoaded(result));
+        }
+    }
+
+    private synchronized boolean addCallback(
+            Handler handler, OnBatteryDiffDataMapLoadedListener callbackFunction) {
+        if (mIsFinished || mIsCancelled) {
+            return false;
+        }
+        if (handler != null
+                && callbackFunction != null
+                && mCallbacks.stream().noneMatch(callback -> callback.second == callbackFunction)) {
+            mCallbacks.add(Pair.create(handler, callbackFunction));
+        }
+        return true;
+    }
+
+    private synchronized void removeCallback(OnBatteryDiffDataMapLoadedListener callbackFunction) {
+        if (mIsFinished || !mCallbacks.removeIf(callback -> callback.second == callbackFunction)) {
             return;
         }
-        generateFinalDataAndApplyCallback();
-    }
-
-    private synchronized void generateFinalDataAndApplyCallback() {
-        new AsyncTask<Void, Void, Map<Long, BatteryDiffData>>() {
-            @Override
-            protected Map<Long, BatteryDiffData> doInBackground(Void... voids) {
-                final long startTime = System.currentTimeMillis();
-                final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
-                for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
-                    batteryDiffDataMap.put(
-                            batteryUsageSlot.getStartTimestamp(),
-                            ConvertUtils.convertToBatteryDiffData(
-                                    mContext,
-                                    batteryUsageSlot,
-                                    getSystemAppsPackageNames(),
-                                    getSystemAppsUids()));
-                }
-                batteryDiffDataMap.putAll(
-                        DataProcessor.getBatteryDiffDataMap(
-                                mContext,
-                                mHourlyBatteryLevelsPerDay,
-                                mBatteryHistoryMap,
-                                mAppUsagePeriodMap,
-                                getSystemAppsPackageNames(),
-                                getSystemAppsUids()));
-
-                Log.d(
-                        TAG,
-                        String.format(
-                                "execute generateFinalDataAndApplyCallback size=%d in %d/ms",
-                                batteryDiffDataMap.size(), System.currentTimeMillis() - startTime));
-                return batteryDiffDataMap;
+        if (mCallbacks.isEmpty()) {
+            mIsCancelled = true;
+            if (mResultFuture != null) {
+                mResultFuture.cancel(/* mayInterruptIfRunning= */ false);
             }
+        }
+    }
 
-            @Override
-            protected void onPostExecute(final Map<Long, BatteryDiffData> batteryDiffDataMap) {
-                // Post results back to main thread to refresh UI.
-                if (mHandler != null && mCallbackFunction != null) {
-                    mHandler.post(
-                            () -> {
-                                mCallbackFunction.onBatteryDiffDataMapLoaded(batteryDiffDataMap);
-                            });
-                }
+    private String getRequestKey() {
+        return String.format(
+                "%d|%d|%b|%d",
+                mRawStartTimestamp,
+                mLastFullChargeTimestamp,
+                mIsFromPeriodJob,
+                mBatteryHistoryMap == null ? -1 : mBatteryHistoryMap.size());
+    }
+
+    private static void addPipelineRecord(String record) {
+        synchronized (sPipelineRecords) {
+            if (sPipelineRecords.size() >= MAX_PIPELINE_RECORDS) {
+                sPipelineRecords.removeFirst();
             }
-        }.execute();
+            sPipelineRecords.addLast(record);
+        }
+    }
+
+    private static Executor getExecutor() {
+        return sTestExecutor != null ? sTestExecutor : PIPELINE_EXECUTOR;
+    }
+
+    private static Executor createPipelineExecutor() {
+        final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(
+                        PIPELINE_THREAD_COUNT,
+                        PIPELINE_THREAD_COUNT,
+                        PIPELINE_THREAD_KEEP_ALIVE_SECONDS,
+                        TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     // Whether we should load app usage data from service or database.
@@ -653,23 +786,31 @@ public class DataProcessManager {
         }
 
         handler = handler != null ? handler : new Handler(Looper.getMainLooper());
-        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap =
-                sFakeBatteryHistoryMap != null
-                        ? sFakeBatteryHistoryMap
-                        : DatabaseUtils.getHistoryMapSinceLatestRecordBeforeQueryTimestamp(
-                                context,
-                                Calendar.getInstance(),
-                                startTimestamp,
-                                lastFullChargeTime);
-        if (batteryHistoryMap == null || batteryHistoryMap.isEmpty()) {
+        // Process raw history data into hourly timestamps. The battery history is loaded in the
+        // columnar format and only the rows used by the interpolation are converted into entries.
+        final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap;
+        if (sFakeBatteryHistoryMap != null) {
+            processedBatteryHistoryMap =
+                    sFakeBatteryHistoryMap.isEmpty()
+                            ? null
+                            : DataProcessor.getHistoryMapWithExpectedTimestamps(
+                                    context, sFakeBatteryHistoryMap);
+        } else {
+            final BatteryHistoryColumns batteryHistoryColumns =
+                    DatabaseUtils.getHistoryColumnsSinceLatestRecordBeforeQueryTimestamp(
+                            context, Calendar.getInstance(), startTimestamp, lastFullChargeTime);
+            processedBatteryHistoryMap =
+                    batteryHistoryColumns.isEmpty()
+                            ? null
+                            : DataProcessor.getHistoryMapWithExpectedTimestamps(
+                                    context, batteryHistoryColumns);
+        }
+        if (processedBatteryHistoryMap == null) {
             Log.d(TAG, "batteryHistoryMap is null in getPeriodBatteryLevelData()");
             new DataProcessManager(context, handler, onBatteryDiffDataMapLoadedListener).start();
             return null;
         }
 
-        // Process raw history map data into hourly timestamps.
-        final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap =
-                DataProcessor.getHistoryMapWithExpectedTimestamps(context, batteryHistoryMap);
         // Wrap and processed history map into easy-to-use format for UI rendering.
         final BatteryLevelData batteryLevelData =
                 DataProcessor.getLevelDataThroughProcessedHistoryMap(
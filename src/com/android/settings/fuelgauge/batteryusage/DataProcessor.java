@@ -145,16 +145,7 @@ public final class DataProcessor {
         // Wrap and processed history map into easy-to-use format for UI rendering.
         final BatteryLevelData batteryLevelData =
                 getLevelDataThroughProcessedHistoryMap(context, processedBatteryHistoryMap);
-        // Loads the current battery usage data from the battery stats service.
-        final Map<String, BatteryHistEntry> currentBatteryHistoryMap =
-                getCurrentBatteryHistoryMapFromStatsService(context);
-        // Replaces the placeholder in processedBatteryHistoryMap.
-        for (Map.Entry<Long, Map<String, BatteryHistEntry>> mapEntry :
-                processedBatteryHistoryMap.entrySet()) {
-            if (mapEntry.getValue().containsKey(CURRENT_TIME_BATTERY_HISTORY_PLACEHOLDER)) {
-                mapEntry.setValue(currentBatteryHistoryMap);
-            }
-        }
+        replaceCurrentTimePlaceholder(context, processedBatteryHistoryMap);
         return batteryLevelData == null
                 ? null
                 : generateBatteryUsageMap(
@@ -169,6 +160,56 @@ public final class DataProcessor {
                         batteryLevelData);
     }
 
+    /**
+     * @return Returns the accumulated battery usage data since last full charge. <br>
+     *     The materialized {@link BatteryUsageSlot} data is folded directly, only the battery
+     *     history after the last materialized slot is processed. Returns null if there is no data.
+     */
+    @Nullable
+    public static BatteryDiffData getAccumulatedBatteryUsageData(
+            Context context,
+            final List<BatteryUsageSlot> batteryUsageSlots,
+            @Nullable final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
+        final Set<String> systemAppsPackageNames = getSystemAppsPackageNames(context);
+        final Set<Integer> systemAppsUids = getSystemAppsUids(context);
+        final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
+        long materializedEndTimestamp = 0L;
+        for (BatteryUsageSlot batteryUsageSlot : batteryUsageSlots) {
+            batteryDiffDataMap.put(
+                    batteryUsageSlot.getStartTimestamp(),
+                    ConvertUtils.convertToBatteryDiffData(
+                            context, batteryUsageSlot, systemAppsPackageNames, systemAppsUids));
+            materializedEndTimestamp =
+                    Math.max(materializedEndTimestamp, batteryUsageSlot.getEndTimestamp());
+        }
+        if (batteryHistoryMap != null && !batteryHistoryMap.isEmpty()) {
+            final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap =
+                    getHistoryMapWithExpectedTimestamps(context, batteryHistoryMap);
+            final BatteryLevelData batteryLevelData =
+                    getLevelDataThroughProcessedHistoryMap(context, processedBatteryHistoryMap);
+            if (batteryLevelData != null) {
+                replaceCurrentTimePlaceholder(context, processedBatteryHistoryMap);
+                final Map<Long, BatteryDiffData> recentDiffDataMap =
+                        getBatteryDiffDataMap(
+                                context,
+                                batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                                processedBatteryHistoryMap,
+                                /* appUsagePeriodMap= */ null,
+                                systemAppsPackageNames,
+                                systemAppsUids);
+                // Only folds the slots which are not covered by the materialized data.
+                for (Map.Entry<Long, BatteryDiffData> entry : recentDiffDataMap.entrySet()) {
+                    if (entry.getKey() >= materializedEndTimestamp) {
+                        batteryDiffDataMap.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+        return batteryDiffDataMap.isEmpty()
+                ? null
+                : getAccumulatedUsageDiffData(context, batteryDiffDataMap.values());
+    }
+
     /** Gets the {@link BatteryUsageStats} from system service. */
     @Nullable
     public static BatteryUsageStats getBatteryUsageStats(final Context context) {
@@ -439,6 +480,67 @@ public final class DataProcessor {
         return resultMap;
     }
 
+    /**
+     * Same as {@link #getHistoryMapWithExpectedTimestamps(Context, Map)}, but only creates the
+     * {@link BatteryHistEntry} objects of the raw timestamps used by the interpolation.
+     */
+    static Map<Long, Map<String, BatteryHistEntry>> getHistoryMapWithExpectedTimestamps(
+            Context context, final BatteryHistoryColumns batteryHistoryColumns) {
+        final long startTime = System.currentTimeMillis();
+        final List<Long> rawTimestampList = batteryHistoryColumns.getDistinctTimestamps();
+        final Map<Long, Map<String, BatteryHistEntry>> resultMap = new ArrayMap();
+        if (rawTimestampList.isEmpty()) {
+            Log.d(TAG, "empty batteryHistoryColumns in getHistoryMapWithExpectedTimestamps()");
+            return resultMap;
+        }
+        final long currentTime = getCurrentTimeMillis();
+        final List<Long> expectedTimestampList = getTimestampSlots(rawTimestampList, currentTime);
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new ArrayMap<>();
+        if (!expectedTimestampList.isEmpty()) {
+            putEntryMapIfExists(
+                    batteryHistoryColumns,
+                    rawTimestampList,
+                    expectedTimestampList.get(0),
+                    batteryHistoryMap);
+        }
+        for (int index = 1; index < expectedTimestampList.size() - 1; index++) {
+            final long[] nearestTimestamps =
+                    findNearestTimestamp(rawTimestampList, expectedTimestampList.get(index));
+            putEntryMapIfExists(
+                    batteryHistoryColumns,
+                    rawTimestampList,
+                    nearestTimestamps[0],
+                    batteryHistoryMap);
+            putEntryMapIfExists(
+                    batteryHistoryColumns,
+                    rawTimestampList,
+                    nearestTimestamps[1],
+                    batteryHistoryMap);
+        }
+        interpolateHistory(
+                context, rawTimestampList, expectedTimestampList, batteryHistoryMap, resultMap);
+        Log.d(
+                TAG,
+                String.format(
+                        "getHistoryMapWithExpectedTimestamps() size=%d materialized=%d in %d/ms",
+                        resultMap.size(),
+                        batteryHistoryMap.size(),
+                        (System.currentTimeMillis() - startTime)));
+        return resultMap;
+    }
+
+    private static void putEntryMapIfExists(
+            final BatteryHistoryColumns batteryHistoryColumns,
+            final List<Long> rawTimestampList,
+            final long timestamp,
+            final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
+        if (batteryHistoryMap.containsKey(timestamp)
+                || Collections.binarySearch(rawTimestampList, timestamp) < 0) {
+            return;
+        }
+        batteryHistoryMap.put(timestamp, batteryHistoryColumns.getEntryMap(timestamp));
+    }
+
     @Nullable
     static BatteryLevelData getLevelDataThroughProcessedHistoryMap(
             Context context,
@@ -527,6 +629,30 @@ public final class DataProcessor {
                     appUsagePeriodMap,
             final @NonNull Set<String> systemAppsPackageNames,
             final @NonNull Set<Integer> systemAppsUids) {
+        return getBatteryDiffDataMap(
+                context,
+                hourlyBatteryLevelsPerDay,
+                batteryHistoryMap,
+                appUsagePeriodMap,
+                /* materializedDiffDataMap= */ Map.of(),
+                systemAppsPackageNames,
+                systemAppsUids);
+    }
+
+    /**
+     * @return Returns the battery diff data of each hourly slot. The slots which are already
+     *     materialized in {@code materializedDiffDataMap} with the same time range are reused
+     *     directly instead of being recomputed from the battery history.
+     */
+    static Map<Long, BatteryDiffData> getBatteryDiffDataMap(
+            Context context,
+            final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay,
+            final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
+            final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
+                    appUsagePeriodMap,
+            final @NonNull Map<Long, BatteryDiffData> materializedDiffDataMap,
+            final @NonNull Set<String> systemAppsPackageNames,
+            final @NonNull Set<Integer> systemAppsUids) {
         final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
         final int currentUserId = context.getUserId();
         final UserHandle userHandle =
@@ -545,6 +671,13 @@ public final class DataProcessor {
             for (int hourlyIndex = 0; hourlyIndex < hourlyTimestamps.size() - 1; hourlyIndex++) {
                 final Long startTimestamp = hourlyTimestamps.get(hourlyIndex);
                 final Long endTimestamp = hourlyTimestamps.get(hourlyIndex + 1);
+                final BatteryDiffData materializedDiffData =
+                        materializedDiffDataMap.get(startTimestamp);
+                if (materializedDiffData != null
+                        && materializedDiffData.getEndTimestamp() == endTimestamp) {
+                    batteryDiffDataMap.put(startTimestamp, materializedDiffData);
+                    continue;
+                }
                 final int startBatteryLevel =
                         hourlyBatteryLevelsPerDay.get(dailyIndex).getLevels().get(hourlyIndex);
                 final int endBatteryLevel =
@@ -1275,6 +1408,21 @@ public final class DataProcessor {
         return BatteryStatus.getBatteryLevel(intent);
     }
 
+    private static void replaceCurrentTimePlaceholder(
+            final Context context,
+            final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap) {
+        // Loads the current battery usage data from the battery stats service.
+        final Map<String, BatteryHistEntry> currentBatteryHistoryMap =
+                getCurrentBatteryHistoryMapFromStatsService(context);
+        // Replaces the placeholder in processedBatteryHistoryMap.
+        for (Map.Entry<Long, Map<String, BatteryHistEntry>> mapEntry :
+                processedBatteryHistoryMap.entrySet()) {
+            if (mapEntry.getValue().containsKey(CURRENT_TIME_BATTERY_HISTORY_PLACEHOLDER)) {
+                mapEntry.setValue(currentBatteryHistoryMap);
+            }
+        }
+    }
+
     private static void insertHourlyUsageDiffData(
             final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay,
             final Map<Long, BatteryDiffData> batteryDiffDataMap,
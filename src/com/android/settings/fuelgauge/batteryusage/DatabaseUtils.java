@@ -31,12 +31,13 @@ import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.BatteryManager;
 import android.os.BatteryUsageStats;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.ParcelFileDescriptor;
 import android.os.RemoteException;
 import android.os.SystemClock;
 import android.os.UserManager;
-import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 
@@ -48,10 +49,17 @@ import com.android.settings.fuelgauge.batteryusage.bugreport.BatteryUsageLogUtil
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
 import com.android.settingslib.fuelgauge.BatteryStatus;
 
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
@@ -77,6 +85,7 @@ public final class DatabaseUtils {
     static final String KEY_LAST_UPLOAD_FULL_CHARGE_TIME = "last_upload_full_charge_time";
     static final String KEY_LAST_USAGE_SOURCE = "last_usage_source";
     static final String KEY_DISMISSED_POWER_ANOMALY_KEYS = "dismissed_power_anomaly_keys";
+    static final String KEY_LAST_PURGED_DAY_START = "last_purged_day_start";
 
     /** An authority name of the battery content provider. */
     public static final String AUTHORITY = "com.android.settings.battery.usage.provider";
@@ -111,6 +120,18 @@ public final class DatabaseUtils {
     /** Key for query parameter battery event type used in BATTERY_EVENT_URI */
     public static final String QUERY_BATTERY_EVENT_TYPE = "batteryEventType";
 
+    /**
+     * A method of the battery content provider to insert length-prefixed protos into the table
+     * of the URI given as argument.
+     */
+    public static final String METHOD_BULK_INSERT_PROTOS = "bulkInsertProtos";
+
+    /** Key for the length-prefixed protos in the extras of METHOD_BULK_INSERT_PROTOS */
+    public static final String EXTRA_PROTOS = "protos";
+
+    /** Key for the inserted row count in the result of METHOD_BULK_INSERT_PROTOS */
+    public static final String EXTRA_COUNT = "count";
+
     public static final long INVALID_USER_ID = Integer.MIN_VALUE;
 
     /**
@@ -154,8 +175,12 @@ public final class DatabaseUtils {
     public static final List<BatteryEventType> BATTERY_LEVEL_RECORD_EVENTS =
             List.of(BatteryEventType.FULL_CHARGED, BatteryEventType.EVEN_HOUR);
 
+    /** Keeps each METHOD_BULK_INSERT_PROTOS call well under the binder transaction limit. */
+    @VisibleForTesting static final int MAX_PROTOS_CHUNK_BYTES = 256 * 1024;
+
     // For testing only.
     @VisibleForTesting static Supplier<Cursor> sFakeSupplier;
+    @VisibleForTesting static int sProtosChunkBytes = MAX_PROTOS_CHUNK_BYTES;
 
     private DatabaseUtils() {}
 
@@ -213,8 +238,11 @@ public final class DatabaseUtils {
                         .build();
 
         final List<AppUsageEvent> appUsageEventList =
-                loadListFromContentProvider(
-                        context, appUsageEventUri, ConvertUtils::convertToAppUsageEvent);
+                loadProtoListFromContentProvider(
+                        context,
+                        appUsageEventUri,
+                        AppUsageEvent.parser(),
+                        ConvertUtils::convertToAppUsageEvent);
         Log.d(
                 TAG,
                 String.format(
@@ -251,8 +279,11 @@ public final class DatabaseUtils {
                         .build();
 
         final List<BatteryEvent> batteryEventList =
-                loadListFromContentProvider(
-                        context, batteryEventUri, ConvertUtils::convertToBatteryEvent);
+                loadProtoListFromContentProvider(
+                        context,
+                        batteryEventUri,
+                        BatteryEvent.parser(),
+                        ConvertUtils::convertToBatteryEvent);
         Log.d(
                 TAG,
                 String.format(
@@ -280,8 +311,11 @@ public final class DatabaseUtils {
                         .build();
 
         final List<BatteryUsageSlot> batteryUsageSlotList =
-                loadListFromContentProvider(
-                        context, batteryUsageSlotUri, ConvertUtils::convertToBatteryUsageSlot);
+                loadProtoListFromContentProvider(
+                        context,
+                        batteryUsageSlotUri,
+                        BatteryUsageSlot.parser(),
+                        ConvertUtils::convertToBatteryUsageSlot);
         Log.d(
                 TAG,
                 String.format(
@@ -345,6 +379,12 @@ public final class DatabaseUtils {
     @VisibleForTesting
     static Map<Long, Map<String, BatteryHistEntry>> getHistoryMapSinceQueryTimestamp(
             Context context, final long queryTimestamp) {
+        return getHistoryColumnsSinceQueryTimestamp(context, queryTimestamp).toHistoryMap();
+    }
+
+    /** Returns the battery history columns after the given timestamp. */
+    static BatteryHistoryColumns getHistoryColumnsSinceQueryTimestamp(
+            Context context, final long queryTimestamp) {
         final long startTime = System.currentTimeMillis();
         // Builds the content uri everytime to avoid cache.
         final Uri batteryStateUri =
@@ -355,32 +395,24 @@ public final class DatabaseUtils {
                         .appendQueryParameter(QUERY_KEY_TIMESTAMP, Long.toString(queryTimestamp))
                         .build();
 
-        final List<BatteryHistEntry> batteryHistEntryList =
-                loadListFromContentProvider(
-                        context, batteryStateUri, cursor -> new BatteryHistEntry(cursor));
-        final Map<Long, Map<String, BatteryHistEntry>> resultMap = new ArrayMap();
-        for (final BatteryHistEntry entry : batteryHistEntryList) {
-            final long timestamp = entry.mTimestamp;
-            final String key = entry.getKey();
-            Map batteryHistEntryMap = resultMap.get(timestamp);
-            // Creates new one if there is no corresponding map.
-            if (batteryHistEntryMap == null) {
-                batteryHistEntryMap = new ArrayMap();
-                resultMap.put(timestamp, batteryHistEntryMap);
-            }
-            batteryHistEntryMap.put(key, entry);
-        }
-
-        if (resultMap == null || resultMap.isEmpty()) {
-            Log.d(TAG, "getBatteryHistoryMap() returns empty or null");
+        final BatteryHistoryColumns columns =
+                loadFromContentProvider(
+                        context,
+                        batteryStateUri,
+                        BatteryHistoryColumns.empty(),
+                        BatteryHistoryColumns::load);
+        if (columns.isEmpty()) {
+            Log.d(TAG, "getBatteryHistoryColumns() returns empty");
         } else {
             Log.d(
                     TAG,
                     String.format(
-                            "getBatteryHistoryMap() size=%d in %d/ms",
-                            resultMap.size(), (System.currentTimeMillis() - startTime)));
+                            "getBatteryHistoryColumns() rows=%d timestamps=%d in %d/ms",
+                            columns.size(),
+                            columns.getDistinctTimestamps().size(),
+                            (System.currentTimeMillis() - startTime)));
         }
-        return resultMap;
+        return columns;
     }
 
     /**
@@ -394,6 +426,20 @@ public final class DatabaseUtils {
                     Calendar calendar,
                     final long queryTimestamp,
                     final long lastFullChargeTime) {
+        return getHistoryColumnsSinceLatestRecordBeforeQueryTimestamp(
+                        context, calendar, queryTimestamp, lastFullChargeTime)
+                .toHistoryMap();
+    }
+
+    /**
+     * Returns the battery history columns since the latest record no later than the given
+     * timestamp, see {@link #getHistoryMapSinceLatestRecordBeforeQueryTimestamp}.
+     */
+    static BatteryHistoryColumns getHistoryColumnsSinceLatestRecordBeforeQueryTimestamp(
+            Context context,
+            Calendar calendar,
+            final long queryTimestamp,
+            final long lastFullChargeTime) {
         final long sixDaysAgoTimestamp = getTimestampSixDaysAgo(calendar);
         Log.d(TAG, "sixDaysAgoTimestamp: " + utcToLocalTimeForLogging(sixDaysAgoTimestamp));
         final long batteryStateLatestTimestamp =
@@ -405,7 +451,7 @@ public final class DatabaseUtils {
                 Math.max(
                         Math.max(sixDaysAgoTimestamp, lastFullChargeTime),
                         batteryStateLatestTimestamp);
-        return getHistoryMapSinceQueryTimestamp(context, maxTimestamp);
+        return getHistoryColumnsSinceQueryTimestamp(context, maxTimestamp);
     }
 
     /** Returns the history map since last full charge time. */
@@ -427,6 +473,11 @@ public final class DatabaseUtils {
                         database.batteryEventDao().clearAll();
                         database.batteryStateDao().clearAll();
                         database.batteryUsageSlotDao().clearAll();
+                        // Purges the expired days again once new data is recorded.
+                        getSharedPreferences(context)
+                                .edit()
+                                .remove(KEY_LAST_PURGED_DAY_START)
+                                .apply();
                     } catch (RuntimeException e) {
                         Log.e(TAG, "clearAll() failed", e);
                     }
@@ -438,21 +489,43 @@ public final class DatabaseUtils {
         AsyncTask.execute(
                 () -> {
                     try {
-                        final BatteryStateDatabase database =
-                                BatteryStateDatabase.getInstance(context.getApplicationContext());
-                        final long earliestTimestamp =
-                                Clock.systemUTC().millis()
-                                        - Duration.ofDays(DATA_RETENTION_INTERVAL_DAY).toMillis();
-                        database.appUsageEventDao().clearAllBefore(earliestTimestamp);
-                        database.batteryEventDao().clearAllBefore(earliestTimestamp);
-                        database.batteryStateDao().clearAllBefore(earliestTimestamp);
-                        database.batteryUsageSlotDao().clearAllBefore(earliestTimestamp);
+                        clearExpiredData(context, Clock.systemUTC().millis());
                     } catch (RuntimeException e) {
                         Log.e(TAG, "clearAllBefore() failed", e);
                     }
                 });
     }
 
+    /**
+     * Clears the days out of the retention interval. Whole days are purged at once, so the tables
+     * are only touched again after the retention interval moves to the next day.
+     *
+     * @return true if the expired days are purged, false if they were purged already
+     */
+    @VisibleForTesting
+    static boolean clearExpiredData(Context context, long currentTime) {
+        final long earliestDayStart =
+                getStartOfDay(
+                        currentTime - Duration.ofDays(DATA_RETENTION_INTERVAL_DAY).toMillis());
+        final SharedPreferences sharedPreferences = getSharedPreferences(context);
+        if (sharedPreferences != null
+                && sharedPreferences.getLong(KEY_LAST_PURGED_DAY_START, INVALID_TIMESTAMP)
+                        == earliestDayStart) {
+            return false;
+        }
+        final BatteryStateDatabase database =
+                BatteryStateDatabase.getInstance(context.getApplicationContext());
+        final long earliestTimestamp = earliestDayStart - 1;
+        database.appUsageEventDao().clearAllBefore(earliestTimestamp);
+        database.batteryEventDao().clearAllBefore(earliestTimestamp);
+        database.batteryStateDao().clearAllBefore(earliestTimestamp);
+        database.batteryUsageSlotDao().clearAllBefore(earliestTimestamp);
+        if (sharedPreferences != null) {
+            sharedPreferences.edit().putLong(KEY_LAST_PURGED_DAY_START, earliestDayStart).apply();
+        }
+        return true;
+    }
+
     /** Clears all data and jobs if current timestamp is out of the range of last recorded job. */
     public static void clearDataAfterTimeChangedIfNeeded(Context context) {
         AsyncTask.execute(() -> {
@@ -494,6 +567,16 @@ public final class DatabaseUtils {
         return startCalendar.getTimeInMillis();
     }
 
+    private static long getStartOfDay(long timestamp) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timestamp);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
     /** Returns the context with profile parent identity when current user is work profile. */
     public static Context getParentContext(Context context) {
         if (com.android.settingslib.fuelgauge.BatteryUtils.isWorkProfile(context)) {
@@ -514,15 +597,16 @@ public final class DatabaseUtils {
     static List<ContentValues> sendAppUsageEventData(
             final Context context, final List<AppUsageEvent> appUsageEventList) {
         final long startTime = System.currentTimeMillis();
+        final List<AppUsageEvent> eventsWithUid =
+                appUsageEventList.stream()
+                        .filter(appUsageEvent -> appUsageEvent.hasUid())
+                        .collect(Collectors.toList());
         // Creates the ContentValues list to insert them into provider.
         final List<ContentValues> valuesList = new ArrayList<>();
-        appUsageEventList.stream()
-                .filter(appUsageEvent -> appUsageEvent.hasUid())
-                .forEach(
-                        appUsageEvent ->
-                                valuesList.add(
-                                        ConvertUtils.convertAppUsageEventToContentValues(
-                                                appUsageEvent)));
+        eventsWithUid.forEach(
+                appUsageEvent ->
+                        valuesList.add(
+                                ConvertUtils.convertAppUsageEventToContentValues(appUsageEvent)));
         int size = 0;
         final ContentResolver resolver = context.getContentResolver();
         // Inserts all ContentValues into battery provider.
@@ -530,7 +614,7 @@ public final class DatabaseUtils {
             final ContentValues[] valuesArray = new ContentValues[valuesList.size()];
             valuesList.toArray(valuesArray);
             try {
-                size = resolver.bulkInsert(APP_USAGE_EVENT_URI, valuesArray);
+                size = bulkInsertProtos(resolver, APP_USAGE_EVENT_URI, eventsWithUid, valuesArray);
                 resolver.notifyChange(APP_USAGE_EVENT_URI, /* observer= */ null);
                 Log.d(TAG, "insert() app usage events data into database");
             } catch (Exception e) {
@@ -584,7 +668,7 @@ public final class DatabaseUtils {
             final ContentValues[] valuesArray = new ContentValues[valuesList.size()];
             valuesList.toArray(valuesArray);
             try {
-                size = resolver.bulkInsert(BATTERY_EVENT_URI, valuesArray);
+                size = bulkInsertProtos(resolver, BATTERY_EVENT_URI, batteryEventList, valuesArray);
                 resolver.notifyChange(BATTERY_EVENT_URI, /* observer= */ null);
                 Log.d(TAG, "insert() battery event data into database");
             } catch (Exception e) {
@@ -618,7 +702,12 @@ public final class DatabaseUtils {
             final ContentValues[] valuesArray = new ContentValues[valuesList.size()];
             valuesList.toArray(valuesArray);
             try {
-                size = resolver.bulkInsert(BATTERY_USAGE_SLOT_URI, valuesArray);
+                size =
+                        bulkInsertProtos(
+                                resolver,
+                                BATTERY_USAGE_SLOT_URI,
+                                batteryUsageSlotList,
+                                valuesArray);
                 resolver.notifyChange(BATTERY_USAGE_SLOT_URI, /* observer= */ null);
                 Log.d(TAG, "insert() battery usage slots data into database");
             } catch (Exception e) {
@@ -871,6 +960,118 @@ public final class DatabaseUtils {
                         cursor.moveToFirst() ? cursor.getLong(/* columnIndex= */ 0) : defaultValue);
     }
 
+    /**
+     * Inserts the messages into the table of {@code uri} as length-prefixed protos, with one
+     * transaction per chunk. If the provider fails to insert a chunk, the rest of the rows are
+     * inserted with {@link ContentResolver#bulkInsert} from {@code valuesArray}, which holds the
+     * messages in the same order. Returns the inserted count.
+     */
+    private static int bulkInsertProtos(
+            ContentResolver resolver,
+            Uri uri,
+            List<? extends MessageLite> messages,
+            ContentValues[] valuesArray) {
+        final long startTime = System.currentTimeMillis();
+        final List<byte[]> chunks;
+        try {
+            chunks = ProtoStreamUtils.toChunks(messages, sProtosChunkBytes);
+        } catch (IOException e) {
+            Log.e(TAG, "bulkInsertProtos() fail to write protos:", e);
+            return resolver.bulkInsert(uri, valuesArray);
+        }
+        int size = 0;
+        long bytes = 0;
+        for (byte[] chunk : chunks) {
+            final Bundle extras = new Bundle();
+            extras.putByteArray(EXTRA_PROTOS, chunk);
+            Bundle result = null;
+            try {
+                result =
+                        resolver.call(
+                                AUTHORITY, METHOD_BULK_INSERT_PROTOS, uri.toString(), extras);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "bulkInsertProtos() into " + uri + " error:", e);
+            }
+            if (result == null) {
+                // Each chunk is inserted in a transaction, so only the rows of the previous
+                // chunks are in the table.
+                Log.w(TAG, "bulkInsertProtos() into " + uri + " falls back after " + size);
+                return size
+                        + resolver.bulkInsert(
+                                uri, Arrays.copyOfRange(valuesArray, size, valuesArray.length));
+            }
+            size += result.getInt(EXTRA_COUNT);
+            bytes += chunk.length;
+        }
+        Log.d(
+                TAG,
+                String.format(
+                        "bulkInsertProtos() into %s size=%d bytes=%d in %d/ms",
+                        uri.getLastPathSegment(),
+                        size,
+                        bytes,
+                        (System.currentTimeMillis() - startTime)));
+        return size;
+    }
+
+    /**
+     * Loads the rows of {@code uri} streamed as length-prefixed protos through a pipe, and falls
+     * back to the {@link Cursor} of the same URI if the provider cannot stream them.
+     */
+    private static <E extends MessageLite> List<E> loadProtoListFromContentProvider(
+            Context context, Uri uri, Parser<E> parser, Function<Cursor, E> converter) {
+        if (sFakeSupplier == null) {
+            final List<E> list = loadProtoListFromPipe(context, uri, parser);
+            if (list != null) {
+                return list;
+            }
+        }
+        return loadListFromContentProvider(context, uri, converter);
+    }
+
+    private static <E extends MessageLite> List<E> loadProtoListFromPipe(
+            Context context, Uri uri, Parser<E> parser) {
+        // Transfer work profile to user profile. Please see b/297036263.
+        context = getParentContext(context);
+        if (context == null) {
+            return null;
+        }
+        final long startTime = System.currentTimeMillis();
+        final ParcelFileDescriptor pipe;
+        try {
+            pipe = context.getContentResolver().openFileDescriptor(uri, "r");
+        } catch (FileNotFoundException | RuntimeException e) {
+            Log.w(TAG, "loadProtoListFromPipe() cannot stream " + uri, e);
+            return null;
+        }
+        if (pipe == null) {
+            return null;
+        }
+        final List<E> list = new ArrayList<>();
+        long bytes = 0;
+        try (InputStream input = new ParcelFileDescriptor.AutoCloseInputStream(pipe)) {
+            E message;
+            while ((message = parser.parseDelimitedFrom(input)) != null) {
+                list.add(message);
+                bytes += message.getSerializedSize();
+            }
+            // Throws if the provider could not write all the rows.
+            pipe.checkError();
+        } catch (IOException e) {
+            Log.e(TAG, "loadProtoListFromPipe() from " + uri + " error:", e);
+            return null;
+        }
+        Log.d(
+                TAG,
+                String.format(
+                        "loadProtoListFromPipe() from %s size=%d bytes=%d in %d/ms",
+                        uri.getLastPathSegment(),
+                        list.size(),
+                        bytes,
+                        (System.currentTimeMillis() - startTime)));
+        return list;
+    }
+
     private static <E> List<E> loadListFromContentProvider(
             Context context, Uri uri, Function<Cursor, E> converter) {
         return loadFromContentProvider(
@@ -72,6 +72,8 @@ public class PowerUsageAdvanced extends PowerUsageBase {
     private Map<Integer, Map<Integer, BatteryDiffData>> mBatteryUsageMap;
 
     private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final DataProcessManager.OnBatteryDiffDataMapLoadedListener
+            mBatteryDiffDataMapLoadedListener = this::onBatteryDiffDataMapUpdate;
     private final Handler mHandler = new Handler(Looper.getMainLooper());
     private final ContentObserver mBatteryObserver =
             new ContentObserver(mHandler) {
@@ -104,6 +106,8 @@ public class PowerUsageAdvanced extends PowerUsageBase {
         if (getActivity().isChangingConfigurations()) {
             BatteryEntry.clearUidCache();
         }
+        // Cancels the data process pipeline if no other page is waiting for it.
+        DataProcessManager.cancel(mBatteryDiffDataMapLoadedListener);
         mExecutor.shutdown();
     }
 
@@ -210,6 +214,23 @@ public class PowerUsageAdvanced extends PowerUsageBase {
         if (!isResumed() || mBatteryLevelData == null) {
             return;
         }
+        if (batteryDiffDataMap == null) {
+            // The usage data failed to load, show the usage list as empty instead of loading.
+            Log.w(TAG, "onBatteryDiffDataMapUpdate: failed to load the battery usage");
+            mBatteryUsageMap = null;
+            if (mBatteryUsageBreakdownController != null) {
+                mBatteryUsageBreakdownController.handleBatteryUsageUpdated(
+                        /* slotUsageData= */ null,
+                        /* slotTimestamp= */ null,
+                        /* isAllUsageDataEmpty= */ true,
+                        /* isHighlightSlot= */ false,
+                        /* optionalAnomalyEventWrapper= */ null);
+            }
+            if (mBatteryChartPreferenceController != null && mBatteryLevelData.isEmpty()) {
+                mBatteryChartPreferenceController.showEmptyChart();
+            }
+            return;
+        }
         mBatteryUsageMap =
                 DataProcessor.generateBatteryUsageMap(
                         getContext(), batteryDiffDataMap, mBatteryLevelData.orElse(null));
@@ -485,7 +506,7 @@ public class PowerUsageAdvanced extends PowerUsageBase {
                             getContext(),
                             mHandler,
                             /* isFromPeriodJob= */ false,
-                            PowerUsageAdvanced.this::onBatteryDiffDataMapUpdate);
+                            mBatteryDiffDataMapLoadedListener);
                 }
             };
         }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.database.Cursor;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A utility class to move battery usage data between processes as length-prefixed protos, the
+ * format of {@link MessageLite#writeDelimitedTo}.
+ */
+final class ProtoStreamUtils {
+
+    private ProtoStreamUtils() {}
+
+    /**
+     * Writes the messages into chunks of at most {@code maxChunkBytes}. A message larger than
+     * that gets a chunk of its own.
+     */
+    static List<byte[]> toChunks(List<? extends MessageLite> messages, int maxChunkBytes)
+            throws IOException {
+        final List<byte[]> chunks = new ArrayList<>();
+        final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        for (MessageLite message : messages) {
+            final int size = message.getSerializedSize();
+            final int delimitedSize = CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+            if (chunk.size() > 0 && chunk.size() + delimitedSize > maxChunkBytes) {
+                chunks.add(chunk.toByteArray());
+                chunk.reset();
+            }
+            message.writeDelimitedTo(chunk);
+        }
+        if (chunk.size() > 0) {
+            chunks.add(chunk.toByteArray());
+        }
+        return chunks;
+    }
+
+    /** Parses all the length-prefixed messages of a chunk. */
+    static <T> List<T> parseAll(byte[] chunk, Parser<T> parser) throws IOException {
+        final List<T> messages = new ArrayList<>();
+        if (chunk == null) {
+            return messages;
+        }
+        final CodedInputStream input = CodedInputStream.newInstance(chunk);
+        while (!input.isAtEnd()) {
+            messages.add(parser.parseFrom(input.readBytes()));
+        }
+        return messages;
+    }
+
+    /**
+     * Writes the rows of the cursor as length-prefixed messages, converting each row into the
+     * serialized message with {@code converter}. Returns the number of written rows.
+     */
+    static int writeAll(OutputStream output, Cursor cursor, Function<Cursor, byte[]> converter)
+            throws IOException {
+        final CodedOutputStream codedOutput = CodedOutputStream.newInstance(output);
+        int count = 0;
+        while (cursor.moveToNext()) {
+            codedOutput.writeByteArrayNoTag(converter.apply(cursor));
+            count++;
+        }
+        codedOutput.flush();
+        return count;
+    }
+}
@@ -22,6 +22,7 @@ import android.util.Log;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batteryusage.BatteryUsageSlot;
 import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+import com.android.settings.fuelgauge.batteryusage.DataProcessManager;
 import com.android.settings.fuelgauge.batteryusage.DatabaseUtils;
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventDao;
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
@@ -52,6 +53,10 @@ public final class LogUtils {
         BatteryUsageLogUtils.printHistoricalLog(context, writer);
         writer.flush();
 
+        // Dumps the stage timings of the recent data process pipelines.
+        DataProcessManager.dump(writer);
+        writer.flush();
+
         // Dumps phenotype environments.
         DatabaseUtils.dump(context, writer);
         writer.flush();
@@ -104,7 +109,7 @@ public final class LogUtils {
                 writer,
                 entities,
                 entity ->
-                        BatteryUtils.parseProtoFromString(
+                        BatteryUtils.parseProtoFromBytes(
                                 entity.batteryUsageSlot, BatteryUsageSlot.getDefaultInstance()));
     }
 
@@ -16,12 +16,20 @@
 
 package com.android.settings.fuelgauge.batteryusage.db;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Base64;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 /** A {@link RoomDatabase} for battery usage states history. */
 @Database(
@@ -31,12 +39,64 @@ import androidx.room.RoomDatabase;
             BatteryState.class,
             BatteryUsageSlotEntity.class
         },
-        version = 1)
+        version = 3)
 public abstract class BatteryStateDatabase extends RoomDatabase {
     private static final String TAG = "BatteryStateDatabase";
+    // The value of PRAGMA auto_vacuum for the INCREMENTAL mode.
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
 
     private static BatteryStateDatabase sBatteryStateDatabase;
 
+    /**
+     * Migrates the Base64 encoded protobuf TEXT columns of {@link BatteryState} and {@link
+     * BatteryUsageSlotEntity} into raw BLOB columns.
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_1_2 =
+            new Migration(1, 2) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    migrateBase64ColumnToBlob(
+                            db,
+                            "BatteryState",
+                            "CREATE TABLE IF NOT EXISTS `BatteryState` ("
+                                    + "`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                                    + "`uid` INTEGER NOT NULL, "
+                                    + "`userId` INTEGER NOT NULL, "
+                                    + "`packageName` TEXT, "
+                                    + "`timestamp` INTEGER NOT NULL, "
+                                    + "`consumerType` INTEGER NOT NULL, "
+                                    + "`isFullChargeCycleStart` INTEGER NOT NULL, "
+                                    + "`batteryInformation` BLOB, "
+                                    + "`batteryInformationDebug` TEXT)",
+                            "batteryInformation");
+                    migrateBase64ColumnToBlob(
+                            db,
+                            "BatteryUsageSlotEntity",
+                            "CREATE TABLE IF NOT EXISTS `BatteryUsageSlotEntity` ("
+                                    + "`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                                    + "`timestamp` INTEGER NOT NULL, "
+                                    + "`batteryUsageSlot` BLOB)",
+                            "batteryUsageSlot");
+                }
+            };
+
+    /** Adds the {@code timestamp} indices of all the tables, which are queried by time range. */
+    @VisibleForTesting
+    static final Migration MIGRATION_2_3 =
+            new Migration(2, 3) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    // Uses the default index names of Room to match the @Entity declarations.
+                    createIndex(db, "AppUsageEventEntity", "timestamp");
+                    createIndex(db, "AppUsageEventEntity", "userId", "timestamp");
+                    createIndex(db, "BatteryEventEntity", "timestamp");
+                    createIndex(db, "BatteryEventEntity", "batteryEventType", "timestamp");
+                    createIndex(db, "BatteryState", "timestamp");
+                    createIndex(db, "BatteryUsageSlotEntity", "timestamp");
+                }
+            };
+
     /** Provides DAO for app usage event table. */
     public abstract AppUsageEventDao appUsageEventDao();
 
@@ -56,6 +116,7 @@ public abstract class BatteryStateDatabase extends RoomDatabase {
                     Room.databaseBuilder(context, BatteryStateDatabase.class, "battery-usage-db-v9")
                             // Allows accessing data in the main thread for dumping bugreport.
                             .allowMainThreadQueries()
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
                             .fallbackToDestructiveMigration()
                             .build();
             Log.d(TAG, "initialize battery states database");
@@ -67,4 +128,75 @@ public abstract class BatteryStateDatabase extends RoomDatabase {
     public static void setBatteryStateDatabase(BatteryStateDatabase database) {
         BatteryStateDatabase.sBatteryStateDatabase = database;
     }
+
+    /**
+     * Returns the free pages of the purged records to the file system and refreshes the statistics
+     * of the query planner. Expected to be invoked when the device is idle.
+     */
+    public void compact() {
+        final SupportSQLiteDatabase db = getOpenHelper().getWritableDatabase();
+        if (queryForLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            // Changing the auto vacuum mode of an existing file only applies after a full VACUUM.
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+            Log.d(TAG, "enable incremental auto vacuum");
+        } else {
+            // Steps through the statement, each step releases a free page.
+            try (Cursor cursor = db.query("PRAGMA incremental_vacuum")) {
+                while (cursor.moveToNext()) {}
+            }
+        }
+        try (Cursor cursor = db.query("PRAGMA optimize")) {
+            while (cursor.moveToNext()) {}
+        }
+    }
+
+    private static long queryForLong(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0L;
+        }
+    }
+
+    private static void createIndex(SupportSQLiteDatabase db, String table, String... columns) {
+        db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_"
+                        + table
+                        + "_"
+                        + String.join("_", columns)
+                        + "` ON `"
+                        + table
+                        + "` (`"
+                        + String.join("`, `", columns)
+                        + "`)");
+    }
+
+    private static void migrateBase64ColumnToBlob(
+            SupportSQLiteDatabase db, String table, String createTableSql, String column) {
+        final String legacyTable = table + "_legacy";
+        db.execSQL("ALTER TABLE `" + table + "` RENAME TO `" + legacyTable + "`");
+        db.execSQL(createTableSql);
+        // Keeps the column order of the legacy table, the encoded column is rewritten below.
+        db.execSQL("INSERT INTO `" + table + "` SELECT * FROM `" + legacyTable + "`");
+        try (Cursor cursor = db.query("SELECT mId, " + column + " FROM `" + legacyTable + "`")) {
+            final ContentValues values = new ContentValues(1);
+            while (cursor.moveToNext()) {
+                byte[] decoded = null;
+                try {
+                    final String encoded = cursor.getString(1);
+                    decoded = encoded == null ? null : Base64.decode(encoded, Base64.DEFAULT);
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "invalid encoded data in " + table + ":" + cursor.getLong(0));
+                }
+                values.put(column, decoded);
+                db.update(
+                        table,
+                        SQLiteDatabase.CONFLICT_NONE,
+                        values,
+                        "mId = ?",
+                        new Object[] {cursor.getLong(0)});
+            }
+        }
+        db.execSQL("DROP TABLE `" + legacyTable + "`");
+        Log.d(TAG, "migrate " + table + "." + column + " into BLOB column");
+    }
 }
@@ -34,16 +34,14 @@ import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
 import com.android.settings.homepage.contextualcards.logging.ContextualCardLogUtils;
+import com.android.settings.homepage.contextualcards.logging.ContextualCardLogUtils.EligibilityLog;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>> {
@@ -61,6 +59,8 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             new Handler(Looper.getMainLooper())) {
         @Override
         public void onChange(boolean selfChange, Uri uri) {
+            // A card was refreshed or dismissed, check the eligibility of the cards again.
+            getEligibleCardExecutor().invalidateCache();
             if (isStarted()) {
                 mNotifyUri = uri;
                 forceLoad();
@@ -187,20 +187,21 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             return candidates;
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
         final List<ContextualCard> cards = new ArrayList<>();
         List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
 
         final List<EligibleCardChecker> checkers = candidates.stream()
                 .map(card -> new EligibleCardChecker(mContext, card))
                 .collect(Collectors.toList());
+        final EligibilityLog eligibilityLog = new EligibilityLog();
         try {
-            eligibleCards = executor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
-                    TimeUnit.MILLISECONDS);
+            eligibleCards = getEligibleCardExecutor().invokeAll(checkers,
+                    ELIGIBILITY_CHECKER_TIMEOUT_MS, eligibilityLog);
         } catch (InterruptedException e) {
             Log.w(TAG, "Failed to get eligible states for all cards", e);
         }
-        executor.shutdown();
+        Log.d(TAG, "Eligibility checks: "
+                + ContextualCardLogUtils.buildEligibilityLog(eligibilityLog));
 
         // Collect future and eligible cards
         for (int i = 0; i < eligibleCards.size(); i++) {
@@ -223,6 +224,11 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
         return cards;
     }
 
+    @VisibleForTesting
+    EligibleCardExecutor getEligibleCardExecutor() {
+        return EligibleCardExecutor.getInstance();
+    }
+
     private boolean isLargeCard(ContextualCard card) {
         return card.getSliceUri().equals(BLUETOOTH_DEVICES_SLICE_URI);
     }
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.android.settings.intelligence.ContextualCardProto.ContextualCard.Category.STICKY_VALUE;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.homepage.contextualcards.logging.ContextualCardLogUtils.EligibilityLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link EligibleCardChecker EligibleCardCheckers} on a process-wide bounded thread pool, so
+ * loading the homepage doesn't create a thread per card.
+ *
+ * Sticky cards are checked first, then the cards with higher ranking score. The results are cached
+ * by slice uri for a short time, and {@link #invalidateCache()} drops them when a card is
+ * refreshed or dismissed.
+ *
+ * A check which times out is cancelled, but a checker blocked in a binder call ignores the
+ * interrupt and keeps its thread. Such a hung check isn't counted against the pool, which grows
+ * by a thread for it until it returns, so it doesn't delay the checks of the next loads.
+ */
+class EligibleCardExecutor {
+
+    @VisibleForTesting
+    static final int THREAD_COUNT = 4;
+    /**
+     * How long an eligibility result is reused. A card which becomes eligible or ineligible in the
+     * meantime, e.g. as a setting is changed outside of the homepage, keeps its old result for up
+     * to this long, unless the card is refreshed or dismissed, or its ranking score or category
+     * changes.
+     */
+    @VisibleForTesting
+    static final long CACHE_TTL_MS = 30000;
+
+    private static final long KEEP_ALIVE_MS = 30000;
+
+    private static EligibleCardExecutor sInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+    private final AtomicLong mSequence = new AtomicLong();
+    private final Map<Uri, CachedResult> mCache = new ArrayMap<>();
+    private int mHungCount;
+
+    static synchronized EligibleCardExecutor getInstance() {
+        if (sInstance == null) {
+            sInstance = new EligibleCardExecutor();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    EligibleCardExecutor() {
+        mExecutor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, KEEP_ALIVE_MS,
+                TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Checks the eligibility of the cards, and waits for at most {@code timeoutMs} in total.
+     *
+     * @return the futures in the same order as {@code checkers}. The futures which didn't complete
+     * in time are cancelled.
+     */
+    List<Future<ContextualCard>> invokeAll(List<EligibleCardChecker> checkers, long timeoutMs,
+            EligibilityLog log) throws InterruptedException {
+        final long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+        final List<Future<ContextualCard>> futures = new ArrayList<>(checkers.size());
+        for (EligibleCardChecker checker : checkers) {
+            final FutureTask<ContextualCard> cachedResult = getCachedResult(checker.mCard);
+            if (cachedResult != null) {
+                log.recordCacheHit();
+                futures.add(cachedResult);
+                continue;
+            }
+            final CheckerTask task = new CheckerTask(checker, log, mSequence.getAndIncrement());
+            futures.add(task);
+            mExecutor.execute(task);
+        }
+
+        boolean timedOut = false;
+        try {
+            for (Future<ContextualCard> future : futures) {
+                if (future.isDone()) {
+                    continue;
+                }
+                try {
+                    future.get(Math.max(0, deadline - SystemClock.elapsedRealtime()),
+                            TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (future instanceof CheckerTask) {
+                        ((CheckerTask) future).onTimedOut();
+                    }
+                    future.cancel(true /* mayInterruptIfRunning */);
+                    log.recordTimeout();
+                    timedOut = true;
+                } catch (ExecutionException e) {
+                    // Reported by the caller when it gets the result.
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true /* mayInterruptIfRunning */));
+            mExecutor.purge();
+            throw e;
+        }
+        if (timedOut) {
+            mExecutor.purge();
+        }
+        return futures;
+    }
+
+    /** Drops all the cached results, e.g. when a card asks to be refreshed. */
+    void invalidateCache() {
+        synchronized (mCache) {
+            mCache.clear();
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getHungCount() {
+        return mHungCount;
+    }
+
+    /** Resizes the pool, so the checks which hung don't take the threads of the other ones. */
+    private synchronized void addHungCount(int delta) {
+        mHungCount += delta;
+        final int poolSize = THREAD_COUNT + mHungCount;
+        // The core pool size can't exceed the maximum one.
+        if (delta > 0) {
+            mExecutor.setMaximumPoolSize(poolSize);
+            mExecutor.setCorePoolSize(poolSize);
+        } else {
+            mExecutor.setCorePoolSize(poolSize);
+            mExecutor.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    private FutureTask<ContextualCard> getCachedResult(ContextualCard card) {
+        final CachedResult cachedResult;
+        synchronized (mCache) {
+            cachedResult = mCache.get(card.getSliceUri());
+        }
+        if (cachedResult == null || !cachedResult.isValidFor(card)) {
+            return null;
+        }
+        final FutureTask<ContextualCard> future = new FutureTask<>(() -> cachedResult.mResult);
+        future.run();
+        return future;
+    }
+
+    private void putCachedResult(ContextualCard card, ContextualCard result) {
+        synchronized (mCache) {
+            mCache.put(card.getSliceUri(), new CachedResult(card, result));
+        }
+    }
+
+    private static class CachedResult {
+        final long mTimestamp = SystemClock.elapsedRealtime();
+        final String mName;
+        final double mRankingScore;
+        final int mCategory;
+        final ContextualCard mResult;
+
+        CachedResult(ContextualCard card, ContextualCard result) {
+            mName = card.getName();
+            mRankingScore = card.getRankingScore();
+            mCategory = card.getCategory();
+            mResult = result;
+        }
+
+        boolean isValidFor(ContextualCard card) {
+            return SystemClock.elapsedRealtime() - mTimestamp < CACHE_TTL_MS
+                    && TextUtils.equals(mName, card.getName())
+                    && mRankingScore == card.getRankingScore()
+                    && mCategory == card.getCategory();
+        }
+    }
+
+    private class CheckerTask extends FutureTask<ContextualCard>
+            implements Comparable<CheckerTask> {
+        private static final int STATE_QUEUED = 0;
+        private static final int STATE_RUNNING = 1;
+        private static final int STATE_HUNG = 2;
+        private static final int STATE_FINISHED = 3;
+
+        private final ContextualCard mCard;
+        private final EligibilityLog mLog;
+        private final long mSequence;
+        private final long mEnqueueTime = SystemClock.elapsedRealtime();
+        private final AtomicInteger mState = new AtomicInteger(STATE_QUEUED);
+        private long mStartTime;
+
+        CheckerTask(EligibleCardChecker checker, EligibilityLog log, long sequence) {
+            super(checker);
+            mCard = checker.mCard;
+            mLog = log;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (isDone() || !mState.compareAndSet(STATE_QUEUED, STATE_RUNNING)) {
+                return;
+            }
+            mStartTime = SystemClock.elapsedRealtime();
+            try {
+                super.run();
+            } finally {
+                if (mState.getAndSet(STATE_FINISHED) == STATE_HUNG) {
+                    addHungCount(-1);
+                }
+            }
+        }
+
+        /** Stops counting the thread of the check against the pool if it is still running. */
+        void onTimedOut() {
+            if (mState.compareAndSet(STATE_RUNNING, STATE_HUNG)) {
+                addHungCount(1);
+            }
+        }
+
+        @Override
+        protected void set(ContextualCard result) {
+            // Record and cache before completing, so they are visible to the waiting loader.
+            recordCheck();
+            putCachedResult(mCard, result);
+            super.set(result);
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            recordCheck();
+            super.setException(t);
+        }
+
+        private void recordCheck() {
+            mLog.recordCheck(mStartTime - mEnqueueTime, SystemClock.elapsedRealtime() - mStartTime);
+        }
+
+        @Override
+        public int compareTo(@NonNull CheckerTask other) {
+            final boolean sticky = mCard.getCategory() == STICKY_VALUE;
+            if (sticky != (other.mCard.getCategory() == STICKY_VALUE)) {
+                return sticky ? -1 : 1;
+            }
+            final int scoreOrder = Double.compare(other.mCard.getRankingScore(),
+                    mCard.getRankingScore());
+            return scoreOrder != 0 ? scoreOrder : Long.compare(mSequence, other.mSequence);
+        }
+    }
+}
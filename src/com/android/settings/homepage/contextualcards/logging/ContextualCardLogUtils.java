@@ -131,6 +131,90 @@ public class ContextualCardLogUtils {
         }
     }
 
+    /**
+     * Metrics of the card eligibility checks of one card load
+     */
+    public static class EligibilityLog {
+        private int mCheckCount;
+        private int mCacheHitCount;
+        private int mTimeoutCount;
+        private long mTotalQueueWaitMs;
+        private long mMaxQueueWaitMs;
+        private long mTotalCheckLatencyMs;
+        private long mMaxCheckLatencyMs;
+
+        /**
+         * Records a finished eligibility check.
+         *
+         * @param queueWaitMs Time the check waited for a thread.
+         * @param checkLatencyMs Time the check took to run.
+         */
+        public synchronized void recordCheck(long queueWaitMs, long checkLatencyMs) {
+            mCheckCount++;
+            mTotalQueueWaitMs += queueWaitMs;
+            mMaxQueueWaitMs = Math.max(mMaxQueueWaitMs, queueWaitMs);
+            mTotalCheckLatencyMs += checkLatencyMs;
+            mMaxCheckLatencyMs = Math.max(mMaxCheckLatencyMs, checkLatencyMs);
+        }
+
+        /**
+         * Records a card whose eligibility was served from the cache.
+         */
+        public synchronized void recordCacheHit() {
+            mCacheHitCount++;
+        }
+
+        /**
+         * Records a check which didn't finish in time.
+         */
+        public synchronized void recordTimeout() {
+            mTimeoutCount++;
+        }
+
+        public synchronized int getCheckCount() {
+            return mCheckCount;
+        }
+
+        public synchronized int getCacheHitCount() {
+            return mCacheHitCount;
+        }
+
+        public synchronized int getTimeoutCount() {
+            return mTimeoutCount;
+        }
+
+        public synchronized long getMaxQueueWaitMs() {
+            return mMaxQueueWaitMs;
+        }
+
+        public synchronized long getMaxCheckLatencyMs() {
+            return mMaxCheckLatencyMs;
+        }
+
+        public synchronized long getAverageQueueWaitMs() {
+            return mCheckCount == 0 ? 0 : mTotalQueueWaitMs / mCheckCount;
+        }
+
+        public synchronized long getAverageCheckLatencyMs() {
+            return mCheckCount == 0 ? 0 : mTotalCheckLatencyMs / mCheckCount;
+        }
+    }
+
+    /**
+     * Serialize {@link EligibilityLog} to string
+     */
+    public static String buildEligibilityLog(EligibilityLog eligibilityLog) {
+        final StringBuilder log = new StringBuilder();
+        log.append(eligibilityLog.getCheckCount())
+                .append("|").append(eligibilityLog.getCacheHitCount())
+                .append("|").append(eligibilityLog.getTimeoutCount())
+                .append("|").append(eligibilityLog.getAverageQueueWaitMs())
+                .append("|").append(eligibilityLog.getMaxQueueWaitMs())
+                .append("|").append(eligibilityLog.getAverageCheckLatencyMs())
+                .append("|").append(eligibilityLog.getMaxCheckLatencyMs());
+        return log.toString();
+    }
+
     /**
      * Serialize {@link ContextualCard} click event to string
      *
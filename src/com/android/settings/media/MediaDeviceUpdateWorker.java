@@ -52,6 +52,8 @@ public class MediaDeviceUpdateWorker extends SliceBackgroundWorker
 
     private static final String TAG = "MediaDeviceUpdateWorker";
     private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
+    // Device scans report every device and state change separately.
+    private static final long UPDATE_THROTTLE_INTERVAL = 500L;
 
     public static final String MEDIA_PACKAGE_NAME = "media_package_name";
 
@@ -95,6 +97,11 @@ public class MediaDeviceUpdateWorker extends SliceBackgroundWorker
         mLocalMediaManager.startScan();
     }
 
+    @Override
+    protected long getUpdateThrottleInterval() {
+        return UPDATE_THROTTLE_INTERVAL;
+    }
+
     @Override
     protected void onSliceUnpinned() {
         mLocalMediaManager.unregisterCallback(this);
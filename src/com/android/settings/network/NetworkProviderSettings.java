@@ -38,6 +38,7 @@ import android.os.UserManager;
 import android.provider.Settings;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.EventLog;
 import android.util.Log;
 import android.view.ContextMenu;
@@ -93,7 +94,10 @@ import com.android.wifitrackerlib.WifiEntry;
 import com.android.wifitrackerlib.WifiEntry.ConnectCallback;
 import com.android.wifitrackerlib.WifiPickerTracker;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -961,7 +965,6 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
             return;
         }
 
-        boolean hasAvailableWifiEntries = false;
         mWifiEntryPreferenceCategory.setVisible(true);
 
         final WifiEntry connectedEntry = mWifiPickerTracker.getConnectedWifiEntry();
@@ -995,49 +998,56 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
                 }
             }
         } else {
-            connectedWifiPreferenceCategory.removeAll();
-        }
-
-        int index = 0;
-        cacheRemoveAllPrefs(mWifiEntryPreferenceCategory);
-        List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
-        for (WifiEntry wifiEntry : wifiEntries) {
-            hasAvailableWifiEntries = true;
-
-            String key = wifiEntry.getKey();
-            LongPressWifiEntryPreference pref =
-                    (LongPressWifiEntryPreference) getCachedPreference(key);
-            if (pref != null) {
-                if (pref.getWifiEntry() == wifiEntry) {
-                    pref.setOrder(index++);
-                    continue;
-                } else {
-                    // Create a new preference if the underlying WifiEntry object has changed
-                    removePreference(key);
-                }
-            }
+            removeAllIfNotEmpty(connectedWifiPreferenceCategory);
+        }
+
+        final List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
+        final Map<String, LongPressWifiEntryPreference> shownPrefs = new ArrayMap<>();
+        final List<WifiEntry> shownEntries = getShownWifiEntries(shownPrefs);
+        final WifiEntryListDiff diff = WifiEntryListDiff.compute(shownEntries, wifiEntries);
+        if (diff.isEmpty() && mAddWifiNetworkPreference.getParent() != null) {
+            // Same scan snapshot as the one shown, the preferences refresh themselves.
+            return;
+        }
 
-            pref = createLongPressWifiEntryPreference(wifiEntry);
+        for (String key : diff.mRemovedKeys) {
+            mWifiEntryPreferenceCategory.removePreference(shownPrefs.get(key));
+        }
+        for (int position : diff.mUpdatedPositions) {
+            final WifiEntry wifiEntry = wifiEntries.get(position);
+            final LongPressWifiEntryPreference pref = shownPrefs.get(wifiEntry.getKey());
+            pref.setWifiEntry(wifiEntry);
+            setHelpButtonListener(pref);
+        }
+        for (int position : diff.mMovedPositions) {
+            shownPrefs.get(wifiEntries.get(position).getKey()).setOrder(position);
+        }
+        for (int position : diff.mInsertedPositions) {
+            final WifiEntry wifiEntry = wifiEntries.get(position);
+            final LongPressWifiEntryPreference pref = createLongPressWifiEntryPreference(wifiEntry);
             pref.setKey(wifiEntry.getKey());
-            pref.setOrder(index++);
+            pref.setOrder(position);
             pref.refresh();
-
-            if (wifiEntry.getHelpUriString() != null) {
-                pref.setOnButtonClickListener(preference -> {
-                    openSubscriptionHelpPage(wifiEntry);
-                });
-            }
+            setHelpButtonListener(pref);
             mWifiEntryPreferenceCategory.addPreference(pref);
         }
-        removeCachedPrefs(mWifiEntryPreferenceCategory);
 
-        if (!hasAvailableWifiEntries) {
+        int index = wifiEntries.size();
+        final Preference emptyPref =
+                mWifiEntryPreferenceCategory.findPreference(PREF_KEY_EMPTY_WIFI_LIST);
+        if (!wifiEntries.isEmpty()) {
+            if (emptyPref != null) {
+                mWifiEntryPreferenceCategory.removePreference(emptyPref);
+            }
+        } else if (emptyPref == null) {
             Preference pref = new Preference(getPrefContext());
             pref.setSelectable(false);
             pref.setSummary(R.string.wifi_empty_list_wifi_on);
             pref.setOrder(index++);
             pref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
             mWifiEntryPreferenceCategory.addPreference(pref);
+        } else {
+            index++;
         }
 
         mAddWifiNetworkPreference.setOrder(index++);
@@ -1045,19 +1055,59 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         setAdditionalSettingsSummaries();
     }
 
+    /**
+     * Returns the {@link WifiEntry}s shown in {@link #mWifiEntryPreferenceCategory} in display
+     * order, and fills {@code prefs} with their preferences keyed by {@link WifiEntry#getKey()}.
+     */
+    private List<WifiEntry> getShownWifiEntries(Map<String, LongPressWifiEntryPreference> prefs) {
+        final List<LongPressWifiEntryPreference> shownPrefs = new ArrayList<>();
+        final int count = mWifiEntryPreferenceCategory.getPreferenceCount();
+        for (int i = 0; i < count; i++) {
+            final Preference pref = mWifiEntryPreferenceCategory.getPreference(i);
+            if (pref instanceof LongPressWifiEntryPreference) {
+                shownPrefs.add((LongPressWifiEntryPreference) pref);
+            }
+        }
+        shownPrefs.sort(Comparator.comparingInt(Preference::getOrder));
+
+        final List<WifiEntry> shownEntries = new ArrayList<>(shownPrefs.size());
+        for (LongPressWifiEntryPreference pref : shownPrefs) {
+            shownEntries.add(pref.getWifiEntry());
+            prefs.put(pref.getKey(), pref);
+        }
+        return shownEntries;
+    }
+
+    private void setHelpButtonListener(LongPressWifiEntryPreference pref) {
+        if (pref.getWifiEntry().getHelpUriString() != null) {
+            pref.setOnButtonClickListener(preference -> {
+                openSubscriptionHelpPage(preference.getWifiEntry());
+            });
+        } else {
+            pref.setOnButtonClickListener(null);
+        }
+    }
+
     @VisibleForTesting
     PreferenceCategory getConnectedWifiPreferenceCategory() {
         if (mInternetUpdater.getInternetType() == InternetUpdater.INTERNET_WIFI) {
             mFirstWifiEntryPreferenceCategory.setVisible(false);
-            mFirstWifiEntryPreferenceCategory.removeAll();
+            removeAllIfNotEmpty(mFirstWifiEntryPreferenceCategory);
             return mConnectedWifiEntryPreferenceCategory;
         }
 
         mConnectedWifiEntryPreferenceCategory.setVisible(false);
-        mConnectedWifiEntryPreferenceCategory.removeAll();
+        removeAllIfNotEmpty(mConnectedWifiEntryPreferenceCategory);
         return mFirstWifiEntryPreferenceCategory;
     }
 
+    private static void removeAllIfNotEmpty(PreferenceCategory category) {
+        // removeAll() notifies a hierarchy change even when there is nothing to remove.
+        if (category.getPreferenceCount() > 0) {
+            category.removeAll();
+        }
+    }
+
     @VisibleForTesting
     ConnectedWifiEntryPreference createConnectedWifiEntryPreference(WifiEntry wifiEntry) {
         if (mInternetUpdater.getInternetType() == InternetUpdater.INTERNET_WIFI) {
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.util.ArrayMap;
+
+import com.android.wifitrackerlib.WifiEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The changes turning a list of shown {@link WifiEntry}s into a new list, matching the entries by
+ * {@link WifiEntry#getKey()}. Positions refer to the new list.
+ */
+class WifiEntryListDiff {
+
+    /** Keys of the shown entries which are not in the new list. */
+    final List<String> mRemovedKeys = new ArrayList<>();
+    /** Positions of the entries which are not shown yet. */
+    final List<Integer> mInsertedPositions = new ArrayList<>();
+    /** Positions of the shown entries which are at another position in the new list. */
+    final List<Integer> mMovedPositions = new ArrayList<>();
+    /** Positions of the shown entries which are backed by another {@link WifiEntry} object. */
+    final List<Integer> mUpdatedPositions = new ArrayList<>();
+
+    private WifiEntryListDiff() {
+    }
+
+    /** Returns whether the new list is the same as the shown one. */
+    boolean isEmpty() {
+        return mRemovedKeys.isEmpty() && mInsertedPositions.isEmpty()
+                && mMovedPositions.isEmpty() && mUpdatedPositions.isEmpty();
+    }
+
+    /**
+     * Computes the changes from {@code shownEntries} to {@code newEntries}. Entries of
+     * {@code newEntries} whose key is already listed before them are ignored.
+     */
+    static WifiEntryListDiff compute(List<WifiEntry> shownEntries, List<WifiEntry> newEntries) {
+        final WifiEntryListDiff diff = new WifiEntryListDiff();
+        final Map<String, Integer> shownPositions = new ArrayMap<>(shownEntries.size());
+        for (int i = 0; i < shownEntries.size(); i++) {
+            shownPositions.put(shownEntries.get(i).getKey(), i);
+        }
+
+        final Map<String, Integer> newPositions = new ArrayMap<>(newEntries.size());
+        for (int i = 0; i < newEntries.size(); i++) {
+            final WifiEntry wifiEntry = newEntries.get(i);
+            final String key = wifiEntry.getKey();
+            if (newPositions.containsKey(key)) {
+                continue;
+            }
+            newPositions.put(key, i);
+
+            final Integer shownPosition = shownPositions.get(key);
+            if (shownPosition == null) {
+                diff.mInsertedPositions.add(i);
+                continue;
+            }
+            if (shownPosition != i) {
+                diff.mMovedPositions.add(i);
+            }
+            if (shownEntries.get(shownPosition) != wifiEntry) {
+                diff.mUpdatedPositions.add(i);
+            }
+        }
+
+        for (WifiEntry wifiEntry : shownEntries) {
+            if (!newPositions.containsKey(wifiEntry.getKey())) {
+                diff.mRemovedKeys.add(wifiEntry.getKey());
+            }
+        }
+        return diff;
+    }
+}
@@ -66,6 +66,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 public class NotificationBackend {
     private static final String TAG = "NotificationBackend";
@@ -111,14 +112,53 @@ public class NotificationBackend {
             Log.w(TAG, "Error calling NMS", e);
         }
 
+        if (isPermissionStateLocked(app)) {
+            row.lockedImportance = true;
+            row.permissionStateLocked = true;
+        }
+    }
+
+    private static boolean isPermissionStateLocked(PackageInfo app) {
         // if the app targets T but has not requested the permission, we cannot change the
         // permission state
-        if (app.applicationInfo.targetSdkVersion > Build.VERSION_CODES.S_V2) {
-            if (app.requestedPermissions == null || Arrays.stream(app.requestedPermissions)
-                    .noneMatch(p -> p.equals(android.Manifest.permission.POST_NOTIFICATIONS))) {
-                row.lockedImportance = true;
-                row.permissionStateLocked = true;
+        return app.applicationInfo.targetSdkVersion > Build.VERSION_CODES.S_V2
+                && (app.requestedPermissions == null || Arrays.stream(app.requestedPermissions)
+                        .noneMatch(p -> p.equals(android.Manifest.permission.POST_NOTIFICATIONS)));
+    }
+
+    /**
+     * Returns the {@link BlockState} of the given packages of a user, keyed by package name.
+     * The packages of the user are read in one call instead of one call per package, and
+     * packages whose permission state is locked skip the importance lookup. Packages which are
+     * not installed for the user are left out.
+     */
+    public Map<String, BlockState> getBlockStates(Context context, int userId,
+            Set<String> packageNames) {
+        final Map<String, BlockState> states = new HashMap<>();
+        final List<PackageInfo> packages = context.getPackageManager()
+                .getInstalledPackagesAsUser(PackageManager.GET_PERMISSIONS, userId);
+        for (PackageInfo info : packages) {
+            if (info.applicationInfo == null || !packageNames.contains(info.packageName)) {
+                continue;
             }
+            final BlockState state = new BlockState();
+            state.banned = getNotificationsBanned(info.packageName, info.applicationInfo.uid);
+            state.blockable = canBeBlocked(info);
+            states.put(info.packageName, state);
+        }
+        return states;
+    }
+
+    /** Same as {@link #enableSwitch}, for a package which is already looked up. */
+    private boolean canBeBlocked(PackageInfo info) {
+        if (isPermissionStateLocked(info)) {
+            return false;
+        }
+        try {
+            return !sINM.isImportanceLocked(info.packageName, info.applicationInfo.uid);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Error calling NMS", e);
+            return true;
         }
     }
 
@@ -652,6 +692,15 @@ public class NotificationBackend {
         public int sentCount = 0;
     }
 
+    /**
+     * BlockState contains whether the notifications of an app are blocked, and whether the user
+     * can change it.
+     */
+    public static class BlockState {
+        public boolean banned;
+        public boolean blockable;
+    }
+
     static class Row {
         public String section;
     }
@@ -26,9 +26,12 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Binder;
+import android.os.LocaleList;
 import android.os.StrictMode;
 import android.os.UserManager;
 import android.provider.Settings;
@@ -56,14 +59,19 @@ import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.SliceBroadcastRelay;
 import com.android.settingslib.utils.ThreadUtils;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -78,10 +86,14 @@ import java.util.stream.Collectors;
  * return an stub {@link Slice} with the correct {@link Uri} immediately. In the background, the
  * data corresponding to the key in the {@link Uri} is read by {@link SlicesDatabaseAccessor}, and
  * the entire row is converted into a {@link SliceData}. Once complete, it is stored in
- * {@link #mSliceWeakDataCache}, and then an update sent via the Slice framework to the Slice.
+ * {@link #mSliceDataCache}, and then an update sent via the Slice framework to the Slice.
  * The {@link Slice} displayed by the Slice-presenter will re-query this Slice-provider and find
  * the {@link SliceData} cached to build the full {@link Slice}.
  *
+ * <p>On the first bind, the {@link SliceData} of the pinned and recently bound {@link Slice}s is
+ * loaded with a single query, so they are not bound as stubs one by one after a restart. The
+ * cached {@link SliceData} is dropped when the locale changes or the Slices are re-indexed.
+ *
  * <p>When an action is taken on that {@link Slice}, we receive the action in
  * {@link SliceBroadcastReceiver}, and use the
  * {@link com.android.settings.core.BasePreferenceController} indexed as
@@ -132,11 +144,32 @@ public class SettingsSliceProvider extends SliceProvider {
 
     private static final KeyValueListParser KEY_VALUE_LIST_PARSER = new KeyValueListParser(',');
 
+    @VisibleForTesting
+    static final int SLICE_DATA_CACHE_SIZE = 64;
+
+    private static final String PREF_FILE = "slice_provider";
+    private static final String PREF_KEY_RECENT_SLICES = "recently_bound_slices";
+
     @VisibleForTesting
     SlicesDatabaseAccessor mSlicesDatabaseAccessor;
 
     @VisibleForTesting
-    Map<Uri, SliceData> mSliceWeakDataCache;
+    final Map<Uri, SliceData> mSliceDataCache = Collections.synchronizedMap(
+            new LinkedHashMap<Uri, SliceData>(16, 0.75f, true /* accessOrder */) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Uri, SliceData> eldest) {
+                    return size() > SLICE_DATA_CACHE_SIZE;
+                }
+            });
+
+    // The index generation and locales of the SliceData in the cache, guarded by mSliceDataCache.
+    private int mSliceDataGeneration;
+    private LocaleList mSliceDataLocales;
+
+    /** Uris whose intent filters and background workers are registered by {@link #loadSlice}. */
+    private final Set<Uri> mLoadedUris = Collections.synchronizedSet(new ArraySet<>());
+
+    private final AtomicBoolean mPrewarmRequested = new AtomicBoolean();
 
     @VisibleForTesting
     final Map<Uri, SliceBackgroundWorker> mPinnedWorkers = new ArrayMap<>();
@@ -145,6 +178,13 @@ public class SettingsSliceProvider extends SliceProvider {
     private boolean mFirstSlicePinned;
     private boolean mFirstSliceBound;
 
+    // Guarded by this, reset when Settings.Global.BLOCKED_SLICES changes.
+    private Set<String> mBlockedKeys;
+    private ContentObserver mBlockedSlicesObserver;
+
+    // Ordered from the least to the most recently bound, guarded by itself once loaded.
+    private Set<String> mRecentSliceUris;
+
     public SettingsSliceProvider() {
         super(READ_SEARCH_INDEXABLES);
         Log.d(TAG, "init");
@@ -154,7 +194,6 @@ public class SettingsSliceProvider extends SliceProvider {
     public boolean onCreateSliceProvider() {
         Log.d(TAG, "onCreateSliceProvider");
         mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(getContext());
-        mSliceWeakDataCache = new WeakHashMap<>();
         return true;
     }
 
@@ -197,7 +236,7 @@ public class SettingsSliceProvider extends SliceProvider {
 
     @Override
     public void onSliceUnpinned(Uri sliceUri) {
-        mSliceWeakDataCache.remove(sliceUri);
+        mLoadedUris.remove(sliceUri);
         final Context context = getContext();
         if (!VolumeSliceHelper.unregisterUri(context, sliceUri)) {
             SliceBroadcastRelay.unregisterReceivers(context, sliceUri);
@@ -272,7 +311,12 @@ public class SettingsSliceProvider extends SliceProvider {
                         .createWifiCallingPreferenceSlice(sliceUri);
             }
 
-            final SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
+            rememberBoundUri(sliceUri);
+            invalidateStaleSliceData();
+            final SliceData cachedSliceData = mSliceDataCache.get(sliceUri);
+            if (mPrewarmRequested.compareAndSet(false, true)) {
+                ThreadUtils.postOnBackgroundThread(this::prewarmSliceDataCache);
+            }
             if (cachedSliceData == null) {
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
@@ -400,22 +444,43 @@ public class SettingsSliceProvider extends SliceProvider {
         });
     }
 
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        SliceBackgroundWorker.dump(writer);
+    }
+
     @VisibleForTesting
     void loadSlice(Uri uri) {
-        if (mSliceWeakDataCache.containsKey(uri)) {
+        SliceData sliceData = mSliceDataCache.get(uri);
+        final boolean isLoaded = mLoadedUris.contains(uri);
+        if (sliceData != null && isLoaded) {
             Log.d(TAG, uri + " loaded from cache");
             return;
         }
         long startBuildTime = System.currentTimeMillis();
 
-        final SliceData sliceData;
-        try {
-            sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
-        } catch (IllegalStateException e) {
-            Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
-            return;
+        if (sliceData == null) {
+            try {
+                sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
+            } catch (IllegalStateException e) {
+                Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
+                return;
+            }
+        }
+
+        // Register once, even if the SliceData was dropped from the cache since.
+        if (!isLoaded) {
+            registerSliceData(uri, sliceData);
         }
+        cacheSliceData(uri, sliceData);
+        getContext().getContentResolver().notifyChange(uri, null /* content observer */);
+
+        Log.d(TAG, "Built slice (" + uri + ") in: " +
+                (System.currentTimeMillis() - startBuildTime));
+    }
 
+    private void registerSliceData(Uri uri, SliceData sliceData) {
         final BasePreferenceController controller = SliceBuilderUtils.getPreferenceController(
                 getContext(), sliceData);
 
@@ -432,11 +497,33 @@ public class SettingsSliceProvider extends SliceProvider {
 
         ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
 
-        mSliceWeakDataCache.put(uri, sliceData);
-        getContext().getContentResolver().notifyChange(uri, null /* content observer */);
+        mLoadedUris.add(uri);
+    }
 
-        Log.d(TAG, "Built slice (" + uri + ") in: " +
-                (System.currentTimeMillis() - startBuildTime));
+    private void cacheSliceData(Uri uri, SliceData sliceData) {
+        synchronized (mSliceDataCache) {
+            invalidateStaleSliceData();
+            mSliceDataCache.put(uri, sliceData);
+        }
+    }
+
+    /**
+     * Clears {@link #mSliceDataCache} when the locale changed or the Slices were re-indexed since
+     * it was filled, so the titles and controllers are read again from the database.
+     */
+    private void invalidateStaleSliceData() {
+        final LocaleList locales = getContext().getResources().getConfiguration().getLocales();
+        final int generation =
+                SlicesDatabaseHelper.getInstance(getContext()).getIndexGeneration();
+        synchronized (mSliceDataCache) {
+            if (mSliceDataLocales != null && (generation != mSliceDataGeneration
+                    || !locales.equals(mSliceDataLocales))) {
+                Log.d(TAG, "Clearing " + mSliceDataCache.size() + " stale slices");
+                mSliceDataCache.clear();
+            }
+            mSliceDataGeneration = generation;
+            mSliceDataLocales = locales;
+        }
     }
 
     @VisibleForTesting
@@ -454,8 +541,121 @@ public class SettingsSliceProvider extends SliceProvider {
                 intentFilter);
     }
 
+    /**
+     * Loads the {@link SliceData} of the pinned and recently bound {@link Slice}s into the cache
+     * with a single database query.
+     */
     @VisibleForTesting
-    Set<String> getBlockedKeys() {
+    void prewarmSliceDataCache() {
+        final Set<Uri> uris = new LinkedHashSet<>();
+        final SliceManager sliceManager = getContext().getSystemService(SliceManager.class);
+        if (sliceManager != null) {
+            uris.addAll(sliceManager.getPinnedSlices());
+        }
+        final Set<String> recentUris = getRecentSliceUris();
+        synchronized (recentUris) {
+            for (String uri : recentUris) {
+                uris.add(Uri.parse(uri));
+            }
+        }
+
+        final Iterator<Uri> iterator = uris.iterator();
+        while (iterator.hasNext()) {
+            final Uri uri = iterator.next();
+            if (!isSettingsAuthority(uri) || CustomSliceRegistry.isValidUri(uri)
+                    || mSliceDataCache.containsKey(uri)) {
+                iterator.remove();
+            }
+        }
+        if (uris.isEmpty()) {
+            return;
+        }
+
+        final long startTime = System.currentTimeMillis();
+        final Map<Uri, SliceData> sliceDataMap;
+        try {
+            sliceDataMap = mSlicesDatabaseAccessor.getSliceDataFromUris(uris);
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Could not prewarm slice data", e);
+            return;
+        }
+        synchronized (mSliceDataCache) {
+            invalidateStaleSliceData();
+            for (Map.Entry<Uri, SliceData> entry : sliceDataMap.entrySet()) {
+                mSliceDataCache.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        Log.d(TAG, "Prewarmed " + sliceDataMap.size() + " slices in: "
+                + (System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * Records the {@param uri} as recently bound, so its {@link SliceData} is prewarmed the next
+     * time the provider is created. Storage is only written when the set of uris changes.
+     */
+    private void rememberBoundUri(Uri uri) {
+        final String uriString = uri.toString();
+        final Set<String> recentUris = getRecentSliceUris();
+        synchronized (recentUris) {
+            final boolean isNew = !recentUris.remove(uriString);
+            recentUris.add(uriString);
+            if (!isNew) {
+                return;
+            }
+            if (recentUris.size() > SLICE_DATA_CACHE_SIZE) {
+                final Iterator<String> iterator = recentUris.iterator();
+                iterator.next();
+                iterator.remove();
+            }
+            getSharedPreferences().edit()
+                    .putStringSet(PREF_KEY_RECENT_SLICES, new ArraySet<>(recentUris))
+                    .apply();
+        }
+    }
+
+    private synchronized Set<String> getRecentSliceUris() {
+        if (mRecentSliceUris == null) {
+            mRecentSliceUris = new LinkedHashSet<>(getSharedPreferences().getStringSet(
+                    PREF_KEY_RECENT_SLICES, Collections.emptySet()));
+        }
+        return mRecentSliceUris;
+    }
+
+    private SharedPreferences getSharedPreferences() {
+        return getContext().getSharedPreferences(PREF_FILE, Context.MODE_PRIVATE);
+    }
+
+    private static boolean isSettingsAuthority(Uri uri) {
+        return TextUtils.equals(uri.getAuthority(), SLICE_AUTHORITY)
+                || TextUtils.equals(uri.getAuthority(), SettingsSlicesContract.AUTHORITY);
+    }
+
+    /**
+     * @return the keys of the blocked {@link Slice}s. The parsed value is cached until
+     * {@link Settings.Global#BLOCKED_SLICES} changes.
+     */
+    @VisibleForTesting
+    synchronized Set<String> getBlockedKeys() {
+        if (mBlockedKeys == null) {
+            if (mBlockedSlicesObserver == null) {
+                mBlockedSlicesObserver = new ContentObserver(null /* handler */) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        synchronized (SettingsSliceProvider.this) {
+                            mBlockedKeys = null;
+                        }
+                    }
+                };
+                getContext().getContentResolver().registerContentObserver(
+                        Settings.Global.getUriFor(Settings.Global.BLOCKED_SLICES),
+                        false /* notifyForDescendants */, mBlockedSlicesObserver);
+            }
+            mBlockedKeys = loadBlockedKeys();
+        }
+        return mBlockedKeys;
+    }
+
+    private Set<String> loadBlockedKeys() {
         final String value = Settings.Global.getString(getContext().getContentResolver(),
                 Settings.Global.BLOCKED_SLICES);
         final Set<String> set = new ArraySet<>();
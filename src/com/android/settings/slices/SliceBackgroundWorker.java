@@ -33,9 +33,9 @@ import androidx.annotation.VisibleForTesting;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -50,6 +50,10 @@ import java.util.Map;
  * {@link SliceBackgroundWorker} caches the results, uses the cache to compare if there is any data
  * changed, and then notifies the Slice {@link Uri} to update.
  *
+ * Updates are rate limited per worker, see {@link #getUpdateThrottleInterval()}. Requests made
+ * while an update is pending are merged into it, and updates whose results are the same as the
+ * last delivered ones are dropped, unless they are requested by {@link #notifySliceChange()}.
+ *
  * It also stores all instances of all workers to ensure each worker is a Singleton.
  */
 public abstract class SliceBackgroundWorker<E> implements Closeable {
@@ -63,7 +67,7 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     private final Context mContext;
     private final Uri mUri;
 
-    private List<E> mCachedResults;
+    private volatile Results<E> mCachedResults;
 
     protected SliceBackgroundWorker(Context context, Uri uri) {
         mContext = context;
@@ -126,6 +130,21 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
         LIVE_WORKERS.clear();
     }
 
+    /**
+     * Delivers the updates of all workers on {@code looper}, with new update counters.
+     */
+    @VisibleForTesting
+    static void resetUpdateHandler(Looper looper) {
+        NotifySliceChangeHandler.reset(looper);
+    }
+
+    /**
+     * Dumps the update counters of the workers.
+     */
+    static void dump(PrintWriter writer) {
+        NotifySliceChangeHandler.getInstance().dump(writer);
+    }
+
     /**
      * Called when the Slice is pinned. This is the place to register callbacks or initialize scan
      * tasks.
@@ -140,30 +159,32 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     @MainThread
     protected abstract void onSliceUnpinned();
 
+    /**
+     * @return the minimum interval in milliseconds between two updates of the Slice. Workers whose
+     * data changes continuously can return a longer interval. While {@link #updateResults(List)}
+     * keeps changing the results faster than this interval, it is gradually extended up to four
+     * times its value. Updates requested by {@link #notifySliceChange()} always use this interval.
+     */
+    protected long getUpdateThrottleInterval() {
+        return SLICE_UPDATE_THROTTLE_INTERVAL;
+    }
+
     /**
      * @return a {@link List} of cached results
      */
     public final List<E> getResults() {
-        return mCachedResults == null ? null : new ArrayList<>(mCachedResults);
+        final Results<E> results = mCachedResults;
+        return results == null ? null : new ArrayList<>(results.mList);
     }
 
     /**
      * Update the results when data changes
      */
     protected final void updateResults(List<E> results) {
-        boolean needNotify = false;
-
-        if (results == null) {
-            if (mCachedResults != null) {
-                needNotify = true;
-            }
-        } else {
-            needNotify = !areListsTheSame(results, mCachedResults);
-        }
-
-        if (needNotify) {
-            mCachedResults = results;
-            notifySliceChange();
+        final Results<E> newResults = results == null ? null : new Results<>(results);
+        if (!areResultsTheSame(newResults, mCachedResults)) {
+            mCachedResults = newResults;
+            NotifySliceChangeHandler.getInstance().updateSlice(this, false /* force */);
         }
     }
 
@@ -171,12 +192,27 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
         return a.equals(b);
     }
 
+    /**
+     * Compares the hashes of the results first, so changed results are usually told apart without
+     * comparing all their items. Results with the same hash are compared with
+     * {@link #areListsTheSame(List, List)}.
+     */
+    private boolean areResultsTheSame(@Nullable Results<E> a, @Nullable Results<E> b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        return a.mHash == b.mHash && areListsTheSame(a.mList, b.mList);
+    }
+
     /**
      * Notify that data was updated and attempt to sync changes to the Slice.
      */
     @VisibleForTesting
     public final void notifySliceChange() {
-        NotifySliceChangeHandler.getInstance().updateSlice(this);
+        NotifySliceChangeHandler.getInstance().updateSlice(this, true /* force */);
     }
 
     void pin() {
@@ -188,16 +224,36 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
         NotifySliceChangeHandler.getInstance().cancelSliceUpdate(this);
     }
 
+    private static class Results<E> {
+        final List<E> mList;
+        final int mHash;
+
+        Results(List<E> list) {
+            mList = list;
+            mHash = list.hashCode();
+        }
+    }
+
+    /**
+     * Schedules the updates of all workers. An update is delivered no sooner than the throttle
+     * interval of its worker after the previous one. Updates falling due at the same time are
+     * delivered with a single {@link android.content.ContentResolver#notifyChange} call.
+     */
     private static class NotifySliceChangeHandler extends Handler {
 
-        private static final int MSG_UPDATE_SLICE = 1000;
+        private static final int MSG_UPDATE_SLICES = 1000;
+        private static final int MAX_THROTTLE_BACKOFF = 4;
 
         private static NotifySliceChangeHandler sHandler;
 
-        private final Map<Uri, Long> mLastUpdateTimeLookup = Collections.synchronizedMap(
-                new ArrayMap<>());
+        // Guarded by itself.
+        private final Map<Uri, UpdateState> mUpdateStates = new ArrayMap<>();
 
-        private static NotifySliceChangeHandler getInstance() {
+        private long mDeliveredCount;
+        private long mCoalescedCount;
+        private long mSuppressedCount;
+
+        private static synchronized NotifySliceChangeHandler getInstance() {
             if (sHandler == null) {
                 final HandlerThread workerThread = new HandlerThread("NotifySliceChangeHandler",
                         Process.THREAD_PRIORITY_BACKGROUND);
@@ -207,45 +263,155 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
             return sHandler;
         }
 
+        private static synchronized void reset(Looper looper) {
+            sHandler = new NotifySliceChangeHandler(looper);
+        }
+
         private NotifySliceChangeHandler(Looper looper) {
             super(looper);
         }
 
         @Override
         public void handleMessage(Message msg) {
-            if (msg.what != MSG_UPDATE_SLICE) {
+            if (msg.what != MSG_UPDATE_SLICES) {
                 return;
             }
 
-            final SliceBackgroundWorker worker = (SliceBackgroundWorker) msg.obj;
-            final Uri uri = worker.getUri();
-            final Context context = worker.getContext();
-            mLastUpdateTimeLookup.put(uri, SystemClock.uptimeMillis());
-            context.getContentResolver().notifyChange(uri, null);
-        }
+            final List<Uri> uris = new ArrayList<>();
+            Context context = null;
+            synchronized (mUpdateStates) {
+                final long now = SystemClock.uptimeMillis();
+                for (UpdateState state : mUpdateStates.values()) {
+                    if (state.mDueTime == 0L || state.mDueTime > now) {
+                        continue;
+                    }
+                    state.mDueTime = 0L;
+                    final Results results = state.mWorker.mCachedResults;
+                    if (!state.mForce && state.mHasDelivered
+                            && state.mWorker.areResultsTheSame(results, state.mDeliveredResults)) {
+                        // The results went back to what the Slice already shows.
+                        state.mSuppressedCount++;
+                        mSuppressedCount++;
+                        continue;
+                    }
+                    state.mHasDelivered = true;
+                    state.mDeliveredResults = results;
+                    state.mLastUpdateTime = now;
+                    state.mDeliveredCount++;
+                    mDeliveredCount++;
+                    uris.add(state.mWorker.getUri());
+                    context = state.mWorker.getContext();
+                }
+                scheduleUpdateLocked();
+            }
 
-        private void updateSlice(SliceBackgroundWorker worker) {
-            if (hasMessages(MSG_UPDATE_SLICE, worker)) {
-                return;
+            if (uris.size() == 1) {
+                context.getContentResolver().notifyChange(uris.get(0), null);
+            } else if (!uris.isEmpty()) {
+                context.getContentResolver().notifyChange(uris, null, 0 /* flags */);
             }
+        }
 
-            final Message message = obtainMessage(MSG_UPDATE_SLICE, worker);
-            final long lastUpdateTime = mLastUpdateTimeLookup.getOrDefault(worker.getUri(), 0L);
-            if (lastUpdateTime == 0L) {
-                // Postpone the first update triggering by onSlicePinned() to avoid being too close
-                // to the first Slice bind.
-                sendMessageDelayed(message, SLICE_UPDATE_THROTTLE_INTERVAL);
-            } else if (SystemClock.uptimeMillis() - lastUpdateTime
-                    > SLICE_UPDATE_THROTTLE_INTERVAL) {
-                sendMessage(message);
-            } else {
-                sendMessageAtTime(message, lastUpdateTime + SLICE_UPDATE_THROTTLE_INTERVAL);
+        private void updateSlice(SliceBackgroundWorker worker, boolean force) {
+            synchronized (mUpdateStates) {
+                UpdateState state = mUpdateStates.get(worker.getUri());
+                if (state == null) {
+                    state = new UpdateState(worker);
+                    mUpdateStates.put(worker.getUri(), state);
+                }
+                state.mWorker = worker;
+                final long now = SystemClock.uptimeMillis();
+                final long baseInterval = worker.getUpdateThrottleInterval();
+                if (state.mDueTime != 0L) {
+                    // An update is pending, it will carry this change too.
+                    state.mForce |= force;
+                    state.mCoalescedCount++;
+                    mCoalescedCount++;
+                    if (force && state.mLastUpdateTime != 0L) {
+                        // Don't hold back an explicit change by the backoff of the results.
+                        state.mDueTime = Math.min(state.mDueTime,
+                                Math.max(now, state.mLastUpdateTime + baseInterval));
+                        scheduleUpdateLocked();
+                    }
+                    return;
+                }
+
+                if (state.mLastUpdateTime == 0L) {
+                    // Postpone the first update triggering by onSlicePinned() to avoid being too
+                    // close to the first Slice bind.
+                    state.mInterval = baseInterval;
+                    state.mDueTime = now + baseInterval;
+                } else if (force) {
+                    // Explicit changes, e.g. after the user connected to a network, are
+                    // delivered at the base interval.
+                    state.mDueTime = Math.max(now, state.mLastUpdateTime + baseInterval);
+                } else {
+                    if (now - state.mLastUpdateTime < state.mInterval) {
+                        // The data keeps changing, update the Slice less often.
+                        state.mInterval = Math.min(state.mInterval * 2,
+                                baseInterval * MAX_THROTTLE_BACKOFF);
+                    } else {
+                        state.mInterval = baseInterval;
+                    }
+                    state.mDueTime = Math.max(now, state.mLastUpdateTime + state.mInterval);
+                }
+                state.mForce = force;
+                scheduleUpdateLocked();
             }
         }
 
         private void cancelSliceUpdate(SliceBackgroundWorker worker) {
-            removeMessages(MSG_UPDATE_SLICE, worker);
-            mLastUpdateTimeLookup.remove(worker.getUri());
+            synchronized (mUpdateStates) {
+                mUpdateStates.remove(worker.getUri());
+                scheduleUpdateLocked();
+            }
+        }
+
+        private void scheduleUpdateLocked() {
+            long nextDueTime = Long.MAX_VALUE;
+            for (UpdateState state : mUpdateStates.values()) {
+                if (state.mDueTime != 0L) {
+                    nextDueTime = Math.min(nextDueTime, state.mDueTime);
+                }
+            }
+            removeMessages(MSG_UPDATE_SLICES);
+            if (nextDueTime != Long.MAX_VALUE) {
+                sendMessageAtTime(obtainMessage(MSG_UPDATE_SLICES), nextDueTime);
+            }
         }
-    };
+
+        private void dump(PrintWriter writer) {
+            synchronized (mUpdateStates) {
+                writer.println("Slice updates: delivered=" + mDeliveredCount
+                        + ", coalesced=" + mCoalescedCount
+                        + ", suppressed=" + mSuppressedCount);
+                for (UpdateState state : mUpdateStates.values()) {
+                    writer.println("  " + state.mWorker.getUri()
+                            + ": delivered=" + state.mDeliveredCount
+                            + ", coalesced=" + state.mCoalescedCount
+                            + ", suppressed=" + state.mSuppressedCount
+                            + ", interval=" + state.mInterval + "ms");
+                }
+            }
+        }
+    }
+
+    private static class UpdateState {
+        SliceBackgroundWorker mWorker;
+
+        long mLastUpdateTime;
+        long mInterval;
+        long mDueTime;
+        boolean mForce;
+        boolean mHasDelivered;
+        Results mDeliveredResults;
+
+        long mDeliveredCount;
+        long mCoalescedCount;
+        long mSuppressedCount;
+
+        UpdateState(SliceBackgroundWorker worker) {
+            mWorker = worker;
+        }
+    }
 }
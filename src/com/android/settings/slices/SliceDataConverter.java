@@ -40,6 +40,7 @@ import android.os.Bundle;
 import android.provider.SearchIndexableResource;
 import android.provider.SettingsSlicesContract;
 import android.text.TextUtils;
+import android.util.Base64;
 import android.util.Log;
 import android.view.accessibility.AccessibilityManager;
 
@@ -62,11 +63,16 @@ import com.android.settingslib.search.SearchIndexableData;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -79,6 +85,16 @@ class SliceDataConverter {
 
     private static final String TAG = "SliceDataConverter";
 
+    private static final int SLICE_METADATA_FLAGS = MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+            | MetadataFlag.FLAG_NEED_KEY
+            | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+            | MetadataFlag.FLAG_NEED_PREF_TYPE
+            | MetadataFlag.FLAG_NEED_PREF_TITLE
+            | MetadataFlag.FLAG_NEED_PREF_ICON
+            | MetadataFlag.FLAG_NEED_PREF_SUMMARY
+            | MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE
+            | MetadataFlag.FLAG_NEED_USER_RESTRICTION;
+
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private Context mContext;
 
@@ -100,6 +116,24 @@ class SliceDataConverter {
     public List<SliceData> getSliceData() {
         List<SliceData> sliceData = new ArrayList<>();
 
+        for (Map.Entry<String, SearchIndexProvider> entry : getSearchIndexProviders().entrySet()) {
+            final List<SliceData> providerSliceData = getSliceDataFromProvider(entry.getValue(),
+                    entry.getKey());
+            sliceData.addAll(providerSliceData);
+        }
+
+        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
+        sliceData.addAll(a11ySliceData);
+        return sliceData;
+    }
+
+    /**
+     * @return the {@link SearchIndexProvider} of each fragment indexed by settings search, keyed
+     * by the fragment classname.
+     */
+    Map<String, SearchIndexProvider> getSearchIndexProviders() {
+        final Map<String, SearchIndexProvider> providers = new LinkedHashMap<>();
+
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFeatureFactory()
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
@@ -114,17 +148,57 @@ class SliceDataConverter {
                 continue;
             }
 
-            final List<SliceData> providerSliceData = getSliceDataFromProvider(provider,
-                    fragmentName);
-            sliceData.addAll(providerSliceData);
+            providers.put(fragmentName, provider);
         }
+        return providers;
+    }
 
-        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
-        sliceData.addAll(a11ySliceData);
-        return sliceData;
+    /**
+     * @return a fingerprint of the XML metadata read by {@link #getSliceDataFromProvider}, which
+     * includes the preference controller classes and the localized titles and summaries, or null
+     * if it can't be computed and the provider should always be indexed.
+     */
+    String getProviderFingerprint(SearchIndexProvider provider) {
+        final List<SearchIndexableResource> resList =
+                provider.getXmlResourcesToIndex(mContext, true /* enabled */);
+        if (resList == null) {
+            return "";
+        }
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final StringBuilder builder = new StringBuilder();
+            for (SearchIndexableResource resource : resList) {
+                builder.append(resource.xmlResId).append('\n');
+                if (resource.xmlResId == 0) {
+                    continue;
+                }
+                final List<Bundle> metadata = PreferenceXmlParserUtils.extractMetadata(mContext,
+                        resource.xmlResId, SLICE_METADATA_FLAGS);
+                for (Bundle bundle : metadata) {
+                    final List<String> keys = new ArrayList<>(bundle.keySet());
+                    Collections.sort(keys);
+                    for (String key : keys) {
+                        builder.append(key).append('=').append(bundle.get(key)).append('\t');
+                    }
+                    builder.append('\n');
+                }
+                digest.update(builder.toString().getBytes(StandardCharsets.UTF_8));
+                builder.setLength(0);
+            }
+            return Base64.encodeToString(digest.digest(), Base64.NO_WRAP);
+        } catch (NoSuchAlgorithmException | XmlPullParserException | IOException
+                | Resources.NotFoundException e) {
+            Log.w(TAG, "Failed to get the fingerprint of " + provider, e);
+            return null;
+        }
     }
 
-    private List<SliceData> getSliceDataFromProvider(SearchIndexProvider provider,
+    /**
+     * @return a list of {@link SliceData} from the XML resources of the {@link SearchIndexProvider}
+     * hosted by {@code fragmentName}.
+     */
+    List<SliceData> getSliceDataFromProvider(SearchIndexProvider provider,
             String fragmentName) {
         final List<SliceData> sliceData = new ArrayList<>();
 
@@ -161,16 +235,7 @@ class SliceDataConverter {
             // correspond to an actual setting.
 
             final List<Bundle> metadata = PreferenceXmlParserUtils.extractMetadata(mContext,
-                    xmlResId,
-                    MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
-                            | MetadataFlag.FLAG_NEED_KEY
-                            | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
-                            | MetadataFlag.FLAG_NEED_PREF_TYPE
-                            | MetadataFlag.FLAG_NEED_PREF_TITLE
-                            | MetadataFlag.FLAG_NEED_PREF_ICON
-                            | MetadataFlag.FLAG_NEED_PREF_SUMMARY
-                            | MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE
-                            | MetadataFlag.FLAG_NEED_USER_RESTRICTION);
+                    xmlResId, SLICE_METADATA_FLAGS);
 
             for (Bundle bundle : metadata) {
                 final String title = bundle.getString(METADATA_TITLE);
@@ -250,7 +315,10 @@ class SliceDataConverter {
         return xmlSliceData;
     }
 
-    private List<SliceData> getAccessibilitySliceData() {
+    /**
+     * @return a list of {@link SliceData} for the allowlisted accessibility services.
+     */
+    List<SliceData> getAccessibilitySliceData() {
         final List<SliceData> sliceData = new ArrayList<>();
 
         final String accessibilityControllerClassName =
@@ -24,6 +24,8 @@ import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Binder;
 import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
 import android.util.Pair;
 
 import androidx.slice.Slice;
@@ -32,13 +34,18 @@ import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class used to map a {@link Uri} from {@link SettingsSliceProvider} to a Slice.
  */
 public class SlicesDatabaseAccessor {
 
+    private static final String TAG = "SlicesDatabaseAccessor";
+
     public static final String[] SELECT_COLUMNS_ALL = {
             IndexColumns.KEY,
             IndexColumns.TITLE,
@@ -89,6 +96,51 @@ public class SlicesDatabaseAccessor {
         }
     }
 
+    /**
+     * Query the slices database once for all the {@param uris} and return the {@link SliceData}
+     * of each {@link Uri} whose key is indexed. Invalid {@link Uri}s and unknown keys are skipped.
+     * Used to warm up the cache of {@link SettingsSliceProvider}.
+     */
+    public Map<Uri, SliceData> getSliceDataFromUris(Collection<Uri> uris) {
+        final Map<String, List<Uri>> urisByKey = new ArrayMap<>();
+        for (Uri uri : uris) {
+            final Pair<Boolean, String> pathData = SliceBuilderUtils.getPathData(uri);
+            if (pathData != null) {
+                urisByKey.computeIfAbsent(pathData.second /* key */, key -> new ArrayList<>())
+                        .add(uri);
+            }
+        }
+        final Map<Uri, SliceData> sliceDataMap = new ArrayMap<>();
+        if (urisByKey.isEmpty()) {
+            return sliceDataMap;
+        }
+
+        verifyIndexing();
+        final String[] keys = urisByKey.keySet().toArray(new String[0]);
+        final String whereClause = IndexColumns.KEY + " IN ("
+                + TextUtils.join(",", Collections.nCopies(keys.length, "?")) + ")";
+        final SQLiteDatabase database = mHelper.getReadableDatabase();
+        try (Cursor cursor = database.query(TABLE_SLICES_INDEX, SELECT_COLUMNS_ALL,
+                whereClause, keys, null /* groupBy */, null /* having */, null /* orderBy */)) {
+            final int keyIndex = cursor.getColumnIndex(IndexColumns.KEY);
+            while (cursor.moveToNext()) {
+                final List<Uri> keyUris = urisByKey.get(cursor.getString(keyIndex));
+                if (keyUris == null) {
+                    continue;
+                }
+                for (Uri uri : keyUris) {
+                    try {
+                        sliceDataMap.put(uri, buildSliceData(cursor, uri,
+                                SliceBuilderUtils.getPathData(uri).first /* isIntentOnly */));
+                    } catch (SliceData.InvalidSliceDataException e) {
+                        Log.w(TAG, "Invalid slice data for uri: " + uri, e);
+                    }
+                }
+            }
+        }
+        return sliceDataMap;
+    }
+
     /**
      * @return a list of Slice {@link Uri}s based on their visibility {@param isPublicSlice } and
      * {@param authority}.
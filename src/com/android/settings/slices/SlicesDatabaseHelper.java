@@ -16,7 +16,9 @@
 
 package com.android.settings.slices;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.os.Build;
@@ -24,7 +26,9 @@ import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Defines the schema for the Slices database.
@@ -36,10 +40,11 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "slices_index.db";
     private static final String SHARED_PREFS_TAG = "slices_shared_prefs";
 
-    private static final int DATABASE_VERSION = 10;
+    private static final int DATABASE_VERSION = 11;
 
     public interface Tables {
         String TABLE_SLICES_INDEX = "slices_index";
+        String TABLE_PROVIDER_FINGERPRINTS = "slices_provider_fingerprints";
     }
 
     public interface IndexColumns {
@@ -115,6 +120,18 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
         String USER_RESTRICTION = "user_restriction";
     }
 
+    public interface FingerprintColumns {
+        /**
+         * Classname of the fragment whose search index provider was indexed.
+         */
+        String FRAGMENT = "fragment";
+
+        /**
+         * Fingerprint of the provider when its slices were indexed.
+         */
+        String FINGERPRINT = "fingerprint";
+    }
+
     private static final String CREATE_SLICES_TABLE =
             "CREATE VIRTUAL TABLE " + Tables.TABLE_SLICES_INDEX + " USING fts4"
                     + "("
@@ -148,8 +165,20 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
                     + " INTEGER DEFAULT 0 "
                     + ");";
 
+    private static final String CREATE_PROVIDER_FINGERPRINTS_TABLE =
+            "CREATE TABLE " + Tables.TABLE_PROVIDER_FINGERPRINTS
+                    + "("
+                    + FingerprintColumns.FRAGMENT
+                    + " TEXT PRIMARY KEY, "
+                    + FingerprintColumns.FINGERPRINT
+                    + " TEXT"
+                    + ");";
+
     private final Context mContext;
 
+    // Incremented whenever the indexed data is replaced.
+    private volatile int mIndexGeneration;
+
     private static SlicesDatabaseHelper sSingleton;
 
     public static synchronized SlicesDatabaseHelper getInstance(Context context) {
@@ -196,8 +225,22 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
      * a full index of the TABLE_SLICES_INDEX.
      */
     public void setIndexedState() {
+        // Forget the other locales, whose rows have been replaced.
+        mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
+                .edit()
+                .clear()
+                .apply();
         setBuildIndexed();
         setLocaleIndexed();
+        mIndexGeneration++;
+    }
+
+    /**
+     * @return a number that changes each time {@link #setIndexedState()} is called, so cached
+     * slice data can tell when it was read from an older index.
+     */
+    public int getIndexGeneration() {
+        return mIndexGeneration;
     }
 
     /**
@@ -209,13 +252,47 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
         return isBuildIndexed() && isLocaleIndexed();
     }
 
+    /**
+     * @return the fingerprints of the indexed search index providers, keyed by fragment classname.
+     */
+    Map<String, String> getProviderFingerprints(SQLiteDatabase db) {
+        final Map<String, String> fingerprints = new HashMap<>();
+        try (Cursor cursor = db.query(Tables.TABLE_PROVIDER_FINGERPRINTS,
+                new String[]{FingerprintColumns.FRAGMENT, FingerprintColumns.FINGERPRINT},
+                null /* selection */, null /* selectionArgs */, null /* groupBy */,
+                null /* having */, null /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                fingerprints.put(cursor.getString(0), cursor.getString(1));
+            }
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Stores the fingerprint of the search index provider hosted by {@code fragmentName}, or
+     * removes it if {@code fingerprint} is null so that the provider is indexed again next time.
+     */
+    void setProviderFingerprint(SQLiteDatabase db, String fragmentName, String fingerprint) {
+        if (fingerprint == null) {
+            db.delete(Tables.TABLE_PROVIDER_FINGERPRINTS, FingerprintColumns.FRAGMENT + " = ?",
+                    new String[]{fragmentName});
+            return;
+        }
+        final ContentValues values = new ContentValues();
+        values.put(FingerprintColumns.FRAGMENT, fragmentName);
+        values.put(FingerprintColumns.FINGERPRINT, fingerprint);
+        db.replaceOrThrow(Tables.TABLE_PROVIDER_FINGERPRINTS, null /* nullColumnHack */, values);
+    }
+
     private void createDatabases(SQLiteDatabase db) {
         db.execSQL(CREATE_SLICES_TABLE);
+        db.execSQL(CREATE_PROVIDER_FINGERPRINTS_TABLE);
         Log.d(TAG, "Created databases");
     }
 
     private void dropTables(SQLiteDatabase db) {
         db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SLICES_INDEX);
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_PROVIDER_FINGERPRINTS);
     }
 
     private void setBuildIndexed() {
@@ -232,7 +309,11 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
                 .apply();
     }
 
-    private boolean isBuildIndexed() {
+    /**
+     * @return {@code true} if the slice data has been indexed by the current build, for any
+     * locale.
+     */
+    boolean isBuildIndexed() {
         return mContext.getSharedPreferences(SHARED_PREFS_TAG,
                 Context.MODE_PRIVATE)
                 .getBoolean(getBuildTag(), false /* default */);
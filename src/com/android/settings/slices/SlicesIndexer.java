@@ -16,29 +16,63 @@
 
 package com.android.settings.slices;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.accessibility.AccessibilitySlicePreferenceController;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
+import com.android.settingslib.search.Indexable.SearchIndexProvider;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Manages the conversion of {@link DashboardFragment} and {@link BasePreferenceController} to
  * indexable data {@link SliceData} to be stored for Slices.
+ *
+ * The providers are converted in parallel, and only the providers whose fingerprint changed since
+ * they were last indexed are converted again, e.g. the providers with translated strings after a
+ * locale change.
  */
 class SlicesIndexer implements Runnable {
 
     private static final String TAG = "SlicesIndexer";
 
+    private static final int MAX_THREAD_COUNT = 4;
+
+    private static final String INSERT_SLICE_SQL = "INSERT OR REPLACE INTO "
+            + Tables.TABLE_SLICES_INDEX
+            + "("
+            + IndexColumns.KEY + ", "
+            + IndexColumns.SLICE_URI + ", "
+            + IndexColumns.TITLE + ", "
+            + IndexColumns.SUMMARY + ", "
+            + IndexColumns.SCREENTITLE + ", "
+            + IndexColumns.KEYWORDS + ", "
+            + IndexColumns.ICON_RESOURCE + ", "
+            + IndexColumns.FRAGMENT + ", "
+            + IndexColumns.CONTROLLER + ", "
+            + IndexColumns.SLICE_TYPE + ", "
+            + IndexColumns.UNAVAILABLE_SLICE_SUBTITLE + ", "
+            + IndexColumns.PUBLIC_SLICE + ", "
+            + IndexColumns.HIGHLIGHT_MENU_RESOURCE + ", "
+            + IndexColumns.USER_RESTRICTION
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private Context mContext;
 
     private SlicesDatabaseHelper mHelper;
@@ -60,7 +94,7 @@ class SlicesIndexer implements Runnable {
      * Synchronously takes data obtained from {@link SliceDataConverter} and indexes it into a
      * SQLite database
      */
-    protected void indexSliceData() {
+    protected synchronized void indexSliceData() {
         if (mHelper.isSliceDataIndexed()) {
             Log.d(TAG, "Slices already indexed - returning.");
             return;
@@ -69,17 +103,40 @@ class SlicesIndexer implements Runnable {
         final SQLiteDatabase database = mHelper.getWritableDatabase();
 
         long startTime = System.currentTimeMillis();
+        final SliceDataConverter converter = getSliceDataConverter();
+        // The fingerprints only cover the XML of the providers, while the rows also depend on the
+        // controllers, e.g. whether a slice is public. Those may change with the build, so only a
+        // locale change of the same build is indexed incrementally.
+        final Map<String, String> indexedFingerprints = mHelper.isBuildIndexed()
+                ? mHelper.getProviderFingerprints(database) : Collections.emptyMap();
+        final List<ProviderSliceData> providerData = getChangedProviderSliceData(converter,
+                indexedFingerprints);
+        final List<SliceData> a11ySliceData = converter.getAccessibilitySliceData();
+
         database.beginTransaction();
         try {
-            mHelper.reconstruct(database);
-            List<SliceData> indexData = getSliceData();
-            insertSliceData(database, indexData);
+            if (indexedFingerprints.isEmpty()) {
+                // Nothing was indexed incrementally, start from an empty table.
+                mHelper.reconstruct(database);
+            }
+            int indexedCount = 0;
+            for (ProviderSliceData data : providerData) {
+                deleteSliceData(database, IndexColumns.FRAGMENT, data.mFragmentName);
+                if (data.mSliceData != null) {
+                    insertSliceData(database, data.mSliceData);
+                    indexedCount++;
+                }
+                mHelper.setProviderFingerprint(database, data.mFragmentName, data.mFingerprint);
+            }
+            deleteSliceData(database, IndexColumns.CONTROLLER,
+                    AccessibilitySlicePreferenceController.class.getName());
+            insertSliceData(database, a11ySliceData);
 
             mHelper.setIndexedState();
 
             // TODO (b/71503044) Log indexing time.
-            Log.d(TAG,
-                    "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
+            Log.d(TAG, "Indexing " + indexedCount + " changed providers in slices database took: "
+                    + (System.currentTimeMillis() - startTime));
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
@@ -87,40 +144,128 @@ class SlicesIndexer implements Runnable {
     }
 
     @VisibleForTesting
-    List<SliceData> getSliceData() {
+    SliceDataConverter getSliceDataConverter() {
         return FeatureFactory.getFeatureFactory()
                 .getSlicesFeatureProvider()
-                .getSliceDataConverter(mContext)
-                .getSliceData();
+                .getSliceDataConverter(mContext);
+    }
+
+    /**
+     * Converts the providers whose fingerprint differs from {@code indexedFingerprints} in
+     * parallel. The providers which are indexed but no longer exist are returned without
+     * {@link SliceData}, so that their rows are removed.
+     */
+    @VisibleForTesting
+    List<ProviderSliceData> getChangedProviderSliceData(SliceDataConverter converter,
+            Map<String, String> indexedFingerprints) {
+        final Map<String, SearchIndexProvider> providers = converter.getSearchIndexProviders();
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(MAX_THREAD_COUNT, Runtime.getRuntime().availableProcessors()));
+        final List<Future<ProviderSliceData>> futures = new ArrayList<>(providers.size());
+        try {
+            for (Map.Entry<String, SearchIndexProvider> entry : providers.entrySet()) {
+                final String fragmentName = entry.getKey();
+                final String indexedFingerprint = indexedFingerprints.get(fragmentName);
+                futures.add(executor.submit(() -> convertProvider(converter, entry.getValue(),
+                        fragmentName, indexedFingerprint)));
+            }
+
+            final List<ProviderSliceData> providerData = new ArrayList<>();
+            for (Future<ProviderSliceData> future : futures) {
+                final ProviderSliceData data = future.get();
+                if (data.mSliceData != null || data.mFingerprint == null) {
+                    providerData.add(data);
+                }
+            }
+            for (String fragmentName : indexedFingerprints.keySet()) {
+                if (!providers.containsKey(fragmentName)) {
+                    providerData.add(new ProviderSliceData(fragmentName, null /* fingerprint */,
+                            null /* sliceData */));
+                }
+            }
+            return providerData;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while converting slice data", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to convert slice data", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the {@link SliceData} of the provider, or no {@link SliceData} if its fingerprint
+     * matches {@code indexedFingerprint}.
+     */
+    private ProviderSliceData convertProvider(SliceDataConverter converter,
+            SearchIndexProvider provider, String fragmentName, String indexedFingerprint) {
+        try {
+            final String fingerprint = converter.getProviderFingerprint(provider);
+            if (fingerprint != null && fingerprint.equals(indexedFingerprint)) {
+                return new ProviderSliceData(fragmentName, fingerprint, null /* sliceData */);
+            }
+            return new ProviderSliceData(fragmentName, fingerprint,
+                    converter.getSliceDataFromProvider(provider, fragmentName));
+        } catch (Exception e) {
+            // Index the provider again next time instead of failing the whole index.
+            Log.w(TAG, "Failed to convert slice data of " + fragmentName, e);
+            return new ProviderSliceData(fragmentName, null /* fingerprint */,
+                    new ArrayList<>());
+        }
     }
 
     @VisibleForTesting
     void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
-        ContentValues values;
-
-        for (SliceData dataRow : indexData) {
-            values = new ContentValues();
-            values.put(IndexColumns.KEY, dataRow.getKey());
-            values.put(IndexColumns.SLICE_URI, dataRow.getUri().toString());
-            values.put(IndexColumns.TITLE, dataRow.getTitle());
-            values.put(IndexColumns.SUMMARY, dataRow.getSummary());
-            final CharSequence screenTitle = dataRow.getScreenTitle();
-            if (screenTitle != null) {
-                values.put(IndexColumns.SCREENTITLE, screenTitle.toString());
+        final SQLiteStatement statement = database.compileStatement(INSERT_SLICE_SQL);
+        try {
+            for (SliceData dataRow : indexData) {
+                statement.clearBindings();
+                bindString(statement, 1, dataRow.getKey());
+                bindString(statement, 2, dataRow.getUri().toString());
+                bindString(statement, 3, dataRow.getTitle());
+                bindString(statement, 4, dataRow.getSummary());
+                final CharSequence screenTitle = dataRow.getScreenTitle();
+                bindString(statement, 5, screenTitle != null ? screenTitle.toString() : null);
+                bindString(statement, 6, dataRow.getKeywords());
+                statement.bindLong(7, dataRow.getIconResource());
+                bindString(statement, 8, dataRow.getFragmentClassName());
+                bindString(statement, 9, dataRow.getPreferenceController());
+                statement.bindLong(10, dataRow.getSliceType());
+                bindString(statement, 11, dataRow.getUnavailableSliceSubtitle());
+                statement.bindLong(12, dataRow.isPublicSlice() ? 1 : 0);
+                statement.bindLong(13, dataRow.getHighlightMenuRes());
+                bindString(statement, 14, dataRow.getUserRestriction());
+                statement.executeInsert();
             }
-            values.put(IndexColumns.KEYWORDS, dataRow.getKeywords());
-            values.put(IndexColumns.ICON_RESOURCE, dataRow.getIconResource());
-            values.put(IndexColumns.FRAGMENT, dataRow.getFragmentClassName());
-            values.put(IndexColumns.CONTROLLER, dataRow.getPreferenceController());
-            values.put(IndexColumns.SLICE_TYPE, dataRow.getSliceType());
-            values.put(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
-                    dataRow.getUnavailableSliceSubtitle());
-            values.put(IndexColumns.PUBLIC_SLICE, dataRow.isPublicSlice());
-            values.put(IndexColumns.HIGHLIGHT_MENU_RESOURCE, dataRow.getHighlightMenuRes());
-            values.put(IndexColumns.USER_RESTRICTION, dataRow.getUserRestriction());
-
-            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX, null /* nullColumnHack */,
-                    values);
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static void deleteSliceData(SQLiteDatabase database, String column, String value) {
+        database.delete(Tables.TABLE_SLICES_INDEX, column + " = ?", new String[]{value});
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /** The result of converting the {@link SearchIndexProvider} hosted by a fragment. */
+    @VisibleForTesting
+    static class ProviderSliceData {
+        final String mFragmentName;
+        final String mFingerprint;
+        final List<SliceData> mSliceData;
+
+        ProviderSliceData(String fragmentName, String fingerprint, List<SliceData> sliceData) {
+            mFragmentName = fragmentName;
+            mFingerprint = fingerprint;
+            mSliceData = sliceData;
         }
     }
 }
@@ -35,6 +35,13 @@ public class LongPressWifiEntryPreference extends WifiEntryPreference {
     public LongPressWifiEntryPreference(Context context, WifiEntry wifiEntry, Fragment fragment) {
         super(context, wifiEntry);
         mFragment = fragment;
+    }
+
+    @Override
+    public void setWifiEntry(WifiEntry wifiEntry) {
+        super.setWifiEntry(wifiEntry);
+        // Called by the super constructor, and again when the preference is reused for a new
+        // WifiEntry object.
         checkRestrictionAndSetDisabled();
     }
 
@@ -70,6 +77,11 @@ public class LongPressWifiEntryPreference extends WifiEntryPreference {
     @VisibleForTesting
     void checkRestrictionAndSetDisabled() {
         if (!getWifiEntry().hasAdminRestrictions()) {
+            // A reused preference may still be disabled for the restricted entry it showed.
+            if (isDisabledByAdmin()) {
+                setDisabledByAdmin(null);
+                setEnabled(shouldEnabled());
+            }
             return;
         }
         RestrictedLockUtils.EnforcedAdmin admin = null;
@@ -45,6 +45,9 @@ public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> impleme
 
     private static final String TAG = "WifiScanWorker";
 
+    // Scan results change many times during a scan, the Slice doesn't need all of them.
+    private static final long UPDATE_THROTTLE_INTERVAL = 1000L;
+
     @VisibleForTesting
     final LifecycleRegistry mLifecycleRegistry;
     @VisibleForTesting
@@ -81,6 +84,11 @@ public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> impleme
         mLifecycleRegistry.markState(Lifecycle.State.DESTROYED);
     }
 
+    @Override
+    protected long getUpdateThrottleInterval() {
+        return UPDATE_THROTTLE_INTERVAL;
+    }
+
     @Override
     public Lifecycle getLifecycle() {
         return mLifecycleRegistry;
@@ -23,6 +23,8 @@ import com.android.settingslib.R;
 import com.android.wifitrackerlib.HotspotNetworkEntry;
 import com.android.wifitrackerlib.WifiEntry;
 
+import java.util.Objects;
+
 /**
  * The data set which is needed by a Wi-Fi Slice, it collects necessary data from {@link WifiEntry}
  * and provides similar getter methods for corresponding data.
@@ -100,6 +102,12 @@ public class WifiSliceItem {
         return true;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(getKey(), getConnectedState(), getLevel(), shouldShowXLevelIcon(),
+                getSummary(), isInstantHotspotNetwork(), getInstantHotspotDeviceType());
+    }
+
     public String getKey() {
         return mKey;
     }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Collects the results of the benchmarks of a run and writes them as JSON, so the regressions can
+ * be tracked per commit.
+ *
+ * <p>The file is rewritten after each benchmark, at the path of the
+ * {@code settings.benchmark.output} system property, or {@code settings-benchmarks.json} in the
+ * working directory. The optional {@code settings.benchmark.commit} system property is recorded
+ * with the results.
+ */
+final class BenchmarkResults {
+
+    static final String DEFAULT_OUTPUT_FILE = "settings-benchmarks.json";
+
+    private static BenchmarkResults sInstance;
+
+    private final File mOutputFile;
+    private final JSONObject mContext = new JSONObject();
+    private final JSONArray mBenchmarks = new JSONArray();
+
+    static synchronized BenchmarkResults getInstance() {
+        if (sInstance == null) {
+            sInstance = new BenchmarkResults(new File(
+                    System.getProperty("settings.benchmark.output", DEFAULT_OUTPUT_FILE)));
+        }
+        return sInstance;
+    }
+
+    BenchmarkResults(File outputFile) {
+        mOutputFile = outputFile;
+        try {
+            mContext.put("commit", System.getProperty("settings.benchmark.commit", ""));
+            mContext.put("startTime", System.currentTimeMillis());
+            mContext.put("javaVersion", System.getProperty("java.version"));
+            mContext.put("osArch", System.getProperty("os.arch"));
+            mContext.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Records the measured state of the benchmark and rewrites the output file. */
+    synchronized void report(String className, String name, BenchmarkState state)
+            throws IOException {
+        final JSONObject benchmark = new JSONObject();
+        try {
+            final JSONObject timeNs = new JSONObject();
+            timeNs.put("minimum", state.getMinimumNs());
+            timeNs.put("maximum", state.getMaximumNs());
+            timeNs.put("median", state.getMedianNs());
+            timeNs.put("mean", state.getMeanNs());
+            timeNs.put("stddev", state.getStandardDeviationNs());
+            final JSONArray runs = new JSONArray();
+            for (long duration : state.getDurationsNs()) {
+                runs.put(duration);
+            }
+            timeNs.put("runs", runs);
+
+            benchmark.put("className", className);
+            benchmark.put("name", name);
+            benchmark.put("warmupIterations", state.getWarmupIterations());
+            benchmark.put("repeatIterations", runs.length());
+            final JSONObject metrics = new JSONObject().put(BenchmarkState.TIME_METRIC, timeNs);
+            for (Map.Entry<String, Long> metric : state.getMetrics().entrySet()) {
+                metrics.put(metric.getKey(), (long) metric.getValue());
+            }
+            benchmark.put("metrics", metrics);
+            mBenchmarks.put(benchmark);
+        } catch (JSONException e) {
+            throw new IOException("Failed to encode " + className + "#" + name, e);
+        }
+        System.out.println(String.format("benchmark %s#%s median=%dns min=%dns",
+                className, name, state.getMedianNs(), state.getMinimumNs()));
+        write();
+    }
+
+    String toJson() throws JSONException {
+        return new JSONObject()
+                .put("context", mContext)
+                .put("benchmarks", mBenchmarks)
+                .toString(/* indentSpaces= */ 2);
+    }
+
+    private void write() throws IOException {
+        final String json;
+        try {
+            json = toJson();
+        } catch (JSONException e) {
+            throw new IOException("Failed to encode the results", e);
+        }
+        final File parent = mOutputFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create " + parent);
+        }
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(mOutputFile), StandardCharsets.UTF_8)) {
+            writer.write(json);
+        }
+    }
+}
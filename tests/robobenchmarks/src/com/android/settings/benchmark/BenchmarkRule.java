@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * A {@link TestRule} which gives each benchmark method a fresh {@link BenchmarkState}, and reports
+ * the measured iterations to {@link BenchmarkResults} once the method passes.
+ *
+ * <pre>
+ * &#64;Rule
+ * public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+ * </pre>
+ */
+public final class BenchmarkRule implements TestRule {
+
+    private BenchmarkState mState;
+
+    /** Returns the state of the running benchmark. */
+    public BenchmarkState getState() {
+        if (mState == null) {
+            throw new IllegalStateException("getState() outside of a benchmark method");
+        }
+        return mState;
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                mState = new BenchmarkState();
+                try {
+                    base.evaluate();
+                    if (!mState.isFinished()) {
+                        throw new IllegalStateException(description.getDisplayName()
+                                + " did not loop over BenchmarkState.keepRunning()");
+                    }
+                    BenchmarkResults.getInstance().report(description.getClassName(),
+                            description.getMethodName(), mState);
+                } finally {
+                    mState = null;
+                }
+            }
+        };
+    }
+}
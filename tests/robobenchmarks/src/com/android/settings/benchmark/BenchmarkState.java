@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Drives the measured loop of a benchmark, a few warmup iterations followed by the measured ones.
+ *
+ * <pre>
+ * final BenchmarkState state = mBenchmarkRule.getState();
+ * while (state.keepRunning()) {
+ *     // The measured code.
+ * }
+ * </pre>
+ *
+ * <p>The iteration counts can be overridden with the {@code settings.benchmark.warmup} and
+ * {@code settings.benchmark.iterations} system properties.
+ */
+public final class BenchmarkState {
+
+    static final int DEFAULT_WARMUP_ITERATIONS = 5;
+    static final int DEFAULT_MEASURED_ITERATIONS = 20;
+
+    static final String TIME_METRIC = "timeNs";
+
+    private static final int NOT_STARTED = 0;
+    private static final int WARMUP = 1;
+    private static final int RUNNING = 2;
+    private static final int FINISHED = 3;
+
+    private final int mWarmupIterations;
+    private final long[] mDurationsNs;
+    private final Map<String, Long> mMetrics = new LinkedHashMap<>();
+
+    private int mState = NOT_STARTED;
+    private int mIteration;
+    private long mIterationStartNs;
+    private long mPausedNs;
+    private long mPauseStartNs;
+    private boolean mPaused;
+
+    BenchmarkState() {
+        this(Integer.getInteger("settings.benchmark.warmup", DEFAULT_WARMUP_ITERATIONS),
+                Integer.getInteger("settings.benchmark.iterations", DEFAULT_MEASURED_ITERATIONS));
+    }
+
+    BenchmarkState(int warmupIterations, int measuredIterations) {
+        if (warmupIterations < 0 || measuredIterations <= 0) {
+            throw new IllegalArgumentException("invalid iterations: " + warmupIterations + "/"
+                    + measuredIterations);
+        }
+        mWarmupIterations = warmupIterations;
+        mDurationsNs = new long[measuredIterations];
+    }
+
+    /** Returns true while the measured code should run another iteration. */
+    public boolean keepRunning() {
+        final long now = System.nanoTime();
+        switch (mState) {
+            case NOT_STARTED:
+                mState = mWarmupIterations > 0 ? WARMUP : RUNNING;
+                startIteration(now);
+                return true;
+            case WARMUP:
+                if (++mIteration >= mWarmupIterations) {
+                    mState = RUNNING;
+                    mIteration = 0;
+                }
+                startIteration(System.nanoTime());
+                return true;
+            case RUNNING:
+                if (mPaused) {
+                    throw new IllegalStateException("keepRunning() while the timing is paused");
+                }
+                mDurationsNs[mIteration] = now - mIterationStartNs - mPausedNs;
+                if (++mIteration >= mDurationsNs.length) {
+                    mState = FINISHED;
+                    return false;
+                }
+                startIteration(System.nanoTime());
+                return true;
+            default:
+                throw new IllegalStateException("keepRunning() after the benchmark finished");
+        }
+    }
+
+    /** Stops the timing, for the setup work of an iteration which should not be measured. */
+    public void pauseTiming() {
+        if (mPaused) {
+            throw new IllegalStateException("pauseTiming() twice");
+        }
+        mPaused = true;
+        mPauseStartNs = System.nanoTime();
+    }
+
+    /** Resumes the timing stopped by {@link #pauseTiming()}. */
+    public void resumeTiming() {
+        if (!mPaused) {
+            throw new IllegalStateException("resumeTiming() without pauseTiming()");
+        }
+        mPausedNs += System.nanoTime() - mPauseStartNs;
+        mPaused = false;
+    }
+
+    /**
+     * Records a value measured besides the time, such as the bytes moved per iteration. It is
+     * reported under {@code metrics} with the given name, the last recorded value wins.
+     */
+    public void recordMetric(String name, long value) {
+        if (TIME_METRIC.equals(name)) {
+            throw new IllegalArgumentException("reserved metric: " + name);
+        }
+        mMetrics.put(name, value);
+    }
+
+    boolean isFinished() {
+        return mState == FINISHED;
+    }
+
+    int getWarmupIterations() {
+        return mWarmupIterations;
+    }
+
+    /** Returns the measured durations in nanoseconds, in the order of the iterations. */
+    long[] getDurationsNs() {
+        return mDurationsNs.clone();
+    }
+
+    /** Returns the metrics recorded with {@link #recordMetric}, in the order of recording. */
+    Map<String, Long> getMetrics() {
+        return new LinkedHashMap<>(mMetrics);
+    }
+
+    long getMinimumNs() {
+        return sortedDurations()[0];
+    }
+
+    long getMaximumNs() {
+        return sortedDurations()[mDurationsNs.length - 1];
+    }
+
+    long getMedianNs() {
+        final long[] sorted = sortedDurations();
+        final int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    double getMeanNs() {
+        double sum = 0;
+        for (long duration : mDurationsNs) {
+            sum += duration;
+        }
+        return sum / mDurationsNs.length;
+    }
+
+    double getStandardDeviationNs() {
+        final double mean = getMeanNs();
+        double sum = 0;
+        for (long duration : mDurationsNs) {
+            sum += (duration - mean) * (duration - mean);
+        }
+        return mDurationsNs.length > 1 ? Math.sqrt(sum / (mDurationsNs.length - 1)) : 0;
+    }
+
+    private void startIteration(long now) {
+        mPausedNs = 0;
+        mIterationStartNs = now;
+    }
+
+    private long[] sortedDurations() {
+        final long[] sorted = mDurationsNs.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertThrows;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/** Tests of {@link BenchmarkState} and {@link BenchmarkResults}. */
+@RunWith(RobolectricTestRunner.class)
+public final class BenchmarkStateTest {
+
+    @Rule public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void keepRunning_runsWarmupAndMeasuredIterations() {
+        final BenchmarkState state = new BenchmarkState(
+                /* warmupIterations= */ 2, /* measuredIterations= */ 3);
+        int iterations = 0;
+
+        while (state.keepRunning()) {
+            iterations++;
+        }
+
+        assertThat(iterations).isEqualTo(5);
+        assertThat(state.isFinished()).isTrue();
+        assertThat(state.getDurationsNs()).hasLength(3);
+        assertThrows(IllegalStateException.class, state::keepRunning);
+    }
+
+    @Test
+    public void pauseTiming_excludesPausedTime() throws Exception {
+        final BenchmarkState state = new BenchmarkState(
+                /* warmupIterations= */ 0, /* measuredIterations= */ 1);
+
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            Thread.sleep(/* millis= */ 50);
+            state.resumeTiming();
+        }
+
+        assertThat(state.getMaximumNs()).isLessThan(50_000_000L);
+    }
+
+    @Test
+    public void keepRunning_whilePaused_throwsException() {
+        final BenchmarkState state = new BenchmarkState(
+                /* warmupIterations= */ 0, /* measuredIterations= */ 1);
+        state.keepRunning();
+        state.pauseTiming();
+
+        assertThrows(IllegalStateException.class, state::keepRunning);
+    }
+
+    @Test
+    public void report_writesJson() throws Exception {
+        final File output = new File(mTemporaryFolder.getRoot(), "results.json");
+        final BenchmarkResults results = new BenchmarkResults(output);
+        final BenchmarkState state = new BenchmarkState(
+                /* warmupIterations= */ 1, /* measuredIterations= */ 4);
+        while (state.keepRunning()) {
+            // Measures an empty loop.
+        }
+
+        results.report("Class", "method", state);
+
+        final JSONObject json = new JSONObject(
+                new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+        final JSONObject benchmark = json.getJSONArray("benchmarks").getJSONObject(0);
+        assertThat(benchmark.getString("className")).isEqualTo("Class");
+        assertThat(benchmark.getString("name")).isEqualTo("method");
+        assertThat(benchmark.getInt("repeatIterations")).isEqualTo(4);
+        assertThat(benchmark.getJSONObject("metrics").getJSONObject("timeNs")
+                .getJSONArray("runs").length()).isEqualTo(4);
+        assertThat(json.getJSONObject("context").has("commit")).isTrue();
+    }
+
+    @Test
+    public void report_writesRecordedMetrics() throws Exception {
+        final File output = new File(mTemporaryFolder.getRoot(), "results.json");
+        final BenchmarkResults results = new BenchmarkResults(output);
+        final BenchmarkState state = new BenchmarkState(
+                /* warmupIterations= */ 0, /* measuredIterations= */ 2);
+        while (state.keepRunning()) {
+            state.recordMetric("bytesPerSnapshot", 1024L);
+        }
+
+        results.report("Class", "method", state);
+
+        final JSONObject json = new JSONObject(
+                new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+        final JSONObject metrics = json.getJSONArray("benchmarks").getJSONObject(0)
+                .getJSONObject("metrics");
+        assertThat(metrics.getLong("bytesPerSnapshot")).isEqualTo(1024L);
+        assertThat(metrics.has("timeNs")).isTrue();
+    }
+
+    @Test
+    public void recordMetric_timeName_throwsException() {
+        final BenchmarkState state = new BenchmarkState(
+                /* warmupIterations= */ 0, /* measuredIterations= */ 1);
+
+        assertThrows(IllegalArgumentException.class, () -> state.recordMetric("timeNs", 1L));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import android.content.Context;
+import android.provider.SearchIndexableResource;
+import android.util.ArraySet;
+import android.util.Log;
+
+import com.android.settings.search.SearchFeatureProvider;
+import com.android.settings.search.SearchFeatureProviderImpl;
+import com.android.settingslib.search.Indexable;
+import com.android.settingslib.search.SearchIndexableData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/** Utils to run the benchmarks over the search indexable pages of Settings. */
+public final class SearchBenchmarkUtils {
+    private static final String TAG = "SearchBenchmarkUtils";
+
+    private SearchBenchmarkUtils() {}
+
+    /**
+     * Returns a {@link SearchFeatureProvider} with the search indexable pages which can be indexed
+     * on the JVM. The pages which need system services missing from Robolectric are dropped, so
+     * the benchmarks measure the same pages on every run.
+     */
+    public static SearchFeatureProvider createSearchFeatureProvider(Context context) {
+        final SearchFeatureProvider searchFeatureProvider = new SearchFeatureProviderImpl();
+        final Collection<SearchIndexableData> providerValues =
+                searchFeatureProvider.getSearchIndexableResources().getProviderValues();
+        final List<SearchIndexableData> supported = new ArrayList<>();
+        for (SearchIndexableData data : providerValues) {
+            if (isSupported(context, data)) {
+                supported.add(data);
+            }
+        }
+        Log.i(TAG, "benchmark " + supported.size() + " of " + providerValues.size() + " pages");
+        providerValues.clear();
+        providerValues.addAll(supported);
+        return searchFeatureProvider;
+    }
+
+    /** Returns the preference screen xml res ids of the pages, sorted. */
+    public static int[] getXmlResIds(Context context, SearchFeatureProvider searchFeatureProvider) {
+        final Set<Integer> xmlResIds = new ArraySet<>();
+        for (SearchIndexableData data :
+                searchFeatureProvider.getSearchIndexableResources().getProviderValues()) {
+            final List<SearchIndexableResource> resources = data.getSearchIndexProvider()
+                    .getXmlResourcesToIndex(context, /* enabled= */ true);
+            if (resources == null) {
+                continue;
+            }
+            for (SearchIndexableResource resource : resources) {
+                if (resource.xmlResId > 0) {
+                    xmlResIds.add(resource.xmlResId);
+                }
+            }
+        }
+        return xmlResIds.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static boolean isSupported(Context context, SearchIndexableData data) {
+        final Indexable.SearchIndexProvider provider = data.getSearchIndexProvider();
+        if (provider == null) {
+            return false;
+        }
+        try {
+            provider.getXmlResourcesToIndex(context, /* enabled= */ true);
+            provider.getRawDataToIndex(context, /* enabled= */ true);
+            provider.getDynamicRawDataToIndex(context, /* enabled= */ true);
+            provider.getNonIndexableKeys(context);
+            return true;
+        } catch (RuntimeException | LinkageError e) {
+            Log.w(TAG, "skip " + data.getTargetClass().getName() + ": " + e);
+            return false;
+        }
+    }
+}
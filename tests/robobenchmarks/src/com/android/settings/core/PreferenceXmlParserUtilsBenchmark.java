@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_INCLUDE_PREF_SCREEN;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_KEYWORDS;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_CONTROLLER;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_ICON;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_SUMMARY;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_TITLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_TYPE;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_SEARCHABLE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settings.benchmark.SearchBenchmarkUtils;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Benchmarks of {@link PreferenceXmlParserUtils}, over the preference screens of all the search
+ * indexable pages.
+ */
+@RunWith(RobolectricTestRunner.class)
+public final class PreferenceXmlParserUtilsBenchmark {
+    private static final int FLAGS = FLAG_INCLUDE_PREF_SCREEN | FLAG_NEED_KEY | FLAG_NEED_PREF_TYPE
+            | FLAG_NEED_PREF_CONTROLLER | FLAG_NEED_PREF_TITLE | FLAG_NEED_PREF_SUMMARY
+            | FLAG_NEED_PREF_ICON | FLAG_NEED_KEYWORDS | FLAG_NEED_SEARCHABLE;
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private int[] mXmlResIds;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        FakeFeatureFactory.setupForTest();
+        mXmlResIds = SearchBenchmarkUtils.getXmlResIds(mContext,
+                SearchBenchmarkUtils.createSearchFeatureProvider(mContext));
+        assertThat(mXmlResIds).isNotEmpty();
+    }
+
+    @Test
+    public void extractMetadata_allIndexableXmls() throws Exception {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int xmlResId : mXmlResIds) {
+                PreferenceXmlParserUtils.extractMetadata(mContext, xmlResId, FLAGS);
+            }
+        }
+    }
+
+    @Test
+    public void extractMetadataFromXml_allIndexableXmls() throws Exception {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int xmlResId : mXmlResIds) {
+                PreferenceXmlParserUtils.extractMetadataFromXml(mContext, xmlResId, FLAGS);
+            }
+        }
+    }
+}
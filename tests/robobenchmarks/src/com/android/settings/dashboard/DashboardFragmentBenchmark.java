@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.internal.logging.nano.MetricsProto.MetricsEvent.DASHBOARD_CONTAINER;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+
+import androidx.annotation.XmlRes;
+import androidx.preference.PreferenceManager;
+
+import com.android.settings.R;
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settings.testutils.FakeFeatureFactory;
+import com.android.settingslib.core.AbstractPreferenceController;
+import com.android.settingslib.core.instrumentation.VisibilityLoggerMixin;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks of attaching a {@link DashboardFragment}, which creates the preference controllers
+ * of its preference screen.
+ */
+@RunWith(RobolectricTestRunner.class)
+public final class DashboardFragmentBenchmark {
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        FakeFeatureFactory.setupForTest();
+    }
+
+    @Test
+    public void onAttach_topLevelSettings() {
+        benchmarkAttach(R.xml.top_level_settings);
+    }
+
+    @Test
+    public void onAttach_networkProviderSettings() {
+        benchmarkAttach(R.xml.network_provider_internet);
+    }
+
+    private void benchmarkAttach(@XmlRes int xmlResId) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            // A fragment is only attached once.
+            state.pauseTiming();
+            final TestFragment fragment = new TestFragment(mContext, xmlResId);
+            state.resumeTiming();
+
+            fragment.onAttach(mContext);
+        }
+    }
+
+    private static class TestFragment extends DashboardFragment {
+
+        private final PreferenceManager mPreferenceManager;
+        private final Context mContext;
+        private final int mXmlResId;
+
+        TestFragment(Context context, @XmlRes int xmlResId) {
+            mContext = context;
+            mXmlResId = xmlResId;
+            mPreferenceManager = mock(PreferenceManager.class);
+            when(mPreferenceManager.getContext()).thenReturn(mContext);
+            ReflectionHelpers.setField(
+                    this, "mVisibilityLoggerMixin", mock(VisibilityLoggerMixin.class));
+        }
+
+        @Override
+        public Context getContext() {
+            return mContext;
+        }
+
+        @Override
+        public int getMetricsCategory() {
+            return DASHBOARD_CONTAINER;
+        }
+
+        @Override
+        protected String getLogTag() {
+            return "BenchmarkFragment";
+        }
+
+        @Override
+        protected int getPreferenceScreenResId() {
+            return mXmlResId;
+        }
+
+        @Override
+        protected List<AbstractPreferenceController> createPreferenceControllers(Context context) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public PreferenceManager getPreferenceManager() {
+            return mPreferenceManager;
+        }
+    }
+}
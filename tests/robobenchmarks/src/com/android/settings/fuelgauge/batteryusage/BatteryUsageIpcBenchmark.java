@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.ParcelFileDescriptor;
+
+import androidx.room.Room;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Benchmarks of the battery usage slots moving through {@link BatteryUsageContentProvider}, the
+ * length-prefixed proto streams of {@link DatabaseUtils} against {@code bulkInsert()} and cursors.
+ *
+ * <p>Each benchmark records the bytes per snapshot with the time. The write paths count the
+ * parcelled binder arguments. The read paths count the streamed bytes, or an estimate of the
+ * {@link android.database.CursorWindow} holding the rows.
+ */
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryUsageIpcBenchmark {
+    private static final int HISTORY_DAYS = 5;
+    private static final int APP_COUNT = 40;
+    private static final int SYSTEM_COUNT = 10;
+    private static final long HOUR_IN_MS = Duration.ofHours(1).toMillis();
+    private static final String BYTES_METRIC = "bytesPerSnapshot";
+    /** The size of a field slot of a {@link android.database.CursorWindow} row. */
+    private static final int CURSOR_WINDOW_FIELD_SLOT_BYTES = 12;
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private ContentResolver mResolver;
+    private BatteryStateDatabase mDatabase;
+    private List<BatteryUsageSlot> mBatteryUsageSlots;
+    private Uri mQueryUri;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mResolver = mContext.getContentResolver();
+        FakeFeatureFactory.setupForTest();
+        mDatabase =
+                Room.inMemoryDatabaseBuilder(mContext, BatteryStateDatabase.class)
+                        .allowMainThreadQueries()
+                        .build();
+        BatteryStateDatabase.setBatteryStateDatabase(mDatabase);
+        Robolectric.setupContentProvider(
+                BatteryUsageContentProvider.class, DatabaseUtils.AUTHORITY);
+
+        // Hourly slots, as recorded by the periodic job, within the queried six days.
+        final long currentTime = System.currentTimeMillis() / HOUR_IN_MS * HOUR_IN_MS;
+        final int snapshotCount = HISTORY_DAYS * 24;
+        mBatteryUsageSlots = new ArrayList<>(snapshotCount);
+        for (int index = 0; index < snapshotCount; index++) {
+            mBatteryUsageSlots.add(
+                    createBatteryUsageSlot(
+                            currentTime - (snapshotCount - index) * HOUR_IN_MS, index));
+        }
+        mQueryUri =
+                DatabaseUtils.BATTERY_USAGE_SLOT_URI
+                        .buildUpon()
+                        .appendQueryParameter(
+                                DatabaseUtils.QUERY_KEY_TIMESTAMP,
+                                Long.toString(currentTime - snapshotCount * HOUR_IN_MS))
+                        .build();
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        BatteryStateDatabase.setBatteryStateDatabase(null);
+    }
+
+    @Test
+    public void sendBatteryUsageSlots_streamedProtos() throws Exception {
+        long bytes = 0;
+        for (byte[] chunk :
+                ProtoStreamUtils.toChunks(
+                        mBatteryUsageSlots, DatabaseUtils.MAX_PROTOS_CHUNK_BYTES)) {
+            final Bundle extras = new Bundle();
+            extras.putByteArray(DatabaseUtils.EXTRA_PROTOS, chunk);
+            bytes += parcelledSize(parcel -> parcel.writeBundle(extras));
+        }
+
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            mDatabase.batteryUsageSlotDao().clearAll();
+            state.resumeTiming();
+
+            DatabaseUtils.sendBatteryUsageSlotData(mContext, mBatteryUsageSlots);
+        }
+
+        assertThat(mDatabase.batteryUsageSlotDao().getAll()).hasSize(mBatteryUsageSlots.size());
+        state.recordMetric(BYTES_METRIC, bytes / mBatteryUsageSlots.size());
+    }
+
+    @Test
+    public void sendBatteryUsageSlots_bulkInsert() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        ContentValues[] valuesArray = null;
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            mDatabase.batteryUsageSlotDao().clearAll();
+            state.resumeTiming();
+
+            valuesArray = new ContentValues[mBatteryUsageSlots.size()];
+            for (int index = 0; index < valuesArray.length; index++) {
+                valuesArray[index] =
+                        ConvertUtils.convertBatteryUsageSlotToContentValues(
+                                mBatteryUsageSlots.get(index));
+            }
+            mResolver.bulkInsert(DatabaseUtils.BATTERY_USAGE_SLOT_URI, valuesArray);
+        }
+
+        assertThat(mDatabase.batteryUsageSlotDao().getAll()).hasSize(mBatteryUsageSlots.size());
+        final ContentValues[] parcelledValues = valuesArray;
+        state.recordMetric(
+                BYTES_METRIC,
+                parcelledSize(parcel -> parcel.writeTypedArray(parcelledValues, /* flags= */ 0))
+                        / mBatteryUsageSlots.size());
+    }
+
+    @Test
+    public void getBatteryUsageSlots_streamedProtos() throws Exception {
+        insertBatteryUsageSlots();
+        // DatabaseUtils falls back to the cursor silently, so make sure the provider streams.
+        final byte[] streamed = readStreamedProtos();
+        assertThat(ProtoStreamUtils.parseAll(streamed, BatteryUsageSlot.parser()))
+                .hasSize(mBatteryUsageSlots.size());
+
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertThat(
+                            DatabaseUtils.getBatteryUsageSlots(
+                                    mContext, Calendar.getInstance(), /* rawStartTimestamp= */ 0))
+                    .hasSize(mBatteryUsageSlots.size());
+        }
+
+        state.recordMetric(BYTES_METRIC, streamed.length / mBatteryUsageSlots.size());
+    }
+
+    @Test
+    public void getBatteryUsageSlots_cursor() {
+        insertBatteryUsageSlots();
+
+        final BenchmarkState state = mBenchmarkRule.getState();
+        long bytes = 0;
+        while (state.keepRunning()) {
+            final List<BatteryUsageSlot> slots = new ArrayList<>();
+            try (Cursor cursor = mResolver.query(mQueryUri, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    slots.add(ConvertUtils.convertToBatteryUsageSlot(cursor));
+                }
+                state.pauseTiming();
+                bytes = estimateCursorWindowSize(cursor);
+                state.resumeTiming();
+            }
+            assertThat(slots).hasSize(mBatteryUsageSlots.size());
+        }
+
+        state.recordMetric(BYTES_METRIC, bytes / mBatteryUsageSlots.size());
+    }
+
+    private void insertBatteryUsageSlots() {
+        final List<BatteryUsageSlotEntity> entities = new ArrayList<>();
+        for (BatteryUsageSlot slot : mBatteryUsageSlots) {
+            entities.add(
+                    BatteryUsageSlotEntity.create(
+                            ConvertUtils.convertBatteryUsageSlotToContentValues(slot)));
+        }
+        mDatabase.batteryUsageSlotDao().insertAll(entities);
+    }
+
+    private byte[] readStreamedProtos() throws IOException {
+        final ParcelFileDescriptor pipe = mResolver.openFileDescriptor(mQueryUri, "r");
+        try (InputStream input = new ParcelFileDescriptor.AutoCloseInputStream(pipe)) {
+            final byte[] protos = input.readAllBytes();
+            pipe.checkError();
+            return protos;
+        }
+    }
+
+    /** Estimates the bytes of the rows in a cursor window, a slot per field plus the data. */
+    private static long estimateCursorWindowSize(Cursor cursor) {
+        long bytes = 0;
+        for (cursor.moveToPosition(-1); cursor.moveToNext(); ) {
+            for (int column = 0; column < cursor.getColumnCount(); column++) {
+                bytes += CURSOR_WINDOW_FIELD_SLOT_BYTES;
+                switch (cursor.getType(column)) {
+                    case Cursor.FIELD_TYPE_BLOB:
+                        bytes += cursor.getBlob(column).length;
+                        break;
+                    case Cursor.FIELD_TYPE_STRING:
+                        bytes += cursor.getString(column).getBytes(StandardCharsets.UTF_8).length;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long parcelledSize(ParcelWriter writer) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            writer.writeTo(parcel);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static BatteryUsageSlot createBatteryUsageSlot(long startTimestamp, int index) {
+        final BatteryUsageSlot.Builder builder =
+                BatteryUsageSlot.newBuilder()
+                        .setStartTimestamp(startTimestamp)
+                        .setEndTimestamp(startTimestamp + HOUR_IN_MS)
+                        .setStartBatteryLevel(100 - index % 100)
+                        .setEndBatteryLevel(99 - index % 100)
+                        .setScreenOnTime(index * 1000L);
+        for (int app = 0; app < APP_COUNT; app++) {
+            builder.addAppUsage(createBatteryUsageDiff(app, index, /* isSystem= */ false));
+        }
+        for (int component = 0; component < SYSTEM_COUNT; component++) {
+            builder.addSystemUsage(createBatteryUsageDiff(component, index, /* isSystem= */ true));
+        }
+        return builder.build();
+    }
+
+    private static BatteryUsageDiff createBatteryUsageDiff(int id, int index, boolean isSystem) {
+        final double consumePower = (id + 1) * (index % 100 + 1) * 0.5;
+        final BatteryUsageDiff.Builder builder =
+                BatteryUsageDiff.newBuilder()
+                        .setUserId(0L)
+                        .setConsumePower(consumePower)
+                        .setForegroundUsageConsumePower(consumePower * 0.6)
+                        .setBackgroundUsageConsumePower(consumePower * 0.4)
+                        .setForegroundUsageTime(id * 1000L)
+                        .setBackgroundUsageTime(id * 500L);
+        if (isSystem) {
+            return builder.setComponentId(id)
+                    .setConsumerType(ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY)
+                    .setKey("S|" + id)
+                    .build();
+        }
+        return builder.setUid(10000L + id)
+                .setPackageName("com.android.benchmark.app" + id)
+                .setLabel("app" + id)
+                .setConsumerType(ConvertUtils.CONSUMER_TYPE_UID_BATTERY)
+                .setKey(Long.toString(10000L + id))
+                .build();
+    }
+
+    private interface ParcelWriter {
+        void writeTo(Parcel parcel);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.os.BatteryManager;
+import android.util.ArrayMap;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/** Benchmarks of {@link DataProcessor}. */
+@RunWith(RobolectricTestRunner.class)
+public final class DataProcessorBenchmark {
+    private static final int HISTORY_DAYS = 7;
+    private static final int APP_COUNT = 40;
+    private static final long HOUR_IN_MS = Duration.ofHours(1).toMillis();
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private Map<Long, Map<String, BatteryHistEntry>> mBatteryHistoryMap;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        FakeFeatureFactory.setupForTest();
+        DataProcessor.sTestSystemAppsPackageNames = Set.of();
+
+        final Intent batteryIntent = new Intent(Intent.ACTION_BATTERY_CHANGED);
+        batteryIntent.putExtra(BatteryManager.EXTRA_LEVEL, 66);
+        batteryIntent.putExtra(BatteryManager.EXTRA_SCALE, 100);
+        mContext.sendStickyBroadcast(batteryIntent);
+
+        // A week of hourly snapshots, as recorded by the periodic job.
+        final long currentTime = System.currentTimeMillis() / HOUR_IN_MS * HOUR_IN_MS;
+        final int snapshotCount = HISTORY_DAYS * 24;
+        mBatteryHistoryMap = new ArrayMap<>(snapshotCount);
+        for (int index = 0; index < snapshotCount; index++) {
+            final long timestamp = currentTime - (snapshotCount - 1 - index) * HOUR_IN_MS;
+            final int batteryLevel = 100 - index % 100;
+            final Map<String, BatteryHistEntry> entryMap = new ArrayMap<>(APP_COUNT);
+            for (int app = 0; app < APP_COUNT; app++) {
+                final BatteryHistEntry entry =
+                        createBatteryHistEntry(timestamp, app, index, batteryLevel);
+                entryMap.put(entry.getKey(), entry);
+            }
+            mBatteryHistoryMap.put(timestamp, entryMap);
+        }
+        DataProcessor.sTestCurrentTimeMillis = currentTime;
+    }
+
+    @After
+    public void tearDown() {
+        DataProcessor.sTestSystemAppsPackageNames = null;
+        DataProcessor.sTestCurrentTimeMillis = 0;
+    }
+
+    @Test
+    public void getBatteryUsageData_weekOfHistory() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertThat(DataProcessor.getBatteryUsageData(mContext, mBatteryHistoryMap))
+                    .isNotNull();
+        }
+    }
+
+    private static BatteryHistEntry createBatteryHistEntry(
+            long timestamp, int app, int snapshotIndex, int batteryLevel) {
+        // Usage only grows within the charge cycle, as the battery stats do.
+        final double consumePower = (app + 1) * (snapshotIndex % 100 + 1) * 0.5;
+        final BatteryInformation batteryInformation =
+                BatteryInformation.newBuilder()
+                        .setAppLabel("app" + app)
+                        .setConsumePower(consumePower)
+                        .setForegroundUsageConsumePower(consumePower * 0.6)
+                        .setBackgroundUsageConsumePower(consumePower * 0.4)
+                        .setForegroundUsageTimeInMs((snapshotIndex % 100 + 1) * 1000L * app)
+                        .setBackgroundUsageTimeInMs((snapshotIndex % 100 + 1) * 500L * app)
+                        .setDeviceBatteryState(
+                                DeviceBatteryState.newBuilder()
+                                        .setBatteryLevel(batteryLevel)
+                                        .build())
+                        .build();
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, "com.android.benchmark.app" + app);
+        values.put(BatteryHistEntry.KEY_UID, 10000L + app);
+        values.put(BatteryHistEntry.KEY_USER_ID, 0L);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, timestamp);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, batteryInformation.toByteArray());
+        return new BatteryHistEntry(values);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.net.wifi.WifiManager;
+import android.view.View;
+
+import androidx.fragment.app.FragmentActivity;
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settings.testutils.FakeFeatureFactory;
+import com.android.settings.wifi.AddWifiNetworkPreference;
+import com.android.wifitrackerlib.WifiEntry;
+import com.android.wifitrackerlib.WifiPickerTracker;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks of {@link WifiEntryListDiff} and of the Wi-Fi entry preferences of
+ * {@link NetworkProviderSettings} it keeps up to date, on scan results of a crowded place.
+ */
+@RunWith(RobolectricTestRunner.class)
+public final class WifiEntryListDiffBenchmark {
+    private static final int ENTRY_COUNT = 120;
+    /** Entries going out of range, and as many coming in, between two scans. */
+    private static final int CHURN_COUNT = 10;
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private WifiPickerTracker mWifiPickerTracker;
+    private NetworkProviderSettings mFragment;
+    private List<WifiEntry> mScan;
+    private List<WifiEntry> mNextScan;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        FakeFeatureFactory.setupForTest();
+        // Every scan backs the entries by new WifiEntry objects, and shifts them by the churn.
+        mScan = createWifiEntries(/* firstKey= */ 0);
+        mNextScan = createWifiEntries(/* firstKey= */ CHURN_COUNT);
+
+        mWifiPickerTracker = mock(WifiPickerTracker.class);
+        when(mWifiPickerTracker.getWifiState()).thenReturn(WifiManager.WIFI_STATE_ENABLED);
+
+        final PreferenceManager preferenceManager = new PreferenceManager(mContext);
+        final PreferenceScreen screen = preferenceManager.createPreferenceScreen(mContext);
+        mFragment = spy(new NetworkProviderSettings());
+        doReturn(mContext).when(mFragment).getContext();
+        doReturn(preferenceManager).when(mFragment).getPreferenceManager();
+        doReturn(mock(FragmentActivity.class)).when(mFragment).getActivity();
+        doReturn(new View(mContext)).when(mFragment).getView();
+        doNothing().when(mFragment).setAdditionalSettingsSummaries();
+        mFragment.mWifiPickerTracker = mWifiPickerTracker;
+        mFragment.mInternetUpdater = mock(InternetUpdater.class);
+        mFragment.mAddWifiNetworkPreference = new AddWifiNetworkPreference(mContext);
+        mFragment.mConnectedWifiEntryPreferenceCategory = addCategory(screen);
+        mFragment.mFirstWifiEntryPreferenceCategory = addCategory(screen);
+        mFragment.mWifiEntryPreferenceCategory = addCategory(screen);
+    }
+
+    @Test
+    public void compute_newScan() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            final WifiEntryListDiff diff = WifiEntryListDiff.compute(mScan, mNextScan);
+            assertThat(diff.mRemovedKeys).hasSize(CHURN_COUNT);
+        }
+    }
+
+    @Test
+    public void updateWifiEntryPreferences_newScan() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        boolean next = false;
+        while (state.keepRunning()) {
+            when(mWifiPickerTracker.getWifiEntries()).thenReturn(next ? mNextScan : mScan);
+            next = !next;
+
+            mFragment.updateWifiEntryPreferences();
+        }
+
+        // The entries and the "Add network" preference.
+        assertThat(mFragment.mWifiEntryPreferenceCategory.getPreferenceCount())
+                .isEqualTo(ENTRY_COUNT + 1);
+    }
+
+    @Test
+    public void updateWifiEntryPreferences_sameScan() {
+        when(mWifiPickerTracker.getWifiEntries()).thenReturn(mScan);
+        mFragment.updateWifiEntryPreferences();
+
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mFragment.updateWifiEntryPreferences();
+        }
+
+        assertThat(mFragment.mWifiEntryPreferenceCategory.getPreferenceCount())
+                .isEqualTo(ENTRY_COUNT + 1);
+    }
+
+    private PreferenceCategory addCategory(PreferenceScreen screen) {
+        final PreferenceCategory category = new PreferenceCategory(mContext);
+        screen.addPreference(category);
+        return category;
+    }
+
+    private static List<WifiEntry> createWifiEntries(int firstKey) {
+        final List<WifiEntry> wifiEntries = new ArrayList<>(ENTRY_COUNT);
+        for (int i = firstKey; i < firstKey + ENTRY_COUNT; i++) {
+            final WifiEntry wifiEntry = mock(WifiEntry.class);
+            when(wifiEntry.getKey()).thenReturn("wifi" + i);
+            when(wifiEntry.getTitle()).thenReturn("Wi-Fi " + i);
+            when(wifiEntry.getLevel()).thenReturn(i % (WifiEntry.WIFI_LEVEL_MAX + 1));
+            wifiEntries.add(wifiEntry);
+        }
+        return wifiEntries;
+    }
+}
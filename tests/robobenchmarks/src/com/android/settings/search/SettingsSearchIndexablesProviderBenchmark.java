@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static android.provider.SearchIndexablesContract.INDEXABLES_RAW_COLUMNS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settings.benchmark.SearchBenchmarkUtils;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/** Benchmarks of {@link SettingsSearchIndexablesProvider}, over all the search indexable pages. */
+@RunWith(RobolectricTestRunner.class)
+public final class SettingsSearchIndexablesProviderBenchmark {
+    private static final String PACKAGE_NAME = "com.android.settings";
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private SettingsSearchIndexablesProvider mProvider;
+
+    @Before
+    public void setUp() {
+        final Context context = RuntimeEnvironment.application;
+        final FakeFeatureFactory featureFactory = FakeFeatureFactory.setupForTest();
+        featureFactory.searchFeatureProvider =
+                SearchBenchmarkUtils.createSearchFeatureProvider(context);
+
+        mProvider = new SettingsSearchIndexablesProvider();
+        final ProviderInfo info = new ProviderInfo();
+        info.exported = true;
+        info.grantUriPermissions = true;
+        info.authority = PACKAGE_NAME;
+        info.readPermission = Manifest.permission.READ_SEARCH_INDEXABLES;
+        // The mocked DashboardFeatureProvider has no category, the injected tiles come from
+        // other apps.
+        mProvider.attachInfo(context, info);
+    }
+
+    @Test
+    public void queryRawData_allIndexablePages() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            try (Cursor cursor = mProvider.queryRawData(INDEXABLES_RAW_COLUMNS)) {
+                assertThat(cursor.getCount()).isGreaterThan(0);
+            }
+        }
+    }
+
+    @Test
+    public void queryDynamicRawData_allIndexablePages() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            try (Cursor cursor = mProvider.queryDynamicRawData(INDEXABLES_RAW_COLUMNS)) {
+                assertThat(cursor).isNotNull();
+            }
+        }
+    }
+}
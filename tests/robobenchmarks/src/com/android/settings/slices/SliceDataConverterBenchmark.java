@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.accessibilityservice.AccessibilityServiceInfo;
+import android.content.Context;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settings.benchmark.SearchBenchmarkUtils;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Benchmarks of {@link SliceDataConverter}, over all the search indexable pages. */
+@RunWith(RobolectricTestRunner.class)
+public final class SliceDataConverterBenchmark {
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private SliceDataConverter mSliceDataConverter;
+
+    @Before
+    public void setUp() {
+        final Context context = RuntimeEnvironment.application;
+        final FakeFeatureFactory featureFactory = FakeFeatureFactory.setupForTest();
+        featureFactory.searchFeatureProvider =
+                SearchBenchmarkUtils.createSearchFeatureProvider(context);
+        mSliceDataConverter = new SliceDataConverter(context) {
+            @Override
+            List<AccessibilityServiceInfo> getAccessibilityServiceInfoList() {
+                // No accessibility service is installed on the JVM.
+                return new ArrayList<>();
+            }
+        };
+    }
+
+    @Test
+    public void getSliceData_allIndexablePages() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertThat(mSliceDataConverter.getSliceData()).isNotEmpty();
+        }
+    }
+}
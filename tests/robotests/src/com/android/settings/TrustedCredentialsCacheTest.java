@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+
+import com.android.settings.TrustedCredentialsSettings.Tab;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class TrustedCredentialsCacheTest {
+
+    private static final String ALIAS = "system:a1b2c3d4.0";
+    private static final byte[] ENCODED_CERT = "certificate".getBytes(StandardCharsets.UTF_8);
+
+    private Context mContext;
+    private TrustedCredentialsCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new TrustedCredentialsCache(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        new File(mContext.getCacheDir(), TrustedCredentialsCache.FILE_NAME).delete();
+    }
+
+    @Test
+    public void read_nothingWritten_returnsEmpty() {
+        assertThat(mCache.read(Tab.SYSTEM).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void write_readsBackEntriesOfTabAndProfile() {
+        final byte[] digest = TrustedCredentialsCache.digest(ENCODED_CERT);
+        final Map<String, TrustedCredentialsCache.Entry> entries = new ArrayMap<>();
+        entries.put(ALIAS, new TrustedCredentialsCache.Entry(digest, "Org", "Name", true));
+
+        mCache.write(Tab.SYSTEM, 10, entries);
+        mCache.write(Tab.USER, 0, new ArrayMap<>());
+
+        final SparseArray<Map<String, TrustedCredentialsCache.Entry>> read =
+                new TrustedCredentialsCache(mContext).read(Tab.SYSTEM);
+        assertThat(read.size()).isEqualTo(1);
+        final TrustedCredentialsCache.Entry entry = read.get(10).get(ALIAS);
+        assertThat(entry.matches(digest)).isTrue();
+        assertThat(entry.mSubjectPrimary).isEqualTo("Org");
+        assertThat(entry.mSubjectSecondary).isEqualTo("Name");
+        assertThat(entry.mDeleted).isTrue();
+        assertThat(mCache.read(Tab.USER).get(0)).isEmpty();
+    }
+
+    @Test
+    public void read_corruptedFile_returnsEmpty() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(
+                new File(mContext.getCacheDir(), TrustedCredentialsCache.FILE_NAME))) {
+            out.write(new byte[] {0, 0, 0, 1, 0, 0, 0, 5});
+        }
+
+        assertThat(mCache.read(Tab.SYSTEM).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void matches_changedCertificate_returnsFalse() {
+        final TrustedCredentialsCache.Entry entry = new TrustedCredentialsCache.Entry(
+                TrustedCredentialsCache.digest(ENCODED_CERT), "Org", "", false);
+
+        assertThat(entry.matches(TrustedCredentialsCache.digest(
+                "renewed certificate".getBytes(StandardCharsets.UTF_8)))).isFalse();
+    }
+
+    @Test
+    public void withDeleted_updatesDeletedOnly() {
+        final TrustedCredentialsCache.Entry entry = new TrustedCredentialsCache.Entry(
+                TrustedCredentialsCache.digest(ENCODED_CERT), "Org", "Name", false);
+
+        final TrustedCredentialsCache.Entry deleted = entry.withDeleted(true);
+
+        assertThat(deleted.mDeleted).isTrue();
+        assertThat(deleted.mSubjectPrimary).isEqualTo("Org");
+        assertThat(deleted.matches(entry.mDigest)).isTrue();
+        assertThat(entry.withDeleted(false)).isSameInstanceAs(entry);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.Manifest;
+import android.app.AppOpsManager;
+import android.app.AppOpsManager.OpEntry;
+import android.app.AppOpsManager.PackageOps;
+import android.content.pm.ChangedPackages;
+import android.content.pm.IPackageManager;
+import android.content.pm.PackageInfo;
+import android.os.RemoteException;
+import android.util.SparseIntArray;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppOpsPermissionSnapshotTest {
+
+    private static final String PKG1 = "pkg1";
+    private static final String PKG2 = "pkg2";
+    private static final int USER_ID = 0;
+    private static final int UID1 = 10001;
+    private static final int OP = AppOpsManager.OP_SYSTEM_ALERT_WINDOW;
+    private static final String PERMISSION = Manifest.permission.SYSTEM_ALERT_WINDOW;
+
+    @Mock
+    private IPackageManager mPackageManager;
+    @Mock
+    private AppOpsManager mAppOpsManager;
+    private AppOpsPermissionSnapshot mSnapshot;
+    private int[] mPermissionIds;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mSnapshot = new AppOpsPermissionSnapshot(mPackageManager, mAppOpsManager);
+        mPermissionIds = mSnapshot.getPermissionIds(new String[] {PERMISSION});
+    }
+
+    @Test
+    public void getPermissionIds_sameName_sameId() {
+        final int[] ids = mSnapshot.getPermissionIds(
+                new String[] {Manifest.permission.WRITE_SETTINGS, PERMISSION});
+
+        assertThat(ids[1]).isEqualTo(mPermissionIds[0]);
+        assertThat(ids[0]).isNotEqualTo(mPermissionIds[0]);
+    }
+
+    @Test
+    public void getPackageState_grantedPermission_isRequestedAndGranted() throws RemoteException {
+        when(mPackageManager.getPackageInfo(eq(PKG1), anyInt(), eq(USER_ID)))
+                .thenReturn(createPackageInfo(PKG1, true));
+
+        final AppOpsPermissionSnapshot.PackageState state =
+                mSnapshot.getPackageState(PKG1, USER_ID);
+
+        assertThat(state.requestsAny(mPermissionIds)).isTrue();
+        assertThat(state.isGrantedAny(mPermissionIds)).isTrue();
+        assertThat(state.requestsAny(
+                mSnapshot.getPermissionIds(new String[] {"other"}))).isFalse();
+    }
+
+    @Test
+    public void getPackageState_calledTwice_looksUpPackageOnce() throws RemoteException {
+        when(mPackageManager.getPackageInfo(eq(PKG1), anyInt(), eq(USER_ID)))
+                .thenReturn(createPackageInfo(PKG1, true));
+
+        mSnapshot.getPackageState(PKG1, USER_ID);
+        mSnapshot.getPackageState(PKG1, USER_ID);
+
+        verify(mPackageManager, times(1)).getPackageInfo(eq(PKG1), anyInt(), eq(USER_ID));
+    }
+
+    @Test
+    public void getPackageState_packageChanged_looksUpPackageAgain() throws RemoteException {
+        when(mPackageManager.getPackageInfo(eq(PKG1), anyInt(), eq(USER_ID)))
+                .thenReturn(createPackageInfo(PKG1, true));
+        mSnapshot.getPackageState(PKG1, USER_ID);
+        when(mPackageManager.getChangedPackages(anyInt(), eq(USER_ID)))
+                .thenReturn(new ChangedPackages(1, Collections.singletonList(PKG1)))
+                .thenReturn(null);
+
+        mSnapshot.getPackageState(PKG1, USER_ID);
+
+        verify(mPackageManager, times(2)).getPackageInfo(eq(PKG1), anyInt(), eq(USER_ID));
+    }
+
+    @Test
+    public void getRequestingPackages_packageChanged_updatesOnlyChangedPackage()
+            throws RemoteException {
+        when(mPackageManager.getAppOpPermissionPackages(PERMISSION, USER_ID))
+                .thenReturn(new String[] {PKG1});
+        assertThat(mSnapshot.getRequestingPackages(mPermissionIds, USER_ID))
+                .containsExactly(PKG1);
+        when(mPackageManager.getPackageInfo(eq(PKG2), anyInt(), eq(USER_ID)))
+                .thenReturn(createPackageInfo(PKG2, false));
+        when(mPackageManager.getChangedPackages(anyInt(), eq(USER_ID)))
+                .thenReturn(new ChangedPackages(1, Collections.singletonList(PKG2)))
+                .thenReturn(null);
+
+        final Set<String> packages =
+                mSnapshot.getRequestingPackages(mPermissionIds, USER_ID);
+
+        assertThat(packages).containsExactly(PKG1, PKG2);
+        verify(mPackageManager, times(1)).getAppOpPermissionPackages(PERMISSION, USER_ID);
+    }
+
+    @Test
+    public void getOpModes_opChanged_reloadsOnlyChangedPackage() {
+        final int[] opCodes = {OP};
+        final List<PackageOps> packageOps = Collections.singletonList(
+                createPackageOps(PKG1, UID1, AppOpsManager.MODE_ALLOWED));
+        when(mAppOpsManager.getPackagesForOps(any(int[].class))).thenReturn(packageOps);
+        assertThat(mSnapshot.getOpModes(opCodes).get(PKG1).get(UID1))
+                .isEqualTo(AppOpsManager.MODE_ALLOWED);
+        verify(mAppOpsManager).startWatchingMode(eq(OP), eq(null), any());
+        when(mAppOpsManager.getOpsForPackage(UID1, PKG1, opCodes)).thenReturn(
+                Collections.singletonList(
+                        createPackageOps(PKG1, UID1, AppOpsManager.MODE_IGNORED)));
+
+        mSnapshot.onAppOpChanged(OP, PKG1);
+        final Map<String, SparseIntArray> modes = mSnapshot.getOpModes(opCodes);
+
+        assertThat(modes.get(PKG1).get(UID1)).isEqualTo(AppOpsManager.MODE_IGNORED);
+        verify(mAppOpsManager, times(1)).getPackagesForOps(any(int[].class));
+    }
+
+    @Test
+    public void getOpModes_unknownPackageChanged_reloadsAllModes() {
+        final int[] opCodes = {OP};
+        when(mAppOpsManager.getPackagesForOps(any(int[].class))).thenReturn(
+                Collections.emptyList());
+        mSnapshot.getOpModes(opCodes);
+
+        mSnapshot.onAppOpChanged(OP, PKG2);
+        mSnapshot.getOpModes(opCodes);
+
+        verify(mAppOpsManager, times(2)).getPackagesForOps(any(int[].class));
+        verify(mAppOpsManager, never()).getOpsForPackage(anyInt(), eq(PKG2), any(int[].class));
+    }
+
+    @Test
+    public void stopWatchingOps_watchingOps_stopsWatchingMode() {
+        when(mAppOpsManager.getPackagesForOps(any(int[].class))).thenReturn(
+                Collections.emptyList());
+        mSnapshot.getOpModes(new int[] {OP});
+
+        mSnapshot.stopWatchingOps();
+
+        verify(mAppOpsManager).stopWatchingMode(any(AppOpsManager.OnOpChangedListener.class));
+    }
+
+    @Test
+    public void stopWatchingOps_notWatching_doesNothing() {
+        mSnapshot.stopWatchingOps();
+
+        verify(mAppOpsManager, never()).stopWatchingMode(
+                any(AppOpsManager.OnOpChangedListener.class));
+    }
+
+    private static PackageInfo createPackageInfo(String packageName, boolean granted) {
+        final PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.requestedPermissions = new String[] {Manifest.permission.INTERNET, PERMISSION};
+        packageInfo.requestedPermissionsFlags = new int[] {
+                PackageInfo.REQUESTED_PERMISSION_GRANTED,
+                granted ? PackageInfo.REQUESTED_PERMISSION_GRANTED : 0};
+        return packageInfo;
+    }
+
+    private static PackageOps createPackageOps(String packageName, int uid, int mode) {
+        return new PackageOps(packageName, uid,
+                Collections.singletonList(new OpEntry(OP, mode, Collections.emptyMap())));
+    }
+}
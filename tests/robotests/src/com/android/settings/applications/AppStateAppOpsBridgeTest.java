@@ -16,8 +16,11 @@
 
 package com.android.settings.applications;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.Manifest;
@@ -43,9 +46,13 @@ import org.robolectric.RobolectricTestRunner;
 public final class AppStateAppOpsBridgeTest {
 
     @Mock private Context mContext;
+    @Mock private Context mOtherContext;
+    @Mock private Context mApplicationContext;
     @Mock private UserManager mUserManager;
     @Mock private IPackageManager mPackageManagerService;
     @Mock private AppOpsManager mAppOpsManager;
+    @Mock private AppOpsManager mOtherAppOpsManager;
+    @Mock private AppOpsManager mApplicationAppOpsManager;
 
     @Before
     public void setUp() {
@@ -54,6 +61,26 @@ public final class AppStateAppOpsBridgeTest {
         when(mContext.getSystemService(Context.APP_OPS_SERVICE)).thenReturn(mAppOpsManager);
     }
 
+    @Test
+    public void constructor_differentContexts_shareSnapshotOfApplicationContext() {
+        when(mContext.getApplicationContext()).thenReturn(mApplicationContext);
+        when(mOtherContext.getApplicationContext()).thenReturn(mApplicationContext);
+        when(mOtherContext.getSystemService(Context.USER_SERVICE)).thenReturn(mUserManager);
+        when(mOtherContext.getSystemService(Context.APP_OPS_SERVICE))
+                .thenReturn(mOtherAppOpsManager);
+        when(mApplicationContext.getSystemService(Context.APP_OPS_SERVICE))
+                .thenReturn(mApplicationAppOpsManager);
+
+        final AppStateAppOpsBridge bridge = new TestAppStateAppOpsBridge(mContext);
+        final AppStateAppOpsBridge otherBridge = new TestAppStateAppOpsBridge(mOtherContext);
+        otherBridge.mSnapshot.getOpModes(new int[] {AppOpsManager.OP_SYSTEM_ALERT_WINDOW});
+
+        Truth.assertThat(otherBridge.mSnapshot).isSameInstanceAs(bridge.mSnapshot);
+        verify(mApplicationAppOpsManager).getPackagesForOps(any(int[].class));
+        verify(mAppOpsManager, never()).getPackagesForOps(any(int[].class));
+        verify(mOtherAppOpsManager, never()).getPackagesForOps(any(int[].class));
+    }
+
     @Test
     public void getPermissionInfo_nullPackageInfo_shouldNotCrash() throws RemoteException {
         when(mPackageManagerService.getPackageInfo(anyString(), anyInt(), anyInt()))
@@ -117,7 +144,11 @@ public final class AppStateAppOpsBridgeTest {
 
     private class TestAppStateAppOpsBridge extends AppStateAppOpsBridge {
         private TestAppStateAppOpsBridge() {
-            super(mContext, null, null, AppOpsManager.OP_SYSTEM_ALERT_WINDOW,
+            this(mContext);
+        }
+
+        private TestAppStateAppOpsBridge(Context context) {
+            super(context, null, null, AppOpsManager.OP_SYSTEM_ALERT_WINDOW,
                 new String[] {Manifest.permission.SYSTEM_ALERT_WINDOW},
                 mPackageManagerService);
         }
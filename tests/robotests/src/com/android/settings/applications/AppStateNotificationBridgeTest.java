@@ -33,7 +33,11 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -48,6 +52,7 @@ import android.os.Parcel;
 import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
+import android.util.ArrayMap;
 import android.widget.CompoundButton;
 import android.widget.Switch;
 
@@ -199,6 +204,90 @@ public class AppStateNotificationBridgeTest {
         assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG2)).lastSent).isEqualTo(1);
     }
 
+    @Test
+    public void testGetAggregatedUsageEvents_pastDaysAreRolledUp() throws Exception {
+        List<Event> events = new ArrayList<>();
+        Event yesterday = new Event();
+        yesterday.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        yesterday.mPackage = PKG1;
+        yesterday.mTimeStamp = System.currentTimeMillis() - DAY_IN_MILLIS;
+        events.add(yesterday);
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(events));
+        mBridge.getAggregatedUsageEvents();
+
+        // Only today is queried again, the count of yesterday comes from the rollup
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        Map<String, NotificationsSentState> map = mBridge.getAggregatedUsageEvents();
+
+        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).sentCount).isEqualTo(1);
+        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).lastSent)
+                .isEqualTo(yesterday.mTimeStamp);
+    }
+
+    @Test
+    public void testGetAggregatedUsageEvents_userRemoved_dropsRolledUpDays() throws Exception {
+        final int workUserId = 10;
+        List<Event> events = new ArrayList<>();
+        Event yesterday = new Event();
+        yesterday.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        yesterday.mPackage = PKG1;
+        yesterday.mTimeStamp = System.currentTimeMillis() - DAY_IN_MILLIS;
+        events.add(yesterday);
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), eq(workUserId), anyString()))
+                .thenReturn(getUsageEvents(events));
+        mBridge.mUserIds = Arrays.asList(0, workUserId);
+        mBridge.getAggregatedUsageEvents();
+
+        // The work profile is removed
+        mBridge.mUserIds = Arrays.asList(0);
+        mBridge.getAggregatedUsageEvents();
+
+        // A failed query only counts the rolled up days, which are gone for the removed user
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(null);
+        mBridge.mUserIds = Arrays.asList(0, workUserId);
+        assertThat(mBridge.getAggregatedUsageEvents())
+                .doesNotContainKey(AppStateNotificationBridge.getKey(workUserId, PKG1));
+    }
+
+    @Test
+    public void testGetAggregatedUsageEvents_nullEvents_pastDaysAreNotRolledUp()
+            throws Exception {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(null);
+        assertThat(mBridge.getAggregatedUsageEvents()).isEmpty();
+
+        // The past days are queried again instead of being read as empty from the rollup
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        mBridge.getAggregatedUsageEvents();
+
+        verify(mUsageStats, times(2)).queryEventsForUser(
+                longThat(startTime -> startTime < System.currentTimeMillis() - DAY_IN_MILLIS),
+                anyLong(), anyInt(), anyString());
+    }
+
+    @Test
+    public void testGetAggregatedUsageEvents_remoteException_pastDaysAreNotRolledUp()
+            throws Exception {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenThrow(new RemoteException());
+        assertThat(mBridge.getAggregatedUsageEvents()).isEmpty();
+
+        reset(mUsageStats);
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        mBridge.getAggregatedUsageEvents();
+
+        verify(mUsageStats).queryEventsForUser(
+                longThat(startTime -> startTime < System.currentTimeMillis() - DAY_IN_MILLIS),
+                anyLong(), anyInt(), anyString());
+    }
+
     @Test
     public void testLoadAllExtraInfo_noEvents() throws RemoteException {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
@@ -216,6 +305,27 @@ public class AppStateNotificationBridgeTest {
         assertThat(((NotificationsSentState) apps.get(0).extraInfo).lastSent).isEqualTo(0);
     }
 
+    @Test
+    public void testLoadAllExtraInfo_bulkBlockStates() throws RemoteException {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        NotificationBackend.BlockState blockState = new NotificationBackend.BlockState();
+        blockState.banned = false;
+        blockState.blockable = false;
+        Map<String, NotificationBackend.BlockState> blockStates = new ArrayMap<>();
+        blockStates.put(PKG1, blockState);
+        when(mBackend.getBlockStates(any(), eq(0), any())).thenReturn(blockStates);
+        ArrayList<AppEntry> apps = new ArrayList<>();
+        apps.add(getMockAppEntry(PKG1));
+        when(mSession.getAllApps()).thenReturn(apps);
+
+        mBridge.loadAllExtraInfo();
+
+        verify(mBackend, never()).getNotificationsBanned(anyString(), anyInt());
+        assertThat(((NotificationsSentState) apps.get(0).extraInfo).blocked).isFalse();
+        assertThat(((NotificationsSentState) apps.get(0).extraInfo).blockable).isFalse();
+    }
+
     @Test
     public void testLoadAllExtraInfo_multipleEventsAgg() throws RemoteException {
         List<Event> events = new ArrayList<>();
@@ -39,6 +39,7 @@ import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -100,6 +101,7 @@ public final class AppWithAdminGrantedPermissionsCounterTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        InstalledAppsSnapshot.setInstance(new InstalledAppsSnapshot(mContext, mPackageManager));
         when(mContext.getSystemService(Context.USER_SERVICE)).thenReturn(mUserManager);
 
         mApp1 = buildInfo(APP_1_UID, APP_1, 0 /* flags */, Build.VERSION_CODES.M);
@@ -110,6 +112,11 @@ public final class AppWithAdminGrantedPermissionsCounterTest {
         mApp6 = buildInfo(APP_6_UID, APP_6, 0 /* flags */, Build.VERSION_CODES.M);
     }
 
+    @After
+    public void tearDown() {
+        InstalledAppsSnapshot.setInstance(null);
+    }
+
     private void verifyCountInstalledApps(boolean async) throws Exception {
         configureUserManager();
         configurePackageManager();
@@ -133,6 +140,7 @@ public final class AppWithAdminGrantedPermissionsCounterTest {
         verify(mPackageManager).getInstalledApplicationsAsUser(anyInt(),
                 eq(MANAGED_PROFILE_ID));
         verify(mPackageManager, atLeast(0)).getInstallReason(any(), any());
+        verify(mPackageManager, atLeast(0)).getChangedPackages(anyInt());
         verifyNoMoreInteractions(mPackageManager);
     }
 
@@ -17,6 +17,7 @@
 package com.android.settings.applications;
 
 import static com.android.settings.testutils.ApplicationTestUtils.buildInfo;
+import static com.android.settings.testutils.ApplicationTestUtils.eqInfoFlags;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -31,17 +32,20 @@ import static org.mockito.Mockito.when;
 import android.app.admin.DevicePolicyManager;
 import android.content.pm.IPackageManager;
 import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.ApplicationInfoFlags;
 import android.content.pm.UserInfo;
 import android.os.Build;
 import android.os.UserHandle;
 import android.os.UserManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.shadows.ShadowApplication;
 
@@ -89,6 +93,13 @@ public final class AppWithAdminGrantedPermissionsListerTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        InstalledAppsSnapshot.setInstance(
+                new InstalledAppsSnapshot(RuntimeEnvironment.application, mPackageManager));
+    }
+
+    @After
+    public void tearDown() {
+        InstalledAppsSnapshot.setInstance(null);
     }
 
     @Test
@@ -109,10 +120,11 @@ public final class AppWithAdminGrantedPermissionsListerTest {
         //        one of the permissions. It should not be listed.
         // * app5 uses install-time permissions. It was installed by the admin but did not request
         //        any of the permissions. It should not be listed.
-        when(mPackageManager.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
+        when(mPackageManager.getInstalledApplicationsAsUser(eqInfoFlags(
+                PackageManager.GET_DISABLED_COMPONENTS
                         | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
-                        | PackageManager.MATCH_ANY_USER,
-                MAIN_USER_ID)).thenReturn(Arrays.asList(
+                        | PackageManager.MATCH_ANY_USER),
+                eq(MAIN_USER_ID))).thenReturn(Arrays.asList(
                 buildInfo(APP_1_UID, APP_1, 0 /* flags */, Build.VERSION_CODES.M),
                 buildInfo(APP_2_UID, APP_2, 0 /* flags */, Build.VERSION_CODES.M),
                 buildInfo(APP_3_UID, APP_3, 0 /* flags */, Build.VERSION_CODES.LOLLIPOP),
@@ -164,9 +176,10 @@ public final class AppWithAdminGrantedPermissionsListerTest {
 
         // The second user has one app installed. This app uses run-time permissions. It has been
         // granted both permissions by the admin. It should be listed.
-        when(mPackageManager.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
-                        | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS,
-                MANAGED_PROFILE_ID)).thenReturn(Arrays.asList(
+        when(mPackageManager.getInstalledApplicationsAsUser(eqInfoFlags(
+                PackageManager.GET_DISABLED_COMPONENTS
+                        | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS),
+                eq(MANAGED_PROFILE_ID))).thenReturn(Arrays.asList(
                 buildInfo(APP_6_UID, APP_6, 0 /* flags */, Build.VERSION_CODES.M)));
 
         // Grant run-time permissions as appropriate.
@@ -201,10 +214,12 @@ public final class AppWithAdminGrantedPermissionsListerTest {
 
         // Verify that installed packages were retrieved the current user and the user's managed
         // profile only.
-        verify(mPackageManager).getInstalledApplicationsAsUser(anyInt(), eq(MAIN_USER_ID));
-        verify(mPackageManager).getInstalledApplicationsAsUser(anyInt(),
+        verify(mPackageManager).getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class),
+                eq(MAIN_USER_ID));
+        verify(mPackageManager).getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class),
                 eq(MANAGED_PROFILE_ID));
         verify(mPackageManager, atLeast(0)).getInstallReason(any(), any());
+        verify(mPackageManager, atLeast(0)).getChangedPackages(anyInt());
         verifyNoMoreInteractions(mPackageManager);
     }
 
@@ -212,8 +227,8 @@ public final class AppWithAdminGrantedPermissionsListerTest {
             AppWithAdminGrantedPermissionsLister {
 
         private AppWithAdminGrantedPermissionsListerTestable(String[] permissions) {
-            super(permissions, mPackageManager, mPackageManagerService,
-                    mDevicePolicyManager, mUserManager);
+            super(RuntimeEnvironment.application, permissions, mPackageManager,
+                    mPackageManagerService, mDevicePolicyManager, mUserManager);
         }
 
         @Override
@@ -16,8 +16,11 @@
 
 package com.android.settings.applications;
 
+import static com.android.settings.testutils.ApplicationTestUtils.eqInfoFlags;
+
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
@@ -42,6 +45,7 @@ import com.android.settings.testutils.ApplicationTestUtils;
 import com.android.settingslib.testutils.shadow.ShadowDefaultDialerManager;
 import com.android.settingslib.testutils.shadow.ShadowSmsApplication;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -100,6 +104,7 @@ public final class ApplicationFeatureProviderImplTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        InstalledAppsSnapshot.setInstance(new InstalledAppsSnapshot(mContext, mPackageManager));
 
         when(mContext.getApplicationContext()).thenReturn(mContext);
         when(mContext.getSystemService(Context.USER_SERVICE)).thenReturn(mUserManager);
@@ -109,6 +114,11 @@ public final class ApplicationFeatureProviderImplTest {
                 mPackageManagerService, mDevicePolicyManager);
     }
 
+    @After
+    public void tearDown() {
+        InstalledAppsSnapshot.setInstance(null);
+    }
+
     private void verifyCalculateNumberOfPolicyInstalledApps(boolean async) {
         setUpUsersAndInstalledApps();
 
@@ -368,15 +378,17 @@ public final class ApplicationFeatureProviderImplTest {
                 new UserInfo(MAIN_USER_ID, "main", UserInfo.FLAG_ADMIN),
                 new UserInfo(MANAGED_PROFILE_ID, "managed profile", 0)));
 
-        when(mPackageManager.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
+        when(mPackageManager.getInstalledApplicationsAsUser(eqInfoFlags(
+                PackageManager.GET_DISABLED_COMPONENTS
                         | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
-                        | PackageManager.MATCH_ANY_USER,
-                MAIN_USER_ID)).thenReturn(Arrays.asList(
+                        | PackageManager.MATCH_ANY_USER),
+                eq(MAIN_USER_ID))).thenReturn(Arrays.asList(
                 ApplicationTestUtils.buildInfo(APP_1_UID, APP_1, 0 /* flags */,
                         Build.VERSION_CODES.M)));
-        when(mPackageManager.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
-                        | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS,
-                MANAGED_PROFILE_ID)).thenReturn(Arrays.asList(
+        when(mPackageManager.getInstalledApplicationsAsUser(eqInfoFlags(
+                PackageManager.GET_DISABLED_COMPONENTS
+                        | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS),
+                eq(MANAGED_PROFILE_ID))).thenReturn(Arrays.asList(
                 ApplicationTestUtils.buildInfo(APP_2_UID, APP_2, 0 /* flags */,
                         Build.VERSION_CODES.LOLLIPOP)));
     }
@@ -42,6 +42,7 @@ import android.content.pm.UserInfo;
 import android.os.UserHandle;
 import android.os.UserManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -98,6 +99,7 @@ public final class InstalledAppCounterTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        InstalledAppsSnapshot.setInstance(new InstalledAppsSnapshot(mContext, mPackageManager));
         when(mContext.getSystemService(UserManager.class)).thenReturn(mUserManager);
         mFakeFeatureFlags = new FakeFeatureFlagsImpl();
         mFakeFeatureFlags.setFlag(Flags.FLAG_ARCHIVING, true);
@@ -119,6 +121,11 @@ public final class InstalledAppCounterTest {
         mApp7.isArchived = true;
     }
 
+    @After
+    public void tearDown() {
+        InstalledAppsSnapshot.setInstance(null);
+    }
+
     private void expectQueryIntentActivities(int userId, String packageName, boolean launchable) {
         when(mPackageManager.queryIntentActivitiesAsUser(
                 argThat(isLaunchIntentFor(packageName)),
@@ -152,6 +159,7 @@ public final class InstalledAppCounterTest {
                         eq(MANAGED_PROFILE_ID));
         verify(mPackageManager, atLeast(0))
             .queryIntentActivitiesAsUser(any(Intent.class), anyInt(), anyInt());
+        verify(mPackageManager, atLeast(0)).getChangedPackages(anyInt());
         verifyNoMoreInteractions(mPackageManager);
 
         // Count once more, considering apps installed by enterprise policy only.
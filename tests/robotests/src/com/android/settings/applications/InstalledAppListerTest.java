@@ -17,6 +17,7 @@
 package com.android.settings.applications;
 
 import static com.android.settings.testutils.ApplicationTestUtils.buildInfo;
+import static com.android.settings.testutils.ApplicationTestUtils.eqInfoFlags;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -31,11 +32,13 @@ import static org.mockito.Mockito.when;
 import android.content.Intent;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.ApplicationInfoFlags;
 import android.content.pm.ResolveInfo;
 import android.content.pm.UserInfo;
 import android.os.UserHandle;
 import android.os.UserManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -43,6 +46,7 @@ import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.shadows.ShadowApplication;
 
@@ -80,6 +84,13 @@ public final class InstalledAppListerTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        InstalledAppsSnapshot.setInstance(
+                new InstalledAppsSnapshot(RuntimeEnvironment.application, mPackageManager));
+    }
+
+    @After
+    public void tearDown() {
+        InstalledAppsSnapshot.setInstance(null);
     }
 
     private void expectQueryIntentActivities(int userId, String packageName, boolean launchable) {
@@ -104,10 +115,11 @@ public final class InstalledAppListerTest {
         // * app2 is a user-installed app. It should be listed.
         // * app3 is a system app that provides a launcher icon. It should be listed.
         // * app4 is a system app that provides no launcher icon. It should not be listed.
-        when(mPackageManager.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
+        when(mPackageManager.getInstalledApplicationsAsUser(eqInfoFlags(
+                PackageManager.GET_DISABLED_COMPONENTS
                 | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
-                | PackageManager.MATCH_ANY_USER,
-                MAIN_USER_ID)).thenReturn(Arrays.asList(
+                | PackageManager.MATCH_ANY_USER),
+                eq(MAIN_USER_ID))).thenReturn(Arrays.asList(
                         buildInfo(MAIN_USER_APP_UID, APP_1,
                                 ApplicationInfo.FLAG_UPDATED_SYSTEM_APP, 0 /* targetSdkVersion */),
                         buildInfo(MAIN_USER_APP_UID, APP_2, 0 /* flags */,
@@ -135,9 +147,10 @@ public final class InstalledAppListerTest {
         // The second user has two apps installed:
         // * app5 is a user-installed app. It should be listed.
         // * app6 is a system app that provides a launcher icon. It should be listed.
-        when(mPackageManager.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
-                | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS,
-                MANAGED_PROFILE_ID)).thenReturn(Arrays.asList(
+        when(mPackageManager.getInstalledApplicationsAsUser(eqInfoFlags(
+                PackageManager.GET_DISABLED_COMPONENTS
+                | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS),
+                eq(MANAGED_PROFILE_ID))).thenReturn(Arrays.asList(
                         buildInfo(MANAGED_PROFILE_APP_UID, APP_5, 0 /* flags */,
                                 0 /* targetSdkVersion */),
                         buildInfo(MANAGED_PROFILE_APP_UID, APP_6, ApplicationInfo.FLAG_SYSTEM,
@@ -169,8 +182,10 @@ public final class InstalledAppListerTest {
 
         // Verify that installed packages were retrieved for the current user and the user's
         // managed profile.
-        verify(mPackageManager).getInstalledApplicationsAsUser(anyInt(), eq(MAIN_USER_ID));
-        verify(mPackageManager).getInstalledApplicationsAsUser(anyInt(), eq(MANAGED_PROFILE_ID));
+        verify(mPackageManager).getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class),
+                eq(MAIN_USER_ID));
+        verify(mPackageManager).getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class),
+                eq(MANAGED_PROFILE_ID));
         verify(mPackageManager, atLeast(0))
             .queryIntentActivitiesAsUser(any(), anyInt(), anyInt());
     }
@@ -191,7 +206,7 @@ public final class InstalledAppListerTest {
 
     private class InstalledAppListerTestable extends InstalledAppLister {
         private InstalledAppListerTestable() {
-            super(mPackageManager, mUserManager);
+            super(RuntimeEnvironment.application, mPackageManager, mUserManager);
         }
 
         @Override
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.android.settings.testutils.ApplicationTestUtils.buildInfo;
+import static com.android.settings.testutils.ApplicationTestUtils.eqInfoFlags;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.ApplicationInfoFlags;
+import android.os.Build;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class InstalledAppsSnapshotTest {
+
+    private static final String APP_1 = "app1";
+    private static final String APP_2 = "app2";
+    private static final String APP_3 = "app3";
+    private static final int USER_ID = 0;
+    private static final long FLAGS = PackageManager.GET_DISABLED_COMPONENTS;
+
+    @Mock
+    private PackageManager mPackageManager;
+
+    private InstalledAppsSnapshot mSnapshot;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(mPackageManager.getInstalledApplicationsAsUser(eqInfoFlags(FLAGS), eq(USER_ID)))
+                .thenReturn(Arrays.asList(buildApp(APP_1, 0 /* flags */),
+                        buildApp(APP_2, ApplicationInfo.FLAG_SYSTEM)));
+        mSnapshot = new InstalledAppsSnapshot(RuntimeEnvironment.application, mPackageManager);
+    }
+
+    @Test
+    public void count_listsApplicationsOnce() {
+        assertThat(mSnapshot.count(USER_ID, FLAGS, info -> true)).isEqualTo(2);
+        assertThat(mSnapshot.count(USER_ID, FLAGS, this::isSystem)).isEqualTo(1);
+
+        verify(mPackageManager).getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class),
+                eq(USER_ID));
+    }
+
+    @Test
+    public void filter_returnsMatchingApplications() {
+        final List<ApplicationInfo> apps = mSnapshot.filter(USER_ID, FLAGS, this::isSystem);
+
+        assertThat(getPackageNames(apps)).containsExactly(APP_2);
+    }
+
+    @Test
+    public void onPackageChanged_installed_addsApplication() throws Exception {
+        mSnapshot.count(USER_ID, FLAGS, info -> true);
+        when(mPackageManager.getApplicationInfoAsUser(eq(APP_3), eqInfoFlags(FLAGS),
+                eq(USER_ID))).thenReturn(buildApp(APP_3, 0 /* flags */));
+
+        mSnapshot.onPackageChanged(APP_3);
+
+        assertThat(getPackageNames(mSnapshot.filter(USER_ID, FLAGS, info -> true)))
+                .containsExactly(APP_1, APP_2, APP_3);
+        assertThat(mSnapshot.getGeneration()).isEqualTo(1);
+        verify(mPackageManager).getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class),
+                eq(USER_ID));
+    }
+
+    @Test
+    public void onPackageChanged_uninstalled_removesApplication() throws Exception {
+        mSnapshot.count(USER_ID, FLAGS, info -> true);
+        when(mPackageManager.getApplicationInfoAsUser(eq(APP_1), eqInfoFlags(FLAGS),
+                eq(USER_ID))).thenThrow(new PackageManager.NameNotFoundException());
+
+        mSnapshot.onPackageChanged(APP_1);
+
+        assertThat(getPackageNames(mSnapshot.filter(USER_ID, FLAGS, info -> true)))
+                .containsExactly(APP_2);
+    }
+
+    @Test
+    public void count_packageChangedWhileListing_listsAgain() {
+        when(mPackageManager.getInstalledApplicationsAsUser(eqInfoFlags(FLAGS), eq(USER_ID)))
+                .thenAnswer(invocation -> {
+                    mSnapshot.onPackageChanged(APP_3);
+                    return Arrays.asList(buildApp(APP_1, 0 /* flags */));
+                }).thenReturn(Arrays.asList(buildApp(APP_1, 0 /* flags */),
+                        buildApp(APP_3, 0 /* flags */)));
+
+        assertThat(mSnapshot.count(USER_ID, FLAGS, info -> true)).isEqualTo(1);
+        assertThat(mSnapshot.count(USER_ID, FLAGS, info -> true)).isEqualTo(2);
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(
+                any(ApplicationInfoFlags.class), eq(USER_ID));
+    }
+
+    @Test
+    public void count_packageChangedWithoutBroadcast_appliesChange() throws Exception {
+        mSnapshot.count(USER_ID, FLAGS, info -> true);
+        when(mPackageManager.getChangedPackages(0))
+                .thenReturn(new ChangedPackages(1 /* sequenceNumber */, Arrays.asList(APP_1)));
+        when(mPackageManager.getApplicationInfoAsUser(eq(APP_1), eqInfoFlags(FLAGS),
+                eq(USER_ID))).thenThrow(new PackageManager.NameNotFoundException());
+
+        assertThat(mSnapshot.count(USER_ID, FLAGS, info -> true)).isEqualTo(1);
+        assertThat(mSnapshot.count(USER_ID, FLAGS, info -> true)).isEqualTo(1);
+
+        verify(mPackageManager, times(2)).getChangedPackages(0);
+        verify(mPackageManager).getChangedPackages(1);
+        verify(mPackageManager).getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class),
+                eq(USER_ID));
+    }
+
+    @Test
+    public void count_listOlderThanMaxAge_listsAgain() {
+        mSnapshot.count(USER_ID, FLAGS, info -> true);
+
+        SystemClock.sleep(InstalledAppsSnapshot.MAX_AGE_MS);
+        mSnapshot.count(USER_ID, FLAGS, info -> true);
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(
+                any(ApplicationInfoFlags.class), eq(USER_ID));
+    }
+
+    @Test
+    public void onUserRemoved_dropsApplicationsOfUser() {
+        mSnapshot.count(USER_ID, FLAGS, info -> true);
+
+        mSnapshot.onUserRemoved(USER_ID);
+        mSnapshot.count(USER_ID, FLAGS, info -> true);
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(
+                any(ApplicationInfoFlags.class), eq(USER_ID));
+    }
+
+    private boolean isSystem(ApplicationInfo info) {
+        return (info.flags & ApplicationInfo.FLAG_SYSTEM) != 0;
+    }
+
+    private static ApplicationInfo buildApp(String packageName, int flags) {
+        return buildInfo(USER_ID, packageName, flags, Build.VERSION_CODES.M);
+    }
+
+    private static List<String> getPackageNames(List<ApplicationInfo> apps) {
+        final List<String> packageNames = new ArrayList<>();
+        for (ApplicationInfo info : apps) {
+            packageNames.add(info.packageName);
+        }
+        return packageNames;
+    }
+}
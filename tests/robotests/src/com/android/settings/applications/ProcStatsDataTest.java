@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Parcel;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.os.UserHandle;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.internal.app.procstats.IProcessStats;
+import com.android.internal.app.procstats.ProcessState;
+import com.android.internal.app.procstats.ProcessStats;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProcStatsDataTest {
+
+    private static final long DURATION_3H = ProcessStatsBase.sDurations[0];
+    private static final long DURATION_6H = ProcessStatsBase.sDurations[1];
+    private static final String PACKAGE_1 = "com.android.settings.test1";
+    private static final String PACKAGE_2 = "com.android.settings.test2";
+    private static final int APP_ID_1 = 10001;
+    private static final int APP_ID_2 = 10002;
+    private static final int OTHER_USER_ID = 10;
+    private static final long RUN_DURATION_MS = 60_000L;
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private IProcessStats mProcessStats;
+
+    private Context mContext;
+    private byte[] mStatsBytes;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = ApplicationProvider.getApplicationContext();
+        mStatsBytes = createStatsBytes();
+        when(mProcessStats.getStatsOverTime(anyLong())).thenAnswer(invocation -> {
+            final File file = mTemporaryFolder.newFile();
+            Files.write(file.toPath(), mStatsBytes);
+            return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+        });
+    }
+
+    @Test
+    public void refreshStats_durationLoadedBefore_reuseStats() throws Exception {
+        final ProcStatsData data = new ProcStatsData(mContext, mProcessStats, false);
+        data.setDuration(DURATION_3H);
+        data.refreshStats(false);
+        final ProcStatsData.MemInfo memInfo = data.getMemInfo();
+        data.setDuration(DURATION_6H);
+        data.refreshStats(false);
+
+        data.setDuration(DURATION_3H);
+        data.refreshStats(false);
+
+        verify(mProcessStats).getStatsOverTime(DURATION_3H);
+        verify(mProcessStats).getStatsOverTime(DURATION_6H);
+        assertThat(data.getMemInfo()).isSameInstanceAs(memInfo);
+    }
+
+    @Test
+    public void refreshStats_forceLoad_dropStatsOfAllDurations() throws Exception {
+        final ProcStatsData data = new ProcStatsData(mContext, mProcessStats, false);
+        data.setDuration(DURATION_6H);
+        data.refreshStats(false);
+        data.setDuration(DURATION_3H);
+        data.refreshStats(false);
+
+        data.refreshStats(true);
+        data.setDuration(DURATION_6H);
+        data.refreshStats(false);
+
+        verify(mProcessStats, times(2)).getStatsOverTime(DURATION_3H);
+        verify(mProcessStats, times(2)).getStatsOverTime(DURATION_6H);
+    }
+
+    @Test
+    public void getPackageEntry_sameAsEntryOfGetEntries() {
+        final int uid = UserHandle.getUid(UserHandle.USER_SYSTEM, APP_ID_1);
+        final ProcStatsPackageEntry expected = findEntry(createRefreshedData().getEntries(), uid);
+
+        final ProcStatsPackageEntry pkgEntry = createRefreshedData().getPackageEntry(uid);
+
+        assertThat(expected).isNotNull();
+        assertThat(pkgEntry.mPackage).isEqualTo(expected.mPackage);
+        assertThat(getUids(pkgEntry)).containsExactlyElementsIn(getUids(expected));
+    }
+
+    @Test
+    public void getPackageEntry_packageOfSeveralUsers_groupProcessesOfAllUsers() {
+        final ProcStatsPackageEntry pkgEntry = createRefreshedData()
+                .getPackageEntry(UserHandle.getUid(UserHandle.USER_SYSTEM, APP_ID_1));
+
+        assertThat(pkgEntry.mPackage).isEqualTo(PACKAGE_1);
+        assertThat(getUids(pkgEntry)).containsExactly(
+                UserHandle.getUid(UserHandle.USER_SYSTEM, APP_ID_1),
+                UserHandle.getUid(OTHER_USER_ID, APP_ID_1));
+    }
+
+    @Test
+    public void getEntryCount_sameAsGetEntriesSize() {
+        final int count = createRefreshedData().getEntryCount();
+
+        // Both packages, and the OS.
+        assertThat(count).isEqualTo(3);
+        assertThat(count).isEqualTo(createRefreshedData().getEntries().size());
+    }
+
+    private ProcStatsData createRefreshedData() {
+        final ProcStatsData data = new ProcStatsData(mContext, mProcessStats, false);
+        data.setDuration(DURATION_3H);
+        data.refreshStats(false);
+        return data;
+    }
+
+    private static ProcStatsPackageEntry findEntry(List<ProcStatsPackageEntry> entries, int uid) {
+        for (ProcStatsPackageEntry pkgEntry : entries) {
+            for (ProcStatsEntry entry : pkgEntry.getEntries()) {
+                if (entry.getUid() == uid) {
+                    return pkgEntry;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Integer> getUids(ProcStatsPackageEntry pkgEntry) {
+        final List<Integer> uids = new ArrayList<>();
+        for (ProcStatsEntry entry : pkgEntry.getEntries()) {
+            uids.add(entry.getUid());
+        }
+        return uids;
+    }
+
+    /** Creates the stats of a package running for two users, and of another package. */
+    private static byte[] createStatsBytes() {
+        final long now = SystemClock.uptimeMillis();
+        final ProcessStats stats = new ProcessStats(false);
+        addProcess(stats, PACKAGE_1, UserHandle.getUid(UserHandle.USER_SYSTEM, APP_ID_1), now);
+        addProcess(stats, PACKAGE_1, UserHandle.getUid(OTHER_USER_ID, APP_ID_1), now);
+        addProcess(stats, PACKAGE_2, UserHandle.getUid(UserHandle.USER_SYSTEM, APP_ID_2), now);
+
+        final Parcel parcel = Parcel.obtain();
+        try {
+            stats.writeToParcel(parcel, now + RUN_DURATION_MS, /* flags= */ 0);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static void addProcess(ProcessStats stats, String packageName, int uid, long now) {
+        final ProcessState proc =
+                stats.getProcessStateLocked(packageName, uid, /* vers= */ 1, packageName);
+        proc.setState(ActivityManager.PROCESS_STATE_TOP, ProcessStats.ADJ_MEM_FACTOR_NORMAL, now,
+                /* pkgList= */ null);
+        proc.addPss(/* pss= */ 1024, /* uss= */ 1024, /* rss= */ 1024, /* always= */ true,
+                ProcessStats.ADD_PSS_INTERNAL_SINGLE, /* duration= */ 1, /* pkgList= */ null);
+        proc.commitStateTime(now + RUN_DURATION_MS);
+    }
+}
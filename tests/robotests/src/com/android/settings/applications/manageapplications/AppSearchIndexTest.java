@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppSearchIndexTest {
+
+    @Test
+    public void filter_substring_keepsListOrder() {
+        final AppSearchIndex index = new AppSearchIndex(
+                getTestAppList("Apricot", "Banana", "Cantaloupe", "Fig", "Mango"));
+
+        assertThat(getLabels(index.filter("an")))
+                .containsExactly("Banana", "Cantaloupe", "Mango").inOrder();
+    }
+
+    @Test
+    public void filter_wordStartMatchesFirst() {
+        final AppSearchIndex index = new AppSearchIndex(
+                getTestAppList("Camera", "Google Maps", "Maps"));
+
+        assertThat(getLabels(index.filter("ma")))
+                .containsExactly("Google Maps", "Maps", "Camera").inOrder();
+    }
+
+    @Test
+    public void filter_ignoresCaseAndAccents() {
+        final AppSearchIndex index = new AppSearchIndex(getTestAppList("Résumé", "Notes"));
+
+        assertThat(getLabels(index.filter("RESUME"))).containsExactly("Résumé");
+        assertThat(getLabels(index.filter("résumé"))).containsExactly("Résumé");
+    }
+
+    @Test
+    public void filter_extendedThenShortenedQuery() {
+        final AppSearchIndex index = new AppSearchIndex(
+                getTestAppList("Calculator", "Calendar", "Camera"));
+
+        assertThat(getLabels(index.filter("ca"))).hasSize(3);
+        assertThat(getLabels(index.filter("cal"))).containsExactly("Calculator", "Calendar");
+        assertThat(getLabels(index.filter("calc"))).containsExactly("Calculator");
+        assertThat(getLabels(index.filter("cam"))).containsExactly("Camera");
+    }
+
+    private static ArrayList<AppEntry> getTestAppList(String... appNames) {
+        final ArrayList<AppEntry> appList = new ArrayList<>();
+        for (String name : appNames) {
+            final AppEntry appEntry = mock(AppEntry.class);
+            appEntry.label = name;
+            appList.add(appEntry);
+        }
+        return appList;
+    }
+
+    private static List<String> getLabels(List<AppEntry> entries) {
+        final List<String> labels = new ArrayList<>();
+        for (AppEntry entry : entries) {
+            labels.add(entry.label);
+        }
+        return labels;
+    }
+}
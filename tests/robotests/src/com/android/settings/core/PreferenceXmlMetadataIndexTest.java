@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.util.TypedValue;
+
+import com.android.settings.R;
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceXmlMetadataIndexTest {
+
+    private static final int ALL_FLAGS =
+            MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+                    | MetadataFlag.FLAG_NEED_KEY
+                    | MetadataFlag.FLAG_NEED_PREF_TYPE
+                    | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+                    | MetadataFlag.FLAG_NEED_PREF_TITLE
+                    | MetadataFlag.FLAG_NEED_PREF_SUMMARY
+                    | MetadataFlag.FLAG_NEED_PREF_ICON
+                    | MetadataFlag.FLAG_NEED_KEYWORDS
+                    | MetadataFlag.FLAG_NEED_SEARCHABLE
+                    | MetadataFlag.FLAG_NEED_PREF_APPEND
+                    | MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE
+                    | MetadataFlag.FLAG_FOR_WORK
+                    | MetadataFlag.FLAG_NEED_HIGHLIGHTABLE_MENU_KEY
+                    | MetadataFlag.FLAG_NEED_USER_RESTRICTION;
+
+    private static final String BASE_APK = "/system_ext/priv-app/Settings/Settings.apk";
+    private static final String OVERLAY_APK = "/vendor/overlay/SettingsOverlay.apk";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = getApplicationContext();
+    }
+
+    @Test
+    public void getIndexedXmlResIds_notEmpty() {
+        assertThat(PreferenceXmlMetadataIndex.getIndexedXmlResIds()).isNotEmpty();
+    }
+
+    @Test
+    public void extractMetadata_allFlags_sameAsXml() throws Exception {
+        for (int xmlResId : PreferenceXmlMetadataIndex.getIndexedXmlResIds()) {
+            assertSameAsXml(xmlResId, ALL_FLAGS);
+        }
+    }
+
+    @Test
+    public void extractMetadata_withoutPrefScreen_sameAsXml() throws Exception {
+        final int flags = ALL_FLAGS & ~MetadataFlag.FLAG_INCLUDE_PREF_SCREEN;
+        for (int xmlResId : PreferenceXmlMetadataIndex.getIndexedXmlResIds()) {
+            assertSameAsXml(xmlResId, flags);
+        }
+    }
+
+    @Test
+    public void extractMetadata_notIndexedXml_returnNull() {
+        assertThat(PreferenceXmlMetadataIndex.extractMetadata(mContext, 0, ALL_FLAGS)).isNull();
+    }
+
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void extractMetadata_configurationSpecificXml_returnNull() {
+        assertThat(
+                        PreferenceXmlMetadataIndex.extractMetadata(
+                                mContext, R.xml.location_settings, ALL_FLAGS))
+                .isNull();
+    }
+
+    @Test
+    public void extractMetadata_overlayXml_returnNull() {
+        final int xmlResId = PreferenceXmlMetadataIndex.getIndexedXmlResIds()[0];
+        final Context context = mockContextWithOverlay(xmlResId, OVERLAY_APK);
+
+        assertThat(
+                        PreferenceXmlMetadataIndex.extractMetadata(
+                                context, xmlResId, MetadataFlag.FLAG_NEED_PREF_TYPE))
+                .isNull();
+    }
+
+    @Test
+    public void extractMetadata_overlayInstalled_baseApkXml_returnIndexedMetadata() {
+        final int xmlResId = PreferenceXmlMetadataIndex.getIndexedXmlResIds()[0];
+        final Context context = mockContextWithOverlay(xmlResId, BASE_APK);
+
+        assertThat(
+                        PreferenceXmlMetadataIndex.extractMetadata(
+                                context, xmlResId, MetadataFlag.FLAG_NEED_PREF_TYPE))
+                .isNotNull();
+    }
+
+    // Mocks a context with an overlay installed, where the XML resource resolves to apkPath.
+    private Context mockContextWithOverlay(int xmlResId, String apkPath) {
+        final String name = mContext.getResources().getResourceEntryName(xmlResId);
+        final int cookie = 2;
+        final ApplicationInfo info = new ApplicationInfo();
+        info.sourceDir = BASE_APK;
+        info.resourceDirs = new String[] {OVERLAY_APK};
+        final Resources resources = mock(Resources.class);
+        doAnswer(
+                        invocation -> {
+                            final TypedValue value = invocation.getArgument(1);
+                            value.string = "res/xml/" + name + ".xml";
+                            value.assetCookie = cookie;
+                            return null;
+                        })
+                .when(resources)
+                .getValue(eq(xmlResId), any(TypedValue.class), anyBoolean());
+        final AssetManager assets = mock(AssetManager.class);
+        when(assets.getCookieName(cookie)).thenReturn(apkPath);
+        final Context context = mock(Context.class);
+        when(context.getApplicationInfo()).thenReturn(info);
+        when(context.getResources()).thenReturn(resources);
+        when(context.getAssets()).thenReturn(assets);
+        return context;
+    }
+
+    private void assertSameAsXml(int xmlResId, int flags) throws Exception {
+        final String name = mContext.getResources().getResourceEntryName(xmlResId);
+        final List<Bundle> indexed =
+                PreferenceXmlMetadataIndex.extractMetadata(mContext, xmlResId, flags);
+        final List<Bundle> parsed =
+                PreferenceXmlParserUtils.extractMetadataFromXml(mContext, xmlResId, flags);
+
+        assertWithMessage(name).that(indexed).isNotNull();
+        assertWithMessage(name).that(indexed).hasSize(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            final Bundle expected = parsed.get(i);
+            final Bundle actual = indexed.get(i);
+            assertWithMessage(name).that(actual.keySet()).isEqualTo(expected.keySet());
+            for (String key : expected.keySet()) {
+                assertWithMessage(name + "#" + i + "." + key)
+                        .that(actual.get(key))
+                        .isEqualTo(expected.get(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.android.settings.core.BasePreferenceController;
+import com.android.settingslib.core.AbstractPreferenceController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+@RunWith(RobolectricTestRunner.class)
+public class ControllerAvailabilityEvaluatorTest {
+
+    private static final int PAGE_ID = 1;
+
+    private Context mContext;
+    private ControllerAvailabilityEvaluator mEvaluator;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mEvaluator = new ControllerAvailabilityEvaluator();
+    }
+
+    @Test
+    public void evaluate_fewControllers_shouldEvaluateAll() {
+        final AbstractPreferenceController available = mock(AbstractPreferenceController.class);
+        final AbstractPreferenceController unavailable = mock(AbstractPreferenceController.class);
+        when(available.isAvailable()).thenReturn(true);
+        when(unavailable.isAvailable()).thenReturn(false);
+
+        final Map<AbstractPreferenceController, Boolean> availability =
+                mEvaluator.evaluate(List.of(available, unavailable), PAGE_ID);
+
+        assertThat(availability.get(available)).isTrue();
+        assertThat(availability.get(unavailable)).isFalse();
+    }
+
+    @Test
+    public void evaluate_manyThreadSafeControllers_shouldEvaluateAllConcurrently() {
+        final List<TestController> controllers = new ArrayList<>();
+        for (int i = 0; i < ControllerAvailabilityEvaluator.PARALLEL_THRESHOLD * 2; i++) {
+            controllers.add(new ThreadSafeTestController(mContext, "key" + i, i % 2 == 0));
+        }
+
+        final Map<AbstractPreferenceController, Boolean> availability =
+                mEvaluator.evaluate(controllers, PAGE_ID);
+
+        assertThat(availability).hasSize(controllers.size());
+        for (TestController controller : controllers) {
+            assertThat(availability.get(controller)).isEqualTo(controller.mAvailable);
+            assertThat(controller.mCallCount).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void evaluate_manyControllersNotThreadSafe_shouldEvaluateOnCallerThread() {
+        final List<TestController> controllers = new ArrayList<>();
+        for (int i = 0; i < ControllerAvailabilityEvaluator.PARALLEL_THRESHOLD * 2; i++) {
+            controllers.add(new TestController(mContext, "key" + i, true));
+        }
+
+        mEvaluator.evaluate(controllers, PAGE_ID);
+
+        for (TestController controller : controllers) {
+            assertThat(controller.mCallThread).isEqualTo(Thread.currentThread());
+        }
+    }
+
+    @Test
+    public void evaluate_controllerFailsInBackground_shouldEvaluateOnCallerThread() {
+        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+        for (int i = 0; i < ControllerAvailabilityEvaluator.PARALLEL_THRESHOLD; i++) {
+            controllers.add(new ThreadSafeTestController(mContext, "key" + i, true));
+        }
+        final Thread callerThread = Thread.currentThread();
+        final TestController failing = new ThreadSafeTestController(mContext, "failing", true) {
+            @Override
+            public int getAvailabilityStatus() {
+                if (Thread.currentThread() != callerThread) {
+                    throw new IllegalStateException("main thread only");
+                }
+                return super.getAvailabilityStatus();
+            }
+        };
+        controllers.add(failing);
+
+        final Map<AbstractPreferenceController, Boolean> availability =
+                mEvaluator.evaluate(controllers, PAGE_ID);
+
+        assertThat(availability.get(failing)).isTrue();
+    }
+
+    @Test
+    public void evaluate_controllerHangsInBackground_shouldStopWaitingAndEvaluateOnCallerThread() {
+        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+        for (int i = 0; i < ControllerAvailabilityEvaluator.PARALLEL_THRESHOLD; i++) {
+            controllers.add(new ThreadSafeTestController(mContext, "key" + i, true));
+        }
+        final Thread callerThread = Thread.currentThread();
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestController hanging = new ThreadSafeTestController(mContext, "hanging", true) {
+            @Override
+            public int getAvailabilityStatus() {
+                if (Thread.currentThread() != callerThread) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getAvailabilityStatus();
+            }
+        };
+        controllers.add(hanging);
+
+        try {
+            final Map<AbstractPreferenceController, Boolean> availability =
+                    mEvaluator.evaluate(controllers, PAGE_ID);
+
+            assertThat(availability.get(hanging)).isTrue();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void evaluate_slowController_shouldLogWarning() {
+        final TestController controller = new TestController(mContext, "key", true) {
+            @Override
+            public int getAvailabilityStatus() {
+                SystemClock.sleep(ControllerAvailabilityEvaluator.SLOW_CONTROLLER_THRESHOLD_MS);
+                return super.getAvailabilityStatus();
+            }
+        };
+
+        mEvaluator.evaluate(Collections.singletonList(controller), PAGE_ID);
+
+        assertThat(ShadowLog.getLogsForTag("ControllerAvailability")).hasSize(1);
+        assertThat(ShadowLog.getLogsForTag("ControllerAvailability").get(0).type)
+                .isEqualTo(Log.WARN);
+    }
+
+    @Test
+    public void evaluate_fastController_shouldNotLog() {
+        final TestController controller = new TestController(mContext, "key", true);
+
+        mEvaluator.evaluate(Collections.singletonList(controller), PAGE_ID);
+
+        assertThat(ShadowLog.getLogsForTag("ControllerAvailability")).isEmpty();
+    }
+
+    private static class TestController extends BasePreferenceController {
+        private final boolean mAvailable;
+        private int mCallCount;
+        private Thread mCallThread;
+
+        TestController(Context context, String key, boolean available) {
+            super(context, key);
+            mAvailable = available;
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            mCallCount++;
+            mCallThread = Thread.currentThread();
+            return mAvailable ? AVAILABLE : UNSUPPORTED_ON_DEVICE;
+        }
+    }
+
+    private static class ThreadSafeTestController extends TestController
+            implements BasePreferenceController.ThreadSafeAvailability {
+
+        ThreadSafeTestController(Context context, String key, boolean available) {
+            super(context, key, available);
+        }
+    }
+}
@@ -19,9 +19,11 @@ package com.android.settings.dashboard;
 import static android.content.Intent.EXTRA_USER;
 
 import static com.android.settingslib.drawer.SwitchesProvider.EXTRA_SWITCH_SET_CHECKED_ERROR;
+import static com.android.settingslib.drawer.SwitchesProvider.METHOD_GET_DYNAMIC_SUMMARY;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_KEY_ORDER;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_KEY_PROFILE;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON_BACKGROUND_ARGB;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON_URI;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_KEYHINT;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_SUMMARY;
@@ -36,6 +38,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -51,8 +54,10 @@ import android.content.pm.PackageManager;
 import android.content.pm.ProviderInfo;
 import android.content.pm.ResolveInfo;
 import android.graphics.Bitmap;
+import android.graphics.Color;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.Icon;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -81,6 +86,7 @@ import com.android.settingslib.drawer.CategoryKey;
 import com.android.settingslib.drawer.ProviderTile;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.drawer.TileUtils;
+import com.android.settingslib.widget.AdaptiveIcon;
 
 import org.junit.Before;
 import org.junit.Ignore;
@@ -88,6 +94,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.Robolectric;
@@ -152,6 +159,8 @@ public class DashboardFeatureProviderImplTest {
         when(mPackageManager.resolveActivity(any(Intent.class), anyInt()))
                 .thenReturn(new ResolveInfo());
         mFeatureFactory = FakeFeatureFactory.setupForTest();
+        ReflectionHelpers.setStaticField(TileIconCache.class, "sInstance", null);
+        DynamicTextCache.get().clear();
         mImpl = new DashboardFeatureProviderImpl(mContext);
         mFragment = new TestFragment();
     }
@@ -339,10 +348,6 @@ public class DashboardFeatureProviderImplTest {
                 Preference.DEFAULT_ORDER);
 
         assertThat(observers.get(0).getUri().toString()).isEqualTo(uriString);
-        assertThat(preference.getSummary()).isNotEqualTo(ShadowTileUtils.MOCK_TEXT);
-
-        observers.get(0).updateUi();
-
         assertThat(preference.getSummary()).isEqualTo(ShadowTileUtils.MOCK_TEXT);
     }
 
@@ -359,11 +364,28 @@ public class DashboardFeatureProviderImplTest {
                 Preference.DEFAULT_ORDER);
 
         assertThat(observers.get(0).getUri().toString()).isEqualTo(uriString);
-        assertThat(preference.getTitle()).isNotEqualTo(ShadowTileUtils.MOCK_TEXT);
+        assertThat(preference.getTitle()).isEqualTo(ShadowTileUtils.MOCK_TEXT);
+    }
 
-        observers.get(0).updateUi();
+    @Test
+    @Config(shadows = {ShadowTileUtils.class})
+    public void bindPreference_hasCachedSummary_shouldShowCachedSummaryFirst() {
+        final Tile tile = new ActivityTile(mActivityInfo, CategoryKey.CATEGORY_HOMEPAGE);
+        final String uriString = "content://com.android.settings/tile_summary";
+        mActivityInfo.metaData.putString(TileUtils.META_DATA_PREFERENCE_SUMMARY_URI, uriString);
+        final Uri uri = TileUtils.getCompleteUri(tile, TileUtils.META_DATA_PREFERENCE_SUMMARY_URI,
+                METHOD_GET_DYNAMIC_SUMMARY);
+        DynamicTextCache.get().putText(uri, "cached");
+        DynamicTextCache.get().expire(uri);
+        final Preference preference = spy(new Preference(RuntimeEnvironment.application));
 
-        assertThat(preference.getTitle()).isEqualTo(ShadowTileUtils.MOCK_TEXT);
+        mImpl.bindPreferenceToTileAndGetObservers(mActivity, mFragment, mForceRoundedIcon,
+                preference, tile, null /* key */, Preference.DEFAULT_ORDER);
+
+        final InOrder inOrder = inOrder(preference);
+        inOrder.verify(preference).setSummary("cached");
+        inOrder.verify(preference).setSummary(ShadowTileUtils.MOCK_TEXT);
+        assertThat(DynamicTextCache.get().getFreshText(uri)).isEqualTo(ShadowTileUtils.MOCK_TEXT);
     }
 
     @Test
@@ -417,7 +439,6 @@ public class DashboardFeatureProviderImplTest {
         final List<DynamicDataObserver> observers = mImpl.bindPreferenceToTileAndGetObservers(
                 mActivity, mFragment, mForceRoundedIcon, preference, tile, null /* key */,
                 Preference.DEFAULT_ORDER);
-        observers.get(0).updateUi();
 
         ShadowTileUtils.setProviderChecked(false);
         observers.get(0).onDataChanged();
@@ -500,6 +521,46 @@ public class DashboardFeatureProviderImplTest {
         assertThat(preferenceBmp.sameAs(iconBmpFromUri)).isTrue();
     }
 
+    @Test
+    public void bindIcon_withStaticIcon_secondBind_shouldUseCachedIcon() {
+        mActivityInfo.packageName = RuntimeEnvironment.application.getPackageName();
+        final Tile tile = new ActivityTile(mActivityInfo, CategoryKey.CATEGORY_HOMEPAGE);
+        mActivityInfo.metaData.putString(META_DATA_PREFERENCE_KEYHINT, "key");
+        mActivityInfo.metaData.putInt(META_DATA_PREFERENCE_ICON, R.drawable.ic_add_40dp);
+        final Preference preference1 = new Preference(RuntimeEnvironment.application);
+        final Preference preference2 = new Preference(RuntimeEnvironment.application);
+
+        mImpl.bindIcon(preference1, tile, false /* forceRoundedIcon */);
+        mImpl.bindIcon(preference2, tile, false /* forceRoundedIcon */);
+
+        assertThat(preference2.getIcon()).isNotNull();
+        assertThat(preference2.getIcon()).isNotSameInstanceAs(preference1.getIcon());
+        final Bitmap bitmap1 = Utils.createIconWithDrawable(preference1.getIcon()).getBitmap();
+        final Bitmap bitmap2 = Utils.createIconWithDrawable(preference2.getIcon()).getBitmap();
+        assertThat(bitmap1.sameAs(bitmap2)).isTrue();
+    }
+
+    @Test
+    public void bindIcon_roundedStaticIcon_secondBind_shouldWrapCachedIcon() {
+        // Icons of other packages are rounded
+        doReturn("com.android.other").when(mContext).getPackageName();
+        mActivityInfo.packageName = RuntimeEnvironment.application.getPackageName();
+        final Tile tile = new ActivityTile(mActivityInfo, CategoryKey.CATEGORY_SYSTEM);
+        mActivityInfo.metaData.putString(META_DATA_PREFERENCE_KEYHINT, "key");
+        mActivityInfo.metaData.putInt(META_DATA_PREFERENCE_ICON, R.drawable.ic_add_40dp);
+        mActivityInfo.metaData.putInt(META_DATA_PREFERENCE_ICON_BACKGROUND_ARGB, Color.RED);
+        final Preference preference1 = new Preference(RuntimeEnvironment.application);
+        final Preference preference2 = new Preference(RuntimeEnvironment.application);
+
+        mImpl.bindIcon(preference1, tile, true /* forceRoundedIcon */);
+        mImpl.bindIcon(preference2, tile, true /* forceRoundedIcon */);
+
+        assertThat(preference2.getIcon()).isInstanceOf(AdaptiveIcon.class);
+        assertThat(preference2.getIcon()).isNotSameInstanceAs(preference1.getIcon());
+        assertThat((int) ReflectionHelpers.getField(preference2.getIcon(), "mBackgroundColor"))
+                .isEqualTo(Color.RED);
+    }
+
     @Test
     @Config(shadows = {ShadowTileUtils.class})
     public void bindIcon_noIcon_shouldNotLoadIcon() {
@@ -321,6 +321,36 @@ public class DashboardFragmentTest {
         verify(mockController2).getPreferenceKey();
     }
 
+    @Test
+    @Config(shadows = ShadowPreferenceFragmentCompat.class)
+    public void updateState_sameResumeCycle_evaluatesAvailabilityOnce() {
+        final AbstractPreferenceController mockController =
+                mock(AbstractPreferenceController.class);
+        mTestFragment.addPreferenceController(mockController);
+        when(mockController.isAvailable()).thenReturn(true);
+
+        mTestFragment.onStart();
+        mTestFragment.updatePreferenceStates();
+        mTestFragment.onResume();
+
+        verify(mockController).isAvailable();
+    }
+
+    @Test
+    @Config(shadows = ShadowPreferenceFragmentCompat.class)
+    public void updateState_afterResume_evaluatesAvailabilityAgain() {
+        final AbstractPreferenceController mockController =
+                mock(AbstractPreferenceController.class);
+        mTestFragment.addPreferenceController(mockController);
+        when(mockController.isAvailable()).thenReturn(true);
+
+        mTestFragment.onStart();
+        mTestFragment.onResume();
+        mTestFragment.updatePreferenceStates();
+
+        verify(mockController, times(2)).isAvailable();
+    }
+
     @Test
     public void onExpandButtonClick_shouldLogAdvancedButtonExpand() {
         final MetricsFeatureProvider metricsFeatureProvider
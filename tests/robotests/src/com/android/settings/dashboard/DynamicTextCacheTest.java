@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class DynamicTextCacheTest {
+
+    private static final Uri URI = Uri.parse("content://com.android.settings/tile_summary");
+
+    private DynamicTextCache mTextCache;
+
+    @Before
+    public void setUp() {
+        mTextCache = new DynamicTextCache();
+    }
+
+    @Test
+    public void putText_shouldBeFresh() {
+        mTextCache.putText(URI, "text");
+
+        assertThat(mTextCache.getText(URI)).isEqualTo("text");
+        assertThat(mTextCache.getFreshText(URI)).isEqualTo("text");
+    }
+
+    @Test
+    public void putText_null_shouldKeepPreviousText() {
+        mTextCache.putText(URI, "text");
+        mTextCache.putText(URI, null);
+
+        assertThat(mTextCache.getText(URI)).isEqualTo("text");
+    }
+
+    @Test
+    public void getFreshText_afterTtl_returnNull() {
+        mTextCache.putText(URI, "text");
+
+        // Advances the Robolectric clock.
+        SystemClock.sleep(DynamicTextCache.TTL_MILLIS + 1);
+
+        assertThat(mTextCache.getText(URI)).isEqualTo("text");
+        assertThat(mTextCache.getFreshText(URI)).isNull();
+    }
+
+    @Test
+    public void expire_shouldKeepTextButNotFresh() {
+        mTextCache.putText(URI, "text");
+
+        mTextCache.expire(URI);
+
+        assertThat(mTextCache.getText(URI)).isEqualTo("text");
+        assertThat(mTextCache.getFreshText(URI)).isNull();
+    }
+}
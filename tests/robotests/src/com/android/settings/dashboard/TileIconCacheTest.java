@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.pm.ActivityInfo;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.Bundle;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.R;
+import com.android.settingslib.drawer.ActivityTile;
+import com.android.settingslib.drawer.CategoryKey;
+import com.android.settingslib.drawer.Tile;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class TileIconCacheTest {
+
+    private Context mContext;
+    private TileIconCache mIconCache;
+    private Tile mTile;
+    private Icon mIcon;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mIconCache = new TileIconCache(mContext);
+        final ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.packageName = mContext.getPackageName();
+        activityInfo.name = "class";
+        activityInfo.metaData = new Bundle();
+        activityInfo.metaData.putInt(META_DATA_PREFERENCE_ICON, R.drawable.ic_add_40dp);
+        mTile = new ActivityTile(activityInfo, CategoryKey.CATEGORY_HOMEPAGE);
+        mIcon = Icon.createWithResource(mContext.getPackageName(), R.drawable.ic_add_40dp);
+    }
+
+    @Test
+    public void getIcon_notLoaded_returnNull() {
+        assertThat(mIconCache.getIcon(mContext, newKey(false /* rounded */), mTile)).isNull();
+    }
+
+    @Test
+    public void loadIcon_shouldCacheIcon() {
+        final List<Drawable> loaded = new ArrayList<>();
+
+        mIconCache.loadIcon(mContext, newKey(false /* rounded */), mIcon, mTile, loaded::add);
+
+        assertThat(loaded).hasSize(1);
+        assertThat(loaded.get(0)).isNotNull();
+        final Drawable cached = mIconCache.getIcon(mContext, newKey(false /* rounded */), mTile);
+        assertThat(cached).isNotNull();
+        assertThat(cached).isNotSameInstanceAs(loaded.get(0));
+    }
+
+    @Test
+    public void loadIcon_rounded_shouldNotShareUnroundedIcon() {
+        mIconCache.loadIcon(mContext, newKey(false /* rounded */), mIcon, mTile, d -> {});
+
+        assertThat(mIconCache.getIcon(mContext, newKey(true /* rounded */), mTile)).isNull();
+    }
+
+    @Test
+    public void invalidate_shouldDropIconsOfPackage() {
+        mIconCache.loadIcon(mContext, newKey(false /* rounded */), mIcon, mTile, d -> {});
+
+        mIconCache.invalidate("other.package");
+        assertThat(mIconCache.getIcon(mContext, newKey(false /* rounded */), mTile)).isNotNull();
+
+        mIconCache.invalidate(mContext.getPackageName());
+        assertThat(mIconCache.getIcon(mContext, newKey(false /* rounded */), mTile)).isNull();
+    }
+
+    @Test
+    public void loadIcon_loadedWhileDecoding_shouldDeliverToEveryCallback() {
+        final List<Drawable> loaded = new ArrayList<>();
+        final Context context = new LoadingContext(() -> mIconCache.loadIcon(mContext,
+                newKey(false /* rounded */), mIcon, mTile, loaded::add));
+
+        mIconCache.loadIcon(context, newKey(false /* rounded */), mIcon, mTile, loaded::add);
+
+        assertThat(loaded).hasSize(2);
+        assertThat(loaded.get(0)).isNotNull();
+        assertThat(loaded.get(1)).isNotNull();
+        assertThat(loaded.get(0)).isNotSameInstanceAs(loaded.get(1));
+    }
+
+    @Test
+    public void loadIcon_failedToLoad_shouldDeliverNullToEveryCallback() {
+        final Icon icon = Icon.createWithResource(mContext.getPackageName(), 0 /* resId */);
+        final TileIconCache.IconKey key =
+                new TileIconCache.IconKey(mContext, icon, mTile, false /* rounded */);
+        final List<Drawable> loaded = new ArrayList<>();
+        final Context context = new LoadingContext(
+                () -> mIconCache.loadIcon(mContext, key, icon, mTile, loaded::add));
+
+        mIconCache.loadIcon(context, key, icon, mTile, loaded::add);
+
+        assertThat(loaded).hasSize(2);
+        assertThat(loaded.get(0)).isNull();
+        assertThat(loaded.get(1)).isNull();
+        assertThat(mIconCache.getIcon(mContext, key, mTile)).isNull();
+    }
+
+    @Test
+    public void getIcon_shouldUseResourcesOfCaller() {
+        mIconCache.loadIcon(mContext, newKey(false /* rounded */), mIcon, mTile, d -> {});
+        final Context context = spy(mContext);
+
+        assertThat(mIconCache.getIcon(context, newKey(false /* rounded */), mTile)).isNotNull();
+
+        verify(context).getResources();
+    }
+
+    private TileIconCache.IconKey newKey(boolean rounded) {
+        return new TileIconCache.IconKey(mContext, mIcon, mTile, rounded);
+    }
+
+    /** Runs an action the first time the icon resources are requested, while decoding. */
+    private class LoadingContext extends ContextWrapper {
+        private Runnable mOnLoad;
+
+        LoadingContext(Runnable onLoad) {
+            super(mContext);
+            mOnLoad = onLoad;
+        }
+
+        @Override
+        public Resources getResources() {
+            if (mOnLoad != null) {
+                final Runnable onLoad = mOnLoad;
+                mOnLoad = null;
+                onLoad.run();
+            }
+            return super.getResources();
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.android.settings.deviceinfo.storage;
 import static com.google.common.truth.Truth.assertThat;
 
 import android.content.Context;
+import android.content.pm.PackageInfo;
 import android.os.UserHandle;
 
 import androidx.test.core.app.ApplicationProvider;
@@ -28,6 +29,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Collections;
+
 @RunWith(AndroidJUnit4.class)
 public class StorageCacheHelperTest {
     private static final long FAKE_IMAGES_SIZE = 7000L;
@@ -41,6 +44,10 @@ public class StorageCacheHelperTest {
     private static final long FAKE_TOTAL_SIZE = 256000L;
     private static final long FAKE_TOTAL_USED_SIZE = 50000L;
     private static final long FAKE_USED_SIZE = 6500L;
+    private static final String FAKE_UUID = "uuid";
+    private static final String FAKE_PACKAGE_NAME = "com.android.test";
+    private static final long FAKE_LAST_UPDATE_TIME = 1000L;
+    private static final long FAKE_NOW = 2000L;
 
     private Context mContext;
     private StorageCacheHelper mHelper;
@@ -90,6 +97,84 @@ public class StorageCacheHelperTest {
         assertThat(mHelper.retrieveUsedSize()).isEqualTo(FAKE_USED_SIZE);
     }
 
+    @Test
+    public void cachePackageStats_samePackageVersion_shouldReturnCachedStats() {
+        mHelper.cachePackageStats(FAKE_UUID, Collections.singletonList(getFakePackageCache()));
+
+        StorageCacheHelper.PackageStorageCache stats =
+                mHelper.retrievePackageStats(FAKE_UUID, getFakePackageInfo(), FAKE_NOW);
+
+        assertThat(stats.codeBytes).isEqualTo(FAKE_APPS_SIZE);
+        assertThat(stats.dataBytes).isEqualTo(FAKE_USED_SIZE);
+    }
+
+    @Test
+    public void retrievePackageStats_packageUpdated_shouldReturnNull() {
+        mHelper.cachePackageStats(FAKE_UUID, Collections.singletonList(getFakePackageCache()));
+        PackageInfo packageInfo = getFakePackageInfo();
+        packageInfo.lastUpdateTime = FAKE_NOW;
+
+        assertThat(mHelper.retrievePackageStats(FAKE_UUID, packageInfo, FAKE_NOW)).isNull();
+    }
+
+    @Test
+    public void retrievePackageStats_otherVolume_shouldReturnNull() {
+        mHelper.cachePackageStats(FAKE_UUID, Collections.singletonList(getFakePackageCache()));
+
+        assertThat(mHelper.retrievePackageStats(null /* uuid */, getFakePackageInfo(), FAKE_NOW))
+                .isNull();
+    }
+
+    @Test
+    public void retrievePackageStats_outdatedStats_shouldReturnNull() {
+        mHelper.cachePackageStats(FAKE_UUID, Collections.singletonList(getFakePackageCache()));
+
+        assertThat(mHelper.retrievePackageStats(FAKE_UUID, getFakePackageInfo(),
+                FAKE_NOW + 24 * 60 * 60 * 1000L)).isNull();
+    }
+
+    @Test
+    public void cachePackageStats_packageRemoved_shouldRemoveCachedStats() {
+        mHelper.cachePackageStats(FAKE_UUID, Collections.singletonList(getFakePackageCache()));
+
+        mHelper.cachePackageStats(FAKE_UUID, Collections.emptyList());
+
+        assertThat(mHelper.retrievePackageStats(FAKE_UUID, getFakePackageInfo(), FAKE_NOW))
+                .isNull();
+    }
+
+    @Test
+    public void removePackageStats_shouldRemoveCachedStatsOnAllVolumes() {
+        mHelper.cachePackageStats(FAKE_UUID, Collections.singletonList(getFakePackageCache()));
+        mHelper.cachePackageStats(null /* uuid */,
+                Collections.singletonList(getFakePackageCache()));
+
+        mHelper.removePackageStats(FAKE_PACKAGE_NAME);
+
+        assertThat(mHelper.retrievePackageStats(FAKE_UUID, getFakePackageInfo(), FAKE_NOW))
+                .isNull();
+        assertThat(mHelper.retrievePackageStats(null /* uuid */, getFakePackageInfo(), FAKE_NOW))
+                .isNull();
+    }
+
+    private StorageCacheHelper.PackageStorageCache getFakePackageCache() {
+        StorageCacheHelper.PackageStorageCache result =
+                new StorageCacheHelper.PackageStorageCache();
+        result.packageName = FAKE_PACKAGE_NAME;
+        result.lastUpdateTime = FAKE_LAST_UPDATE_TIME;
+        result.timestamp = FAKE_NOW;
+        result.codeBytes = FAKE_APPS_SIZE;
+        result.dataBytes = FAKE_USED_SIZE;
+        return result;
+    }
+
+    private PackageInfo getFakePackageInfo() {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = FAKE_PACKAGE_NAME;
+        packageInfo.lastUpdateTime = FAKE_LAST_UPDATE_TIME;
+        return packageInfo;
+    }
+
     private StorageCacheHelper.StorageCache getFakeStorageCache() {
         StorageCacheHelper.StorageCache result = new StorageCacheHelper.StorageCache();
         result.trashSize = FAKE_TRASH_SIZE;
@@ -17,11 +17,25 @@ package com.android.settings.fuelgauge.batteryusage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Path;
+import android.graphics.Rect;
 import android.os.LocaleList;
+import android.text.TextPaint;
 import android.view.View;
+import android.widget.TextView;
 
 import com.android.settings.fuelgauge.PowerUsageFeatureProvider;
 import com.android.settings.testutils.FakeFeatureFactory;
@@ -91,4 +105,59 @@ public final class BatteryChartViewTest {
         mBatteryChartView.onClick(mMockView);
         assertThat(selectedIndex[0]).isEqualTo(BatteryChartViewModel.SELECTED_INDEX_ALL);
     }
+
+    @Test
+    public void draw_afterLayout_reusesPrecomputedShapesAndTextBounds() {
+        final TextPaint textPaint = spy(new TextPaint());
+        final TextView textView = mock(TextView.class);
+        when(textView.getPaint()).thenReturn(textPaint);
+        final BatteryChartView chartView = new BatteryChartView(mContext, /* attrs= */ null);
+        chartView.setCompanionTextView(textView);
+        chartView.setViewModel(
+                new BatteryChartViewModel(
+                        List.of(90, 80, 70, 60),
+                        List.of(0L, 0L, 0L, 0L),
+                        BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS,
+                        new TestLabelTextGenerator()));
+        layout(chartView);
+        final Path[] trapezoidPaths = new Path[chartView.mTrapezoidPaths.length];
+        for (int i = 0; i < trapezoidPaths.length; i++) {
+            trapezoidPaths[i] = spy(chartView.mTrapezoidPaths[i]);
+            chartView.mTrapezoidPaths[i] = trapezoidPaths[i];
+        }
+
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(100, 50, Bitmap.Config.ARGB_8888));
+        for (int frame = 0; frame < 3; frame++) {
+            chartView.draw(canvas);
+        }
+        layout(chartView);
+
+        assertThat(chartView.mTrapezoidPaths).isEqualTo(trapezoidPaths);
+        for (Path trapezoidPath : trapezoidPaths) {
+            verify(trapezoidPath, never()).reset();
+        }
+        // Three percentages and four axis labels, measured once for the view model.
+        verify(textPaint, times(7))
+                .getTextBounds(anyString(), anyInt(), anyInt(), any(Rect.class));
+    }
+
+    private static void layout(View view) {
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(50, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, 100, 50);
+    }
+
+    private static final class TestLabelTextGenerator
+            implements BatteryChartViewModel.LabelTextGenerator {
+        @Override
+        public String generateText(List<Long> timestamps, int index) {
+            return "label" + index;
+        }
+
+        @Override
+        public String generateFullText(List<Long> timestamps, int index) {
+            return "full label" + index;
+        }
+    }
 }
@@ -139,9 +139,7 @@ public final class BatteryHistEntryTest {
                 getContentValuesWithType(ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY);
         final BatteryInformation batteryInformation =
                 BatteryInformation.newBuilder().setDrainType(1).build();
-        values.put(
-                BatteryHistEntry.KEY_BATTERY_INFORMATION,
-                ConvertUtils.convertBatteryInformationToString(batteryInformation));
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, batteryInformation.toByteArray());
         final BatteryHistEntry batteryHistEntry = new BatteryHistEntry(values);
 
         assertThat(batteryHistEntry.getKey()).isEqualTo("S|1");
@@ -427,7 +425,7 @@ public final class BatteryHistEntryTest {
                     "com.google.android.settings.battery",
                     Long.valueOf(timestamp),
                     Integer.valueOf(ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY),
-                    ConvertUtils.convertBatteryInformationToString(batteryInformation)
+                    batteryInformation.toByteArray()
                 });
         cursor.moveToFirst();
         return new BatteryHistEntry(cursor);
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.database.MatrixCursor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryHistoryColumnsTest {
+
+    @Test
+    public void load_nullCursor_returnsEmpty() {
+        final BatteryHistoryColumns columns = BatteryHistoryColumns.load(null);
+
+        assertThat(columns.isEmpty()).isTrue();
+        assertThat(columns.getDistinctTimestamps()).isEmpty();
+        assertThat(columns.toHistoryMap()).isEmpty();
+    }
+
+    @Test
+    public void load_orderedRows_returnsExpectedResult() {
+        final MatrixCursor cursor = createCursor();
+        addRow(cursor, /* uid= */ 1001L, "com.android.a", /* timestamp= */ 100L, 10.0, 90);
+        addRow(cursor, /* uid= */ 1002L, "com.android.b", /* timestamp= */ 100L, 20.0, 90);
+        addRow(cursor, /* uid= */ 1001L, "com.android.a", /* timestamp= */ 200L, 30.0, 80);
+
+        final BatteryHistoryColumns columns = BatteryHistoryColumns.load(cursor);
+
+        assertThat(columns.size()).isEqualTo(3);
+        assertThat(columns.hasAllColumns()).isTrue();
+        assertThat(columns.getDistinctTimestamps()).containsExactly(100L, 200L).inOrder();
+        assertThat(columns.getConsumePower(2)).isEqualTo(30.0);
+        assertThat(columns.getBatteryLevel(2)).isEqualTo(80);
+        final Map<String, BatteryHistEntry> entryMap = columns.getEntryMap(100L);
+        assertThat(entryMap).hasSize(2);
+        final BatteryHistEntry entry = entryMap.get("1002");
+        assertThat(entry.isValidEntry()).isTrue();
+        assertThat(entry.mUid).isEqualTo(1002L);
+        assertThat(entry.mPackageName).isEqualTo("com.android.b");
+        assertThat(entry.mTimestamp).isEqualTo(100L);
+        assertThat(entry.mConsumePower).isEqualTo(20.0);
+        assertThat(entry.mBatteryLevel).isEqualTo(90);
+        assertThat(entry.mAppLabel).isEqualTo("Label");
+        assertThat(columns.getEntryMap(300L)).isEmpty();
+    }
+
+    @Test
+    public void load_unorderedRows_returnsExpectedResult() {
+        final MatrixCursor cursor = createCursor();
+        addRow(cursor, /* uid= */ 1001L, "com.android.a", /* timestamp= */ 200L, 10.0, 80);
+        addRow(cursor, /* uid= */ 1001L, "com.android.a", /* timestamp= */ 100L, 20.0, 90);
+        addRow(cursor, /* uid= */ 1002L, "com.android.b", /* timestamp= */ 200L, 30.0, 80);
+
+        final BatteryHistoryColumns columns = BatteryHistoryColumns.load(cursor);
+
+        assertThat(columns.getDistinctTimestamps()).containsExactly(100L, 200L).inOrder();
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap = columns.toHistoryMap();
+        assertThat(historyMap.get(100L)).hasSize(1);
+        assertThat(historyMap.get(200L).keySet()).containsExactly("1001", "1002");
+    }
+
+    @Test
+    public void load_repeatedPackageNames_sharesInstance() {
+        final MatrixCursor cursor = createCursor();
+        addRow(cursor, /* uid= */ 1001L, new String("com.android.a"), 100L, 10.0, 90);
+        addRow(cursor, /* uid= */ 1001L, new String("com.android.a"), 200L, 20.0, 80);
+
+        final BatteryHistoryColumns columns = BatteryHistoryColumns.load(cursor);
+
+        assertThat(columns.getPackageName(1)).isSameInstanceAs(columns.getPackageName(0));
+    }
+
+    @Test
+    public void load_missingColumns_returnsInvalidEntries() {
+        final MatrixCursor cursor =
+                new MatrixCursor(
+                        new String[] {BatteryHistEntry.KEY_UID, BatteryHistEntry.KEY_TIMESTAMP});
+        cursor.addRow(new Object[] {1001L, 100L});
+
+        final BatteryHistoryColumns columns = BatteryHistoryColumns.load(cursor);
+
+        assertThat(columns.hasAllColumns()).isFalse();
+        final List<Long> timestamps = columns.getDistinctTimestamps();
+        assertThat(timestamps).containsExactly(100L);
+        for (BatteryHistEntry entry : columns.getEntryMap(100L).values()) {
+            assertThat(entry.isValidEntry()).isFalse();
+        }
+    }
+
+    private static MatrixCursor createCursor() {
+        return new MatrixCursor(
+                new String[] {
+                    BatteryHistEntry.KEY_UID,
+                    BatteryHistEntry.KEY_USER_ID,
+                    BatteryHistEntry.KEY_PACKAGE_NAME,
+                    BatteryHistEntry.KEY_TIMESTAMP,
+                    BatteryHistEntry.KEY_CONSUMER_TYPE,
+                    BatteryHistEntry.KEY_BATTERY_INFORMATION
+                });
+    }
+
+    private static void addRow(
+            MatrixCursor cursor,
+            long uid,
+            String packageName,
+            long timestamp,
+            double consumePower,
+            int batteryLevel) {
+        final BatteryInformation batteryInformation =
+                BatteryInformation.newBuilder()
+                        .setDeviceBatteryState(
+                                DeviceBatteryState.newBuilder()
+                                        .setBatteryLevel(batteryLevel)
+                                        .build())
+                        .setAppLabel("Label")
+                        .setConsumePower(consumePower)
+                        .build();
+        cursor.addRow(
+                new Object[] {
+                    uid,
+                    /* userId= */ 0L,
+                    packageName,
+                    timestamp,
+                    ConvertUtils.CONSUMER_TYPE_UID_BATTERY,
+                    batteryInformation.toByteArray()
+                });
+    }
+}
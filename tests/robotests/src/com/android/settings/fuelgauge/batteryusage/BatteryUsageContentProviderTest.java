@@ -25,6 +25,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Bundle;
 
 import androidx.test.core.app.ApplicationProvider;
 
@@ -58,6 +59,7 @@ public final class BatteryUsageContentProviderTest {
     private static final String PACKAGE_NAME3 = "com.android.settings3";
     private static final long USER_ID1 = 1;
     private static final long USER_ID2 = 2;
+    private static final byte[] TEST_BATTERY_USAGE_SLOT = new byte[] {1, 2, 3};
 
     private Context mContext;
     private BatteryUsageContentProvider mProvider;
@@ -293,8 +295,7 @@ public final class BatteryUsageContentProviderTest {
                         .setForegroundServiceUsageTimeInMs(1500)
                         .setDrainType(1)
                         .build();
-        final String expectedBatteryInformationString =
-                ConvertUtils.convertBatteryInformationToString(batteryInformation);
+        final byte[] expectedBatteryInformation = batteryInformation.toByteArray();
         ContentValues values = new ContentValues();
         values.put(BatteryHistEntry.KEY_UID, Long.valueOf(101L));
         values.put(BatteryHistEntry.KEY_USER_ID, Long.valueOf(1001L));
@@ -302,7 +303,7 @@ public final class BatteryUsageContentProviderTest {
         values.put(BatteryHistEntry.KEY_TIMESTAMP, Long.valueOf(2100021L));
         values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, Integer.valueOf(2));
         values.put(BatteryHistEntry.KEY_IS_FULL_CHARGE_CYCLE_START, true);
-        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, expectedBatteryInformationString);
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, expectedBatteryInformation);
 
         final Uri uri = mProvider.insert(VALID_BATTERY_STATE_CONTENT_URI, values);
 
@@ -317,7 +318,7 @@ public final class BatteryUsageContentProviderTest {
         assertThat(states.get(0).timestamp).isEqualTo(2100021L);
         assertThat(states.get(0).consumerType).isEqualTo(2);
         assertThat(states.get(0).isFullChargeCycleStart).isTrue();
-        assertThat(states.get(0).batteryInformation).isEqualTo(expectedBatteryInformationString);
+        assertThat(states.get(0).batteryInformation).isEqualTo(expectedBatteryInformation);
     }
 
     @Test
@@ -331,12 +332,11 @@ public final class BatteryUsageContentProviderTest {
                         .build();
         final BatteryInformation batteryInformation =
                 BatteryInformation.newBuilder().setDeviceBatteryState(deviceBatteryState).build();
-        final String expectedBatteryInformationString =
-                ConvertUtils.convertBatteryInformationToString(batteryInformation);
+        final byte[] expectedBatteryInformation = batteryInformation.toByteArray();
         final ContentValues values = new ContentValues();
         values.put(BatteryHistEntry.KEY_PACKAGE_NAME, new String("fake_data"));
         values.put(BatteryHistEntry.KEY_TIMESTAMP, Long.valueOf(2100022L));
-        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, expectedBatteryInformationString);
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, expectedBatteryInformation);
 
         final Uri uri = mProvider.insert(VALID_BATTERY_STATE_CONTENT_URI, values);
 
@@ -347,7 +347,7 @@ public final class BatteryUsageContentProviderTest {
         assertThat(states).hasSize(1);
         assertThat(states.get(0).packageName).isEqualTo("fake_data");
         assertThat(states.get(0).timestamp).isEqualTo(2100022L);
-        assertThat(states.get(0).batteryInformation).isEqualTo(expectedBatteryInformationString);
+        assertThat(states.get(0).batteryInformation).isEqualTo(expectedBatteryInformation);
     }
 
     @Test
@@ -424,7 +424,7 @@ public final class BatteryUsageContentProviderTest {
         mProvider.onCreate();
         ContentValues values = new ContentValues();
         values.put(BatteryUsageSlotEntity.KEY_TIMESTAMP, 10001L);
-        values.put(BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT, "TEST_STRING");
+        values.put(BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT, TEST_BATTERY_USAGE_SLOT);
 
         final Uri uri = mProvider.insert(DatabaseUtils.BATTERY_USAGE_SLOT_URI, values);
         // Verifies the BatteryUsageSlotEntity content.
@@ -433,7 +433,7 @@ public final class BatteryUsageContentProviderTest {
                 BatteryStateDatabase.getInstance(mContext).batteryUsageSlotDao().getAll();
         assertThat(entities).hasSize(1);
         assertThat(entities.get(0).timestamp).isEqualTo(10001L);
-        assertThat(entities.get(0).batteryUsageSlot).isEqualTo("TEST_STRING");
+        assertThat(entities.get(0).batteryUsageSlot).isEqualTo(TEST_BATTERY_USAGE_SLOT);
 
         final Cursor cursor1 = getCursorOfBatteryUsageSlots(10001L);
         assertThat(cursor1.getCount()).isEqualTo(1);
@@ -441,15 +441,66 @@ public final class BatteryUsageContentProviderTest {
         assertThat(cursor1.getLong(cursor1.getColumnIndex(BatteryUsageSlotEntity.KEY_TIMESTAMP)))
                 .isEqualTo(10001L);
         assertThat(
-                        cursor1.getString(
+                        cursor1.getBlob(
                                 cursor1.getColumnIndex(
                                         BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT)))
-                .isEqualTo("TEST_STRING");
+                .isEqualTo(TEST_BATTERY_USAGE_SLOT);
 
         final Cursor cursor2 = getCursorOfBatteryUsageSlots(10002L);
         assertThat(cursor2.getCount()).isEqualTo(0);
     }
 
+    @Test
+    public void call_bulkInsertProtos_insertsAllBatteryEvents() throws Exception {
+        mProvider.onCreate();
+        final List<BatteryEvent> events =
+                List.of(
+                        ConvertUtils.convertToBatteryEvent(
+                                10001L, BatteryEventType.POWER_CONNECTED, 66),
+                        ConvertUtils.convertToBatteryEvent(
+                                10002L, BatteryEventType.POWER_DISCONNECTED, 67));
+        final Bundle extras = new Bundle();
+        extras.putByteArray(
+                DatabaseUtils.EXTRA_PROTOS,
+                ProtoStreamUtils.toChunks(events, DatabaseUtils.MAX_PROTOS_CHUNK_BYTES).get(0));
+
+        final Bundle result =
+                mProvider.call(
+                        DatabaseUtils.METHOD_BULK_INSERT_PROTOS,
+                        DatabaseUtils.BATTERY_EVENT_URI.toString(),
+                        extras);
+
+        assertThat(result.getInt(DatabaseUtils.EXTRA_COUNT)).isEqualTo(2);
+        final List<BatteryEventEntity> entities =
+                BatteryStateDatabase.getInstance(mContext).batteryEventDao().getAll();
+        assertThat(entities).hasSize(2);
+        assertThat(entities.get(0).timestamp).isEqualTo(10002L);
+        assertThat(entities.get(0).batteryLevel).isEqualTo(67);
+        assertThat(entities.get(1).timestamp).isEqualTo(10001L);
+    }
+
+    @Test
+    public void call_bulkInsertProtos_incorrectContentUri_throwsIllegalArgumentException() {
+        mProvider.onCreate();
+        final Bundle extras = new Bundle();
+        extras.putByteArray(DatabaseUtils.EXTRA_PROTOS, new byte[0]);
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        mProvider.call(
+                                DatabaseUtils.METHOD_BULK_INSERT_PROTOS,
+                                VALID_BATTERY_STATE_CONTENT_URI.toString(),
+                                extras));
+    }
+
+    @Test
+    public void call_unknownMethod_returnsNull() {
+        mProvider.onCreate();
+
+        assertThat(mProvider.call("unknown", /* arg= */ null, new Bundle())).isNull();
+    }
+
     @Test
     public void delete_throwsUnsupportedOperationException() {
         assertThrows(
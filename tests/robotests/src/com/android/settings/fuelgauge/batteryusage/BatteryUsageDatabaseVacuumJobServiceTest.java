@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.R;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+import com.android.settings.testutils.BatteryTestUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Tests of {@link BatteryUsageDatabaseVacuumJobService}. */
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryUsageDatabaseVacuumJobServiceTest {
+
+    private Context mContext;
+    private JobScheduler mJobScheduler;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mJobScheduler = mContext.getSystemService(JobScheduler.class);
+        mJobScheduler.cancelAll();
+    }
+
+    @Test
+    public void scheduleVacuum_schedulesIdleChargingPeriodicJob() {
+        BatteryUsageDatabaseVacuumJobService.scheduleVacuum(mContext);
+
+        final List<JobInfo> pendingJobs = mJobScheduler.getAllPendingJobs();
+        assertThat(pendingJobs).hasSize(1);
+        final JobInfo pendingJob = pendingJobs.get(0);
+        assertThat(pendingJob.getId()).isEqualTo(R.integer.job_battery_usage_database_vacuum);
+        assertThat(pendingJob.getIntervalMillis()).isEqualTo(TimeUnit.DAYS.toMillis(1));
+        assertThat(pendingJob.isRequireDeviceIdle()).isTrue();
+        assertThat(pendingJob.isRequireCharging()).isTrue();
+        assertThat(pendingJob.isPersisted()).isTrue();
+    }
+
+    @Test
+    public void scheduleVacuum_invokeTwice_onlyScheduleOnce() {
+        BatteryUsageDatabaseVacuumJobService.scheduleVacuum(mContext);
+        BatteryUsageDatabaseVacuumJobService.scheduleVacuum(mContext);
+
+        assertThat(mJobScheduler.getAllPendingJobs()).hasSize(1);
+    }
+
+    @Test
+    public void compact_keepsData() {
+        final BatteryStateDatabase database = BatteryTestUtils.setUpBatteryStateDatabase(mContext);
+        BatteryTestUtils.insertDataToBatteryStateTable(
+                mContext, System.currentTimeMillis(), "com.android.systemui");
+
+        // The first run enables the incremental mode, the second one vacuums incrementally.
+        database.compact();
+        database.compact();
+
+        assertThat(database.batteryStateDao().getAllAfter(0)).hasSize(1);
+        database.close();
+        BatteryStateDatabase.setBatteryStateDatabase(/* database= */ null);
+    }
+}
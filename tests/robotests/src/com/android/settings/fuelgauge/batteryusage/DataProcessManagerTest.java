@@ -36,6 +36,8 @@ import android.os.BatteryManager;
 import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
 import android.os.BatteryUsageStatsQuery;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.RemoteException;
 import android.os.UserManager;
@@ -54,7 +56,10 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -81,6 +86,8 @@ public final class DataProcessManagerTest {
     public void setUp() {
         MockitoAnnotations.initMocks(this);
 
+        // Runs the pipeline stages synchronously.
+        DataProcessManager.sTestExecutor = Runnable::run;
         mContext = spy(RuntimeEnvironment.application);
         DataProcessor.sTestSystemAppsPackageNames = Set.of();
         DataProcessor.sUsageStatsManager = mUsageStatsManager;
@@ -111,6 +118,7 @@ public final class DataProcessManagerTest {
     public void cleanUp() {
         DatabaseUtils.sFakeSupplier = null;
         DataProcessManager.sFakeBatteryHistoryMap = null;
+        DataProcessManager.sTestExecutor = null;
     }
 
     @Test
@@ -320,6 +328,82 @@ public final class DataProcessManagerTest {
         assertThat(mDataProcessManager.getShowScreenOnTime()).isFalse();
     }
 
+    @Test
+    @LooperMode(LooperMode.Mode.LEGACY)
+    public void start_sameTimeWindow_coalesceInFlightPipeline() {
+        final List<Runnable> pendingStages = new ArrayList<>();
+        DataProcessManager.sTestExecutor = pendingStages::add;
+        DatabaseUtils.sFakeSupplier = () -> null;
+        final List<Map<Long, BatteryDiffData>> results1 = new ArrayList<>();
+        final List<Map<Long, BatteryDiffData>> results2 = new ArrayList<>();
+        final DataProcessManager dataProcessManager1 = createDataProcessManager(results1::add);
+        final DataProcessManager dataProcessManager2 = createDataProcessManager(results2::add);
+
+        dataProcessManager1.start();
+        dataProcessManager2.start();
+        runAll(pendingStages);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(results1).hasSize(1);
+        assertThat(results2).hasSize(1);
+        assertThat(results2.get(0)).isSameInstanceAs(results1.get(0));
+        assertThat(dataProcessManager1.getStageTimings()).containsKey("generateFinalData");
+        assertThat(dataProcessManager2.getStageTimings()).isEmpty();
+    }
+
+    @Test
+    @LooperMode(LooperMode.Mode.LEGACY)
+    public void cancel_noOtherCallback_cancelPipeline() {
+        final List<Runnable> pendingStages = new ArrayList<>();
+        DataProcessManager.sTestExecutor = pendingStages::add;
+        DatabaseUtils.sFakeSupplier = () -> null;
+        final List<Map<Long, BatteryDiffData>> results = new ArrayList<>();
+        final DataProcessManager.OnBatteryDiffDataMapLoadedListener callbackFunction =
+                results::add;
+        final DataProcessManager dataProcessManager = createDataProcessManager(callbackFunction);
+
+        dataProcessManager.start();
+        DataProcessManager.cancel(callbackFunction);
+        runAll(pendingStages);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(dataProcessManager.isCancelled()).isTrue();
+        assertThat(dataProcessManager.getStageTimings()).isEmpty();
+        assertThat(results).isEmpty();
+    }
+
+    @Test
+    @LooperMode(LooperMode.Mode.LEGACY)
+    public void start_stageThrowsException_callbackWithNull() {
+        DatabaseUtils.sFakeSupplier =
+                () -> {
+                    throw new IllegalStateException("stage failure");
+                };
+        final List<Map<Long, BatteryDiffData>> results = new ArrayList<>();
+        final DataProcessManager dataProcessManager = createDataProcessManager(results::add);
+
+        dataProcessManager.start();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(dataProcessManager.isCancelled()).isFalse();
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0)).isNull();
+    }
+
+    @Test
+    @LooperMode(LooperMode.Mode.LEGACY)
+    public void dump_containsStageTimings() {
+        DatabaseUtils.sFakeSupplier = () -> null;
+        createDataProcessManager(batteryDiffDataMap -> {}).start();
+        final StringWriter stringWriter = new StringWriter();
+
+        DataProcessManager.dump(new PrintWriter(stringWriter));
+
+        final String dumpResult = stringWriter.toString();
+        assertThat(dumpResult).contains("loadBatteryUsageSlotList");
+        assertThat(dumpResult).contains("generateFinalData");
+    }
+
     @Test
     @LooperMode(LooperMode.Mode.LEGACY)
     public void getBatteryLevelData_emptyHistoryMap_returnNull() {
@@ -401,6 +485,24 @@ public final class DataProcessManagerTest {
                 expectedHourlyLevels);
     }
 
+    private DataProcessManager createDataProcessManager(
+            DataProcessManager.OnBatteryDiffDataMapLoadedListener callbackFunction) {
+        return new DataProcessManager(
+                mContext,
+                new Handler(Looper.getMainLooper()),
+                /* rawStartTimestamp= */ 0L,
+                /* lastFullChargeTimestamp= */ 0L,
+                callbackFunction,
+                /* hourlyBatteryLevelsPerDay= */ new ArrayList<>(),
+                /* batteryHistoryMap= */ new HashMap<>());
+    }
+
+    private static void runAll(List<Runnable> pendingStages) {
+        while (!pendingStages.isEmpty()) {
+            pendingStages.remove(0).run();
+        }
+    }
+
     private UsageEvents getUsageEvents(final List<UsageEvents.Event> events) {
         UsageEvents usageEvents = new UsageEvents(events, new String[] {"package"});
         Parcel parcel = Parcel.obtain();
@@ -438,9 +540,7 @@ public final class DataProcessManagerTest {
                 DeviceBatteryState.newBuilder().setBatteryLevel(level).build();
         final BatteryInformation batteryInformation =
                 BatteryInformation.newBuilder().setDeviceBatteryState(deviceBatteryState).build();
-        values.put(
-                BatteryHistEntry.KEY_BATTERY_INFORMATION,
-                ConvertUtils.convertBatteryInformationToString(batteryInformation));
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, batteryInformation.toByteArray());
         return values;
     }
 
@@ -951,6 +951,82 @@ public final class DataProcessorTest {
         assertThat(batteryDiffData.getEndTimestamp()).isEqualTo(batteryHistoryKeys[2]);
     }
 
+    @Test
+    public void getBatteryDiffDataMap_materializedSlot_reuseMaterializedData() {
+        final long[] batteryHistoryKeys =
+                new long[] {
+                    1641045600000L, // 2022-01-01 22:00:00
+                    1641049200000L, // 2022-01-01 23:00:00
+                    1641052800000L, // 2022-01-02 00:00:00
+                };
+        final BatteryLevelData batteryLevelData = generateBatteryLevelData(batteryHistoryKeys);
+        final BatteryDiffData materializedDiffData =
+                new BatteryDiffData(
+                        mContext,
+                        batteryHistoryKeys[0],
+                        batteryHistoryKeys[2],
+                        /* startBatteryLevel= */ 100,
+                        /* endBatteryLevel= */ 90,
+                        /* screenOnTime= */ 0L,
+                        /* appDiffEntries= */ new ArrayList<>(),
+                        /* systemDiffEntries= */ new ArrayList<>(),
+                        Set.of(),
+                        Set.of(),
+                        /* isAccumulated= */ true);
+
+        final Map<Long, BatteryDiffData> batteryDiffDataMap =
+                DataProcessor.getBatteryDiffDataMap(
+                        mContext,
+                        batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                        /* batteryHistoryMap= */ new HashMap<>(),
+                        /* appUsagePeriodMap= */ null,
+                        Map.of(batteryHistoryKeys[0], materializedDiffData),
+                        Set.of(),
+                        Set.of());
+
+        assertThat(batteryDiffDataMap).hasSize(1);
+        assertThat(batteryDiffDataMap.get(batteryHistoryKeys[0]))
+                .isSameInstanceAs(materializedDiffData);
+    }
+
+    @Test
+    public void getBatteryDiffDataMap_materializedSlotWithDifferentRange_recomputeData() {
+        final long[] batteryHistoryKeys =
+                new long[] {
+                    1641045600000L, // 2022-01-01 22:00:00
+                    1641049200000L, // 2022-01-01 23:00:00
+                    1641052800000L, // 2022-01-02 00:00:00
+                };
+        final BatteryLevelData batteryLevelData = generateBatteryLevelData(batteryHistoryKeys);
+        final BatteryDiffData materializedDiffData =
+                new BatteryDiffData(
+                        mContext,
+                        batteryHistoryKeys[0],
+                        batteryHistoryKeys[1],
+                        /* startBatteryLevel= */ 100,
+                        /* endBatteryLevel= */ 95,
+                        /* screenOnTime= */ 0L,
+                        /* appDiffEntries= */ new ArrayList<>(),
+                        /* systemDiffEntries= */ new ArrayList<>(),
+                        Set.of(),
+                        Set.of(),
+                        /* isAccumulated= */ true);
+
+        final Map<Long, BatteryDiffData> batteryDiffDataMap =
+                DataProcessor.getBatteryDiffDataMap(
+                        mContext,
+                        batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                        /* batteryHistoryMap= */ new HashMap<>(),
+                        /* appUsagePeriodMap= */ null,
+                        Map.of(batteryHistoryKeys[0], materializedDiffData),
+                        Set.of(),
+                        Set.of());
+
+        assertThat(batteryDiffDataMap).hasSize(1);
+        assertThat(batteryDiffDataMap.get(batteryHistoryKeys[0]))
+                .isNotSameInstanceAs(materializedDiffData);
+    }
+
     @Test
     public void generateBatteryUsageMap_returnsExpectedResult() {
         final long[] batteryHistoryKeys =
@@ -2344,9 +2420,7 @@ public final class DataProcessorTest {
                 DeviceBatteryState.newBuilder().setBatteryLevel(level).build();
         final BatteryInformation batteryInformation =
                 BatteryInformation.newBuilder().setDeviceBatteryState(deviceBatteryState).build();
-        values.put(
-                BatteryHistEntry.KEY_BATTERY_INFORMATION,
-                ConvertUtils.convertBatteryInformationToString(batteryInformation));
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, batteryInformation.toByteArray());
         return values;
     }
 
@@ -2382,9 +2456,7 @@ public final class DataProcessorTest {
         values.put(BatteryHistEntry.KEY_UID, uid);
         values.put(BatteryHistEntry.KEY_USER_ID, userId);
         values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, consumerType);
-        values.put(
-                BatteryHistEntry.KEY_BATTERY_INFORMATION,
-                ConvertUtils.convertBatteryInformationToString(batteryInformation));
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, batteryInformation.toByteArray());
         return new BatteryHistEntry(values);
     }
 
@@ -24,6 +24,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -41,14 +42,18 @@ import android.database.MatrixCursor;
 import android.net.Uri;
 import android.os.BatteryManager;
 import android.os.BatteryUsageStats;
+import android.os.Bundle;
 import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryEventEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
 import com.android.settings.testutils.BatteryTestUtils;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -59,7 +64,9 @@ import org.robolectric.RuntimeEnvironment;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
 
@@ -91,6 +98,46 @@ public final class DatabaseUtilsTest {
         DataProcessor.sUsageStatsManager = mUsageStatsManager;
     }
 
+    @After
+    public void tearDown() {
+        DatabaseUtils.sProtosChunkBytes = DatabaseUtils.MAX_PROTOS_CHUNK_BYTES;
+    }
+
+    @Test
+    public void clearExpiredData_expiredDays_clearsWholeDays() {
+        final BatteryStateDatabase database = BatteryTestUtils.setUpBatteryStateDatabase(mContext);
+        final long currentTime = System.currentTimeMillis();
+        final long retentionStart =
+                getStartOfDay(currentTime
+                        - Duration.ofDays(DatabaseUtils.DATA_RETENTION_INTERVAL_DAY).toMillis());
+        BatteryTestUtils.insertDataToBatteryStateTable(mContext, retentionStart - 1, "expired");
+        BatteryTestUtils.insertDataToBatteryStateTable(mContext, retentionStart, "retained");
+
+        assertThat(DatabaseUtils.clearExpiredData(mContext, currentTime)).isTrue();
+
+        final List<BatteryState> states = database.batteryStateDao().getAllAfter(0);
+        assertThat(states).hasSize(1);
+        assertThat(states.get(0).timestamp).isEqualTo(retentionStart);
+        database.close();
+        BatteryStateDatabase.setBatteryStateDatabase(/* database= */ null);
+    }
+
+    @Test
+    public void clearExpiredData_sameDayPurgedAlready_skipsPurge() {
+        final BatteryStateDatabase database = BatteryTestUtils.setUpBatteryStateDatabase(mContext);
+        final long currentTime = System.currentTimeMillis();
+        DatabaseUtils.clearExpiredData(mContext, currentTime);
+        BatteryTestUtils.insertDataToBatteryStateTable(mContext, /* timestamp= */ 1L, "expired");
+
+        assertThat(DatabaseUtils.clearExpiredData(mContext, currentTime + 1)).isFalse();
+        assertThat(database.batteryStateDao().getAllAfter(0)).hasSize(1);
+        assertThat(DatabaseUtils.clearExpiredData(
+                mContext, currentTime + Duration.ofDays(1).toMillis())).isTrue();
+        assertThat(database.batteryStateDao().getAllAfter(0)).isEmpty();
+        database.close();
+        BatteryStateDatabase.setBatteryStateDatabase(/* database= */ null);
+    }
+
     @Test
     public void sendAppUsageEventData_returnsExpectedList() {
         // Configures the testing AppUsageEvent data.
@@ -127,6 +174,37 @@ public final class DatabaseUtilsTest {
                 .notifyChange(DatabaseUtils.APP_USAGE_EVENT_URI, /* observer= */ null);
     }
 
+    @Test
+    public void sendAppUsageEventData_protosChunkFails_bulkInsertRemainingRows() {
+        final List<AppUsageEvent> appUsageEventList = new ArrayList<>();
+        for (long uid = 101L; uid <= 103L; uid++) {
+            appUsageEventList.add(
+                    AppUsageEvent.newBuilder()
+                            .setUid(uid)
+                            .setType(AppUsageEventType.ACTIVITY_RESUMED)
+                            .build());
+        }
+        // One event per chunk, and only the first chunk is inserted.
+        DatabaseUtils.sProtosChunkBytes = 1;
+        final Bundle result = new Bundle();
+        result.putInt(DatabaseUtils.EXTRA_COUNT, 1);
+        when(mMockContentResolver.call(
+                        eq(DatabaseUtils.AUTHORITY),
+                        eq(DatabaseUtils.METHOD_BULK_INSERT_PROTOS),
+                        anyString(),
+                        any(Bundle.class)))
+                .thenReturn(result)
+                .thenReturn(null);
+
+        final List<ContentValues> valuesList =
+                DatabaseUtils.sendAppUsageEventData(mContext, appUsageEventList);
+
+        verify(mMockContentResolver)
+                .bulkInsert(
+                        DatabaseUtils.APP_USAGE_EVENT_URI,
+                        new ContentValues[] {valuesList.get(1), valuesList.get(2)});
+    }
+
     @Test
     public void sendAppUsageEventData_emptyAppUsageEventList_notSend() {
         final List<ContentValues> valuesList =
@@ -602,4 +680,14 @@ public final class DatabaseUtilsTest {
                     BatteryHistEntry.KEY_IS_FULL_CHARGE_CYCLE_START
                 });
     }
+
+    private static long getStartOfDay(long timestamp) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timestamp);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
 }
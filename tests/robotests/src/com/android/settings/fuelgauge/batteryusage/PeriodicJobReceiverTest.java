@@ -93,7 +93,8 @@ public final class PeriodicJobReceiverTest {
     @Test
     public void onReceive_containsExpiredData_clearsExpiredDataFromDatabase()
             throws InterruptedException {
-        insertExpiredData(/* shiftDay= */ DatabaseUtils.DATA_RETENTION_INTERVAL_DAY);
+        // Expired data is purged by whole days, out of the last day of the retention interval.
+        insertExpiredData(/* shiftDay= */ DatabaseUtils.DATA_RETENTION_INTERVAL_DAY + 1);
 
         mReceiver.onReceive(mContext, JOB_UPDATE_INTENT);
 
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.database.MatrixCursor;
+
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/** Tests for {@link ProtoStreamUtils}. */
+@RunWith(RobolectricTestRunner.class)
+public final class ProtoStreamUtilsTest {
+    private static final BatteryEvent EVENT1 =
+            ConvertUtils.convertToBatteryEvent(10001L, BatteryEventType.POWER_CONNECTED, 66);
+    private static final BatteryEvent EVENT2 =
+            ConvertUtils.convertToBatteryEvent(10002L, BatteryEventType.POWER_DISCONNECTED, 67);
+
+    @Test
+    public void toChunks_fitInOneChunk_returnsOneChunk() throws Exception {
+        final List<byte[]> chunks =
+                ProtoStreamUtils.toChunks(List.of(EVENT1, EVENT2), /* maxChunkBytes= */ 1024);
+
+        assertThat(chunks).hasSize(1);
+        assertThat(ProtoStreamUtils.parseAll(chunks.get(0), BatteryEvent.parser()))
+                .containsExactly(EVENT1, EVENT2)
+                .inOrder();
+    }
+
+    @Test
+    public void toChunks_exceedMaxChunkBytes_splitsChunks() throws Exception {
+        final List<byte[]> chunks =
+                ProtoStreamUtils.toChunks(
+                        List.of(EVENT1, EVENT2), EVENT1.getSerializedSize() + 1);
+
+        assertThat(chunks).hasSize(2);
+        assertThat(ProtoStreamUtils.parseAll(chunks.get(0), BatteryEvent.parser()))
+                .containsExactly(EVENT1);
+        assertThat(ProtoStreamUtils.parseAll(chunks.get(1), BatteryEvent.parser()))
+                .containsExactly(EVENT2);
+    }
+
+    @Test
+    public void toChunks_noMessages_returnsNoChunk() throws Exception {
+        assertThat(ProtoStreamUtils.toChunks(List.of(), /* maxChunkBytes= */ 1024)).isEmpty();
+    }
+
+    @Test
+    public void writeAll_cursorRows_writesParsableMessages() throws Exception {
+        final MatrixCursor cursor =
+                new MatrixCursor(new String[] {BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT});
+        cursor.addRow(new Object[] {EVENT1.toByteArray()});
+        cursor.addRow(new Object[] {EVENT2.toByteArray()});
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        final int count =
+                ProtoStreamUtils.writeAll(
+                        output, cursor, rows -> rows.getBlob(/* columnIndex= */ 0));
+
+        assertThat(count).isEqualTo(2);
+        assertThat(ProtoStreamUtils.parseAll(output.toByteArray(), BatteryEvent.parser()))
+                .containsExactly(EVENT1, EVENT2)
+                .inOrder();
+    }
+}
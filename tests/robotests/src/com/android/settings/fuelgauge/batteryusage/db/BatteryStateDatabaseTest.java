@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Tests for the migrations of {@link BatteryStateDatabase}. */
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryStateDatabaseTest {
+    private static final String DATABASE_NAME = "battery-usage-migration-test";
+    private static final byte[] BATTERY_INFORMATION = new byte[] {8, 66, 18, 4, 0, -1, 127, 10};
+    private static final byte[] BATTERY_USAGE_SLOT = new byte[] {8, 1, 16, -128, 1, 0};
+
+    private Context mContext;
+    private BatteryStateDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (mDatabase != null) {
+            mDatabase.close();
+        }
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void migrate1To3_base64Columns_decodedIntoBlobColumns() {
+        final SupportSQLiteOpenHelper helper = createVersion1Database();
+        final SupportSQLiteDatabase legacyDb = helper.getWritableDatabase();
+        insertBatteryState(legacyDb, /* timestamp= */ 1000L, encode(BATTERY_INFORMATION));
+        insertBatteryState(legacyDb, /* timestamp= */ 2000L, /* batteryInformation= */ null);
+        insertBatteryUsageSlot(legacyDb, /* timestamp= */ 3000L, encode(BATTERY_USAGE_SLOT));
+        helper.close();
+
+        // Room validates the migrated schema against the entities when the database is opened.
+        final SupportSQLiteDatabase db = openMigratedDatabase();
+
+        try (Cursor cursor =
+                db.query("SELECT timestamp, batteryInformation FROM BatteryState ORDER BY mId")) {
+            assertThat(cursor.getCount()).isEqualTo(2);
+            cursor.moveToNext();
+            assertThat(cursor.getLong(0)).isEqualTo(1000L);
+            assertThat(cursor.getType(1)).isEqualTo(Cursor.FIELD_TYPE_BLOB);
+            assertThat(cursor.getBlob(1)).isEqualTo(BATTERY_INFORMATION);
+            cursor.moveToNext();
+            assertThat(cursor.getLong(0)).isEqualTo(2000L);
+            assertThat(cursor.isNull(1)).isTrue();
+        }
+        try (Cursor cursor =
+                db.query("SELECT timestamp, batteryUsageSlot FROM BatteryUsageSlotEntity")) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToNext();
+            assertThat(cursor.getLong(0)).isEqualTo(3000L);
+            assertThat(cursor.getType(1)).isEqualTo(Cursor.FIELD_TYPE_BLOB);
+            assertThat(cursor.getBlob(1)).isEqualTo(BATTERY_USAGE_SLOT);
+        }
+    }
+
+    @Test
+    public void migrate1To3_invalidBase64_keepsRowWithNullBlob() {
+        final SupportSQLiteOpenHelper helper = createVersion1Database();
+        insertBatteryState(helper.getWritableDatabase(), /* timestamp= */ 1000L, "!invalid!");
+        helper.close();
+
+        final SupportSQLiteDatabase db = openMigratedDatabase();
+
+        try (Cursor cursor = db.query("SELECT timestamp, batteryInformation FROM BatteryState")) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToNext();
+            assertThat(cursor.getLong(0)).isEqualTo(1000L);
+            assertThat(cursor.isNull(1)).isTrue();
+        }
+    }
+
+    @Test
+    public void migrate1To3_createsTimestampIndices() {
+        final SupportSQLiteOpenHelper helper = createVersion1Database();
+        helper.getWritableDatabase();
+        helper.close();
+
+        final SupportSQLiteDatabase db = openMigratedDatabase();
+
+        try (Cursor cursor =
+                db.query(
+                        "SELECT name FROM sqlite_master WHERE type = 'index'"
+                                + " AND name = 'index_BatteryState_timestamp'")) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+        }
+    }
+
+    private SupportSQLiteDatabase openMigratedDatabase() {
+        mDatabase =
+                Room.databaseBuilder(mContext, BatteryStateDatabase.class, DATABASE_NAME)
+                        .allowMainThreadQueries()
+                        .addMigrations(
+                                BatteryStateDatabase.MIGRATION_1_2,
+                                BatteryStateDatabase.MIGRATION_2_3)
+                        .build();
+        return mDatabase.getOpenHelper().getWritableDatabase();
+    }
+
+    /** Creates the database with the tables of version 1, as generated by Room at the time. */
+    private SupportSQLiteOpenHelper createVersion1Database() {
+        final SupportSQLiteOpenHelper.Callback callback =
+                new SupportSQLiteOpenHelper.Callback(/* version= */ 1) {
+                    @Override
+                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                        db.execSQL(
+                                "CREATE TABLE IF NOT EXISTS `AppUsageEventEntity` ("
+                                        + "`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                                        + "`uid` INTEGER NOT NULL, "
+                                        + "`userId` INTEGER NOT NULL, "
+                                        + "`timestamp` INTEGER NOT NULL, "
+                                        + "`appUsageEventType` INTEGER NOT NULL, "
+                                        + "`packageName` TEXT, "
+                                        + "`instanceId` INTEGER NOT NULL, "
+                                        + "`taskRootPackageName` TEXT)");
+                        db.execSQL(
+                                "CREATE TABLE IF NOT EXISTS `BatteryEventEntity` ("
+                                        + "`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                                        + "`timestamp` INTEGER NOT NULL, "
+                                        + "`batteryEventType` INTEGER NOT NULL, "
+                                        + "`batteryLevel` INTEGER NOT NULL)");
+                        db.execSQL(
+                                "CREATE TABLE IF NOT EXISTS `BatteryState` ("
+                                        + "`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                                        + "`uid` INTEGER NOT NULL, "
+                                        + "`userId` INTEGER NOT NULL, "
+                                        + "`packageName` TEXT, "
+                                        + "`timestamp` INTEGER NOT NULL, "
+                                        + "`consumerType` INTEGER NOT NULL, "
+                                        + "`isFullChargeCycleStart` INTEGER NOT NULL, "
+                                        + "`batteryInformation` TEXT, "
+                                        + "`batteryInformationDebug` TEXT)");
+                        db.execSQL(
+                                "CREATE TABLE IF NOT EXISTS `BatteryUsageSlotEntity` ("
+                                        + "`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                                        + "`timestamp` INTEGER NOT NULL, "
+                                        + "`batteryUsageSlot` TEXT)");
+                    }
+
+                    @Override
+                    public void onUpgrade(
+                            @NonNull SupportSQLiteDatabase db, int oldVersion, int newVersion) {}
+                };
+        return new FrameworkSQLiteOpenHelperFactory()
+                .create(
+                        SupportSQLiteOpenHelper.Configuration.builder(mContext)
+                                .name(DATABASE_NAME)
+                                .callback(callback)
+                                .build());
+    }
+
+    private static void insertBatteryState(
+            SupportSQLiteDatabase db, long timestamp, String batteryInformation) {
+        final ContentValues values = new ContentValues();
+        values.put("uid", 1001L);
+        values.put("userId", 0L);
+        values.put("packageName", "com.android.settings");
+        values.put("timestamp", timestamp);
+        values.put("consumerType", 1);
+        values.put("isFullChargeCycleStart", 0);
+        values.put("batteryInformation", batteryInformation);
+        db.insert("BatteryState", SQLiteDatabase.CONFLICT_NONE, values);
+    }
+
+    private static void insertBatteryUsageSlot(
+            SupportSQLiteDatabase db, long timestamp, String batteryUsageSlot) {
+        final ContentValues values = new ContentValues();
+        values.put("timestamp", timestamp);
+        values.put("batteryUsageSlot", batteryUsageSlot);
+        db.insert("BatteryUsageSlotEntity", SQLiteDatabase.CONFLICT_NONE, values);
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.encodeToString(bytes, Base64.DEFAULT);
+    }
+}
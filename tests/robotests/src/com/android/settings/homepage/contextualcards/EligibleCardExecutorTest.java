@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.android.settings.homepage.contextualcards.logging.ContextualCardLogUtils.EligibilityLog;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+@RunWith(RobolectricTestRunner.class)
+public class EligibleCardExecutorTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private Context mContext;
+    private EligibleCardExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mExecutor = new EligibleCardExecutor();
+    }
+
+    @Test
+    public void invokeAll_eligibleAndIneligibleCards_returnResultsInOrder() throws Exception {
+        final ContextualCard card1 = getContextualCard("card1", 0.5);
+        final ContextualCard card2 = getContextualCard("card2", 0.8);
+        final EligibilityLog log = new EligibilityLog();
+
+        final List<Future<ContextualCard>> futures = mExecutor.invokeAll(
+                Arrays.asList(getChecker(card1, card1), getChecker(card2, null)), TIMEOUT_MS, log);
+
+        assertThat(futures).hasSize(2);
+        assertThat(futures.get(0).get()).isEqualTo(card1);
+        assertThat(futures.get(1).get()).isNull();
+        assertThat(log.getCheckCount()).isEqualTo(2);
+        assertThat(log.getTimeoutCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void invokeAll_sameCardTwice_secondResultFromCache() throws Exception {
+        final ContextualCard card = getContextualCard("card", 0.5);
+        mExecutor.invokeAll(Collections.singletonList(getChecker(card, card)), TIMEOUT_MS,
+                new EligibilityLog());
+        final EligibleCardChecker checker = getChecker(card, card);
+        final EligibilityLog log = new EligibilityLog();
+
+        final List<Future<ContextualCard>> futures = mExecutor.invokeAll(
+                Collections.singletonList(checker), TIMEOUT_MS, log);
+
+        assertThat(futures.get(0).get()).isEqualTo(card);
+        assertThat(log.getCacheHitCount()).isEqualTo(1);
+        assertThat(log.getCheckCount()).isEqualTo(0);
+        verify(checker, never()).call();
+    }
+
+    @Test
+    public void invokeAll_rankingScoreChanged_checkAgain() throws Exception {
+        final ContextualCard card = getContextualCard("card", 0.5);
+        mExecutor.invokeAll(Collections.singletonList(getChecker(card, card)), TIMEOUT_MS,
+                new EligibilityLog());
+        final ContextualCard rankedCard = getContextualCard("card", 0.9);
+        final EligibleCardChecker checker = getChecker(rankedCard, rankedCard);
+
+        mExecutor.invokeAll(Collections.singletonList(checker), TIMEOUT_MS, new EligibilityLog());
+
+        verify(checker).call();
+    }
+
+    @Test
+    public void invokeAll_afterInvalidateCache_checkAgain() throws Exception {
+        final ContextualCard card = getContextualCard("card", 0.5);
+        mExecutor.invokeAll(Collections.singletonList(getChecker(card, card)), TIMEOUT_MS,
+                new EligibilityLog());
+        final EligibleCardChecker checker = getChecker(card, card);
+
+        mExecutor.invalidateCache();
+        mExecutor.invokeAll(Collections.singletonList(checker), TIMEOUT_MS, new EligibilityLog());
+
+        verify(checker).call();
+    }
+
+    @Test
+    public void invokeAll_slowChecker_cancelAndRecordTimeout() throws Exception {
+        final ContextualCard card = getContextualCard("card", 0.5);
+        final EligibleCardChecker checker = spy(new EligibleCardChecker(mContext, card));
+        doAnswer(invocation -> {
+            Thread.sleep(TIMEOUT_MS);
+            return card;
+        }).when(checker).call();
+        final EligibilityLog log = new EligibilityLog();
+
+        final List<Future<ContextualCard>> futures = mExecutor.invokeAll(
+                Collections.singletonList(checker), 50 /* timeoutMs */, log);
+
+        assertThat(futures.get(0).isCancelled()).isTrue();
+        assertThat(log.getTimeoutCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void invokeAll_checksHungAfterTimeout_nextChecksRunOnNewThreads() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<EligibleCardChecker> hungCheckers = new ArrayList<>();
+        for (int i = 0; i < EligibleCardExecutor.THREAD_COUNT; i++) {
+            final ContextualCard card = getContextualCard("hung" + i, 0.5);
+            final EligibleCardChecker checker = spy(new EligibleCardChecker(mContext, card));
+            // Like a binder call, which doesn't return when the thread is interrupted.
+            doAnswer(invocation -> {
+                while (true) {
+                    try {
+                        release.await();
+                        return card;
+                    } catch (InterruptedException e) {
+                        // Keep blocking.
+                    }
+                }
+            }).when(checker).call();
+            hungCheckers.add(checker);
+        }
+        try {
+            mExecutor.invokeAll(hungCheckers, 200 /* timeoutMs */, new EligibilityLog());
+            final ContextualCard card = getContextualCard("card", 0.5);
+            final EligibilityLog log = new EligibilityLog();
+
+            final List<Future<ContextualCard>> futures = mExecutor.invokeAll(
+                    Collections.singletonList(getChecker(card, card)), TIMEOUT_MS, log);
+
+            assertThat(futures.get(0).get()).isEqualTo(card);
+            assertThat(log.getTimeoutCount()).isEqualTo(0);
+            assertThat(mExecutor.getHungCount()).isEqualTo(EligibleCardExecutor.THREAD_COUNT);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private EligibleCardChecker getChecker(ContextualCard card, ContextualCard result) {
+        final EligibleCardChecker checker = spy(new EligibleCardChecker(mContext, card));
+        doReturn(result).when(checker).call();
+        return checker;
+    }
+
+    private ContextualCard getContextualCard(String name, double rankingScore) {
+        return new ContextualCard.Builder()
+                .setName(name)
+                .setRankingScore(rankingScore)
+                .setCardType(ContextualCard.CardType.SLICE)
+                .setSliceUri(Uri.parse("content://test/" + name))
+                .build();
+    }
+}
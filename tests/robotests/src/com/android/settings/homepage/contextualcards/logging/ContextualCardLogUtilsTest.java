@@ -97,4 +97,18 @@ public class ContextualCardLogUtilsTest {
         assertThat(cardClickLogList.get(1).getSliceUri()).isEqualTo("testtest");
         assertThat(cardClickLogList.get(1).getRankingScore()).isEqualTo(-1d);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void buildEligibilityLog_returnCorrectData() {
+        final ContextualCardLogUtils.EligibilityLog eligibilityLog =
+                new ContextualCardLogUtils.EligibilityLog();
+        eligibilityLog.recordCheck(10 /* queueWaitMs */, 100 /* checkLatencyMs */);
+        eligibilityLog.recordCheck(30 /* queueWaitMs */, 200 /* checkLatencyMs */);
+        eligibilityLog.recordCacheHit();
+        eligibilityLog.recordTimeout();
+
+        final String log = ContextualCardLogUtils.buildEligibilityLog(eligibilityLog);
+
+        assertThat(log).isEqualTo("2|1|1|20|30|150|200");
+    }
+}
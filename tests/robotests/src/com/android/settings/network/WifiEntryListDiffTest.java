@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.android.wifitrackerlib.WifiEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class WifiEntryListDiffTest {
+
+    private final WifiEntry mEntryA = createWifiEntry("a");
+    private final WifiEntry mEntryB = createWifiEntry("b");
+    private final WifiEntry mEntryC = createWifiEntry("c");
+
+    @Test
+    public void compute_sameEntries_isEmpty() {
+        final WifiEntryListDiff diff = WifiEntryListDiff.compute(
+                Arrays.asList(mEntryA, mEntryB), Arrays.asList(mEntryA, mEntryB));
+
+        assertThat(diff.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void compute_noEntries_isEmpty() {
+        final WifiEntryListDiff diff =
+                WifiEntryListDiff.compute(Collections.emptyList(), Collections.emptyList());
+
+        assertThat(diff.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void compute_newEntry_isInserted() {
+        final WifiEntryListDiff diff = WifiEntryListDiff.compute(
+                Arrays.asList(mEntryA, mEntryB), Arrays.asList(mEntryA, mEntryC, mEntryB));
+
+        assertThat(diff.mInsertedPositions).containsExactly(1);
+        assertThat(diff.mMovedPositions).containsExactly(2);
+        assertThat(diff.mRemovedKeys).isEmpty();
+        assertThat(diff.mUpdatedPositions).isEmpty();
+    }
+
+    @Test
+    public void compute_missingEntry_isRemoved() {
+        final WifiEntryListDiff diff = WifiEntryListDiff.compute(
+                Arrays.asList(mEntryA, mEntryB, mEntryC), Arrays.asList(mEntryA, mEntryC));
+
+        assertThat(diff.mRemovedKeys).containsExactly("b");
+        assertThat(diff.mMovedPositions).containsExactly(1);
+        assertThat(diff.mInsertedPositions).isEmpty();
+    }
+
+    @Test
+    public void compute_swappedEntries_areMoved() {
+        final WifiEntryListDiff diff = WifiEntryListDiff.compute(
+                Arrays.asList(mEntryA, mEntryB), Arrays.asList(mEntryB, mEntryA));
+
+        assertThat(diff.mMovedPositions).containsExactly(0, 1);
+        assertThat(diff.mInsertedPositions).isEmpty();
+        assertThat(diff.mRemovedKeys).isEmpty();
+        assertThat(diff.mUpdatedPositions).isEmpty();
+    }
+
+    @Test
+    public void compute_newObjectWithSameKey_isUpdated() {
+        final WifiEntry newEntryB = createWifiEntry("b");
+
+        final WifiEntryListDiff diff = WifiEntryListDiff.compute(
+                Arrays.asList(mEntryA, mEntryB), Arrays.asList(mEntryA, newEntryB));
+
+        assertThat(diff.mUpdatedPositions).containsExactly(1);
+        assertThat(diff.mInsertedPositions).isEmpty();
+        assertThat(diff.mRemovedKeys).isEmpty();
+        assertThat(diff.mMovedPositions).isEmpty();
+    }
+
+    @Test
+    public void compute_duplicateKey_onlyFirstEntryIsUsed() {
+        final WifiEntryListDiff diff = WifiEntryListDiff.compute(
+                Collections.emptyList(), Arrays.asList(mEntryA, createWifiEntry("a")));
+
+        assertThat(diff.mInsertedPositions).containsExactly(0);
+    }
+
+    private static WifiEntry createWifiEntry(String key) {
+        final WifiEntry wifiEntry = mock(WifiEntry.class);
+        when(wifiEntry.getKey()).thenReturn(key);
+        return wifiEntry;
+    }
+}
@@ -23,6 +23,8 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.INotificationManager;
@@ -32,14 +34,17 @@ import android.bluetooth.BluetoothAdapter;
 import android.companion.AssociationInfo;
 import android.companion.ICompanionDeviceManager;
 import android.content.ComponentName;
+import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.net.MacAddress;
 import android.os.Build;
 import android.os.Parcel;
+import android.util.ArraySet;
 
 import com.android.settings.notification.NotificationBackend.AppRow;
+import com.android.settings.notification.NotificationBackend.BlockState;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 import com.android.settingslib.bluetooth.CachedBluetoothDeviceManager;
 import com.android.settingslib.bluetooth.LocalBluetoothManager;
@@ -55,8 +60,10 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @RunWith(RobolectricTestRunner.class)
 public class NotificationBackendTest {
@@ -153,6 +160,49 @@ public class NotificationBackendTest {
         assertFalse(appRow.lockedImportance);
     }
 
+    @Test
+    public void getBlockStates_requestedPackages_loadsBlockState() throws Exception {
+        final PackageInfo blockable = createPackageInfo("blockable", 1,
+                Build.VERSION_CODES.TIRAMISU, android.Manifest.permission.POST_NOTIFICATIONS);
+        final PackageInfo locked = createPackageInfo("locked", 2, Build.VERSION_CODES.S, null);
+        final PackageInfo permissionLocked = createPackageInfo("permissionLocked", 3,
+                Build.VERSION_CODES.TIRAMISU, null);
+        final PackageInfo notRequested = createPackageInfo("notRequested", 4,
+                Build.VERSION_CODES.S, null);
+        final Context context = mock(Context.class);
+        final PackageManager pm = mock(PackageManager.class);
+        when(context.getPackageManager()).thenReturn(pm);
+        when(pm.getInstalledPackagesAsUser(PackageManager.GET_PERMISSIONS, 0)).thenReturn(
+                Arrays.asList(blockable, locked, permissionLocked, notRequested));
+        when(mInm.areNotificationsEnabledForPackage("blockable", 1)).thenReturn(true);
+        when(mInm.isImportanceLocked("locked", 2)).thenReturn(true);
+
+        final Map<String, BlockState> states = mNotificationBackend.getBlockStates(context, 0,
+                new ArraySet<>(Arrays.asList("blockable", "locked", "permissionLocked")));
+
+        assertThat(states.keySet()).containsExactly("blockable", "locked", "permissionLocked");
+        assertFalse(states.get("blockable").banned);
+        assertTrue(states.get("blockable").blockable);
+        assertTrue(states.get("locked").banned);
+        assertFalse(states.get("locked").blockable);
+        assertFalse(states.get("permissionLocked").blockable);
+        verify(mInm, never()).isImportanceLocked("permissionLocked", 3);
+    }
+
+    private static PackageInfo createPackageInfo(String packageName, int uid, int targetSdk,
+            String permission) {
+        final PackageInfo pi = new PackageInfo();
+        pi.packageName = packageName;
+        pi.applicationInfo = new ApplicationInfo();
+        pi.applicationInfo.packageName = packageName;
+        pi.applicationInfo.uid = uid;
+        pi.applicationInfo.targetSdkVersion = targetSdk;
+        if (permission != null) {
+            pi.requestedPermissions = new String[] {permission};
+        }
+        return pi;
+    }
+
     @Test
     public void testGetAggregatedUsageEvents_multipleEventsAgg() {
         List<UsageEvents.Event> events = new ArrayList<>();
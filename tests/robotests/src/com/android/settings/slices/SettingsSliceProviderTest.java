@@ -17,6 +17,7 @@
 
 package com.android.settings.slices;
 
+import static android.app.slice.Slice.HINT_PARTIAL;
 import static android.content.ContentResolver.SCHEME_CONTENT;
 import static android.content.pm.PackageManager.PERMISSION_DENIED;
 import static android.content.pm.PackageManager.PERMISSION_GRANTED;
@@ -33,6 +34,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -43,6 +45,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources.Theme;
 import android.net.Uri;
+import android.os.LocaleList;
 import android.os.StrictMode;
 import android.provider.Settings;
 import android.provider.SettingsSlicesContract;
@@ -86,9 +89,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 /**
@@ -149,7 +152,6 @@ public class SettingsSliceProviderTest {
 
         mProvider = spy(new SettingsSliceProvider());
         ShadowStrictMode.reset();
-        mProvider.mSliceWeakDataCache = new HashMap<>();
         mProvider.mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(mContext);
         when(mProvider.getContext()).thenReturn(mContext);
 
@@ -185,7 +187,7 @@ public class SettingsSliceProviderTest {
         SliceTestUtils.insertSliceToDb(mContext, KEY);
 
         mProvider.loadSlice(INTENT_SLICE_URI);
-        SliceData data = mProvider.mSliceWeakDataCache.get(INTENT_SLICE_URI);
+        SliceData data = mProvider.mSliceDataCache.get(INTENT_SLICE_URI);
 
         assertThat(data.getKey()).isEqualTo(KEY);
         assertThat(data.getTitle()).isEqualTo(SliceTestUtils.FAKE_TITLE);
@@ -216,15 +218,130 @@ public class SettingsSliceProviderTest {
     }
 
     @Test
-    public void testLoadSlice_cachedEntryRemovedOnUnpinned() {
-        SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
-        mProvider.onSliceUnpinned(data.getUri());
-        SliceTestUtils.insertSliceToDb(mContext, data.getKey());
+    public void loadSlice_alreadyLoaded_doesNotRegisterAgain() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+
+        mProvider.loadSlice(INTENT_SLICE_URI);
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        verify(mProvider, times(1))
+                .registerIntentToUri(eq(FakeToggleController.INTENT_FILTER), eq(INTENT_SLICE_URI));
+    }
+
+    @Test
+    public void testLoadSlice_cachedEntryKeptOnUnpinned_registersAgainOnLoad() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        mProvider.onSliceUnpinned(INTENT_SLICE_URI);
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI).getKey()).isEqualTo(KEY);
+        verify(mProvider, times(2))
+                .registerIntentToUri(eq(FakeToggleController.INTENT_FILTER), eq(INTENT_SLICE_URI));
+    }
+
+    @Test
+    public void prewarmSliceDataCache_pinnedSlice_bindReturnsFullSlice() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        when(mManager.getPinnedSlices()).thenReturn(Collections.singletonList(INTENT_SLICE_URI));
+
+        mProvider.prewarmSliceDataCache();
+        final Slice slice = mProvider.onBindSlice(INTENT_SLICE_URI);
+
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI).getKey()).isEqualTo(KEY);
+        assertThat(slice.getHints()).doesNotContain(HINT_PARTIAL);
+    }
+
+    @Test
+    public void prewarmSliceDataCache_recentlyBoundSlice_loadsSliceData() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.onBindSlice(INTENT_SLICE_URI);
+        mProvider.mSliceDataCache.clear();
+
+        final SettingsSliceProvider restartedProvider = spy(new SettingsSliceProvider());
+        restartedProvider.mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(mContext);
+        when(restartedProvider.getContext()).thenReturn(mContext);
+        restartedProvider.prewarmSliceDataCache();
+
+        assertThat(restartedProvider.mSliceDataCache.get(INTENT_SLICE_URI).getKey())
+                .isEqualTo(KEY);
+    }
+
+    @Test
+    @Config(shadows = ShadowThreadUtils.class)
+    public void onCreateSliceProvider_pinnedSlice_prewarmedOnFirstBind() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        when(mManager.getPinnedSlices()).thenReturn(Collections.singletonList(INTENT_SLICE_URI));
+
+        mProvider.onCreateSliceProvider();
+        assertThat(mProvider.mSliceDataCache).isEmpty();
+
+        mProvider.onBindSlice(URI);
+
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI).getKey()).isEqualTo(KEY);
+    }
+
+    @Test
+    @Config(shadows = ShadowThreadUtils.class)
+    public void onBindSlice_secondBind_prewarmOnlyOnce() {
+        final SliceData data = getMockData();
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+
+        mProvider.onBindSlice(data.getUri());
+        mProvider.onBindSlice(data.getUri());
+
+        verify(mProvider, times(1)).prewarmSliceDataCache();
+    }
+
+    @Test
+    public void onBindSlice_localeChanged_clearsSliceDataCache() {
+        final SliceData data = getMockData();
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+        mProvider.onBindSlice(data.getUri());
+
+        mContext.getResources().getConfiguration().setLocales(new LocaleList(Locale.FRANCE));
+        final Slice slice = mProvider.onBindSlice(data.getUri());
+
+        assertThat(mProvider.mSliceDataCache).doesNotContainKey(data.getUri());
+        assertThat(slice.getItems()).isEmpty();
+    }
+
+    @Test
+    public void onBindSlice_sliceDataReindexed_clearsSliceDataCache() {
+        final SliceData data = getMockData();
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+        mProvider.onBindSlice(data.getUri());
+
+        SlicesDatabaseHelper.getInstance(mContext).setIndexedState();
+        final Slice slice = mProvider.onBindSlice(data.getUri());
+
+        assertThat(mProvider.mSliceDataCache).doesNotContainKey(data.getUri());
+        assertThat(slice.getItems()).isEmpty();
+    }
+
+    @Test
+    public void loadSlice_cachedEntryCleared_doesNotRegisterAgain() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        mProvider.mSliceDataCache.clear();
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI).getKey()).isEqualTo(KEY);
+        verify(mProvider, times(1))
+                .registerIntentToUri(eq(FakeToggleController.INTENT_FILTER), eq(INTENT_SLICE_URI));
+    }
+
+    @Test
+    public void getBlockedKeys_settingChanged_returnsNewKeys() {
+        final ContentResolver resolver = mContext.getContentResolver();
+        Settings.Global.putString(resolver, Settings.Global.BLOCKED_SLICES, "key1");
+        assertThat(mProvider.getBlockedKeys()).containsExactly("key1");
 
-        SliceData cachedData = mProvider.mSliceWeakDataCache.get(data.getUri());
+        Settings.Global.putString(resolver, Settings.Global.BLOCKED_SLICES, "key1:key2");
 
-        assertThat(cachedData).isNull();
+        assertThat(mProvider.getBlockedKeys()).containsExactly("key1", "key2");
     }
 
     @Test
@@ -232,7 +349,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(true);
         final StrictMode.ThreadPolicy oldThreadPolicy = StrictMode.getThreadPolicy();
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         final StrictMode.ThreadPolicy newThreadPolicy = StrictMode.getThreadPolicy();
@@ -246,7 +363,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(false);
 
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         assertThat(ShadowStrictMode.isThreadPolicyOverridden()).isTrue();
@@ -274,7 +391,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeChanged_shouldReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         final SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_YES;
@@ -287,7 +404,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeNotChanged_shouldNotReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceBackgroundWorkerTest {
+
+    private static final long INTERVAL_MS = 100L;
+    private static final Uri URI_1 = Uri.parse("content://com.android.settings.slices/test1");
+    private static final Uri URI_2 = Uri.parse("content://com.android.settings.slices/test2");
+    private static final List<String> RESULTS_A = Collections.singletonList("a");
+    private static final List<String> RESULTS_B = Collections.singletonList("b");
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private Context mContext;
+    @Mock
+    private ContentResolver mResolver;
+
+    private TestWorker mWorker;
+
+    @Before
+    public void setUp() {
+        when(mContext.getContentResolver()).thenReturn(mResolver);
+        SliceBackgroundWorker.resetUpdateHandler(Looper.getMainLooper());
+        mWorker = new TestWorker(mContext, URI_1);
+    }
+
+    @After
+    public void tearDown() {
+        mWorker.unpin();
+    }
+
+    @Test
+    public void updateResults_changesWithinInterval_coalescedIntoOneUpdate() {
+        mWorker.setResults(RESULTS_A);
+        mWorker.setResults(RESULTS_B);
+
+        idleFor(INTERVAL_MS);
+
+        verify(mResolver).notifyChange(URI_1, null);
+        assertThat(dump()).contains(URI_1 + ": delivered=1, coalesced=1, suppressed=0");
+    }
+
+    @Test
+    public void updateResults_backToDeliveredResults_suppressUpdate() {
+        mWorker.setResults(RESULTS_A);
+        idleFor(INTERVAL_MS);
+        mWorker.setResults(RESULTS_B);
+        mWorker.setResults(RESULTS_A);
+
+        idleFor(INTERVAL_MS * 4);
+
+        verify(mResolver).notifyChange(URI_1, null);
+        assertThat(dump()).contains(URI_1 + ": delivered=1, coalesced=1, suppressed=1");
+    }
+
+    @Test
+    public void updateResults_keepChanging_backOff() {
+        mWorker.setResults(RESULTS_A);
+        idleFor(INTERVAL_MS);
+        mWorker.setResults(RESULTS_B);
+
+        idleFor(INTERVAL_MS);
+        verify(mResolver).notifyChange(URI_1, null);
+
+        idleFor(INTERVAL_MS);
+        verify(mResolver, times(2)).notifyChange(URI_1, null);
+        assertThat(dump()).contains("interval=" + INTERVAL_MS * 2 + "ms");
+    }
+
+    @Test
+    public void updateResults_quietForInterval_resetInterval() {
+        mWorker.setResults(RESULTS_A);
+        idleFor(INTERVAL_MS);
+        mWorker.setResults(RESULTS_B);
+        idleFor(INTERVAL_MS * 2);
+        idleFor(INTERVAL_MS * 10);
+
+        mWorker.setResults(RESULTS_A);
+        idleFor(0L);
+
+        verify(mResolver, times(3)).notifyChange(URI_1, null);
+        assertThat(dump()).contains("interval=" + INTERVAL_MS + "ms");
+    }
+
+    @Test
+    public void notifySliceChange_duringBackoff_deliverAtBaseInterval() {
+        mWorker.setResults(RESULTS_A);
+        idleFor(INTERVAL_MS);
+        mWorker.setResults(RESULTS_B);
+
+        mWorker.notifySliceChange();
+        idleFor(INTERVAL_MS);
+
+        verify(mResolver, times(2)).notifyChange(URI_1, null);
+    }
+
+    @Test
+    public void notifySliceChange_sameResults_neverSuppressed() {
+        mWorker.setResults(RESULTS_A);
+        idleFor(INTERVAL_MS);
+
+        mWorker.notifySliceChange();
+        mWorker.notifySliceChange();
+        idleFor(INTERVAL_MS);
+
+        verify(mResolver, times(2)).notifyChange(URI_1, null);
+        assertThat(dump()).contains(URI_1 + ": delivered=2, coalesced=1, suppressed=0");
+    }
+
+    @Test
+    public void updateResults_workersDueTogether_notifyChangeOnce() {
+        final TestWorker worker2 = new TestWorker(mContext, URI_2);
+        try {
+            mWorker.setResults(RESULTS_A);
+            worker2.setResults(RESULTS_A);
+
+            idleFor(INTERVAL_MS);
+        } finally {
+            worker2.unpin();
+        }
+
+        final ArgumentCaptor<Collection<Uri>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(mResolver).notifyChange(captor.capture(), eq(null), eq(0));
+        assertThat(captor.getValue()).containsExactly(URI_1, URI_2);
+        verify(mResolver, never()).notifyChange(any(Uri.class), any());
+    }
+
+    @Test
+    public void dump_printTotalCounters() {
+        mWorker.setResults(RESULTS_A);
+        mWorker.setResults(RESULTS_B);
+        idleFor(INTERVAL_MS);
+        mWorker.setResults(RESULTS_A);
+        mWorker.setResults(RESULTS_B);
+        idleFor(INTERVAL_MS * 2);
+
+        assertThat(dump()).contains("Slice updates: delivered=1, coalesced=2, suppressed=1");
+        verify(mResolver, never()).notifyChange(any(Collection.class), any(), anyInt());
+    }
+
+    private static void idleFor(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+
+    private static String dump() {
+        final StringWriter stringWriter = new StringWriter();
+        SliceBackgroundWorker.dump(new PrintWriter(stringWriter));
+        return stringWriter.toString();
+    }
+
+    public static class TestWorker extends SliceBackgroundWorker<String> {
+
+        public TestWorker(Context context, Uri uri) {
+            super(context, uri);
+        }
+
+        @Override
+        protected void onSlicePinned() {
+        }
+
+        @Override
+        protected void onSliceUnpinned() {
+        }
+
+        @Override
+        protected long getUpdateThrottleInterval() {
+            return INTERVAL_MS;
+        }
+
+        void setResults(List<String> results) {
+            updateResults(results);
+        }
+    }
+}
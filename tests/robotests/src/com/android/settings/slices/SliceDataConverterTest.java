@@ -114,6 +114,17 @@ public class SliceDataConverterTest {
         }
     }
 
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void getProviderFingerprint_sameProvider_returnsSameFingerprint() {
+        final String fingerprint = mSliceDataConverter.getProviderFingerprint(
+                FakeIndexProvider.SEARCH_INDEX_DATA_PROVIDER);
+
+        assertThat(fingerprint).isNotEmpty();
+        assertThat(mSliceDataConverter.getProviderFingerprint(
+                FakeIndexProvider.SEARCH_INDEX_DATA_PROVIDER)).isEqualTo(fingerprint);
+    }
+
     private void assertFakeSlice(SliceData fakeSlice) {
         assertThat(fakeSlice.getKey()).isEqualTo(FAKE_KEY);
         assertThat(fakeSlice.getTitle()).isEqualTo(FAKE_TITLE);
@@ -18,17 +18,26 @@ package com.android.settings.slices;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.os.Build;
 
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
+import com.android.settings.slices.SlicesIndexer.ProviderSliceData;
 import com.android.settings.testutils.DatabaseTestUtils;
+import com.android.settingslib.search.Indexable.SearchIndexProvider;
 
 import org.junit.After;
 import org.junit.Before;
@@ -37,9 +46,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @RunWith(RobolectricTestRunner.class)
 public class SlicesIndexerTest {
@@ -56,16 +70,22 @@ public class SlicesIndexerTest {
     private static final int SLICE_TYPE = SliceData.SliceType.SLIDER;
     private static final String UNAVAILABLE_SLICE_SUBTITLE = "subtitleOfUnavailableSlice";
     private static final int HIGHLIGHT_MENU_KEY = 5678; // I declare a thumb war
+    private static final String FINGERPRINT = "fingerprint";
 
     private Context mContext;
 
     private SlicesIndexer mManager;
+    private SliceDataConverter mConverter;
+    private SearchIndexProvider mProvider;
 
 
     @Before
     public void setUp() {
         mContext = RuntimeEnvironment.application;
         mManager = spy(new SlicesIndexer(mContext));
+        mConverter = mock(SliceDataConverter.class);
+        mProvider = mock(SearchIndexProvider.class);
+        doReturn(mConverter).when(mManager).getSliceDataConverter();
     }
 
     @After
@@ -100,7 +120,7 @@ public class SlicesIndexerTest {
     public void testInsertSliceData_indexedStateSet() {
         final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
         helper.setIndexedState();
-        doReturn(new ArrayList<SliceData>()).when(mManager).getSliceData();
+        stubConverter(new ArrayList<>());
 
         mManager.run();
 
@@ -111,7 +131,7 @@ public class SlicesIndexerTest {
     @Ignore
     public void testInsertSliceData_nonPublicSlice_mockDataInserted() {
         final List<SliceData> sliceData = getMockIndexableData(false);
-        doReturn(sliceData).when(mManager).getSliceData();
+        stubConverter(sliceData);
 
         mManager.run();
 
@@ -160,7 +180,7 @@ public class SlicesIndexerTest {
     @Ignore
     public void insertSliceData_publicSlice_mockDataInserted() {
         final List<SliceData> sliceData = getMockIndexableData(true);
-        doReturn(sliceData).when(mManager).getSliceData();
+        stubConverter(sliceData);
 
         mManager.run();
 
@@ -205,6 +225,163 @@ public class SlicesIndexerTest {
         }
     }
 
+    @Test
+    public void indexSliceData_newBuildWithSameFingerprint_reindexesProvider() {
+        final long buildTime = Build.TIME;
+        stubConverter(getMockIndexableData(true /* isPublicSlice */));
+        mManager.run();
+        // The new build makes the slices private, while the XML of the provider is unchanged.
+        ReflectionHelpers.setStaticField(Build.class, "TIME", buildTime + 1);
+        stubConverter(getMockIndexableData(false /* isPublicSlice */));
+
+        try {
+            mManager.run();
+        } finally {
+            ReflectionHelpers.setStaticField(Build.class, "TIME", buildTime);
+        }
+
+        assertThat(getIndexedPublicSlices()).containsExactly(0, 0, 0);
+    }
+
+    @Test
+    public void indexSliceData_sameBuildAndFingerprint_skipsProvider() {
+        stubConverter(getMockIndexableData(true /* isPublicSlice */));
+        mManager.run();
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.FRANCE);
+
+        try {
+            mManager.run();
+        } finally {
+            Locale.setDefault(locale);
+        }
+
+        verify(mConverter).getSliceDataFromProvider(mProvider, FRAGMENT_NAME);
+        assertThat(getIndexedPublicSlices()).containsExactly(1, 1, 1);
+    }
+
+    @Test
+    public void indexSliceData_backToPreviousLocale_indexesAgain() {
+        stubConverter(getMockIndexableData(true /* isPublicSlice */));
+        mManager.run();
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.FRANCE);
+        try {
+            mManager.run();
+        } finally {
+            Locale.setDefault(locale);
+        }
+
+        assertThat(SlicesDatabaseHelper.getInstance(mContext).isSliceDataIndexed()).isFalse();
+    }
+
+    @Test
+    public void getChangedProviderSliceData_noIndexedFingerprint_convertsProvider() {
+        final List<SliceData> sliceData = getMockIndexableData(false);
+        stubConverter(sliceData);
+
+        final List<ProviderSliceData> providerData =
+                mManager.getChangedProviderSliceData(mConverter, Collections.emptyMap());
+
+        assertThat(providerData).hasSize(1);
+        assertThat(providerData.get(0).mFragmentName).isEqualTo(FRAGMENT_NAME);
+        assertThat(providerData.get(0).mFingerprint).isEqualTo(FINGERPRINT);
+        assertThat(providerData.get(0).mSliceData).isEqualTo(sliceData);
+    }
+
+    @Test
+    public void getChangedProviderSliceData_sameFingerprint_skipsProvider() {
+        stubConverter(getMockIndexableData(false));
+        final Map<String, String> indexedFingerprints = new HashMap<>();
+        indexedFingerprints.put(FRAGMENT_NAME, FINGERPRINT);
+
+        final List<ProviderSliceData> providerData =
+                mManager.getChangedProviderSliceData(mConverter, indexedFingerprints);
+
+        assertThat(providerData).isEmpty();
+        verify(mConverter, never()).getSliceDataFromProvider(any(), anyString());
+    }
+
+    @Test
+    public void getChangedProviderSliceData_differentFingerprint_convertsProvider() {
+        final List<SliceData> sliceData = getMockIndexableData(false);
+        stubConverter(sliceData);
+        final Map<String, String> indexedFingerprints = new HashMap<>();
+        indexedFingerprints.put(FRAGMENT_NAME, "old fingerprint");
+
+        final List<ProviderSliceData> providerData =
+                mManager.getChangedProviderSliceData(mConverter, indexedFingerprints);
+
+        assertThat(providerData).hasSize(1);
+        assertThat(providerData.get(0).mFingerprint).isEqualTo(FINGERPRINT);
+        assertThat(providerData.get(0).mSliceData).isEqualTo(sliceData);
+    }
+
+    @Test
+    public void getChangedProviderSliceData_nullFingerprint_alwaysConvertsProvider() {
+        final List<SliceData> sliceData = getMockIndexableData(false);
+        stubConverter(sliceData);
+        when(mConverter.getProviderFingerprint(mProvider)).thenReturn(null);
+
+        final List<ProviderSliceData> providerData =
+                mManager.getChangedProviderSliceData(mConverter, Collections.emptyMap());
+
+        assertThat(providerData).hasSize(1);
+        assertThat(providerData.get(0).mFingerprint).isNull();
+        assertThat(providerData.get(0).mSliceData).isEqualTo(sliceData);
+    }
+
+    @Test
+    public void getChangedProviderSliceData_removedProvider_returnsNoSliceData() {
+        stubConverter(getMockIndexableData(false));
+        final Map<String, String> indexedFingerprints = new HashMap<>();
+        indexedFingerprints.put(FRAGMENT_NAME, FINGERPRINT);
+        indexedFingerprints.put("removed fragment", FINGERPRINT);
+
+        final List<ProviderSliceData> providerData =
+                mManager.getChangedProviderSliceData(mConverter, indexedFingerprints);
+
+        assertThat(providerData).hasSize(1);
+        assertThat(providerData.get(0).mFragmentName).isEqualTo("removed fragment");
+        assertThat(providerData.get(0).mFingerprint).isNull();
+        assertThat(providerData.get(0).mSliceData).isNull();
+    }
+
+    @Test
+    public void getChangedProviderSliceData_conversionFails_returnsEmptySliceData() {
+        stubConverter(getMockIndexableData(false));
+        when(mConverter.getSliceDataFromProvider(mProvider, FRAGMENT_NAME))
+                .thenThrow(new IllegalStateException());
+
+        final List<ProviderSliceData> providerData =
+                mManager.getChangedProviderSliceData(mConverter, Collections.emptyMap());
+
+        assertThat(providerData).hasSize(1);
+        assertThat(providerData.get(0).mFingerprint).isNull();
+        assertThat(providerData.get(0).mSliceData).isEmpty();
+    }
+
+    private void stubConverter(List<SliceData> sliceData) {
+        final Map<String, SearchIndexProvider> providers = new HashMap<>();
+        providers.put(FRAGMENT_NAME, mProvider);
+        when(mConverter.getSearchIndexProviders()).thenReturn(providers);
+        when(mConverter.getProviderFingerprint(mProvider)).thenReturn(FINGERPRINT);
+        when(mConverter.getSliceDataFromProvider(mProvider, FRAGMENT_NAME)).thenReturn(sliceData);
+        when(mConverter.getAccessibilitySliceData()).thenReturn(new ArrayList<>());
+    }
+
+    private List<Integer> getIndexedPublicSlices() {
+        final List<Integer> publicSlices = new ArrayList<>();
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getReadableDatabase();
+        try (Cursor cursor = db.rawQuery(
+                "SELECT " + IndexColumns.PUBLIC_SLICE + " FROM slices_index", null)) {
+            while (cursor.moveToNext()) {
+                publicSlices.add(cursor.getInt(0));
+            }
+        }
+        return publicSlices;
+    }
+
     private void insertSpecialCase(String key, String title) {
         final ContentValues values = new ContentValues();
         values.put(IndexColumns.KEY, key);
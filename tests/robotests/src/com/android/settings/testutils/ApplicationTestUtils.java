@@ -14,7 +14,10 @@
 
 package com.android.settings.testutils;
 
+import static org.mockito.ArgumentMatchers.argThat;
+
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager.ApplicationInfoFlags;
 
 /**
  * Helper for mocking installed applications.
@@ -41,4 +44,13 @@ public class ApplicationTestUtils {
         info.targetSdkVersion = targetSdkVersion;
         return info;
     }
+
+    /**
+     * Matches the {@link ApplicationInfoFlags} of the given flags, e.g. to stub
+     * {@link android.content.pm.PackageManager#getInstalledApplicationsAsUser(
+     * ApplicationInfoFlags, int)}.
+     */
+    public static ApplicationInfoFlags eqInfoFlags(long flags) {
+        return argThat(infoFlags -> infoFlags != null && infoFlags.getValue() == flags);
+    }
 }
@@ -19,6 +19,7 @@ package com.android.settings.wifi;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -129,4 +130,18 @@ public class LongPressWifiEntryPreferenceTest {
 
         verify(mPreference, never()).setDisabledByAdmin(any());
     }
+
+    @Test
+    public void setWifiEntry_noAdminRestrictionsAfterRestrictedEntry_clearDisabledByAdmin() {
+        when(mContext.getUser()).thenReturn(null);
+        final WifiEntry restrictedWifiEntry = mock(WifiEntry.class);
+        when(restrictedWifiEntry.hasAdminRestrictions()).thenReturn(true);
+        mPreference.setWifiEntry(restrictedWifiEntry);
+        assertThat(mPreference.isDisabledByAdmin()).isTrue();
+
+        mPreference.setWifiEntry(mWifiEntry);
+
+        assertThat(mPreference.isDisabledByAdmin()).isFalse();
+        assertThat(mPreference.isEnabled()).isTrue();
+    }
 }
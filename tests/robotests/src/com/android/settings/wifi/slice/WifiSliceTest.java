@@ -243,6 +243,17 @@ public class WifiSliceTest {
         doReturn(results).when(worker).getResults();
     }
 
+    @Test
+    public void wifiSliceItem_sameState_shouldBeEqualWithSameHashCode() {
+        final WifiSliceItem item1 =
+                createWifiSliceItem(AP1_NAME, WifiEntry.CONNECTED_STATE_CONNECTED);
+        final WifiSliceItem item2 =
+                createWifiSliceItem(AP1_NAME, WifiEntry.CONNECTED_STATE_CONNECTED);
+
+        assertThat(item1).isEqualTo(item2);
+        assertThat(item1.hashCode()).isEqualTo(item2.hashCode());
+    }
+
     @Test
     public void getWifiSlice_oneConnectedAp_shouldReturnLoadingRow() {
         setWorkerResults(createWifiSliceItem(AP1_NAME, WifiEntry.CONNECTED_STATE_CONNECTED));
@@ -30,10 +30,13 @@ import java.time.ZonedDateTime
 import kotlinx.coroutines.test.runTest
 import org.junit.Test
 import org.junit.runner.RunWith
+import org.mockito.kotlin.any
 import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
 import org.mockito.kotlin.spy
 import org.mockito.kotlin.stub
+import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 
 @RunWith(AndroidJUnit4::class)
@@ -123,6 +126,43 @@ class NetworkCycleDataRepositoryTest {
         )
     }
 
+    @Test
+    fun querySummary_fromHistory() = runTest {
+        mockNetworkStatsRepository.stub {
+            on { queryHistoryForDevice(CYCLE3_START_TIME, CYCLE4_END_TIME) } doReturn
+                NetworkUsageHistory(
+                    startTimes = longArrayOf(CYCLE3_START_TIME, CYCLE4_START_TIME),
+                    endTimes = longArrayOf(CYCLE3_END_TIME, CYCLE4_END_TIME),
+                    bytes = longArrayOf(CYCLE3_BYTES, CYCLE4_BYTES),
+                )
+        }
+
+        val summary = repository.queryChartData(CYCLE3_START_TIME, CYCLE4_END_TIME)
+
+        assertThat(summary).isEqualTo(
+            NetworkCycleChartData(
+                total = NetworkUsageData(
+                    startTime = CYCLE3_START_TIME,
+                    endTime = CYCLE4_END_TIME,
+                    usage = CYCLE3_BYTES + CYCLE4_BYTES,
+                ),
+                dailyUsage = listOf(
+                    NetworkUsageData(
+                        startTime = CYCLE3_START_TIME,
+                        endTime = CYCLE3_END_TIME,
+                        usage = CYCLE3_BYTES,
+                    ),
+                    NetworkUsageData(
+                        startTime = CYCLE4_START_TIME,
+                        endTime = CYCLE4_END_TIME,
+                        usage = CYCLE4_BYTES,
+                    ),
+                ),
+            )
+        )
+        verify(mockNetworkStatsRepository, never()).querySummaryForDevice(any(), any())
+    }
+
     private fun zonedDateTime(epochMilli: Long): ZonedDateTime? =
         ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault())
 
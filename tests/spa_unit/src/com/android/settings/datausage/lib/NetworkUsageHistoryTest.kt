@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.net.NetworkTemplate
+import android.util.Range
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+
+@RunWith(AndroidJUnit4::class)
+class NetworkUsageHistoryTest {
+    private val history = NetworkUsageHistory(
+        startTimes = longArrayOf(0, 10, 20),
+        endTimes = longArrayOf(10, 20, 30),
+        bytes = longArrayOf(100, 200, 300),
+    )
+
+    private val template = mock<NetworkTemplate>()
+
+    @After
+    fun tearDown() {
+        NetworkUsageHistory.Cache.clear()
+    }
+
+    @Test
+    fun fold_alignedRanges() {
+        val usage = history.fold(listOf(Range(0L, 20L), Range(20L, 30L)))
+
+        assertThat(usage).containsExactly(
+            NetworkUsageData(startTime = 0, endTime = 20, usage = 300),
+            NetworkUsageData(startTime = 20, endTime = 30, usage = 300),
+        ).inOrder()
+    }
+
+    @Test
+    fun fold_partialOverlap_interpolated() {
+        val usage = history.fold(listOf(Range(5L, 15L)))
+
+        assertThat(usage).containsExactly(
+            NetworkUsageData(startTime = 5, endTime = 15, usage = 150),
+        )
+    }
+
+    @Test
+    fun fold_reverseOrder_keepsOrder() {
+        val usage = history.fold(listOf(Range(20L, 30L), Range(10L, 20L), Range(0L, 10L)))
+
+        assertThat(usage.map { it.usage }).containsExactly(300L, 200L, 100L).inOrder()
+    }
+
+    @Test
+    fun fold_outsideHistory_zero() {
+        val usage = history.fold(listOf(Range(30L, 40L)))
+
+        assertThat(usage).containsExactly(
+            NetworkUsageData(startTime = 30, endTime = 40, usage = 0),
+        )
+    }
+
+    @Test
+    fun usageBetween() {
+        assertThat(history.usageBetween(0, 30)).isEqualTo(600)
+    }
+
+    @Test
+    fun cache_subRange_servedFromWiderHistory() {
+        NetworkUsageHistory.Cache.getOrLoad(template, 0, 30) { history }
+
+        val cached = NetworkUsageHistory.Cache.getOrLoad(template, 10, 20) { null }
+
+        assertThat(cached).isSameInstanceAs(history)
+    }
+
+    @Test
+    fun cache_narrowerRangeLoaded_keepsWiderHistory() {
+        val narrowHistory = NetworkUsageHistory(longArrayOf(), longArrayOf(), longArrayOf())
+        NetworkUsageHistory.Cache.getOrLoad(template, 0, 30) { history }
+        NetworkUsageHistory.Cache.getOrLoad(template, 30, 40) { narrowHistory }
+
+        val cached = NetworkUsageHistory.Cache.getOrLoad(template, 0, 20) { null }
+
+        assertThat(cached).isSameInstanceAs(history)
+    }
+
+    @Test
+    fun cache_widerRangeLoaded_replacesCoveredHistory() {
+        val widerHistory = NetworkUsageHistory(longArrayOf(0), longArrayOf(40), longArrayOf(1))
+        NetworkUsageHistory.Cache.getOrLoad(template, 0, 30) { history }
+        NetworkUsageHistory.Cache.getOrLoad(template, 0, 40) { widerHistory }
+
+        val cached = NetworkUsageHistory.Cache.getOrLoad(template, 0, 20) { null }
+
+        assertThat(cached).isSameInstanceAs(widerHistory)
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+/**
+ * Compares extracting the preference metadata from the prebuilt {@link PreferenceXmlMetadataIndex}
+ * with parsing the XML resources, for the full search index and for a fragment attach.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PreferenceXmlMetadataIndexBenchmarkTest {
+    private static final String TAG = "PreferenceXmlMetadataIndexBenchmark";
+    private static final int ITERATIONS = 5;
+    // The flags used by the search index and the slice indexer.
+    private static final int INDEX_FLAGS =
+            MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+                    | MetadataFlag.FLAG_NEED_KEY
+                    | MetadataFlag.FLAG_NEED_PREF_TYPE
+                    | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+                    | MetadataFlag.FLAG_NEED_PREF_TITLE
+                    | MetadataFlag.FLAG_NEED_PREF_SUMMARY
+                    | MetadataFlag.FLAG_NEED_PREF_ICON
+                    | MetadataFlag.FLAG_NEED_KEYWORDS
+                    | MetadataFlag.FLAG_NEED_SEARCHABLE
+                    | MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE
+                    | MetadataFlag.FLAG_FOR_WORK;
+    // The flags used by DashboardFragment to create the controllers of a screen.
+    private static final int ATTACH_FLAGS =
+            MetadataFlag.FLAG_NEED_KEY
+                    | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+                    | MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+                    | MetadataFlag.FLAG_FOR_WORK;
+
+    private Context mContext;
+    private int[] mXmlResIds;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mXmlResIds = PreferenceXmlMetadataIndex.getIndexedXmlResIds();
+        assertThat(mXmlResIds).isNotEmpty();
+    }
+
+    @Test
+    public void benchmarkExtractMetadata() throws Exception {
+        long indexFullNanos = Long.MAX_VALUE;
+        long xmlFullNanos = Long.MAX_VALUE;
+        long indexAttachNanos = Long.MAX_VALUE;
+        long xmlAttachNanos = Long.MAX_VALUE;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            indexFullNanos = Math.min(indexFullNanos, measure(INDEX_FLAGS, /* useIndex= */ true));
+            xmlFullNanos = Math.min(xmlFullNanos, measure(INDEX_FLAGS, /* useIndex= */ false));
+            indexAttachNanos =
+                    Math.min(indexAttachNanos, measure(ATTACH_FLAGS, /* useIndex= */ true));
+            xmlAttachNanos = Math.min(xmlAttachNanos, measure(ATTACH_FLAGS, /* useIndex= */ false));
+        }
+
+        final int screenCount = mXmlResIds.length;
+        final Bundle results = new Bundle();
+        results.putInt("screens", screenCount);
+        results.putLong("index_full_ns", indexFullNanos);
+        results.putLong("xml_full_ns", xmlFullNanos);
+        results.putLong("index_attach_ns_per_screen", indexAttachNanos / screenCount);
+        results.putLong("xml_attach_ns_per_screen", xmlAttachNanos / screenCount);
+        Log.i(TAG, results.toString());
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+    }
+
+    private long measure(int flags, boolean useIndex) throws Exception {
+        final long start = SystemClock.elapsedRealtimeNanos();
+        for (int xmlResId : mXmlResIds) {
+            final List<Bundle> metadata =
+                    useIndex
+                            ? PreferenceXmlMetadataIndex.extractMetadata(mContext, xmlResId, flags)
+                            : PreferenceXmlParserUtils.extractMetadataFromXml(
+                                    mContext, xmlResId, flags);
+            assertThat(metadata).isNotNull();
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+}
@@ -29,6 +29,7 @@ import static org.mockito.Mockito.when;
 
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.UserInfo;
@@ -45,6 +46,7 @@ import androidx.test.runner.AndroidJUnit4;
 import com.android.settings.R;
 import com.android.settingslib.applications.StorageStatsSource;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -71,7 +73,7 @@ public class StorageAsyncLoaderTest {
     private PackageManager mPackageManager;
     @Mock
     private UserManager mUserManager;
-    private List<ApplicationInfo> mInfo = new ArrayList<>();
+    private List<PackageInfo> mInfo = new ArrayList<>();
     private List<UserInfo> mUsers;
 
     private StorageAsyncLoader mLoader;
@@ -83,7 +85,7 @@ public class StorageAsyncLoaderTest {
         mContext = spy(ApplicationProvider.getApplicationContext());
         mInfo = new ArrayList<>();
         mLoader = new StorageAsyncLoader(mContext, mUserManager, "id", mSource, mPackageManager);
-        when(mPackageManager.getInstalledApplicationsAsUser(eq(PRIMARY_USER_ID), anyInt()))
+        when(mPackageManager.getInstalledPackagesAsUser(eq(PRIMARY_USER_ID), anyInt()))
                 .thenReturn(mInfo);
         UserInfo info = new UserInfo();
         mUsers = new ArrayList<>();
@@ -94,6 +96,12 @@ public class StorageAsyncLoaderTest {
         when(mContext.getResources()).thenReturn(resources);
         doReturn("content://com.android.providers.media.documents/root/videos_root")
                 .when(resources).getString(R.string.config_videos_storage_category_uri);
+        clearPackageStatsCache();
+    }
+
+    @After
+    public void tearDown() {
+        clearPackageStatsCache();
     }
 
     @Test
@@ -171,12 +179,40 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(111L);
     }
 
+    @Test
+    public void testCachedPackageStatsAreUsed() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        mLoader.loadInBackground();
+        addPackage(PACKAGE_NAME_1, 0, 2, 20, ApplicationInfo.CATEGORY_UNDEFINED);
+        mInfo.remove(mInfo.size() - 1);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(11L);
+    }
+
+    @Test
+    public void testUpdatedPackageStatsAreReloaded() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        mLoader.loadInBackground();
+        addPackage(PACKAGE_NAME_1, 0, 2, 20, ApplicationInfo.CATEGORY_UNDEFINED);
+        mInfo.remove(0);
+        mInfo.get(0).lastUpdateTime = 1000L;
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(22L);
+    }
+
     @Test
     public void testRemovedPackageDoesNotCrash() throws Exception {
         ApplicationInfo info = new ApplicationInfo();
         info.packageName = PACKAGE_NAME_1;
         info.category = ApplicationInfo.CATEGORY_UNDEFINED;
-        mInfo.add(info);
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = PACKAGE_NAME_1;
+        packageInfo.applicationInfo = info;
+        mInfo.add(packageInfo);
         when(mSource.getStatsForPackage(anyString(), anyString(), any(UserHandle.class)))
                 .thenThrow(new NameNotFoundException());
 
@@ -221,8 +257,16 @@ public class StorageAsyncLoaderTest {
         ApplicationInfo info = new ApplicationInfo();
         info.packageName = packageName;
         info.category = category;
-        mInfo.add(info);
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.applicationInfo = info;
+        mInfo.add(packageInfo);
         return info;
     }
 
+    private void clearPackageStatsCache() {
+        new StorageCacheHelper(mContext, PRIMARY_USER_ID).clearPackageStats();
+        new StorageCacheHelper(mContext, SECONDARY_USER_ID).clearPackageStats();
+    }
+
 }
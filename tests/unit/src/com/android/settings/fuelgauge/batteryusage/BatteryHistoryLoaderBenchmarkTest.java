@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays a seven-day battery usage database and compares the per-row {@link BatteryHistEntry}
+ * loader with the columnar {@link BatteryHistoryColumns} loader.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatteryHistoryLoaderBenchmarkTest {
+    private static final String TAG = "BatteryHistoryLoaderBenchmark";
+    private static final int SNAPSHOT_COUNT = 24 * 7;
+    private static final int ENTRIES_PER_SNAPSHOT = 40;
+    private static final int ITERATIONS = 5;
+
+    private Context mContext;
+    private BatteryStateDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mDatabase =
+                Room.inMemoryDatabaseBuilder(mContext, BatteryStateDatabase.class)
+                        .allowMainThreadQueries()
+                        .build();
+        mDatabase.batteryStateDao().insertAll(createStates());
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void benchmarkLoadHistory() {
+        final int rowCount = SNAPSHOT_COUNT * ENTRIES_PER_SNAPSHOT;
+        long legacyNanos = Long.MAX_VALUE;
+        long columnsNanos = Long.MAX_VALUE;
+        long columnsToMapNanos = Long.MAX_VALUE;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            final Map<Long, Map<String, BatteryHistEntry>> legacyMap = new ArrayMap<>();
+            try (Cursor cursor = mDatabase.batteryStateDao().getBatteryStatesAfter(0L)) {
+                while (cursor.moveToNext()) {
+                    final BatteryHistEntry entry = new BatteryHistEntry(cursor);
+                    legacyMap
+                            .computeIfAbsent(entry.mTimestamp, key -> new ArrayMap<>())
+                            .put(entry.getKey(), entry);
+                }
+            }
+            legacyNanos = Math.min(legacyNanos, SystemClock.elapsedRealtimeNanos() - start);
+            assertThat(legacyMap).hasSize(SNAPSHOT_COUNT);
+
+            start = SystemClock.elapsedRealtimeNanos();
+            final BatteryHistoryColumns columns;
+            try (Cursor cursor = mDatabase.batteryStateDao().getBatteryStatesAfter(0L)) {
+                columns = BatteryHistoryColumns.load(cursor);
+            }
+            columnsNanos = Math.min(columnsNanos, SystemClock.elapsedRealtimeNanos() - start);
+            assertThat(columns.size()).isEqualTo(rowCount);
+
+            start = SystemClock.elapsedRealtimeNanos();
+            final Map<Long, Map<String, BatteryHistEntry>> columnsMap = columns.toHistoryMap();
+            columnsToMapNanos =
+                    Math.min(columnsToMapNanos, SystemClock.elapsedRealtimeNanos() - start);
+            assertThat(columnsMap).hasSize(SNAPSHOT_COUNT);
+        }
+
+        final Bundle results = new Bundle();
+        results.putLong("rows", rowCount);
+        results.putLong("legacy_load_ns_per_row", legacyNanos / rowCount);
+        results.putLong("columns_load_ns_per_row", columnsNanos / rowCount);
+        results.putLong("columns_to_map_ns_per_row", columnsToMapNanos / rowCount);
+        Log.i(TAG, results.toString());
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+    }
+
+    private static List<BatteryState> createStates() {
+        final List<BatteryState> states = new ArrayList<>(SNAPSHOT_COUNT * ENTRIES_PER_SNAPSHOT);
+        for (int snapshot = 0; snapshot < SNAPSHOT_COUNT; snapshot++) {
+            for (int entry = 0; entry < ENTRIES_PER_SNAPSHOT; entry++) {
+                final BatteryInformation batteryInformation =
+                        BatteryInformation.newBuilder()
+                                .setDeviceBatteryState(
+                                        DeviceBatteryState.newBuilder()
+                                                .setBatteryLevel(100 - snapshot % 100)
+                                                .build())
+                                .setAppLabel("App " + entry)
+                                .setZoneId("America/Los_Angeles")
+                                .setConsumePower(snapshot * 0.1 + entry)
+                                .setForegroundUsageTimeInMs(snapshot * 1000L)
+                                .setBackgroundUsageTimeInMs(snapshot * 2000L)
+                                .build();
+                states.add(
+                        BatteryState.newBuilder()
+                                .setUid(10000L + entry)
+                                .setUserId(0L)
+                                .setPackageName("com.android.test" + entry)
+                                .setTimestamp(1000L + snapshot * 3600000L)
+                                .setConsumerType(ConvertUtils.CONSUMER_TYPE_UID_BATTERY)
+                                .setBatteryInformation(batteryInformation.toByteArray())
+                                .build());
+            }
+        }
+        return states;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.settings.fuelgauge.BatteryUtils;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the write and read paths of the battery usage database with BLOB columns, compared
+ * with the legacy Base64 encoded TEXT columns. The legacy rows are written to and read from a
+ * table with the schema of the version 1 database, including the Base64 encoding and decoding.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatteryUsageStorageBenchmarkTest {
+    private static final String TAG = "BatteryUsageStorageBenchmark";
+    private static final int SNAPSHOT_COUNT = 24 * 7;
+    private static final int ENTRIES_PER_SNAPSHOT = 40;
+    private static final int ITERATIONS = 5;
+    private static final String LEGACY_TABLE = "BatteryStateLegacy";
+
+    private Context mContext;
+    private BatteryStateDatabase mDatabase;
+    private BatteryInformation mBatteryInformation;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mDatabase =
+                Room.inMemoryDatabaseBuilder(mContext, BatteryStateDatabase.class)
+                        .allowMainThreadQueries()
+                        .build();
+        mBatteryInformation =
+                BatteryInformation.newBuilder()
+                        .setDeviceBatteryState(
+                                DeviceBatteryState.newBuilder()
+                                        .setBatteryLevel(66)
+                                        .setBatteryStatus(2)
+                                        .setBatteryHealth(2)
+                                        .build())
+                        .setAppLabel("Settings")
+                        .setBootTimestamp(12345L)
+                        .setZoneId("America/Los_Angeles")
+                        .setTotalPower(1234.5)
+                        .setConsumePower(12.3)
+                        .setForegroundUsageConsumePower(4.5)
+                        .setForegroundServiceUsageConsumePower(1.2)
+                        .setBackgroundUsageConsumePower(3.4)
+                        .setCachedUsageConsumePower(0.5)
+                        .setPercentOfTotal(2.1)
+                        .setForegroundUsageTimeInMs(600000L)
+                        .setForegroundServiceUsageTimeInMs(30000L)
+                        .setBackgroundUsageTimeInMs(1200000L)
+                        .build();
+        // The BatteryState table of the version 1 database, with the Base64 encoded TEXT column.
+        mDatabase
+                .getOpenHelper()
+                .getWritableDatabase()
+                .execSQL(
+                        "CREATE TABLE `"
+                                + LEGACY_TABLE
+                                + "` (`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                                + "`uid` INTEGER NOT NULL, `userId` INTEGER NOT NULL, "
+                                + "`packageName` TEXT, `timestamp` INTEGER NOT NULL, "
+                                + "`consumerType` INTEGER NOT NULL, "
+                                + "`isFullChargeCycleStart` INTEGER NOT NULL, "
+                                + "`batteryInformation` TEXT, `batteryInformationDebug` TEXT)");
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void benchmarkWriteAndReadPaths() {
+        final byte[] rawBytes = mBatteryInformation.toByteArray();
+        final String encoded = Base64.encodeToString(rawBytes, Base64.DEFAULT);
+        final int rowCount = SNAPSHOT_COUNT * ENTRIES_PER_SNAPSHOT;
+
+        long legacyCodecNanos = Long.MAX_VALUE;
+        long blobCodecNanos = Long.MAX_VALUE;
+        long legacyWriteNanos = Long.MAX_VALUE;
+        long legacyReadNanos = Long.MAX_VALUE;
+        long writeNanos = Long.MAX_VALUE;
+        long readNanos = Long.MAX_VALUE;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int index = 0; index < rowCount; index++) {
+                BatteryUtils.parseProtoFromString(
+                        Base64.encodeToString(mBatteryInformation.toByteArray(), Base64.DEFAULT),
+                        BatteryInformation.getDefaultInstance());
+            }
+            legacyCodecNanos =
+                    Math.min(legacyCodecNanos, SystemClock.elapsedRealtimeNanos() - start);
+
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int index = 0; index < rowCount; index++) {
+                BatteryUtils.parseProtoFromBytes(
+                        mBatteryInformation.toByteArray(), BatteryInformation.getDefaultInstance());
+            }
+            blobCodecNanos = Math.min(blobCodecNanos, SystemClock.elapsedRealtimeNanos() - start);
+
+            final SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+            db.execSQL("DELETE FROM `" + LEGACY_TABLE + "`");
+            start = SystemClock.elapsedRealtimeNanos();
+            insertLegacyStates(db);
+            legacyWriteNanos =
+                    Math.min(legacyWriteNanos, SystemClock.elapsedRealtimeNanos() - start);
+
+            start = SystemClock.elapsedRealtimeNanos();
+            int legacyReadCount = 0;
+            try (Cursor cursor =
+                    db.query(
+                            "SELECT * FROM `"
+                                    + LEGACY_TABLE
+                                    + "` WHERE timestamp >= ? ORDER BY timestamp ASC",
+                            new Object[] {0L})) {
+                final int columnIndex =
+                        cursor.getColumnIndex(BatteryHistEntry.KEY_BATTERY_INFORMATION);
+                while (cursor.moveToNext()) {
+                    BatteryUtils.parseProtoFromString(
+                            cursor.getString(columnIndex),
+                            BatteryInformation.getDefaultInstance());
+                    legacyReadCount++;
+                }
+            }
+            legacyReadNanos =
+                    Math.min(legacyReadNanos, SystemClock.elapsedRealtimeNanos() - start);
+            assertThat(legacyReadCount).isEqualTo(rowCount);
+
+            mDatabase.batteryStateDao().clearAll();
+            start = SystemClock.elapsedRealtimeNanos();
+            mDatabase.batteryStateDao().insertAll(createStates());
+            writeNanos = Math.min(writeNanos, SystemClock.elapsedRealtimeNanos() - start);
+
+            start = SystemClock.elapsedRealtimeNanos();
+            int readCount = 0;
+            try (Cursor cursor = mDatabase.batteryStateDao().getBatteryStatesAfter(0L)) {
+                while (cursor.moveToNext()) {
+                    ConvertUtils.getBatteryInformation(
+                            cursor, BatteryHistEntry.KEY_BATTERY_INFORMATION);
+                    readCount++;
+                }
+            }
+            readNanos = Math.min(readNanos, SystemClock.elapsedRealtimeNanos() - start);
+            assertThat(readCount).isEqualTo(rowCount);
+        }
+
+        final Bundle results = new Bundle();
+        results.putLong("legacy_bytes_per_row", encoded.length());
+        results.putLong("blob_bytes_per_row", rawBytes.length);
+        results.putLong("legacy_codec_ns_per_row", legacyCodecNanos / rowCount);
+        results.putLong("blob_codec_ns_per_row", blobCodecNanos / rowCount);
+        results.putLong("legacy_write_ns_per_row", legacyWriteNanos / rowCount);
+        results.putLong("legacy_read_ns_per_row", legacyReadNanos / rowCount);
+        results.putLong("blob_write_ns_per_row", writeNanos / rowCount);
+        results.putLong("blob_read_ns_per_row", readNanos / rowCount);
+        Log.i(TAG, results.toString());
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+
+        assertThat(rawBytes.length).isLessThan(encoded.length());
+    }
+
+    /** Inserts the rows the way the legacy DAO did, encoding each one in the transaction. */
+    private void insertLegacyStates(SupportSQLiteDatabase db) {
+        db.beginTransaction();
+        try (SupportSQLiteStatement statement =
+                db.compileStatement(
+                        "INSERT INTO `"
+                                + LEGACY_TABLE
+                                + "` (`uid`, `userId`, `packageName`, `timestamp`, "
+                                + "`consumerType`, `isFullChargeCycleStart`, "
+                                + "`batteryInformation`, `batteryInformationDebug`) "
+                                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int snapshot = 0; snapshot < SNAPSHOT_COUNT; snapshot++) {
+                for (int entry = 0; entry < ENTRIES_PER_SNAPSHOT; entry++) {
+                    statement.bindLong(1, 10000L + entry);
+                    statement.bindLong(2, 0L);
+                    statement.bindString(3, "com.android.test" + entry);
+                    statement.bindLong(4, 1000L + snapshot * 3600000L);
+                    statement.bindLong(5, ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+                    statement.bindLong(6, 0L);
+                    statement.bindString(
+                            7,
+                            Base64.encodeToString(
+                                    mBatteryInformation.toByteArray(), Base64.DEFAULT));
+                    statement.bindNull(8);
+                    statement.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            throw new IllegalStateException("failed to insert legacy rows", e);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private List<BatteryState> createStates() {
+        final List<BatteryState> states = new ArrayList<>(SNAPSHOT_COUNT * ENTRIES_PER_SNAPSHOT);
+        for (int snapshot = 0; snapshot < SNAPSHOT_COUNT; snapshot++) {
+            for (int entry = 0; entry < ENTRIES_PER_SNAPSHOT; entry++) {
+                states.add(
+                        BatteryState.newBuilder()
+                                .setUid(10000L + entry)
+                                .setUserId(0L)
+                                .setPackageName("com.android.test" + entry)
+                                .setTimestamp(1000L + snapshot * 3600000L)
+                                .setConsumerType(ConvertUtils.CONSUMER_TYPE_UID_BATTERY)
+                                .setBatteryInformation(mBatteryInformation.toByteArray())
+                                .build());
+            }
+        }
+        return states;
+    }
+}
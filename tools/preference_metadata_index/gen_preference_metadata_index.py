@@ -0,0 +1,231 @@
+#!/usr/bin/env python3
+#
+# Copyright (C) 2026 The Android Open Source Project
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+"""Generates the prebuilt metadata index of the preference screen XML resources.
+
+The generated PreferenceXmlMetadataIndexData registers the metadata of every preference node into
+PreferenceXmlMetadataIndex, which serves PreferenceXmlParserUtils.extractMetadata() without parsing
+the XML resource at runtime. A screen is skipped, and therefore parsed at runtime, if any of its
+indexed attributes can't be resolved exactly at build time.
+"""
+
+import argparse
+import os
+import re
+import sys
+import xml.etree.ElementTree as ElementTree
+
+ANDROID_NS = "http://schemas.android.com/apk/res/android"
+APP_NAMESPACES = (
+    "http://schemas.android.com/apk/res-auto",
+    "http://schemas.android.com/apk/res/com.android.settings",
+)
+SUPPORTED_PREF_TYPES = (
+    "Preference",
+    "PreferenceCategory",
+    "PreferenceScreen",
+    "SwitchPreferenceCompat",
+    "com.android.settings.widget.WorkOnlyCategory",
+)
+# Literal values which aapt2 keeps as is.
+SAFE_LITERAL = re.compile(r"^[A-Za-z0-9_.,:;/$#&()+\-]+( [A-Za-z0-9_.,:;/$#&()+\-]+)*$")
+REFERENCE = re.compile(r"^@([a-z]+)/([A-Za-z0-9_.]+)$")
+SCREENS_PER_METHOD = 50
+
+
+class UnsupportedValue(Exception):
+    pass
+
+
+def java_string(value):
+    escaped = value.replace("\\", "\\\\").replace("\"", "\\\"")
+    return "\"%s\"" % escaped
+
+
+def collect_local_resources(paths):
+    """Returns the names of the resources defined by this module, keyed by resource type."""
+    resources = {"string": set(), "bool": set(), "drawable": set(), "mipmap": set()}
+    for path in paths:
+        parent = os.path.basename(os.path.dirname(path))
+        if parent.startswith("drawable") or parent.startswith("mipmap"):
+            name = os.path.basename(path).split(".")[0]
+            resources[parent.split("-")[0]].add(name)
+            continue
+        if parent != "values" or not path.endswith(".xml"):
+            continue
+        for element in ElementTree.parse(path).getroot():
+            name = element.get("name")
+            resource_type = element.get("type") if element.tag == "item" else element.tag
+            if name and resource_type in resources:
+                resources[resource_type].add(name)
+    return resources
+
+
+def get_attribute(element, namespaces, name):
+    for namespace in namespaces:
+        value = element.get("{%s}%s" % (namespace, name))
+        if value is not None:
+            return value
+    return None
+
+
+def string_value(value, resources):
+    if value is None or value == "@null":
+        return "null"
+    if value == "":
+        return "\"\""
+    match = REFERENCE.match(value)
+    if match:
+        if match.group(1) != "string" or match.group(2) not in resources["string"]:
+            raise UnsupportedValue(value)
+        return "R.string.%s" % match.group(2)
+    if value.startswith("@") or value.startswith("?") or not SAFE_LITERAL.match(value):
+        raise UnsupportedValue(value)
+    return java_string(value)
+
+
+def boolean_value(value, resources):
+    if value is None:
+        return "null"
+    if value in ("true", "false"):
+        return "Boolean.%s" % value.upper()
+    match = REFERENCE.match(value)
+    if match and match.group(1) == "bool" and match.group(2) in resources["bool"]:
+        return "R.bool.%s" % match.group(2)
+    raise UnsupportedValue(value)
+
+
+def icon_value(value, resources):
+    if value is None or value == "@null":
+        return "0"
+    match = REFERENCE.match(value)
+    if match and match.group(1) in ("drawable", "mipmap") and match.group(2) in resources[
+            match.group(1)]:
+        return "R.%s.%s" % (match.group(1), match.group(2))
+    raise UnsupportedValue(value)
+
+
+def appended_value(value):
+    if value is None or value == "prepend":
+        return "false"
+    if value == "append":
+        return "true"
+    raise UnsupportedValue(value)
+
+
+def is_preference_node(tag):
+    return tag in SUPPORTED_PREF_TYPES or tag.endswith("Preference")
+
+
+def index_screen(path, resources):
+    """Returns the Java expressions of the preference nodes, or None if not a preference screen."""
+    root = ElementTree.parse(path).getroot()
+    if root.tag != "PreferenceScreen" and not root.tag.endswith("PreferenceScreen"):
+        return None
+    nodes = []
+    for element in root.iter():
+        if not isinstance(element.tag, str) or not is_preference_node(element.tag):
+            continue
+        if element.get("style") is not None:
+            # Styled attributes can't be resolved without the style resource.
+            raise UnsupportedValue("style")
+        nodes.append(
+            "node(%s)" % ", ".join([
+                java_string(element.tag),
+                string_value(get_attribute(element, [ANDROID_NS], "key"), resources),
+                string_value(get_attribute(element, APP_NAMESPACES, "controller"), resources),
+                string_value(get_attribute(element, [ANDROID_NS], "title"), resources),
+                string_value(get_attribute(element, [ANDROID_NS], "summary"), resources),
+                icon_value(get_attribute(element, [ANDROID_NS], "icon"), resources),
+                string_value(get_attribute(element, APP_NAMESPACES, "keywords"), resources),
+                boolean_value(get_attribute(element, APP_NAMESPACES, "searchable"), resources),
+                appended_value(get_attribute(element, APP_NAMESPACES, "staticPreferenceLocation")),
+                string_value(
+                    get_attribute(element, APP_NAMESPACES, "unavailableSliceSubtitle"), resources),
+                boolean_value(get_attribute(element, APP_NAMESPACES, "forWork"), resources),
+                string_value(
+                    get_attribute(element, APP_NAMESPACES, "highlightableMenuKey"), resources),
+                string_value(get_attribute(element, APP_NAMESPACES, "userRestriction"), resources),
+            ]))
+    return nodes
+
+
+def generate(screens):
+    names = sorted(screens)
+    lines = [
+        "// Generated by gen_preference_metadata_index.py. DO NOT EDIT.",
+        "",
+        "package com.android.settings.core;",
+        "",
+        "import static com.android.settings.core.PreferenceXmlMetadataIndex.node;",
+        "",
+        "import com.android.settings.R;",
+        "import com.android.settings.core.PreferenceXmlMetadataIndex.Node;",
+        "import com.android.settings.core.PreferenceXmlMetadataIndex.Registry;",
+        "",
+        "/** The prebuilt metadata of the preference screen XML resources. */",
+        "final class PreferenceXmlMetadataIndexData {",
+        "",
+        "    private PreferenceXmlMetadataIndexData() {}",
+        "",
+        "    /** Registers the node suppliers of all the indexed XML resources. */",
+        "    static void registerAll(Registry registry) {",
+    ]
+    chunks = [names[i:i + SCREENS_PER_METHOD] for i in range(0, len(names), SCREENS_PER_METHOD)]
+    for index in range(len(chunks)):
+        lines.append("        register%d(registry);" % index)
+    lines.append("    }")
+    for index, chunk in enumerate(chunks):
+        lines += ["", "    private static void register%d(Registry registry) {" % index]
+        for name in chunk:
+            lines.append(
+                "        registry.register(R.xml.%s, \"%s\", PreferenceXmlMetadataIndexData::%s);"
+                % (name, name, name))
+        lines.append("    }")
+    for name in names:
+        lines += ["", "    private static Node[] %s() {" % name, "        return new Node[] {"]
+        lines += ["            %s," % node for node in screens[name]]
+        lines += ["        };", "    }"]
+    lines += ["}", ""]
+    return "\n".join(lines)
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__)
+    parser.add_argument("--out", required=True, help="the generated Java file")
+    parser.add_argument("inputs", nargs="+", help="the XML and resource files")
+    args = parser.parse_args()
+
+    resources = collect_local_resources(args.inputs)
+    screens = {}
+    for path in args.inputs:
+        if os.path.basename(os.path.dirname(path)) != "xml" or not path.endswith(".xml"):
+            continue
+        name = os.path.basename(path)[:-len(".xml")]
+        try:
+            nodes = index_screen(path, resources)
+        except UnsupportedValue as e:
+            print("skip %s: unsupported value %s" % (name, e), file=sys.stderr)
+            continue
+        if nodes is not None:
+            screens[name] = nodes
+
+    with open(args.out, "w") as out:
+        out.write(generate(screens))
+
+
+if __name__ == "__main__":
+    main()